@@ -17,6 +17,10 @@
  */
 package org.phenotips.termrequester;
 
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.util.Objects;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import com.google.common.base.Optional;
@@ -31,14 +35,34 @@
 public abstract class AbstractSaveable
 {
     /**
-     * A hash to uniquely identify this version of the object.
+     * The dirty bit for the id.
+     */
+    public static final int ID_FIELD = 1;
+
+    /**
+     * The dirty bit for the etag.
+     */
+    public static final int ETAG_FIELD = 1 << 1;
+
+    /**
+     * The first dirty bit free for subclasses to use for their own fields.
+     */
+    protected static final int FIRST_SUBCLASS_FIELD = 1 << 2;
+
+    /**
+     * The bits of the fields changed since this was last clean.
      */
-    private String versionHash = "";
+    private int dirtyFields;
 
     /**
-     * The internal id of this object.
+     * The internal id of this object, as IdUtils encodes it.
      */
-    private String id;
+    private int idCode;
+
+    /**
+     * The internal id of this object, if it doesn't encode.
+     */
+    private String otherId;
 
     /**
      * This object's last returned etag.
@@ -52,7 +76,18 @@
     @JsonIgnore
     public boolean isDirty()
     {
-        return (!getId().isPresent()) || (!versionHash.equals(calculateVersionHash()));
+        return !hasId() || dirtyFields != 0;
+    }
+
+    /**
+     * Get which fields have changed since this was last clean.
+     * Meaningless for objects that were never saved, which are dirty all over.
+     * @return the dirty bits of the changed fields, or'd together
+     */
+    @JsonIgnore
+    public int getDirtyFields()
+    {
+        return dirtyFields;
     }
 
     /**
@@ -60,8 +95,18 @@ public boolean isDirty()
      */
     public void setClean()
     {
-        checkState(getId().isPresent(), "Phenotype %s cannot be setClean without id", this);
-        versionHash = calculateVersionHash();
+        checkState(hasId(), "Phenotype %s cannot be setClean without id", this);
+        dirtyFields = 0;
+    }
+
+    /**
+     * Record that the fields given have changed. Setters should only call this when the value really does
+     * change, so that setting what's already there doesn't cause a write.
+     * @param fields the dirty bits of the fields, or'd together
+     */
+    protected void markDirty(int fields)
+    {
+        dirtyFields |= fields;
     }
 
     /**
@@ -71,7 +116,32 @@ public void setClean()
      */
     public Optional<String> getId()
     {
-        return Optional.fromNullable(id);
+        if (idCode != IdUtils.NO_CODE) {
+            return Optional.of(IdUtils.decode(idCode));
+        } else {
+            return Optional.fromNullable(otherId);
+        }
+    }
+
+    /**
+     * Get whether this has an id, without building it.
+     *
+     * @return whether it does
+     */
+    protected boolean hasId()
+    {
+        return idCode != IdUtils.NO_CODE || otherId != null;
+    }
+
+    /**
+     * Get whether this has the same id as the other object given, without building either.
+     *
+     * @param other the other object
+     * @return whether they both have an id and it's the same
+     */
+    protected boolean hasSameId(AbstractSaveable other)
+    {
+        return hasId() && idCode == other.idCode && Objects.equals(otherId, other.otherId);
     }
 
     /**
@@ -81,7 +151,13 @@ public Optional<String> getId()
      */
     public void setId(String id)
     {
-        this.id = id;
+        int code = IdUtils.encode(id);
+        String other = code == IdUtils.NO_CODE ? id : null;
+        if (code != idCode || !Objects.equals(other, otherId)) {
+            idCode = code;
+            otherId = other;
+            markDirty(ID_FIELD);
+        }
     }
 
     /**
@@ -102,12 +178,27 @@ public String getEtag()
      */
     public void setEtag(String etag)
     {
-        this.etag = etag;
+        if (!Objects.equals(this.etag, etag)) {
+            this.etag = etag;
+            markDirty(ETAG_FIELD);
+        }
+    }
+
+    /**
+     * Get the version of this object as clients see it, which changes whenever anything they can see does.
+     * Unlike the dirty bits used to tell whether this needs saving, bookkeeping that clients don't see
+     * leaves it alone, so it makes for a good etag.
+     * @return the version
+     */
+    @JsonIgnore
+    public String getVersion()
+    {
+        return calculateVersion();
     }
 
     /**
-     * Calculate (but do not set) the current versionHash.
-     * @return the version hash
+     * Calculate the current version as clients see it.
+     * @return the version
      */
-    protected abstract String calculateVersionHash();
+    protected abstract String calculateVersion();
 }
@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The ids of the terms in a release of the HPO, read from its OBO file.
+ * Only the term ids are kept, which is all we need to tell whether an accepted phenotype has been
+ * published. The file is read again whenever it changes.
+ *
+ * @version $Id$
+ */
+final class HPORelease
+{
+    /**
+     * The default name of the release file, in the home directory.
+     */
+    public static final String DEFAULT_FILE_NAME = "hp.obo";
+
+    /**
+     * The tags in an OBO term stanza that hold an id of the term.
+     */
+    private static final String[] ID_TAGS = { "id: HP:", "alt_id: HP:" };
+
+    /**
+     * The prefix of hpo ids as we store them.
+     */
+    private static final String HPO_ID_PREFIX = "HP_";
+
+    /**
+     * The release file.
+     */
+    private final Path file;
+
+    /**
+     * When the file was last modified, as of the last time we read it.
+     */
+    private FileTime lastRead;
+
+    /**
+     * The ids read from the file, as hpo ids.
+     */
+    private Set<String> ids = Collections.emptySet();
+
+    /**
+     * CTOR.
+     * @param file the release file
+     */
+    HPORelease(Path file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Get the release file.
+     * @return the file
+     */
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Get the ids of all the terms in the release, primary and alternate, in our HP_0000000 format.
+     * Reads the file if it changed since the last call.
+     * @return the ids, or an empty set if there is no release file
+     * @throws IOException if the file can't be read
+     */
+    public synchronized Set<String> getIds() throws IOException
+    {
+        if (!Files.isRegularFile(file)) {
+            lastRead = null;
+            ids = Collections.emptySet();
+            return ids;
+        }
+        FileTime modified = Files.getLastModifiedTime(file);
+        if (!modified.equals(lastRead)) {
+            ids = Collections.unmodifiableSet(read());
+            lastRead = modified;
+        }
+        return ids;
+    }
+
+    /**
+     * Read the ids from the file.
+     * @return the ids
+     * @throws IOException if the file can't be read
+     */
+    private Set<String> read() throws IOException
+    {
+        Set<String> read = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String tag : ID_TAGS) {
+                    if (line.startsWith(tag)) {
+                        /* Drop any trailing modifier or comment */
+                        String id = line.substring(tag.length()).trim();
+                        int end = id.indexOf(' ');
+                        if (end >= 0) {
+                            id = id.substring(0, end);
+                        }
+                        read.add(HPO_ID_PREFIX + id);
+                        break;
+                    }
+                }
+            }
+        }
+        return read;
+    }
+}
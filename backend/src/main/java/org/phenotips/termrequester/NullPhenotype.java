@@ -120,6 +120,12 @@ public Optional<Date> getTimeModified()
         return Optional.<Date>absent();
     }
 
+    @Override
+    public Optional<Date> getTimeVerified()
+    {
+        return Optional.<Date>absent();
+    }
+
     @Override
     public Status getStatus()
     {
@@ -17,23 +17,30 @@
  */
 package org.phenotips.termrequester;
 
-import org.phenotips.termrequester.util.TitleCaseSet;
+import org.phenotips.termrequester.util.Descriptions;
+import org.phenotips.termrequester.util.IdSet;
+import org.phenotips.termrequester.util.NamePool;
+import org.phenotips.termrequester.util.NameSet;
+import org.phenotips.termrequester.utils.IdUtils;
 
 import java.io.Serializable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
-import org.apache.commons.lang3.text.WordUtils;
+import org.apache.commons.lang3.StringUtils;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.Sets;
 
 /**
  * Represents a given phenotype request.
@@ -44,6 +51,7 @@
  *
  * @version $Id$
  */
+@JsonIgnoreProperties(value = { "stale" }, allowGetters = true)
 public class Phenotype extends AbstractSaveable implements Serializable
 {
     /**
@@ -70,25 +78,80 @@ public class Phenotype extends AbstractSaveable implements Serializable
      */
     public static final Phenotype NULL = NullPhenotype.INSTANCE;
 
+    /**
+     * The dirty bit for the name.
+     */
+    public static final int NAME_FIELD = FIRST_SUBCLASS_FIELD;
+
+    /**
+     * The dirty bit for the description.
+     */
+    public static final int DESCRIPTION_FIELD = FIRST_SUBCLASS_FIELD << 1;
+
+    /**
+     * The dirty bit for the synonyms.
+     */
+    public static final int SYNONYMS_FIELD = FIRST_SUBCLASS_FIELD << 2;
+
+    /**
+     * The dirty bit for the parents.
+     */
+    public static final int PARENTS_FIELD = FIRST_SUBCLASS_FIELD << 3;
+
+    /**
+     * The dirty bit for the status.
+     */
+    public static final int STATUS_FIELD = FIRST_SUBCLASS_FIELD << 4;
+
+    /**
+     * The dirty bit for the issue number.
+     */
+    public static final int ISSUE_NUMBER_FIELD = FIRST_SUBCLASS_FIELD << 5;
+
+    /**
+     * The dirty bit for the hpo id.
+     */
+    public static final int HPO_ID_FIELD = FIRST_SUBCLASS_FIELD << 6;
+
+    /**
+     * The dirty bit for the time last checked against github.
+     */
+    public static final int TIME_VERIFIED_FIELD = FIRST_SUBCLASS_FIELD << 7;
+
     /**
      * The serial version uid.
      */
     private static final long serialVersionUID = 1789L;
 
     /**
-     * The hpo id of this phenotype.
+     * The value of a time that isn't set.
      */
-    private String hpoId;
+    private static final long NO_TIME = Long.MIN_VALUE;
 
     /**
-     * The time when this was created.
+     * The hpo id of this phenotype, as IdUtils encodes it.
      */
-    private Date timeCreated;
+    private int hpoIdCode;
 
     /**
-     * The time when this was modified.
+     * The hpo id of this phenotype, if it doesn't encode.
      */
-    private Date timeModified;
+    private String otherHpoId;
+
+    /**
+     * The time when this was created, in milliseconds since the epoch.
+     */
+    private long timeCreated = NO_TIME;
+
+    /**
+     * The time when this was modified, in milliseconds since the epoch.
+     */
+    private long timeModified = NO_TIME;
+
+    /**
+     * The time when this was last checked against github, in milliseconds since the epoch.
+     */
+    private long timeVerified = NO_TIME;
 
     /**
      * The github issue number.
@@ -101,14 +164,19 @@ public class Phenotype extends AbstractSaveable implements Serializable
     private String name;
 
     /**
-     * The phenotype's description.
+     * The phenotype's description, as rendered from its contributions.
      */
     private String description;
 
+    /**
+     * The separate contributions to the description, or null if it's a single one.
+     */
+    private List<String> contributions;
+
     /**
      * A set of the phenotype's synonyms.
      */
-    private Set<String> synonyms;
+    private NameSet synonyms;
 
     /**
      * The issue status.
@@ -118,7 +186,18 @@ public class Phenotype extends AbstractSaveable implements Serializable
     /**
      * This phenotype's parents.
      */
-    private Set<String> parentIds;
+    private IdSet parentIds;
+
+    /**
+     * Whether this copy couldn't be checked against github. Not persisted.
+     */
+    private transient boolean stale;
+
+    /**
+     * The name and synonyms, sorted, for equals to compare against.
+     * Computed on first use, and dropped whenever the names change. Never modified once set.
+     */
+    private transient volatile String[] nameKeys;
 
     /**
      * No-arg constructor. Sets name and description to empty string.
@@ -137,8 +216,8 @@ public Phenotype()
     public Phenotype(String name, String description)
     {
         /* We're gonna make synonyms and names title case, to make sure comparisons work */
-        synonyms = new TitleCaseSet();
-        parentIds = new HashSet<>();
+        synonyms = NameSet.EMPTY;
+        parentIds = IdSet.EMPTY;
         setName(name);
         setDescription(description);
     }
@@ -146,11 +225,22 @@ public Phenotype(String name, String description)
     /**
      * Get the list of synonyms for this phenotype.
      *
-     * @return the list.
+     * @return the list, which can't be modified; copy it to build on it.
      */
     public Set<String> getSynonyms()
     {
-        return new TitleCaseSet(synonyms);
+        return synonyms;
+    }
+
+    /**
+     * Set the synonyms, replacing any there were. For deserialization.
+     *
+     * @param synonyms the synonyms
+     */
+    @JsonProperty("synonyms")
+    private void setSynonyms(Collection<String> synonyms)
+    {
+        replaceSynonyms(NameSet.of(synonyms));
     }
 
     /**
@@ -161,9 +251,7 @@ public Set<String> getSynonyms()
     public void addSynonym(String synonym)
     {
         /* We need to make sure we don't define something as a synonym of itself */
-        if (!name.equals(synonym)) {
-            synonyms.add(synonym);
-        }
+        replaceSynonyms(synonyms.with(synonym).without(name));
     }
 
     /**
@@ -173,8 +261,7 @@ public void addSynonym(String synonym)
      */
     public void addAllSynonyms(Collection<String> synonyms)
     {
-        this.synonyms.addAll(synonyms);
-        this.synonyms.remove(name);
+        replaceSynonyms(this.synonyms.withAll(synonyms).without(name));
     }
 
     /**
@@ -185,7 +272,23 @@ public void addAllSynonyms(Collection<String> synonyms)
      */
     public boolean removeSynonym(String synonym)
     {
-        return synonyms.remove(synonym);
+        NameSet old = synonyms;
+        replaceSynonyms(synonyms.without(synonym));
+        return synonyms != old;
+    }
+
+    /**
+     * Replace the set of synonyms, if it's a new one.
+     *
+     * @param updated the new set, or the current one if nothing changed
+     */
+    private void replaceSynonyms(NameSet updated)
+    {
+        if (updated != synonyms) {
+            synonyms = updated;
+            nameKeys = null;
+            markDirty(SYNONYMS_FIELD);
+        }
     }
 
     /**
@@ -195,7 +298,11 @@ public boolean removeSynonym(String synonym)
      */
     public Optional<String> getHpoId()
     {
-        return Optional.fromNullable(hpoId);
+        if (hpoIdCode != IdUtils.NO_CODE) {
+            return Optional.of(IdUtils.decode(hpoIdCode));
+        } else {
+            return Optional.fromNullable(otherHpoId);
+        }
     }
 
     /**
@@ -205,7 +312,13 @@ public Optional<String> getHpoId()
      */
     public void setHpoId(String hpoId)
     {
-        this.hpoId = hpoId;
+        int code = IdUtils.encode(hpoId);
+        String other = code == IdUtils.NO_CODE ? hpoId : null;
+        if (code != hpoIdCode || !Objects.equals(other, otherHpoId)) {
+            hpoIdCode = code;
+            otherHpoId = other;
+            markDirty(HPO_ID_FIELD);
+        }
     }
 
     /**
@@ -229,7 +342,10 @@ public Optional<String> getIssueNumber()
      */
     public void setIssueNumber(String issueNumber)
     {
-        this.issueNumber = issueNumber;
+        if (!Objects.equals(this.issueNumber, issueNumber)) {
+            this.issueNumber = issueNumber;
+            markDirty(ISSUE_NUMBER_FIELD);
+        }
     }
 
     /**
@@ -249,7 +365,10 @@ public Status getStatus()
      */
     public void setStatus(Status status)
     {
-        this.status = status;
+        if (this.status != status) {
+            this.status = status;
+            markDirty(STATUS_FIELD);
+        }
     }
 
     /**
@@ -269,7 +388,12 @@ public String getName()
      */
     public void setName(String name)
     {
-        this.name = WordUtils.capitalizeFully(name);
+        String title = NamePool.normalize(name);
+        if (!Objects.equals(this.name, title)) {
+            this.name = title;
+            nameKeys = null;
+            markDirty(NAME_FIELD);
+        }
     }
 
     /**
@@ -283,24 +407,77 @@ public String getDescription()
     }
 
     /**
-     * Set description.
+     * Set description. If it's the one there already, as when it's read back from github, the contributions it
+     * was rendered from are kept.
      *
      * @param description the value to set.
      */
     public void setDescription(String description)
     {
-        this.description = description;
+        if (!Objects.equals(this.description, description)) {
+            this.description = description;
+            contributions = null;
+            markDirty(DESCRIPTION_FIELD);
+        }
+    }
+
+    /**
+     * Get the separate contributions to the description, as merged from every request for this phenotype.
+     *
+     * @return the contributions, the first one first
+     */
+    @JsonIgnore
+    public List<String> getDescriptions()
+    {
+        if (contributions != null) {
+            return contributions;
+        }
+        if (StringUtils.isBlank(description)) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(description);
+    }
+
+    /**
+     * Set the separate contributions to the description, which is then their rendering.
+     *
+     * @param descriptions the contributions, the first one first
+     */
+    @JsonIgnore
+    public void setDescriptions(List<String> descriptions)
+    {
+        if (descriptions.size() <= 1) {
+            setDescription(descriptions.isEmpty() ? "" : descriptions.get(0));
+            return;
+        }
+        String rendered = Descriptions.render(descriptions);
+        if (!Objects.equals(this.description, rendered) || !descriptions.equals(contributions)) {
+            description = rendered;
+            contributions = Collections.unmodifiableList(new ArrayList<>(descriptions));
+            markDirty(DESCRIPTION_FIELD);
+        }
     }
 
     /**
      * Get the parents.
      *
-     * @return parents
+     * @return parents, which can't be modified; copy them to build on them.
      */
     @JsonProperty("parents")
     public Set<String> getParentIds()
     {
-        return new HashSet<>(parentIds);
+        return parentIds;
+    }
+
+    /**
+     * Set the parents, replacing any there were. For deserialization.
+     *
+     * @param parents the parents
+     */
+    @JsonProperty("parents")
+    private void setParentIds(Collection<String> parents)
+    {
+        replaceParentIds(IdSet.of(parents));
     }
 
     /**
@@ -310,7 +487,7 @@ public Set<String> getParentIds()
      */
     public void addParentId(String parent)
     {
-        parentIds.add(parent);
+        replaceParentIds(parentIds.with(parent));
     }
 
     /**
@@ -320,7 +497,20 @@ public void addParentId(String parent)
      */
     public void addAllParentIds(Collection<String> parents)
     {
-        this.parentIds.addAll(parents);
+        replaceParentIds(parentIds.withAll(parents));
+    }
+
+    /**
+     * Replace the set of parents, if it's a new one.
+     *
+     * @param updated the new set, or the current one if nothing changed
+     */
+    private void replaceParentIds(IdSet updated)
+    {
+        if (updated != parentIds) {
+            parentIds = updated;
+            markDirty(PARENTS_FIELD);
+        }
     }
 
     /**
@@ -331,7 +521,7 @@ public void addAllParentIds(Collection<String> parents)
     @JsonIgnore
     public Optional<Date> getTimeCreated()
     {
-        return Optional.fromNullable(timeCreated);
+        return toDate(timeCreated);
     }
 
     /**
@@ -341,7 +531,7 @@ public Optional<Date> getTimeCreated()
      */
     public void setTimeCreated(Date timeCreated)
     {
-        this.timeCreated = timeCreated;
+        this.timeCreated = toMillis(timeCreated);
     }
 
     /**
@@ -352,7 +542,7 @@ public void setTimeCreated(Date timeCreated)
     @JsonIgnore
     public Optional<Date> getTimeModified()
     {
-        return Optional.fromNullable(timeModified);
+        return toDate(timeModified);
     }
 
     /**
@@ -362,7 +552,82 @@ public Optional<Date> getTimeModified()
      */
     public void setTimeModified(Date timeModified)
     {
-        this.timeModified = timeModified;
+        this.timeModified = toMillis(timeModified);
+    }
+
+    /**
+     * Get timeVerified, the last time this was checked against github.
+     *
+     * @return timeVerified as Date.
+     */
+    @JsonIgnore
+    public Optional<Date> getTimeVerified()
+    {
+        return toDate(timeVerified);
+    }
+
+    /**
+     * Set timeVerified.
+     *
+     * @param timeVerified the value to set.
+     */
+    public void setTimeVerified(Date timeVerified)
+    {
+        long millis = toMillis(timeVerified);
+        if (this.timeVerified != millis) {
+            this.timeVerified = millis;
+            markDirty(TIME_VERIFIED_FIELD);
+        }
+    }
+
+    /**
+     * Turn a time as stored into a date.
+     *
+     * @param millis the time, or NO_TIME
+     * @return the date, which is a new one every time
+     */
+    private static Optional<Date> toDate(long millis)
+    {
+        if (millis == NO_TIME) {
+            return Optional.absent();
+        } else {
+            return Optional.of(new Date(millis));
+        }
+    }
+
+    /**
+     * Turn a date into a time to store.
+     *
+     * @param date the date, or null
+     * @return the time, or NO_TIME
+     */
+    private static long toMillis(Date date)
+    {
+        if (date == null) {
+            return NO_TIME;
+        } else {
+            return date.getTime();
+        }
+    }
+
+    /**
+     * Get whether this copy might be out of date, because github couldn't be reached to check it.
+     *
+     * @return whether this is stale
+     */
+    public boolean isStale()
+    {
+        return stale;
+    }
+
+    /**
+     * Set whether this copy might be out of date.
+     *
+     * @param stale the value to set.
+     */
+    public void setStale(boolean stale)
+    {
+        this.stale = stale;
     }
 
     /**
@@ -377,7 +642,7 @@ public boolean submittable()
 
     /**
      * Consume the phenotype given, merging it with this one.
-     * Will merge the descriptions.
+     * Will merge the descriptions, as Descriptions.merge does.
      *
      * @param other the phenotype to merge this one to. Will be left unchanged
      */
@@ -400,8 +665,7 @@ public void mergeWith(Phenotype other, boolean mergeDescription)
         addAllSynonyms(other.getSynonyms());
         addSynonym(other.getName());
         if (mergeDescription) {
-            /* TODO Merge description a bit better */
-            description += " " + other.getDescription();
+            setDescriptions(Descriptions.merge(getDescriptions(), other.getDescriptions()));
         }
     }
 
@@ -413,11 +677,17 @@ public void mergeWith(Phenotype other, boolean mergeDescription)
     public void replaceBy(Phenotype other)
     {
         setName(other.getName());
-        setDescription(other.getDescription());
-        synonyms.clear();
-        addAllSynonyms(other.getSynonyms());
-        parentIds.clear();
-        addAllParentIds(other.getParentIds());
+        if (other.getDescriptions().size() > 1) {
+            setDescriptions(other.getDescriptions());
+        } else {
+            setDescription(other.getDescription());
+        }
+        if (!synonyms.equals(other.getSynonyms())) {
+            replaceSynonyms(NameSet.of(other.getSynonyms()).without(name));
+        }
+        if (!parentIds.equals(other.getParentIds())) {
+            replaceParentIds(IdSet.of(other.getParentIds()));
+        }
         setStatus(other.getStatus());
         if (other.getIssueNumber().isPresent()) {
             setIssueNumber(other.getIssueNumber().get());
@@ -464,9 +734,9 @@ public String forceGetHpoId()
     }
 
     @Override
-    protected String calculateVersionHash()
+    protected String calculateVersion()
     {
-        return Integer.toString(hashCode());
+        return Integer.toHexString(hashCode());
     }
 
     @Override
@@ -488,22 +758,51 @@ public boolean equals(Object o)
             return false;
         }
         Phenotype other = (Phenotype) o;
-        if (other.getId().isPresent() && getId().isPresent()) {
-            return other.getId().get().equals(getId().get());
+        if (other.hasId() && hasId()) {
+            return hasSameId(other);
+        }
+        /* We're equal if we share at least one name with them: walk both sorted lists of names at once */
+        String[] ours = getNameKeys();
+        String[] theirs = other.getNameKeys();
+        int i = 0;
+        int j = 0;
+        while (i < ours.length && j < theirs.length) {
+            int cmp = ours[i].compareTo(theirs[j]);
+            if (cmp == 0) {
+                return true;
+            } else if (cmp < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the name and synonyms, sorted, computing them if they've changed.
+     * Names are already title cased on the way in, so they compare as they are.
+     *
+     * @return the names. Must not be modified
+     */
+    private String[] getNameKeys()
+    {
+        String[] keys = nameKeys;
+        if (keys == null) {
+            Set<String> synonymSet = getSynonyms();
+            keys = synonymSet.toArray(new String[synonymSet.size() + 1]);
+            keys[synonymSet.size()] = getName();
+            Arrays.sort(keys);
+            nameKeys = keys;
         }
-        /* We're equal if we share at least one name with them */
-        Set<String> theirNames = other.getSynonyms();
-        theirNames.add(other.getName());
-        Set<String> ourNames = getSynonyms();
-        ourNames.add(getName());
-        return !Sets.intersection(theirNames, ourNames).isEmpty();
+        return keys;
     }
 
     @Override
     public int hashCode()
     {
         return Objects.hash(getId().or(EMPTY_ID), name, description, synonyms,
-                parentIds, getIssueNumber().or(EMPTY_ISSUE), status, hpoId);
+                parentIds, getIssueNumber().or(EMPTY_ISSUE), status, getHpoId().orNull());
     }
 
     /**
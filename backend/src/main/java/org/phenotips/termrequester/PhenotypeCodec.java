@@ -0,0 +1,746 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Encodes phenotypes in a compact, versioned binary format, for caches, snapshots and sending them between
+ * nodes, where JSON and java serialization are several times larger and slower.
+ *
+ * The format is a version byte and a flags byte, then, deflated if the flags say so, the number of phenotypes
+ * followed by each one. Numbers are varints, and ids are written as the numbers IdUtils encodes them to.
+ * Synonyms and parents that don't encode go through a string table: the first time one turns up it's written
+ * out, and after that it's written as its index, which makes batches of related phenotypes much smaller.
+ * Dirty fields are kept, so a phenotype decodes exactly as it was; whether it's stale isn't.
+ * Descriptions are written with their separate contributions; version 1 bytes, which only had the rendered
+ * description, still decode, as single contributions.
+ *
+ * @version $Id$
+ */
+public final class PhenotypeCodec
+{
+    /**
+     * The version of the format written.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The version before descriptions were written as their contributions, which can still be read.
+     */
+    private static final int SINGLE_DESCRIPTION_VERSION = 1;
+
+    /**
+     * The flag for a deflated body.
+     */
+    private static final int DEFLATED = 1;
+
+    /**
+     * The kind of a plain phenotype.
+     */
+    private static final int PHENOTYPE = 0;
+
+    /**
+     * The kind of a phenotype from the hpo.
+     */
+    private static final int HPO_PHENOTYPE = 1;
+
+    /**
+     * The kind of the null phenotype.
+     */
+    private static final int NULL_PHENOTYPE = 2;
+
+    /**
+     * The bit set when the creation time is there.
+     */
+    private static final int HAS_CREATED = 1;
+
+    /**
+     * The bit set when the modification time is there.
+     */
+    private static final int HAS_MODIFIED = 1 << 1;
+
+    /**
+     * The bit set when the verification time is there.
+     */
+    private static final int HAS_VERIFIED = 1 << 2;
+
+    /**
+     * The statuses, by ordinal.
+     */
+    private static final Phenotype.Status[] STATUSES = Phenotype.Status.values();
+
+    /**
+     * Private CTOR, for a utility class.
+     */
+    private PhenotypeCodec()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Encode a single phenotype, uncompressed.
+     *
+     * @param pt the phenotype
+     * @return the bytes
+     */
+    public static byte[] encode(Phenotype pt)
+    {
+        return encode(Collections.singletonList(pt), false);
+    }
+
+    /**
+     * Encode the phenotypes given.
+     *
+     * @param phenotypes the phenotypes
+     * @param compress whether to deflate them, which is worth it for larger batches
+     * @return the bytes
+     */
+    public static byte[] encode(Collection<? extends Phenotype> phenotypes, boolean compress)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(phenotypes, bytes, compress);
+        } catch (IOException e) {
+            /* Byte array streams don't throw */
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode the phenotypes in the bytes given.
+     *
+     * @param bytes the bytes, as encode() gives them
+     * @return the phenotypes
+     * @throws IOException if the bytes are truncated, corrupt, or a version this doesn't know
+     */
+    public static List<Phenotype> decode(byte[] bytes) throws IOException
+    {
+        if (bytes.length < 2 || (bytes[0] != VERSION && bytes[0] != SINGLE_DESCRIPTION_VERSION)) {
+            throw new IOException(String.format("Unknown phenotype encoding version %d",
+                    bytes.length > 0 ? bytes[0] : -1));
+        }
+        int flags = bytes[1];
+        if ((flags & ~DEFLATED) != 0) {
+            throw new IOException(String.format("Unknown phenotype encoding flags %d", flags));
+        }
+        if ((flags & DEFLATED) != 0) {
+            /* Inflaters hold native memory until they're ended, which finalization would only get to eventually */
+            Inflater inflater = new Inflater();
+            try {
+                InputStream inflated = new InflaterInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2),
+                    inflater);
+                return new Reader(ByteStreams.toByteArray(inflated), 0, bytes[0]).readAll();
+            } finally {
+                inflater.end();
+            }
+        } else {
+            return new Reader(bytes, 2, bytes[0]).readAll();
+        }
+    }
+
+    /**
+     * Write the phenotypes given to the stream, leaving it open.
+     *
+     * @param phenotypes the phenotypes
+     * @param os the stream
+     * @param compress whether to deflate them
+     * @throws IOException if the stream throws
+     */
+    public static void write(Collection<? extends Phenotype> phenotypes, OutputStream os, boolean compress)
+        throws IOException
+    {
+        Writer writer = new Writer();
+        writer.writeAll(phenotypes);
+        os.write(VERSION);
+        os.write(compress ? DEFLATED : 0);
+        if (compress) {
+            /* As for inflaters, end the deflater rather than leave its native memory to finalization */
+            Deflater deflater = new Deflater();
+            try {
+                DeflaterOutputStream deflated = new DeflaterOutputStream(os, deflater);
+                writer.copyTo(deflated);
+                deflated.finish();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            writer.copyTo(os);
+        }
+        os.flush();
+    }
+
+    /**
+     * Read phenotypes written by write() from the stream given. Reads the stream to its end, but leaves it open.
+     *
+     * @param is the stream
+     * @return the phenotypes
+     * @throws IOException if the stream throws, or has something other than phenotypes in it
+     */
+    public static List<Phenotype> read(InputStream is) throws IOException
+    {
+        return decode(ByteStreams.toByteArray(is));
+    }
+
+    /**
+     * Writes phenotypes out to a buffer, keeping the string table.
+     */
+    private static final class Writer
+    {
+        /**
+         * The bytes written so far, and room for more.
+         */
+        private byte[] buffer = new byte[256];
+
+        /**
+         * How many bytes have been written.
+         */
+        private int size;
+
+        /**
+         * The index of each string written to the table so far.
+         */
+        private final Map<String, Integer> table = new HashMap<>();
+
+        /**
+         * Write the phenotypes given.
+         *
+         * @param phenotypes the phenotypes
+         */
+        void writeAll(Collection<? extends Phenotype> phenotypes)
+        {
+            writeVarLong(phenotypes.size());
+            for (Phenotype pt : phenotypes) {
+                write(pt);
+            }
+        }
+
+        /**
+         * Copy what's been written to the stream given.
+         *
+         * @param os the stream
+         * @throws IOException if the stream throws
+         */
+        void copyTo(OutputStream os) throws IOException
+        {
+            os.write(buffer, 0, size);
+        }
+
+        /**
+         * Write a phenotype.
+         *
+         * @param pt the phenotype
+         */
+        private void write(Phenotype pt)
+        {
+            if (pt instanceof NullPhenotype) {
+                put(NULL_PHENOTYPE);
+                return;
+            }
+            put(pt instanceof HPOPhenotype ? HPO_PHENOTYPE : PHENOTYPE);
+            writeVarLong(pt.getStatus().ordinal());
+            writeVarLong(pt.getDirtyFields());
+            writeId(pt.getId().orNull(), false);
+            writeId(pt.getHpoId().orNull(), false);
+            writeString(pt.getName());
+            writeString(pt.getDescription());
+            writeDescriptions(pt.getDescriptions());
+            writeString(pt.forceGetIssueNumber());
+            writeString(pt.getEtag());
+            writeTimes(pt);
+            writeVarLong(pt.getSynonyms().size());
+            for (String synonym : pt.getSynonyms()) {
+                writeShared(synonym);
+            }
+            writeVarLong(pt.getParentIds().size());
+            for (String parent : pt.getParentIds()) {
+                writeId(parent, true);
+            }
+        }
+
+        /**
+         * Write the contributions to a description, as how many there are and then each one; none if it's a
+         * single one, which the description already is.
+         *
+         * @param descriptions the contributions
+         */
+        private void writeDescriptions(List<String> descriptions)
+        {
+            if (descriptions.size() <= 1) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(descriptions.size());
+            for (String description : descriptions) {
+                writeString(description);
+            }
+        }
+
+        /**
+         * Write the times, as which of them there are and then each one; the later two as how long after
+         * the creation time they were, which is usually small.
+         *
+         * @param pt the phenotype
+         */
+        private void writeTimes(Phenotype pt)
+        {
+            Optional<Date> created = pt.getTimeCreated();
+            Optional<Date> modified = pt.getTimeModified();
+            Optional<Date> verified = pt.getTimeVerified();
+            int present = (created.isPresent() ? HAS_CREATED : 0) | (modified.isPresent() ? HAS_MODIFIED : 0)
+                | (verified.isPresent() ? HAS_VERIFIED : 0);
+            put(present);
+            long base = 0;
+            if (created.isPresent()) {
+                base = created.get().getTime();
+                writeVarLong(zigZag(base));
+            }
+            if (modified.isPresent()) {
+                writeVarLong(zigZag(modified.get().getTime() - base));
+            }
+            if (verified.isPresent()) {
+                writeVarLong(zigZag(verified.get().getTime() - base));
+            }
+        }
+
+        /**
+         * Write an id, as its code if it has one.
+         *
+         * @param id the id, or null
+         * @param shared whether to put it in the string table if it doesn't encode
+         */
+        private void writeId(String id, boolean shared)
+        {
+            int code = IdUtils.encode(id);
+            writeVarLong(zigZag(code));
+            if (code == IdUtils.NO_CODE) {
+                if (shared) {
+                    writeShared(id);
+                } else {
+                    writeString(id);
+                }
+            }
+        }
+
+        /**
+         * Write a string through the table: its index plus one if it's already there, otherwise zero and
+         * the string itself.
+         *
+         * @param s the string
+         */
+        private void writeShared(String s)
+        {
+            Integer index = table.get(s);
+            if (index != null) {
+                writeVarLong(index + 1L);
+            } else {
+                table.put(s, table.size());
+                writeVarLong(0);
+                writeString(s);
+            }
+        }
+
+        /**
+         * Write a string as its length in UTF-8 bytes plus one, zero for null, and the bytes.
+         *
+         * @param s the string, or null
+         */
+        private void writeString(String s)
+        {
+            if (s == null) {
+                writeVarLong(0);
+            } else {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length + 1L);
+                put(bytes);
+            }
+        }
+
+        /**
+         * Write a number that isn't negative, seven bits a byte, low bits first.
+         *
+         * @param value the number
+         */
+        private void writeVarLong(long value)
+        {
+            long rest = value;
+            while ((rest & ~0x7FL) != 0) {
+                put((int) (rest & 0x7F) | 0x80);
+                rest >>>= 7;
+            }
+            put((int) rest);
+        }
+
+        /**
+         * Add a byte.
+         *
+         * @param b the byte, in the low eight bits
+         */
+        private void put(int b)
+        {
+            ensureRoom(1);
+            buffer[size++] = (byte) b;
+        }
+
+        /**
+         * Add some bytes.
+         *
+         * @param bytes the bytes
+         */
+        private void put(byte[] bytes)
+        {
+            ensureRoom(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        /**
+         * Make sure there's room in the buffer for more bytes, growing it if not.
+         *
+         * @param more how many more bytes
+         */
+        private void ensureRoom(int more)
+        {
+            if (size + more > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + more));
+            }
+        }
+
+        /**
+         * Map a signed number to one that isn't negative, keeping small numbers small.
+         *
+         * @param value the number
+         * @return the mapped number
+         */
+        private static long zigZag(long value)
+        {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    /**
+     * Reads phenotypes in, keeping the string table.
+     */
+    private static final class Reader
+    {
+        /**
+         * The bytes to read.
+         */
+        private final byte[] bytes;
+
+        /**
+         * Where the next byte to read is.
+         */
+        private int position;
+
+        /**
+         * The version of the format the bytes are in.
+         */
+        private final int version;
+
+        /**
+         * The strings read into the table so far.
+         */
+        private final List<String> table = new ArrayList<>();
+
+        /**
+         * CTOR.
+         *
+         * @param bytes the bytes to read
+         * @param start where in them to start
+         * @param version the version of the format they're in
+         */
+        Reader(byte[] bytes, int start, int version)
+        {
+            this.bytes = bytes;
+            this.position = start;
+            this.version = version;
+        }
+
+        /**
+         * Read the phenotypes.
+         *
+         * @return the phenotypes
+         * @throws IOException if the bytes aren't well formed
+         */
+        List<Phenotype> readAll() throws IOException
+        {
+            int count = readCount();
+            List<Phenotype> phenotypes = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                phenotypes.add(read());
+            }
+            return phenotypes;
+        }
+
+        /**
+         * Read a phenotype.
+         *
+         * @return the phenotype
+         * @throws IOException if the bytes aren't well formed
+         */
+        private Phenotype read() throws IOException
+        {
+            int kind = next();
+            if (kind == NULL_PHENOTYPE) {
+                return Phenotype.NULL;
+            }
+            if (kind != PHENOTYPE && kind != HPO_PHENOTYPE) {
+                throw new IOException(String.format("Unknown phenotype kind %d", kind));
+            }
+            long status = readVarLong();
+            if (status < 0 || status >= STATUSES.length) {
+                throw new IOException(String.format("Unknown phenotype status %d", status));
+            }
+            long dirtyFields = readVarLong();
+            String id = readId(false);
+            String hpoId = readId(false);
+            String name = readString();
+            String description = readString();
+            List<String> descriptions = version == SINGLE_DESCRIPTION_VERSION
+                ? Collections.<String>emptyList() : readDescriptions();
+            if (name == null) {
+                throw new IOException("Phenotype without a name");
+            }
+            Phenotype pt;
+            if (kind == HPO_PHENOTYPE) {
+                pt = new HPOPhenotype(name, description);
+            } else {
+                pt = new Phenotype(name, description);
+            }
+            if (descriptions.size() > 1) {
+                pt.setDescriptions(descriptions);
+            }
+            pt.setStatus(STATUSES[(int) status]);
+            pt.setId(id);
+            pt.setHpoId(hpoId);
+            pt.setIssueNumber(readString());
+            pt.setEtag(readString());
+            readTimes(pt);
+            int synonymCount = readCount();
+            List<String> synonyms = new ArrayList<>(Math.min(synonymCount, 1024));
+            for (int i = 0; i < synonymCount; i++) {
+                synonyms.add(readShared());
+            }
+            pt.addAllSynonyms(synonyms);
+            int parentCount = readCount();
+            List<String> parents = new ArrayList<>(Math.min(parentCount, 1024));
+            for (int i = 0; i < parentCount; i++) {
+                parents.add(readId(true));
+            }
+            pt.addAllParentIds(parents);
+            if (pt.getId().isPresent()) {
+                pt.setClean();
+            }
+            pt.markDirty((int) dirtyFields);
+            return pt;
+        }
+
+        /**
+         * Read the contributions written by Writer.writeDescriptions.
+         *
+         * @return the contributions, none if the description is a single one
+         * @throws IOException if the bytes aren't well formed
+         */
+        private List<String> readDescriptions() throws IOException
+        {
+            int count = readCount();
+            List<String> descriptions = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                String description = readString();
+                if (description == null) {
+                    throw new IOException("Null description contribution");
+                }
+                descriptions.add(description);
+            }
+            return descriptions;
+        }
+
+        /**
+         * Read the times written by Writer.writeTimes.
+         *
+         * @param pt the phenotype to set them on
+         * @throws IOException if the bytes end
+         */
+        private void readTimes(Phenotype pt) throws IOException
+        {
+            int present = next();
+            long base = 0;
+            if ((present & HAS_CREATED) != 0) {
+                base = unZigZag(readVarLong());
+                pt.setTimeCreated(new Date(base));
+            }
+            if ((present & HAS_MODIFIED) != 0) {
+                pt.setTimeModified(new Date(base + unZigZag(readVarLong())));
+            }
+            if ((present & HAS_VERIFIED) != 0) {
+                pt.setTimeVerified(new Date(base + unZigZag(readVarLong())));
+            }
+        }
+
+        /**
+         * Read an id written by Writer.writeId.
+         *
+         * @param shared whether it went through the string table
+         * @return the id, or null
+         * @throws IOException if the bytes aren't well formed
+         */
+        private String readId(boolean shared) throws IOException
+        {
+            long code = unZigZag(readVarLong());
+            if (code < Integer.MIN_VALUE || code > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Bad id code %d", code));
+            }
+            if (code != IdUtils.NO_CODE) {
+                return IdUtils.decode((int) code);
+            } else if (shared) {
+                return readShared();
+            } else {
+                return readString();
+            }
+        }
+
+        /**
+         * Read a string written by Writer.writeShared.
+         *
+         * @return the string
+         * @throws IOException if the bytes aren't well formed
+         */
+        private String readShared() throws IOException
+        {
+            long index = readVarLong();
+            if (index == 0) {
+                String s = readString();
+                if (s == null) {
+                    throw new IOException("Null string in the string table");
+                }
+                table.add(s);
+                return s;
+            }
+            if (index < 0 || index > table.size()) {
+                throw new IOException(String.format("String table index %d out of range", index));
+            }
+            return table.get((int) index - 1);
+        }
+
+        /**
+         * Read a string written by Writer.writeString.
+         *
+         * @return the string, or null
+         * @throws IOException if the bytes aren't well formed
+         */
+        private String readString() throws IOException
+        {
+            int length = readCount();
+            if (length == 0) {
+                return null;
+            }
+            if (length - 1 > bytes.length - position) {
+                throw new EOFException();
+            }
+            String s = new String(bytes, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return s;
+        }
+
+        /**
+         * Read a count or length, which has to fit in an int.
+         *
+         * @return the count
+         * @throws IOException if the bytes end or the count is out of range
+         */
+        private int readCount() throws IOException
+        {
+            long count = readVarLong();
+            if (count < 0 || count > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Count %d is out of range", count));
+            }
+            return (int) count;
+        }
+
+        /**
+         * Read a number written by Writer.writeVarLong.
+         *
+         * @return the number
+         * @throws IOException if the bytes end, or the number runs on too long
+         */
+        private long readVarLong() throws IOException
+        {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        /**
+         * Read the next byte.
+         *
+         * @return the byte, unsigned
+         * @throws EOFException if there are no more
+         */
+        private int next() throws EOFException
+        {
+            if (position >= bytes.length) {
+                throw new EOFException();
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        /**
+         * Undo Writer.zigZag.
+         *
+         * @param value the mapped number
+         * @return the signed number
+         */
+        private static long unZigZag(long value)
+        {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.Optional;
+
+/**
+ * A change in the status of a phenotype, as pushed to clients that want to know about them as they happen.
+ *
+ * @version $Id$
+ */
+public final class PhenotypeEvent
+{
+    /**
+     * The id of this event, which grows with every event.
+     */
+    private final long eventId;
+
+    /**
+     * The id of the phenotype.
+     */
+    private final String id;
+
+    /**
+     * The status the phenotype had.
+     */
+    private final Phenotype.Status oldStatus;
+
+    /**
+     * The status the phenotype has now.
+     */
+    private final Phenotype.Status newStatus;
+
+    /**
+     * The hpo id of the phenotype, if it has one.
+     */
+    private final String hpoId;
+
+    /**
+     * CTOR.
+     * @param eventId the id of the event
+     * @param id the id of the phenotype
+     * @param oldStatus the status the phenotype had
+     * @param newStatus the status the phenotype has now
+     * @param hpoId the hpo id of the phenotype, if it has one
+     */
+    PhenotypeEvent(long eventId, String id, Phenotype.Status oldStatus, Phenotype.Status newStatus,
+            Optional<String> hpoId)
+    {
+        this.eventId = eventId;
+        this.id = id;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        this.hpoId = hpoId.orNull();
+    }
+
+    /**
+     * Get the id of this event. Events later on have greater ids.
+     * @return the event id
+     */
+    @JsonIgnore
+    public long getEventId()
+    {
+        return eventId;
+    }
+
+    /**
+     * Get the id of the phenotype.
+     * @return the id
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Get the status the phenotype had.
+     * @return the status
+     */
+    public Phenotype.Status getOldStatus()
+    {
+        return oldStatus;
+    }
+
+    /**
+     * Get the status the phenotype has now.
+     * @return the status
+     */
+    public Phenotype.Status getNewStatus()
+    {
+        return newStatus;
+    }
+
+    /**
+     * Get the hpo id of the phenotype.
+     * @return the hpo id, if it has one
+     */
+    @JsonIgnore
+    public Optional<String> getHpoId()
+    {
+        return Optional.fromNullable(hpoId);
+    }
+
+    /**
+     * Get the hpo id of the phenotype, or null. For serialization.
+     * @return the hpo id
+     */
+    @JsonProperty("hpoId")
+    public String forceGetHpoId()
+    {
+        return hpoId;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Keeps the latest phenotype status changes in memory, for clients to follow.
+ * Only the last few are kept, in a ring: a client that falls too far behind can tell, and has to catch up
+ * some other way. Event ids start over whenever this is created.
+ *
+ * @version $Id$
+ */
+public class PhenotypeEventLog
+{
+    /**
+     * The number of events kept by default.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The events kept, the one with id n at n % ring.length.
+     */
+    private final PhenotypeEvent[] ring;
+
+    /**
+     * The id of the last event, or 0 if there's been none.
+     */
+    private long lastId;
+
+    /**
+     * CTOR.
+     */
+    public PhenotypeEventLog()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * CTOR.
+     * @param capacity the number of events to keep
+     */
+    public PhenotypeEventLog(int capacity)
+    {
+        checkArgument(capacity > 0, "Must keep at least one event");
+        ring = new PhenotypeEvent[capacity];
+    }
+
+    /**
+     * Get the id of the last event.
+     * @return the id, or 0 if there's been none
+     */
+    public synchronized long getLastId()
+    {
+        return lastId;
+    }
+
+    /**
+     * Get whether every event after the one with the id given is still kept, so that getAfter returns all
+     * of them. Ids from before this log was created can't be told apart from current ones, so one greater
+     * than the last id is taken as from then, and isn't covered either.
+     * @param after the event id
+     * @return whether the events after it are all there
+     */
+    public synchronized boolean covers(long after)
+    {
+        return after >= 0 && after <= lastId && lastId - after <= ring.length;
+    }
+
+    /**
+     * Get the events kept after the one with the id given, oldest first.
+     * @param after the event id
+     * @return the events, which may be empty
+     */
+    public synchronized List<PhenotypeEvent> getAfter(long after)
+    {
+        long first = Math.max(Math.max(after, 0), lastId - ring.length) + 1;
+        if (first > lastId) {
+            return Collections.emptyList();
+        }
+        List<PhenotypeEvent> events = new ArrayList<>((int) (lastId - first + 1));
+        for (long i = first; i <= lastId; i++) {
+            events.add(ring[(int) (i % ring.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * Get the events kept after the one with the id given, waiting up to the time given for one if there's
+     * none yet.
+     * @param after the event id
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the events, which is empty if none came in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized List<PhenotypeEvent> awaitAfter(long after, long timeout, TimeUnit unit)
+        throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining = unit.toNanos(timeout);
+        while (lastId <= after && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return getAfter(after);
+    }
+
+    /**
+     * Record that a phenotype changed status, and wake up whoever is waiting for it.
+     * @param id the id of the phenotype
+     * @param oldStatus the status it had
+     * @param newStatus the status it has now
+     * @param hpoId its hpo id, if it has one
+     * @return the event
+     */
+    synchronized PhenotypeEvent publish(String id, Phenotype.Status oldStatus, Phenotype.Status newStatus,
+            Optional<String> hpoId)
+    {
+        lastId++;
+        PhenotypeEvent event = new PhenotypeEvent(lastId, id, oldStatus, newStatus, hpoId);
+        ring[(int) (lastId % ring.length)] = event;
+        notifyAll();
+        return event;
+    }
+}
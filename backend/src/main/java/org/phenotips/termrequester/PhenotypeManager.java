@@ -21,7 +21,13 @@
 
 import java.nio.file.Path;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
 
 /**
  * Manages the lifecycle of a requested (or existing) phenotype within the entire system.
@@ -53,6 +59,15 @@
      */
     PhenotypeCreation createRequest(Phenotype phenotype) throws TermRequesterBackendException;
 
+    /**
+     * Set how long a phenotype checked against github stays fresh enough to be served as is.
+     * Past that, getPhenotypeById still serves it, but marked stale, and refreshes it in the background.
+     * Zero means always checking github before answering.
+     * @param duration the maximum staleness
+     * @param unit the unit the duration is in
+     */
+    void setMaxStaleness(long duration, TimeUnit unit);
+
     /**
      * Get the phenotype with the id given. This might be an HPO or a termrequester id.
      * @param id the id of the phenotype.
@@ -61,6 +76,48 @@
      */
     Phenotype getPhenotypeById(String id) throws TermRequesterBackendException;
 
+    /**
+     * Get the version of the phenotype getPhenotypeById would return for the id given, but only if that
+     * can be told without doing all the work: from the database alone, with no synonym left to follow in
+     * it and no need to check github first. Otherwise, getPhenotypeById has to be used.
+     * @param id the id, termrequester or hpo
+     * @return the version, or absent if it can't be told cheaply
+     * @throws TermRequesterBackendException if something goes wrong in the backend.
+     */
+    Optional<PhenotypeVersion> getPhenotypeVersion(String id) throws TermRequesterBackendException;
+
+    /**
+     * Get the phenotypes with all the ids given at once, following synonyms as getPhenotypeById does.
+     * The database is queried in bulk, and this never waits on github: phenotypes due a check are served
+     * marked stale, and refreshed in the background, each only once however many times it was asked for.
+     * @param ids the ids, termrequester or hpo
+     * @return a map from each id given to its phenotype (Phenotype.NULL if there's none), in the order given
+     * @throws TermRequesterBackendException if something goes wrong in the backend.
+     * @throws IllegalArgumentException if one of the ids is malformed
+     */
+    Map<String, Phenotype> getPhenotypesById(Collection<String> ids) throws TermRequesterBackendException;
+
+    /**
+     * Resolve each of the ids given to the id of the phenotype it stands for. Phenotypes accepted as synonyms
+     * resolve to the hpo id of the phenotype they are a synonym of; anything else resolves to itself.
+     * Needs neither the database nor github.
+     * @param ids the ids, termrequester or hpo
+     * @return a map from each id given to its resolved id, in the order given
+     */
+    Map<String, String> resolveIds(Collection<String> ids);
+
+    /**
+     * Get a page of the phenotypes that changed at or after the time given, oldest change first, as they
+     * are in the database: github isn't checked, since the regular sync already brings changes in.
+     * To carry on from the last phenotype of a page, pass its modification time and id back.
+     * @param since the modification time to start from
+     * @param after the id of the last phenotype seen that was modified at since, or absent
+     * @param rows the maximum number of phenotypes to return
+     * @return the page of phenotypes; fewer than rows means there are no more for now
+     * @throws TermRequesterBackendException if something goes wrong in the backend.
+     */
+    List<Phenotype> getChanges(Date since, Optional<String> after, int rows) throws TermRequesterBackendException;
+
     /**
      * Fuzzily search for phenotypes matching the text given.
      * Will not read github, so the status may be inacurate - once a phenotype is selected, it should
@@ -72,11 +129,58 @@
     List<Phenotype> search(String text) throws TermRequesterBackendException;
 
     /**
-     * Sync all the phenotypes in the database so that they match the stuff in github.
-     * @throws TermRequesterBackendException if something goes wrong
+     * Like search, but a page at a time: by offset, or by the cursor from the previous page.
+     * @param text the text to search for
+     * @param start the offset of the page, which must be 0 if a cursor is given
+     * @param rows the size of the page
+     * @param cursor the cursor to the page, if any
+     * @return the page of results
+     * @throws TermRequesterBackendException if something goes wrong in the backend.
+     * @throws IllegalArgumentException if the page asked for makes no sense, or the cursor is malformed
+     */
+    SearchResults search(String text, int start, int rows, Optional<String> cursor)
+        throws TermRequesterBackendException;
+
+    /**
+     * Sync all the phenotypes in the database so that they match the stuff in github and the HPO.
+     * Accepted phenotypes found in the HPO release file are marked published first, in bulk, without
+     * asking github. Then every phenotype still submitted or accepted is read from github.
+     * Phenotypes are read from github in parallel, no faster than the sync rate, and saved in batches.
+     * Only one sync runs at a time: calling this while one is running returns straight away.
+     * The sync can be cancelled through getSyncProgress(), or by interrupting the calling thread;
+     * either way, whatever was synced before that is saved.
+     * Phenotypes that can't be read from github are skipped and counted as failed.
+     * @throws TermRequesterBackendException if the database fails
      */
     void syncPhenotypes() throws TermRequesterBackendException;
 
+    /**
+     * Get the progress of the running sync, or of the last one if none is running.
+     * @return the progress
+     */
+    SyncProgress getSyncProgress();
+
+    /**
+     * Get the log of the latest phenotype status changes, for following them as they happen. Changes are
+     * logged once saved, whether they come from creating a request or from syncing with github.
+     * @return the event log
+     */
+    PhenotypeEventLog getEventLog();
+
+    /**
+     * Set how many github requests per second a sync may make.
+     * @param requestsPerSecond the rate
+     */
+    void setSyncRate(double requestsPerSecond);
+
+    /**
+     * Set the HPO release file, in OBO format, that syncs look up accepted phenotypes in.
+     * Defaults to hp.obo in the home directory. The file doesn't have to exist: without it, phenotypes
+     * are only ever published through github.
+     * @param file the path to the release file
+     */
+    void setReleaseFile(Path file);
+
     /**
      * A response to the createRequest method, containing the phenotype and whether
      * or not it was just created.
@@ -21,15 +21,45 @@
 import org.phenotips.termrequester.github.GithubAPI;
 import org.phenotips.termrequester.github.GithubAPIFactory;
 import org.phenotips.termrequester.github.GithubException;
+import org.phenotips.termrequester.github.GithubUnavailableException;
 import org.phenotips.termrequester.utils.IdUtils;
 
 import java.io.IOException;
 
 import java.nio.file.Path;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -45,6 +75,67 @@
 @Singleton
 class PhenotypeManagerImpl implements PhenotypeManager
 {
+    /**
+     * The default maximum staleness, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_STALENESS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The default number of github requests per second a sync may make.
+     */
+    public static final double DEFAULT_SYNC_RATE = 10;
+
+    /**
+     * The number of phenotypes to read from the database at a time when syncing.
+     */
+    static final int SYNC_PAGE_SIZE = 100;
+
+    /**
+     * The number of synced phenotypes to save at a time.
+     */
+    static final int SYNC_BATCH_SIZE = 100;
+
+    /**
+     * The number of threads refreshing stale phenotypes.
+     */
+    private static final int REFRESH_THREADS = 2;
+
+    /**
+     * How long to wait for refreshes in flight on shutdown, in seconds.
+     */
+    private static final long REFRESH_SHUTDOWN_TIMEOUT = 30;
+
+    /**
+     * The number of threads reading from github when syncing.
+     */
+    private static final int SYNC_THREADS = 8;
+
+    /**
+     * How often a sync checks whether it's been cancelled while waiting on github, in milliseconds.
+     */
+    private static final long SYNC_CANCEL_CHECK_INTERVAL = 100;
+
+    /**
+     * The statuses a phenotype can leave by being changed on github.
+     */
+    private static final List<Phenotype.Status> SYNC_STATUSES = Arrays.asList(Phenotype.Status.SUBMITTED,
+            Phenotype.Status.ACCEPTED);
+
+    /**
+     * The number of stripes to spread name locks over.
+     */
+    private static final int NAME_LOCK_STRIPES = 1024;
+
+    /**
+     * The number of stripes to spread id locks over.
+     */
+    private static final int ID_LOCK_STRIPES = 1024;
+
+    /**
+     * What separates words in a name, for the purpose of telling names apart.
+     */
+    private static final Pattern NAME_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
     /**
      * The github api factory.
      */
@@ -65,6 +156,61 @@ class PhenotypeManagerImpl implements PhenotypeManager
      */
     private boolean up;
 
+    /**
+     * How long a phenotype stays fresh after being checked against github, in milliseconds.
+     */
+    private volatile long maxStaleness = DEFAULT_MAX_STALENESS;
+
+    /**
+     * The executor refreshing stale phenotypes in the background.
+     */
+    private ExecutorService refresher;
+
+    /**
+     * The issue numbers of the phenotypes being refreshed right now.
+     */
+    private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    /**
+     * Locks on normalized names, so that equivalent requests get created one at a time.
+     */
+    private final Striped<Lock> nameLocks = Striped.lazyWeakLock(NAME_LOCK_STRIPES);
+
+    /**
+     * Locks on the ids of stored phenotypes, so that createRequest and a sync don't save over each other.
+     */
+    private final Striped<Lock> idLocks = Striped.lazyWeakLock(ID_LOCK_STRIPES);
+
+    /**
+     * Held while a sync is running.
+     */
+    private final Lock syncLock = new ReentrantLock();
+
+    /**
+     * Limits the rate of github requests while syncing.
+     */
+    private final RateLimiter syncRate = RateLimiter.create(DEFAULT_SYNC_RATE);
+
+    /**
+     * The progress of the running or last sync.
+     */
+    private volatile SyncProgress syncProgress = new SyncProgress();
+
+    /**
+     * Where phenotypes accepted as synonyms redirect to.
+     */
+    private final SynonymRedirects redirects = new SynonymRedirects();
+
+    /**
+     * The HPO release to look for accepted phenotypes in.
+     */
+    private volatile HPORelease release;
+
+    /**
+     * The latest status changes.
+     */
+    private final PhenotypeEventLog events = new PhenotypeEventLog();
+
     /**
      * CTOR.
      * @param factory the injected github api factory
@@ -84,9 +230,15 @@ public synchronized void init(GithubAPI.Repository repo, Path home) throws TermR
             github = factory.create(repo);
             try {
                 db.init(home);
+                loadRedirects();
             } catch (IOException e) {
                 throw new TermRequesterBackendException(e);
             }
+            refresher = Executors.newFixedThreadPool(REFRESH_THREADS, new ThreadFactoryBuilder().
+                    setDaemon(true).setNameFormat("termrequester-refresh-%d").build());
+            if (release == null) {
+                release = new HPORelease(home.resolve(HPORelease.DEFAULT_FILE_NAME));
+            }
             up = true;
         }
     }
@@ -95,31 +247,125 @@ public synchronized void init(GithubAPI.Repository repo, Path home) throws TermR
     public synchronized void shutdown() throws TermRequesterBackendException
     {
         if (up) {
+            refresher.shutdown();
+            try {
+                refresher.awaitTermination(REFRESH_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
             try {
                 db.shutdown();
             } catch (IOException e) {
                 throw new TermRequesterBackendException(e);
             }
+            redirects.clear();
             up = false;
         }
     }
 
+    /**
+     * Fill in the synonym redirects from the phenotypes in the database.
+     * @throws IOException if the database throws
+     */
+    private void loadRedirects() throws IOException
+    {
+        Optional<String> after = Optional.absent();
+        List<Phenotype> page;
+        do {
+            page = db.getPhenotypesByStatus(Phenotype.Status.SYNONYM, after, SYNC_PAGE_SIZE);
+            for (Phenotype pt : page) {
+                if (pt.getHpoId().isPresent()) {
+                    redirects.put(pt.getId().get(), pt.getHpoId().get());
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == SYNC_PAGE_SIZE);
+    }
+
+    @Override
+    public void setMaxStaleness(long duration, TimeUnit unit)
+    {
+        checkArgument(duration >= 0, "Max staleness must not be negative");
+        maxStaleness = unit.toMillis(duration);
+    }
+
+    @Override
+    public void setReleaseFile(Path file)
+    {
+        release = new HPORelease(file);
+    }
+
     @Override
     public PhenotypeCreation createRequest(Phenotype pt) throws TermRequesterBackendException
+    {
+        /* Two requests sharing a name would both miss in the db and github and both get created, so make
+         * them take turns. Striped hands the locks back in a consistent order, so this can't deadlock */
+        List<Lock> locks = lockAll(nameLocks.bulkGet(getNameKeys(pt)));
+        try {
+            PhenotypeCreation creation = doCreateRequest(pt);
+            /* Whoever's next needs to find this in the db */
+            if (!db.getAutocommit()) {
+                db.commit();
+            }
+            return creation;
+        } catch (IOException e) {
+            throw new TermRequesterBackendException(e);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * Take the locks given, in order.
+     * @param locks the locks, as Striped.bulkGet gives them
+     * @return the locks taken
+     */
+    private static List<Lock> lockAll(Iterable<Lock> locks)
+    {
+        List<Lock> locked = new ArrayList<>();
+        for (Lock lock : locks) {
+            lock.lock();
+            locked.add(lock);
+        }
+        return locked;
+    }
+
+    /**
+     * Release the locks given, in the reverse order.
+     * @param locks the locks, as lockAll gives them
+     */
+    private static void unlockAll(List<Lock> locks)
+    {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    /**
+     * Do the work of createRequest, with the name locks held.
+     * @param pt the phenotype
+     * @return the creation
+     * @throws TermRequesterBackendException if something goes wrong in the backend
+     */
+    private PhenotypeCreation doCreateRequest(Phenotype pt) throws TermRequesterBackendException
     {
         try {
             /* TODO: Maybe set default parent if there's no parent? */
-            Phenotype existing = checkInDb(pt);
+            Phenotype existing = db.getPhenotype(pt);
             if (!Phenotype.NULL.equals(existing)) {
-                return new PhenotypeCreation(updatePhenotype(existing), false);
+                return new PhenotypeCreation(mergeInto(existing, pt, true), false);
             }
             existing = checkInGithub(pt);
             if (!Phenotype.NULL.equals(existing)) {
-                return new PhenotypeCreation(updatePhenotype(existing), false);
+                return new PhenotypeCreation(mergeInto(existing, pt, false), false);
             }
             /* It wasn't anywhere */
+            Phenotype.Status oldStatus = pt.getStatus();
             github.openIssue(pt);
             db.savePhenotype(pt);
+            publishIfChanged(pt, oldStatus);
         } catch (IOException | GithubException e) {
             throw new TermRequesterBackendException(e);
         }
@@ -127,30 +373,71 @@ public PhenotypeCreation createRequest(Phenotype pt) throws TermRequesterBackend
     }
 
     /**
-     * Check if the given phenotype exists in the db; if so merge it and return it.
-     * If the phenotype is present in the db but not in github, will create it in github.
-     * @param pt the phenotype to check for
-     * @return the existing phenotype or Phenotype.NULL if none existed.
+     * Get the keys to lock on while creating the phenotype given: each of its names, normalized roughly the
+     * way the database's exact name matching does it.
+     * @param pt the phenotype
+     * @return the keys
      */
-    private Phenotype checkInDb(Phenotype pt) throws IOException, GithubException
+    private static Set<String> getNameKeys(Phenotype pt)
     {
+        Set<String> keys = new HashSet<>(pt.getSynonyms().size() + 1);
+        keys.add(getNameKey(pt.getName()));
+        for (String name : pt.getSynonyms()) {
+            keys.add(getNameKey(name));
+        }
+        return keys;
+    }
 
-        Phenotype existing = db.getPhenotype(pt);
-        if (!Phenotype.NULL.equals(existing)) {
-            existing.mergeWith(pt);
-            if (existing.submittable() && !(github.searchForIssue(existing).isPresent())) {
-                /* We're out of sync, so submit this issue to github */
-                github.openIssue(existing);
-            } else {
-                github.readPhenotype(existing);
+    /**
+     * Get the key to lock on for a single name.
+     * @param name the name
+     * @return the key
+     */
+    private static String getNameKey(String name)
+    {
+        return NAME_SEPARATOR.matcher(name.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Merge the phenotype given into an existing one and persist it. The existing one is read again under its
+     * id lock, which is held until it's saved, so that a sync saving it meanwhile can't overwrite the merge,
+     * nor be overwritten by a copy older than what it saved.
+     * If the existing phenotype was found in the db but isn't in github, will create it in github.
+     * @param existing the existing phenotype, as found
+     * @param pt the phenotype to merge into it
+     * @param inDb whether it was found in the db, rather than by its issue, so github still needs checking
+     * @return the merged phenotype
+     * @throws IOException if the database throws
+     * @throws GithubException if github throws
+     */
+    private Phenotype mergeInto(Phenotype existing, Phenotype pt, boolean inDb) throws IOException, GithubException
+    {
+        String id = existing.getId().get();
+        Lock lock = idLocks.get(id);
+        lock.lock();
+        try {
+            Phenotype current = db.getPhenotypeById(id);
+            /* Only gone if deleted since, in which case the copy found is all there is */
+            if (Phenotype.NULL.equals(current)) {
+                current = existing;
             }
-            return existing;
+            current.mergeWith(pt);
+            if (inDb) {
+                if (current.submittable() && !(github.searchForIssue(current).isPresent())) {
+                    /* We're out of sync, so submit this issue to github */
+                    github.openIssue(current);
+                } else {
+                    github.readPhenotype(current);
+                }
+            }
+            return updatePhenotype(current);
+        } finally {
+            lock.unlock();
         }
-        return Phenotype.NULL;
     }
 
     /**
-     * Check if the given phenotype exists in github; if so, merge it and return it.
+     * Check if the given phenotype exists in github; if so, return the one in the database.
      * If the phenotype is in github but not in the database, data will most likely have been lost,
      * so throws.
      * @param pt the phenotype to check for
@@ -171,7 +458,6 @@ private Phenotype checkInGithub(Phenotype pt) throws IOException, GithubExceptio
                 throw new IllegalStateException("Phenotype with issue number " + number.get()
                         + " is in github but not database.");
             }
-            existing.mergeWith(pt);
             return existing;
         }
         return Phenotype.NULL;
@@ -195,26 +481,23 @@ private Phenotype updatePhenotype(Phenotype pt) throws IOException, GithubExcept
     @Override
     public Phenotype getPhenotypeById(String id) throws TermRequesterBackendException
     {
-        Phenotype pt = Phenotype.NULL;
         try {
-            if (IdUtils.isId(id)) {
-                pt = db.getPhenotypeById(id);
-            } else if (IdUtils.isHpoId(id)) {
-                pt = db.getPhenotypeByHpoId(id);
-            } else {
-                throw new IllegalArgumentException(String.format("Id %s is malformed", id));
-            }
-            if (pt.getIssueNumber().isPresent()) {
-                syncPhenotype(pt);
-            }
+            String resolved = redirects.resolve(id);
+            Phenotype pt = lookup(resolved);
             if (Phenotype.Status.SYNONYM.equals(pt.getStatus())) {
+                /* Only just accepted as a synonym (mergeSynonym will have added the redirect), or a synonym
+                 * the redirects don't know about */
                 String hpoId = pt.getHpoId().get();
-                pt = getPhenotypeById(hpoId);
-                if (Phenotype.NULL.equals(pt)) {
-                    pt = new HPOPhenotype(pt.getName(), pt.getDescription());
-                    pt.setStatus(Phenotype.Status.PUBLISHED);
-                    pt.setHpoId(hpoId);
+                redirects.put(pt.getId().get(), hpoId);
+                Phenotype target = lookup(hpoId);
+                if (Phenotype.NULL.equals(target)) {
+                    target = getPublishedStandIn(pt, hpoId);
                 }
+                return target;
+            }
+            if (Phenotype.NULL.equals(pt) && !resolved.equals(id)) {
+                /* A synonym of something that's only in the HPO */
+                return getPublishedStandIn(db.getPhenotypeById(id), resolved);
             }
             return pt;
         } catch (IOException | GithubException e) {
@@ -222,6 +505,166 @@ public Phenotype getPhenotypeById(String id) throws TermRequesterBackendExceptio
         }
     }
 
+    @Override
+    public Optional<PhenotypeVersion> getPhenotypeVersion(String id) throws TermRequesterBackendException
+    {
+        String resolved = redirects.resolve(id);
+        if (!IdUtils.isId(resolved) && !IdUtils.isHpoId(resolved)) {
+            throw new IllegalArgumentException(String.format("Id %s is malformed", id));
+        }
+        try {
+            Optional<PhenotypeVersion> version = db.getPhenotypeVersion(resolved);
+            if (!version.isPresent()) {
+                return version;
+            }
+            PhenotypeVersion v = version.get();
+            if (!Phenotype.Status.PUBLISHED.equals(v.getStatus()) && v.hasIssue() && !isFresh(v.getTimeVerified())) {
+                /* It's up to getPhenotypeById to check github, which could change the version */
+                return Optional.absent();
+            }
+            return version;
+        } catch (IOException e) {
+            throw new TermRequesterBackendException(e);
+        }
+    }
+
+    @Override
+    public List<Phenotype> getChanges(Date since, Optional<String> after, int rows)
+        throws TermRequesterBackendException
+    {
+        checkArgument(rows > 0, "Must ask for at least one change");
+        try {
+            return db.getPhenotypesModifiedSince(since, after, rows);
+        } catch (IOException e) {
+            throw new TermRequesterBackendException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Phenotype> getPhenotypesById(Collection<String> ids) throws TermRequesterBackendException
+    {
+        Map<String, String> resolved = redirects.resolveAll(ids);
+        Map<String, Phenotype> fetched = new HashMap<>();
+        try {
+            fetchAll(resolved.values(), fetched);
+            /* Follow the synonyms the redirects didn't know about, all in one more round */
+            Set<String> targets = new HashSet<>();
+            for (Map.Entry<String, String> entry : resolved.entrySet()) {
+                Phenotype pt = fetched.get(entry.getValue());
+                if (pt != null && Phenotype.Status.SYNONYM.equals(pt.getStatus())) {
+                    String hpoId = pt.getHpoId().get();
+                    redirects.put(pt.getId().get(), hpoId);
+                    entry.setValue(hpoId);
+                    targets.add(hpoId);
+                }
+            }
+            fetchAll(targets, fetched);
+            /* Synonyms of something that's only in the HPO: their stand-ins need the synonyms themselves */
+            Set<String> orphans = new HashSet<>();
+            for (Map.Entry<String, String> entry : resolved.entrySet()) {
+                if (!entry.getKey().equals(entry.getValue()) && !fetched.containsKey(entry.getValue())) {
+                    orphans.add(entry.getKey());
+                }
+            }
+            fetchAll(orphans, fetched);
+        } catch (IOException e) {
+            throw new TermRequesterBackendException(e);
+        }
+        Map<String, Phenotype> results = new LinkedHashMap<>(resolved.size() * 2);
+        Set<Phenotype> checked = Collections.newSetFromMap(new IdentityHashMap<Phenotype, Boolean>());
+        for (Map.Entry<String, String> entry : resolved.entrySet()) {
+            Phenotype pt = fetched.get(entry.getValue());
+            if (pt == null) {
+                if (entry.getKey().equals(entry.getValue())) {
+                    pt = Phenotype.NULL;
+                } else if (fetched.containsKey(entry.getKey())) {
+                    pt = getPublishedStandIn(fetched.get(entry.getKey()), entry.getValue());
+                } else {
+                    pt = getPublishedStandIn(Phenotype.NULL, entry.getValue());
+                }
+            } else if (checked.add(pt)) {
+                refreshIfDue(pt);
+            }
+            results.put(entry.getKey(), pt);
+        }
+        return results;
+    }
+
+    /**
+     * Fetch the phenotypes with the ids given from the database in bulk, skipping those already fetched.
+     * @param ids the ids, termrequester or hpo
+     * @param fetched the phenotypes fetched so far, by the id they were fetched with; updated in place
+     * @throws IOException if the database throws
+     */
+    private void fetchAll(Collection<String> ids, Map<String, Phenotype> fetched) throws IOException
+    {
+        Set<String> byId = new HashSet<>();
+        Set<String> byHpoId = new HashSet<>();
+        for (String id : ids) {
+            if (fetched.containsKey(id)) {
+                continue;
+            }
+            if (IdUtils.isId(id)) {
+                byId.add(id);
+            } else if (IdUtils.isHpoId(id)) {
+                byHpoId.add(id);
+            } else {
+                throw new IllegalArgumentException(String.format("Id %s is malformed", id));
+            }
+        }
+        for (Phenotype pt : db.getPhenotypesById(byId)) {
+            fetched.put(pt.getId().get(), pt);
+        }
+        for (Phenotype pt : db.getPhenotypesByHpoId(byHpoId)) {
+            fetched.put(pt.getHpoId().get(), pt);
+        }
+    }
+
+    @Override
+    public Map<String, String> resolveIds(Collection<String> ids)
+    {
+        return redirects.resolveAll(ids);
+    }
+
+    /**
+     * Get the phenotype with the id or hpo id given from the database, and check it against github if
+     * it might have changed there. Doesn't follow synonyms.
+     * @param id the id
+     * @return the phenotype, or Phenotype.NULL
+     * @throws IOException if the database throws
+     * @throws GithubException if github throws
+     */
+    private Phenotype lookup(String id) throws IOException, GithubException
+    {
+        Phenotype pt;
+        if (IdUtils.isId(id)) {
+            pt = db.getPhenotypeById(id);
+        } else if (IdUtils.isHpoId(id)) {
+            pt = db.getPhenotypeByHpoId(id);
+        } else {
+            throw new IllegalArgumentException(String.format("Id %s is malformed", id));
+        }
+        /* Once in a release of the HPO, there's nothing left to change on github */
+        if (!Phenotype.Status.PUBLISHED.equals(pt.getStatus()) && pt.getIssueNumber().isPresent()) {
+            verifyPhenotype(pt);
+        }
+        return pt;
+    }
+
+    /**
+     * Make up a phenotype standing in for an HPO term we only know through one of its synonyms.
+     * @param synonym the synonym
+     * @param hpoId the hpo id of the term
+     * @return the stand-in
+     */
+    private Phenotype getPublishedStandIn(Phenotype synonym, String hpoId)
+    {
+        Phenotype pt = new HPOPhenotype(synonym.getName(), synonym.getDescription());
+        pt.setStatus(Phenotype.Status.PUBLISHED);
+        pt.setHpoId(hpoId);
+        return pt;
+    }
+
     @Override
     public List<Phenotype> search(String text) throws TermRequesterBackendException
     {
@@ -233,23 +676,282 @@ public List<Phenotype> search(String text) throws TermRequesterBackendException
         }
     }
 
+    @Override
+    public SearchResults search(String text, int start, int rows, Optional<String> cursor)
+        throws TermRequesterBackendException
+    {
+        checkArgument(start >= 0, "Start must not be negative");
+        checkArgument(rows > 0, "Must ask for at least one row");
+        checkArgument(start == 0 || !cursor.isPresent(), "Can't page by offset and cursor at once");
+        try {
+            return db.searchPhenotypes(text, start, rows, cursor);
+        } catch (IOException e) {
+            throw new TermRequesterBackendException(e);
+        }
+    }
+
     @Override
     public void syncPhenotypes() throws TermRequesterBackendException
     {
+        if (!syncLock.tryLock()) {
+            return;
+        }
+        SyncProgress progress = new SyncProgress();
+        syncProgress = progress;
+        ExecutorService readers = Executors.newFixedThreadPool(SYNC_THREADS, new ThreadFactoryBuilder().
+                setDaemon(true).setNameFormat("termrequester-sync-%d").build());
+        try {
+            runSync(progress, readers);
+        } catch (IOException e) {
+            throw new TermRequesterBackendException(e);
+        } finally {
+            readers.shutdownNow();
+            progress.setDone();
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public SyncProgress getSyncProgress()
+    {
+        return syncProgress;
+    }
+
+    @Override
+    public void setSyncRate(double requestsPerSecond)
+    {
+        syncRate.setRate(requestsPerSecond);
+    }
+
+    @Override
+    public PhenotypeEventLog getEventLog()
+    {
+        return events;
+    }
+
+    /**
+     * Run a sync. First publishes whatever accepted phenotypes are in the HPO release, then reads the ones
+     * that can still change from github. This thread pages through the database and saves the results in
+     * batches, while the readers given do the (slow) reading from github. Only a couple of pages are ever
+     * in flight.
+     * @param progress the progress to update
+     * @param readers the threads to read from github with
+     * @throws IOException if the database throws
+     */
+    private void runSync(SyncProgress progress, ExecutorService readers) throws IOException
+    {
+        SyncBatch batch = new SyncBatch();
+        if (publishReleased(progress, batch)) {
+            /* Searches only see committed changes, so without this they'd be read from github again below */
+            batch.flush();
+            db.commit();
+        }
+        CompletionService<SyncTask> completion = new ExecutorCompletionService<>(readers);
+        int statusIndex = 0;
+        Optional<String> after = Optional.absent();
+        int inFlight = 0;
         try {
-            synchronized (db) {
-                boolean autocommit = db.getAutocommit();
-                db.setAutocommit(false);
-                /* TODO: Is this a good idea, or should we just get them all? */
-                List<Phenotype> phenotypes = db.getPhenotypesByStatus(Phenotype.Status.SUBMITTED);
-                for (Phenotype pt : phenotypes) {
-                    syncPhenotype(pt);
+            while (!progress.isCancelled() && (statusIndex < SYNC_STATUSES.size() || inFlight > 0)) {
+                if (statusIndex < SYNC_STATUSES.size() && inFlight < SYNC_PAGE_SIZE) {
+                    List<Phenotype> page = db.getPhenotypesByStatus(SYNC_STATUSES.get(statusIndex), after,
+                            SYNC_PAGE_SIZE);
+                    for (Phenotype pt : page) {
+                        completion.submit(new SyncTask(pt));
+                    }
+                    inFlight += page.size();
+                    progress.addRead(page.size());
+                    if (page.size() < SYNC_PAGE_SIZE) {
+                        statusIndex++;
+                        after = Optional.absent();
+                    } else {
+                        after = page.get(page.size() - 1).getId();
+                    }
+                    continue;
                 }
-                db.commit();
-                db.setAutocommit(autocommit);
+                Future<SyncTask> future = completion.poll(SYNC_CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    continue;
+                }
+                inFlight--;
+                completeSyncTask(future, batch, progress);
             }
-        } catch (IOException | GithubException e) {
-            throw new TermRequesterBackendException(e);
+            /* Whatever finished while we were being cancelled is still worth keeping */
+            Future<SyncTask> done = completion.poll();
+            while (done != null) {
+                completeSyncTask(done, batch, progress);
+                done = completion.poll();
+            }
+        } catch (InterruptedException e) {
+            progress.cancel();
+            Thread.currentThread().interrupt();
+        }
+        batch.flush();
+        db.commit();
+    }
+
+    /**
+     * Mark every accepted phenotype whose hpo id is in the HPO release as published. This needs no github
+     * request, so it goes through the database a page at a time and saves them in batches.
+     * @param progress the progress to update
+     * @param batch the batch of phenotypes waiting to be saved
+     * @return whether any phenotype was published
+     * @throws IOException if the database or the release file can't be read
+     */
+    private boolean publishReleased(SyncProgress progress, SyncBatch batch) throws IOException
+    {
+        Set<String> released = release.getIds();
+        if (released.isEmpty()) {
+            return false;
+        }
+        boolean published = false;
+        Optional<String> after = Optional.absent();
+        List<Phenotype> page;
+        do {
+            page = db.getPhenotypesByStatus(Phenotype.Status.ACCEPTED, after, SYNC_PAGE_SIZE);
+            for (Phenotype pt : page) {
+                Optional<String> hpoId = pt.getHpoId();
+                if (hpoId.isPresent() && released.contains(hpoId.get())) {
+                    String version = pt.getVersion();
+                    pt.setStatus(Phenotype.Status.PUBLISHED);
+                    batch.add(pt, Phenotype.Status.ACCEPTED, version);
+                    progress.addPublished();
+                    published = true;
+                    if (batch.isFull()) {
+                        batch.flush();
+                    }
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == SYNC_PAGE_SIZE && !progress.isCancelled());
+        return published;
+    }
+
+    /**
+     * Add the result of a finished sync task to the batch, flushing it when full.
+     * @param future the finished task
+     * @param batch the batch of phenotypes waiting to be saved
+     * @param progress the progress of the running sync
+     * @throws IOException if the database throws
+     * @throws InterruptedException if interrupted (should not happen, as the task is done)
+     */
+    private void completeSyncTask(Future<SyncTask> future, SyncBatch batch, SyncProgress progress)
+        throws IOException, InterruptedException
+    {
+        SyncTask task;
+        try {
+            task = future.get();
+        } catch (ExecutionException e) {
+            progress.addFailed();
+            return;
+        }
+        if (task.failure != null) {
+            progress.addFailed();
+            return;
+        }
+        if (task.becameSynonym()) {
+            /* Rare enough to not be worth batching, but the batch might hold the phenotype it's a
+             * synonym of */
+            batch.flush();
+            mergeSynonym(task.phenotype);
+            db.commit();
+        }
+        batch.add(task.phenotype, task.oldStatus, task.oldVersion);
+        progress.addSynced();
+        if (batch.isFull()) {
+            batch.flush();
+        }
+    }
+
+    /**
+     * Make sure the phenotype given, fresh from the database, is recent enough to be served.
+     * A phenotype checked against github within the max staleness is served as is; one checked before
+     * that is served marked stale and refreshed in the background. One that's never been checked is
+     * synced right away.
+     * @param pt the phenotype
+     * @throws IOException if the database throws
+     * @throws GithubException if github throws
+     */
+    private void verifyPhenotype(Phenotype pt) throws IOException, GithubException
+    {
+        Optional<Date> verified = pt.getTimeVerified();
+        if (verified.isPresent() && maxStaleness > 0) {
+            long age = System.currentTimeMillis() - verified.get().getTime();
+            if (age > maxStaleness) {
+                pt.setStale(true);
+                scheduleRefresh(pt);
+            }
+            return;
+        }
+        try {
+            syncPhenotype(pt);
+        } catch (GithubUnavailableException e) {
+            /* Better to serve what we have than nothing at all */
+            pt.setStale(true);
+        }
+    }
+
+    /**
+     * Like verifyPhenotype, but never waits on github: a phenotype due a check, or never checked at all,
+     * is served marked stale and refreshed in the background.
+     * @param pt the phenotype
+     */
+    private void refreshIfDue(Phenotype pt)
+    {
+        if (Phenotype.Status.PUBLISHED.equals(pt.getStatus()) || !pt.getIssueNumber().isPresent()) {
+            return;
+        }
+        if (isFresh(pt.getTimeVerified())) {
+            return;
+        }
+        pt.setStale(true);
+        scheduleRefresh(pt);
+    }
+
+    /**
+     * Get whether something last checked against github when given can be served without checking again.
+     * @param verified when it was last checked, if ever
+     * @return whether it can
+     */
+    private boolean isFresh(Optional<Date> verified)
+    {
+        return verified.isPresent() && maxStaleness > 0
+            && System.currentTimeMillis() - verified.get().getTime() <= maxStaleness;
+    }
+
+    /**
+     * Refresh the phenotype given in the background, unless it's already being refreshed.
+     * The refresh works on its own copy from the database, so the one given can be safely handed out.
+     * @param pt the phenotype
+     */
+    private void scheduleRefresh(Phenotype pt)
+    {
+        final String issueNumber = pt.getIssueNumber().get();
+        final String id = pt.getId().get();
+        if (refreshing.putIfAbsent(issueNumber, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refresher.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    try {
+                        Phenotype fresh = db.getPhenotypeById(id);
+                        if (fresh.getIssueNumber().isPresent()) {
+                            syncPhenotype(fresh);
+                        }
+                    } catch (IOException | GithubException e) {
+                        /* Nothing to do: the next stale read will try again */
+                    } finally {
+                        refreshing.remove(issueNumber);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            /* Shutting down */
+            refreshing.remove(issueNumber);
         }
     }
 
@@ -262,18 +964,212 @@ public void syncPhenotypes() throws TermRequesterBackendException
     private void syncPhenotype(Phenotype pt) throws IOException, GithubException
     {
         Phenotype.Status oldStatus = pt.getStatus();
-        github.readPhenotype(pt);
+        readFromGithub(pt);
         Phenotype.Status newStatus = pt.getStatus();
         if (newStatus.equals(Phenotype.Status.SYNONYM) && !newStatus.equals(oldStatus)) {
-            String hpoId = pt.getHpoId().get();
-            /* Check if it's been added as a synonym : because it's just been accepted, and we
-             * haven't synced yet, we can be sure this is ok.
-             * Also note that because we use the null object pattern, it's perfectly okay to go
-             * through with the merge and save here */
-            Phenotype existing = db.getPhenotypeByHpoId(hpoId);
-            existing.mergeWith(pt);
-            db.savePhenotype(existing);
+            mergeSynonym(pt);
         }
         db.savePhenotype(pt);
+        publishIfChanged(pt, oldStatus);
+    }
+
+    /**
+     * Let whoever follows the event log know if the phenotype given, just saved, changed status.
+     * @param pt the phenotype
+     * @param oldStatus the status it had before
+     */
+    private void publishIfChanged(Phenotype pt, Phenotype.Status oldStatus)
+    {
+        if (!pt.getStatus().equals(oldStatus)) {
+            events.publish(pt.getId().get(), oldStatus, pt.getStatus(), pt.getHpoId());
+        }
+    }
+
+    /**
+     * Read the phenotype given from github, and record that it was verified.
+     * @param pt the phenotype
+     * @throws IOException if github can't be reached
+     * @throws GithubException if github throws
+     */
+    private void readFromGithub(Phenotype pt) throws IOException, GithubException
+    {
+        Phenotype.Status oldStatus = pt.getStatus();
+        github.readPhenotype(pt);
+        /* The issue for a published phenotype just looks accepted, since github knows nothing of releases */
+        if (Phenotype.Status.PUBLISHED.equals(oldStatus) && Phenotype.Status.ACCEPTED.equals(pt.getStatus())) {
+            pt.setStatus(Phenotype.Status.PUBLISHED);
+        }
+        pt.setTimeVerified(new Date());
+    }
+
+    /**
+     * Merge the phenotype given, which has just been accepted as a synonym, into the one it's a synonym of.
+     * @param pt the phenotype
+     * @throws IOException if the database throws
+     */
+    private void mergeSynonym(Phenotype pt) throws IOException
+    {
+        String hpoId = pt.getHpoId().get();
+        /* Check if it's been added as a synonym : because it's just been accepted, and we
+         * haven't synced yet, we can be sure this is ok.
+         * Also note that because we use the null object pattern, it's perfectly okay to go
+         * through with the merge and save here */
+        Phenotype existing = db.getPhenotypeByHpoId(hpoId);
+        existing.mergeWith(pt);
+        db.savePhenotype(existing);
+        redirects.put(pt.getId().get(), hpoId);
+    }
+
+    /**
+     * The phenotypes a sync is waiting to save, with the statuses they had when it read them, so that
+     * status changes are only published once saved, and their versions then, so that it doesn't save over
+     * changes made since.
+     *
+     * @version $Id$
+     */
+    private final class SyncBatch
+    {
+        /**
+         * The phenotypes.
+         */
+        private final List<Phenotype> phenotypes = new ArrayList<>(SYNC_BATCH_SIZE);
+
+        /**
+         * The status each phenotype had.
+         */
+        private final List<Phenotype.Status> oldStatuses = new ArrayList<>(SYNC_BATCH_SIZE);
+
+        /**
+         * The version each phenotype had.
+         */
+        private final List<String> oldVersions = new ArrayList<>(SYNC_BATCH_SIZE);
+
+        /**
+         * Add a phenotype to the batch.
+         * @param pt the phenotype
+         * @param oldStatus the status it had when the sync read it
+         * @param oldVersion the version it had when the sync read it
+         */
+        void add(Phenotype pt, Phenotype.Status oldStatus, String oldVersion)
+        {
+            phenotypes.add(pt);
+            oldStatuses.add(oldStatus);
+            oldVersions.add(oldVersion);
+        }
+
+        /**
+         * Get whether the batch is big enough to be saved.
+         * @return whether it is
+         */
+        boolean isFull()
+        {
+            return phenotypes.size() >= SYNC_BATCH_SIZE;
+        }
+
+        /**
+         * Save the phenotypes in the batch, publish their status changes, and empty it.
+         * Phenotypes are saved under their id locks, and only if they're still stored as the sync read them:
+         * one that createRequest has merged into since was read from github again then, and what the sync
+         * read is stale, so it's left for the next sync.
+         * @throws IOException if the database throws
+         */
+        void flush() throws IOException
+        {
+            if (phenotypes.isEmpty()) {
+                return;
+            }
+            Set<String> ids = new HashSet<>(phenotypes.size() * 2);
+            for (Phenotype pt : phenotypes) {
+                if (pt.getId().isPresent()) {
+                    ids.add(pt.getId().get());
+                }
+            }
+            List<Lock> locks = lockAll(idLocks.bulkGet(ids));
+            try {
+                Map<String, String> stored = new HashMap<>(ids.size() * 2);
+                for (Phenotype pt : db.getPhenotypesById(ids)) {
+                    stored.put(pt.getId().get(), pt.getVersion());
+                }
+                List<Phenotype> unchanged = new ArrayList<>(phenotypes.size());
+                List<Phenotype.Status> unchangedStatuses = new ArrayList<>(phenotypes.size());
+                for (int i = 0; i < phenotypes.size(); i++) {
+                    Phenotype pt = phenotypes.get(i);
+                    if (!pt.getId().isPresent() || oldVersions.get(i).equals(stored.get(pt.getId().get()))) {
+                        unchanged.add(pt);
+                        unchangedStatuses.add(oldStatuses.get(i));
+                    }
+                }
+                db.savePhenotypes(unchanged);
+                for (int i = 0; i < unchanged.size(); i++) {
+                    publishIfChanged(unchanged.get(i), unchangedStatuses.get(i));
+                }
+            } finally {
+                unlockAll(locks);
+            }
+            phenotypes.clear();
+            oldStatuses.clear();
+            oldVersions.clear();
+        }
+    }
+
+    /**
+     * Reads a phenotype from github for a sync, keeping within the sync rate.
+     *
+     * @version $Id$
+     */
+    private final class SyncTask implements Callable<SyncTask>
+    {
+        /**
+         * The phenotype.
+         */
+        private final Phenotype phenotype;
+
+        /**
+         * The phenotype's status before reading it.
+         */
+        private final Phenotype.Status oldStatus;
+
+        /**
+         * The phenotype's version before reading it.
+         */
+        private final String oldVersion;
+
+        /**
+         * What went wrong reading it, if anything.
+         */
+        private Exception failure;
+
+        /**
+         * CTOR.
+         * @param phenotype the phenotype to read
+         */
+        SyncTask(Phenotype phenotype)
+        {
+            this.phenotype = phenotype;
+            this.oldStatus = phenotype.getStatus();
+            this.oldVersion = phenotype.getVersion();
+        }
+
+        @Override
+        public SyncTask call()
+        {
+            syncRate.acquire();
+            try {
+                readFromGithub(phenotype);
+            } catch (IOException | GithubException e) {
+                failure = e;
+            }
+            return this;
+        }
+
+        /**
+         * Get whether the phenotype has just become a synonym.
+         * @return whether it has
+         */
+        boolean becameSynonym()
+        {
+            Phenotype.Status status = phenotype.getStatus();
+            return Phenotype.Status.SYNONYM.equals(status) && !status.equals(oldStatus);
+        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.Date;
+
+import com.google.common.base.Optional;
+
+/**
+ * Just enough about a stored phenotype to tell which version of it is current, and whether it needs
+ * checking against github: much cheaper to come by than the phenotype itself.
+ *
+ * @version $Id$
+ */
+public final class PhenotypeVersion
+{
+    /**
+     * The id of the phenotype.
+     */
+    private final String id;
+
+    /**
+     * The version, as given by Phenotype.getVersion().
+     */
+    private final String version;
+
+    /**
+     * When the phenotype last changed.
+     */
+    private final Date timeModified;
+
+    /**
+     * The status of the phenotype.
+     */
+    private final Phenotype.Status status;
+
+    /**
+     * Whether the phenotype has an issue number.
+     */
+    private final boolean hasIssue;
+
+    /**
+     * When the phenotype was last checked against github, or null.
+     */
+    private final Date timeVerified;
+
+    /**
+     * CTOR.
+     * @param id the id of the phenotype
+     * @param version the version
+     * @param timeModified when the phenotype last changed
+     * @param status the status of the phenotype
+     * @param hasIssue whether the phenotype has an issue number
+     * @param timeVerified when the phenotype was last checked against github, or null if never
+     */
+    public PhenotypeVersion(String id, String version, Date timeModified, Phenotype.Status status,
+            boolean hasIssue, Date timeVerified)
+    {
+        this.id = id;
+        this.version = version;
+        this.timeModified = timeModified;
+        this.status = status;
+        this.hasIssue = hasIssue;
+        this.timeVerified = timeVerified;
+    }
+
+    /**
+     * Get the id of the phenotype.
+     * @return the id
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Get the version.
+     * @return the version
+     */
+    public String getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Get when the phenotype last changed.
+     * @return the time modified
+     */
+    public Date getTimeModified()
+    {
+        return timeModified;
+    }
+
+    /**
+     * Get the status of the phenotype.
+     * @return the status
+     */
+    public Phenotype.Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Get whether the phenotype has an issue number.
+     * @return whether it has
+     */
+    public boolean hasIssue()
+    {
+        return hasIssue;
+    }
+
+    /**
+     * Get when the phenotype was last checked against github.
+     * @return the time verified
+     */
+    public Optional<Date> getTimeVerified()
+    {
+        return Optional.fromNullable(timeVerified);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.List;
+
+import com.google.common.base.Optional;
+
+/**
+ * A page of search results, along with what's needed to get the next one.
+ *
+ * @version $Id$
+ */
+public class SearchResults
+{
+    /**
+     * The phenotypes on this page.
+     */
+    private final List<Phenotype> phenotypes;
+
+    /**
+     * The number of phenotypes matching the search, on every page.
+     */
+    private final long total;
+
+    /**
+     * The cursor to the next page, if there's one and the search was done with cursors.
+     */
+    private final Optional<String> nextCursor;
+
+    /**
+     * CTOR.
+     * @param phenotypes the phenotypes on this page
+     * @param total the number of phenotypes matching the search, on every page
+     * @param nextCursor the cursor to the next page, if any
+     */
+    public SearchResults(List<Phenotype> phenotypes, long total, Optional<String> nextCursor)
+    {
+        this.phenotypes = phenotypes;
+        this.total = total;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Get the phenotypes on this page, best match first.
+     * @return the phenotypes
+     */
+    public List<Phenotype> getPhenotypes()
+    {
+        return phenotypes;
+    }
+
+    /**
+     * Get the number of phenotypes matching the search, on every page.
+     * @return the number of phenotypes
+     */
+    public long getTotal()
+    {
+        return total;
+    }
+
+    /**
+     * Get the cursor to pass back to get the next page. Only searches done with a cursor, or from the start,
+     * have one.
+     * @return the cursor, or absent if this is the last page or the search used an offset
+     */
+    public Optional<String> getNextCursor()
+    {
+        return nextCursor;
+    }
+}
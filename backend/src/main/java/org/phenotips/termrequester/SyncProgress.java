@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of how a sync with github is going, and lets it be cancelled.
+ *
+ * @version $Id$
+ */
+public class SyncProgress
+{
+    /**
+     * The number of phenotypes read from the database so far.
+     */
+    private final AtomicInteger read = new AtomicInteger();
+
+    /**
+     * The number of phenotypes synced so far.
+     */
+    private final AtomicInteger synced = new AtomicInteger();
+
+    /**
+     * The number of phenotypes that couldn't be synced.
+     */
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * The number of phenotypes found in a release of the HPO so far.
+     */
+    private final AtomicInteger published = new AtomicInteger();
+
+    /**
+     * Whether the sync was asked to stop.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Whether the sync is over.
+     */
+    private volatile boolean done;
+
+    /**
+     * Get the number of phenotypes read from the database so far, synced or not.
+     * @return the number of phenotypes
+     */
+    public int getRead()
+    {
+        return read.get();
+    }
+
+    /**
+     * Get the number of phenotypes synced so far.
+     * @return the number of phenotypes
+     */
+    public int getSynced()
+    {
+        return synced.get();
+    }
+
+    /**
+     * Get the number of phenotypes that couldn't be synced so far.
+     * @return the number of phenotypes
+     */
+    public int getFailed()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Get the number of accepted phenotypes found in a release of the HPO so far.
+     * @return the number of phenotypes
+     */
+    public int getPublished()
+    {
+        return published.get();
+    }
+
+    /**
+     * Get whether the sync was cancelled.
+     * @return whether it was
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Get whether the sync is over, whether it finished or was cancelled.
+     * @return whether it is
+     */
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * Ask the sync to stop. Phenotypes synced so far are still saved.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    @Override
+    public String toString()
+    {
+        String state = "";
+        if (cancelled) {
+            state = " (cancelled)";
+        } else if (done) {
+            state = " (done)";
+        }
+        return String.format("%d synced, %d failed, %d read, %d published%s", getSynced(), getFailed(), getRead(),
+                getPublished(), state);
+    }
+
+    /**
+     * Record that phenotypes were read from the database.
+     * @param count how many
+     */
+    void addRead(int count)
+    {
+        read.addAndGet(count);
+    }
+
+    /**
+     * Record that a phenotype was synced.
+     */
+    void addSynced()
+    {
+        synced.incrementAndGet();
+    }
+
+    /**
+     * Record that a phenotype couldn't be synced.
+     */
+    void addFailed()
+    {
+        failed.incrementAndGet();
+    }
+
+    /**
+     * Record that a phenotype was found in a release of the HPO.
+     */
+    void addPublished()
+    {
+        published.incrementAndGet();
+    }
+
+    /**
+     * Record that the sync is over.
+     */
+    void setDone()
+    {
+        done = true;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Where phenotypes accepted as synonyms of others now live: a map from the id of each such phenotype to the
+ * hpo id of the phenotype it is a synonym of. Kept in memory so that following a synonym costs a hash
+ * lookup rather than a database query.
+ * Redirects may chain, and resolving them is safe against cycles.
+ *
+ * @version $Id$
+ */
+final class SynonymRedirects
+{
+    /**
+     * The redirects, from id to id.
+     */
+    private final ConcurrentMap<String, String> redirects = new ConcurrentHashMap<>();
+
+    /**
+     * Record that the phenotype with the id given now lives at the other id given.
+     * @param from the id of the synonym
+     * @param to the id it redirects to
+     */
+    public void put(String from, String to)
+    {
+        if (from.equals(to)) {
+            redirects.remove(from);
+        } else {
+            redirects.put(from, to);
+        }
+    }
+
+    /**
+     * Resolve the id given by following redirects from it until there are none left.
+     * Should the redirects ever form a cycle, resolution stops at the last id before it comes back around.
+     * @param id the id
+     * @return the resolved id, which is the id given if it doesn't redirect anywhere
+     */
+    public String resolve(String id)
+    {
+        String next = redirects.get(id);
+        if (next == null) {
+            return id;
+        }
+        String current = id;
+        Set<String> visited = new HashSet<>();
+        visited.add(id);
+        while (next != null && visited.add(next)) {
+            current = next;
+            next = redirects.get(current);
+        }
+        return current;
+    }
+
+    /**
+     * Resolve all the ids given.
+     * @param ids the ids
+     * @return a map from each id to its resolved id, in the order given
+     */
+    public Map<String, String> resolveAll(Collection<String> ids)
+    {
+        Map<String, String> resolved = new LinkedHashMap<>(ids.size() * 2);
+        for (String id : ids) {
+            if (!resolved.containsKey(id)) {
+                resolved.put(id, resolve(id));
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Get the number of redirects.
+     * @return the number of redirects
+     */
+    public int size()
+    {
+        return redirects.size();
+    }
+
+    /**
+     * Forget all redirects.
+     */
+    public void clear()
+    {
+        redirects.clear();
+    }
+}
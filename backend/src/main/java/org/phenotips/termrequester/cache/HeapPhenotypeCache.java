@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.cache;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.PhenotypeCodec;
+
+import java.io.IOException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A phenotype cache on the heap: a map from each id to the phenotype's encoding.
+ *
+ * @version $Id$
+ */
+public class HeapPhenotypeCache implements PhenotypeCache
+{
+    /**
+     * The encoded phenotypes, by id.
+     */
+    private final ConcurrentMap<String, byte[]> encoded = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Phenotype> get(String id)
+    {
+        byte[] bytes = encoded.get(id);
+        if (bytes == null) {
+            return Optional.absent();
+        }
+        return Optional.of(decode(bytes));
+    }
+
+    @Override
+    public void put(Phenotype phenotype)
+    {
+        checkArgument(phenotype.getId().isPresent(), "Cannot cache %s without an id", phenotype);
+        encoded.put(phenotype.getId().get(), PhenotypeCodec.encode(phenotype));
+    }
+
+    @Override
+    public boolean remove(String id)
+    {
+        return encoded.remove(id) != null;
+    }
+
+    @Override
+    public int size()
+    {
+        return encoded.size();
+    }
+
+    @Override
+    public void clear()
+    {
+        encoded.clear();
+    }
+
+    /**
+     * Decode a phenotype encoded by put().
+     *
+     * @param bytes the encoding
+     * @return the phenotype
+     */
+    static Phenotype decode(byte[] bytes)
+    {
+        try {
+            return PhenotypeCodec.decode(bytes).get(0);
+        } catch (IOException e) {
+            /* We encoded it ourselves */
+            throw new IllegalStateException("Corrupt cache entry", e);
+        }
+    }
+}
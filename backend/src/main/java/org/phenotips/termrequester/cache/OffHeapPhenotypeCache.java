@@ -0,0 +1,448 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.cache;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.PhenotypeCodec;
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.base.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A phenotype cache that keeps the phenotypes' encodings outside the heap, in direct buffers, so that holding
+ * every phenotype costs the garbage collector next to nothing.
+ *
+ * Encodings are appended to fixed size segments, each record its length and then its bytes. An open
+ * addressing index of primitive arrays maps each id, as IdUtils encodes it, to where its record is; the few
+ * ids that don't encode go in an ordinary map. Replaced and removed records are left where they are until
+ * they make up over half of what's used, when the live ones are copied into new segments.
+ *
+ * @version $Id$
+ */
+public class OffHeapPhenotypeCache implements PhenotypeCache
+{
+    /**
+     * The default size of a segment, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 8 << 20;
+
+    /**
+     * The initial number of slots in the index. Must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The key of an empty slot in the index, which new arrays are filled with.
+     */
+    private static final int EMPTY = IdUtils.NO_CODE;
+
+    /**
+     * How many bytes a record's length takes.
+     */
+    private static final int LENGTH_BYTES = 4;
+
+    /**
+     * The size of new segments.
+     */
+    private final int segmentSize;
+
+    /**
+     * The segments, in the order they were allocated.
+     */
+    private List<ByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * The encoded ids in the index, or EMPTY.
+     */
+    private int[] keys = new int[INITIAL_CAPACITY];
+
+    /**
+     * Where the record for the id in the same slot is: the segment in the high half, the offset in the low.
+     */
+    private long[] locations = new long[INITIAL_CAPACITY];
+
+    /**
+     * How many ids are in the index.
+     */
+    private int indexed;
+
+    /**
+     * Where the records for ids that don't encode are.
+     */
+    private final Map<String, Long> otherIds = new HashMap<>();
+
+    /**
+     * How many bytes of the segments have been written.
+     */
+    private long usedBytes;
+
+    /**
+     * How many of those bytes are records that have been replaced or removed.
+     */
+    private long garbageBytes;
+
+    /**
+     * The lock guarding all of the above.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * CTOR, with segments of the default size.
+     */
+    public OffHeapPhenotypeCache()
+    {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * CTOR.
+     *
+     * @param segmentSize the size of each buffer to allocate, in bytes
+     */
+    public OffHeapPhenotypeCache(int segmentSize)
+    {
+        checkArgument(segmentSize > LENGTH_BYTES, "Segment size %s is too small", segmentSize);
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public Optional<Phenotype> get(String id)
+    {
+        byte[] bytes;
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            long location = find(id);
+            if (location < 0) {
+                return Optional.absent();
+            }
+            bytes = read(location);
+        } finally {
+            read.unlock();
+        }
+        return Optional.of(HeapPhenotypeCache.decode(bytes));
+    }
+
+    @Override
+    public void put(Phenotype phenotype)
+    {
+        checkArgument(phenotype.getId().isPresent(), "Cannot cache %s without an id", phenotype);
+        String id = phenotype.getId().get();
+        byte[] bytes = PhenotypeCodec.encode(phenotype);
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            long location = append(bytes);
+            int code = IdUtils.encode(id);
+            Long old;
+            if (code != IdUtils.NO_CODE) {
+                old = insert(code, location);
+            } else {
+                old = otherIds.put(id, location);
+            }
+            if (old != null) {
+                discard(old);
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String id)
+    {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int code = IdUtils.encode(id);
+            long old;
+            if (code != IdUtils.NO_CODE) {
+                int slot = slotOf(code);
+                if (slot < 0) {
+                    return false;
+                }
+                old = locations[slot];
+                delete(slot);
+            } else {
+                Long location = otherIds.remove(id);
+                if (location == null) {
+                    return false;
+                }
+                old = location;
+            }
+            discard(old);
+            return true;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return indexed + otherIds.size();
+        } finally {
+            read.unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            segments = new ArrayList<>();
+            keys = new int[INITIAL_CAPACITY];
+            locations = new long[INITIAL_CAPACITY];
+            indexed = 0;
+            otherIds.clear();
+            usedBytes = 0;
+            garbageBytes = 0;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Get how many bytes of the segments have been written, including records since replaced or removed.
+     *
+     * @return the bytes
+     */
+    public long getUsedBytes()
+    {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return usedBytes;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Find where the record for the id given is.
+     *
+     * @param id the id
+     * @return the location, or -1 if there's none
+     */
+    private long find(String id)
+    {
+        int code = IdUtils.encode(id);
+        if (code != IdUtils.NO_CODE) {
+            int slot = slotOf(code);
+            return slot < 0 ? -1 : locations[slot];
+        }
+        Long location = otherIds.get(id);
+        return location == null ? -1 : location;
+    }
+
+    /**
+     * Read the record at the location given.
+     *
+     * @param location the location
+     * @return the record's bytes
+     */
+    private byte[] read(long location)
+    {
+        return read(segments, location);
+    }
+
+    /**
+     * Append a record to the last segment, starting a new one if it doesn't fit.
+     *
+     * @param bytes the record's bytes
+     * @return its location
+     */
+    private long append(byte[] bytes)
+    {
+        int needed = LENGTH_BYTES + bytes.length;
+        ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.remaining() < needed) {
+            segment = ByteBuffer.allocateDirect(Math.max(segmentSize, needed));
+            segments.add(segment);
+        }
+        long location = ((long) (segments.size() - 1) << 32) | segment.position();
+        segment.putInt(bytes.length);
+        segment.put(bytes);
+        usedBytes += needed;
+        return location;
+    }
+
+    /**
+     * Count the record at the location given as garbage, and compact the segments if there's too much.
+     *
+     * @param location the record's location
+     */
+    private void discard(long location)
+    {
+        ByteBuffer segment = segments.get((int) (location >>> 32));
+        garbageBytes += LENGTH_BYTES + segment.getInt((int) location);
+        if (garbageBytes * 2 > usedBytes && usedBytes > segmentSize) {
+            compact();
+        }
+    }
+
+    /**
+     * Copy the live records into new segments, and let the old ones go.
+     */
+    private void compact()
+    {
+        List<ByteBuffer> old = segments;
+        segments = new ArrayList<>();
+        usedBytes = 0;
+        garbageBytes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                locations[i] = append(read(old, locations[i]));
+            }
+        }
+        for (Map.Entry<String, Long> entry : otherIds.entrySet()) {
+            entry.setValue(append(read(old, entry.getValue())));
+        }
+    }
+
+    /**
+     * Read the record at the location given, in the segments given.
+     *
+     * @param from the segments
+     * @param location the location
+     * @return the record's bytes
+     */
+    private static byte[] read(List<ByteBuffer> from, long location)
+    {
+        /* A duplicate, so concurrent readers don't share a position */
+        ByteBuffer segment = from.get((int) (location >>> 32)).duplicate();
+        segment.position((int) location);
+        byte[] bytes = new byte[segment.getInt()];
+        segment.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Find the slot holding the encoded id given.
+     *
+     * @param code the encoded id
+     * @return the slot, or -1 if it isn't there
+     */
+    private int slotOf(int code)
+    {
+        int mask = keys.length - 1;
+        for (int i = home(code, mask);; i = (i + 1) & mask) {
+            if (keys[i] == code) {
+                return i;
+            } else if (keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Put the encoded id given in the index, growing it first if it's half full.
+     *
+     * @param code the encoded id
+     * @param location where its record is
+     * @return where its record used to be, or null if it wasn't there
+     */
+    private Long insert(int code, long location)
+    {
+        if ((indexed + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int i = home(code, mask);
+        while (keys[i] != EMPTY && keys[i] != code) {
+            i = (i + 1) & mask;
+        }
+        Long old = null;
+        if (keys[i] == code) {
+            old = locations[i];
+        } else {
+            keys[i] = code;
+            indexed++;
+        }
+        locations[i] = location;
+        return old;
+    }
+
+    /**
+     * Empty the slot given, moving later entries of the same run back so that lookups still find them.
+     *
+     * @param slot the slot
+     */
+    private void delete(int slot)
+    {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            /* An entry can fill the hole if the hole lies between its home slot and where it is now */
+            if (((i - home(keys[i], mask)) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                locations[hole] = locations[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        indexed--;
+    }
+
+    /**
+     * Double the size of the index.
+     */
+    private void grow()
+    {
+        int[] oldKeys = keys;
+        long[] oldLocations = locations;
+        keys = new int[oldKeys.length * 2];
+        locations = new long[oldKeys.length * 2];
+        indexed = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldLocations[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the slot the encoded id given belongs in, if there's nothing else there.
+     *
+     * @param code the encoded id
+     * @param mask the size of the index, less one
+     * @return the slot
+     */
+    private static int home(int code, int mask)
+    {
+        int h = code * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.cache;
+
+import org.phenotips.termrequester.Phenotype;
+
+import com.google.common.base.Optional;
+
+/**
+ * Keeps phenotypes by id, so they can be read without going to the database.
+ * Phenotypes are kept as PhenotypeCodec encodes them and only decoded when asked for, so every get gives a
+ * fresh copy that callers are free to change.
+ *
+ * @version $Id$
+ */
+public interface PhenotypeCache
+{
+    /**
+     * Get the phenotype with the id given.
+     *
+     * @param id the id
+     * @return a copy of the phenotype, if there's one with that id
+     */
+    Optional<Phenotype> get(String id);
+
+    /**
+     * Keep the phenotype given, replacing any with the same id.
+     *
+     * @param phenotype the phenotype, which must have an id
+     */
+    void put(Phenotype phenotype);
+
+    /**
+     * Forget the phenotype with the id given.
+     *
+     * @param id the id
+     * @return whether there was one
+     */
+    boolean remove(String id);
+
+    /**
+     * Get how many phenotypes are kept.
+     *
+     * @return the number of phenotypes
+     */
+    int size();
+
+    /**
+     * Forget every phenotype.
+     */
+    void clear();
+}
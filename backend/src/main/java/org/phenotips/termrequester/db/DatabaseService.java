@@ -18,13 +18,19 @@
 package org.phenotips.termrequester.db;
 
 import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.PhenotypeVersion;
+import org.phenotips.termrequester.SearchResults;
 
 import java.io.IOException;
 
 import java.nio.file.Path;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+import com.google.common.base.Optional;
+
 /**
  * Connects to a database of some kind, keeps track of phenotypes, etc.
  * @version $Id$
@@ -65,6 +71,14 @@
      */
     Phenotype savePhenotype(Phenotype phenotype) throws IOException;
 
+    /**
+     * Save all the phenotypes given in one write, skipping any that aren't dirty.
+     *
+     * @param phenotypes the phenotypes to save
+     * @throws IOException on solr failure
+     */
+    void savePhenotypes(Collection<Phenotype> phenotypes) throws IOException;
+
     /**
      * Delete a phenotype from the db.
      *
@@ -83,6 +97,27 @@
      */
     Phenotype getPhenotypeById(String id) throws IOException;
 
+    /**
+     * Get the version of the phenotype with the id given, without reading the whole phenotype.
+     * Phenotypes marked as synonyms have no version here, for the same reasons getPhenotypeByHpoId
+     * leaves them out.
+     *
+     * @param id the id or hpo id
+     * @return the version, or absent if there's no such phenotype or it was saved without one
+     * @throws IOException on solr failure
+     */
+    Optional<PhenotypeVersion> getPhenotypeVersion(String id) throws IOException;
+
+    /**
+     * Get all the phenotypes matching the ids given, in one go.
+     * Like getPhenotypeById, this sees changes that haven't been committed yet.
+     *
+     * @param ids the ids
+     * @return the phenotypes found, in no particular order; ids with no phenotype are left out
+     * @throws IOException on solr failure
+     */
+    List<Phenotype> getPhenotypesById(Collection<String> ids) throws IOException;
+
     /**
      * Get a phenotype that's equivalent to the one given (this may include ids, names or synonyms).
      *
@@ -110,6 +145,35 @@
      */
     List<Phenotype> getPhenotypesByStatus(Phenotype.Status status) throws IOException;
 
+    /**
+     * Get a page of the phenotypes with the status given, in id order.
+     * Pages start after the last id seen rather than at an offset, so that phenotypes changing status
+     * between pages don't cause others to be skipped.
+     *
+     * @param status the desired phenotype status
+     * @param after the id to start after, or absent to start at the beginning
+     * @param rows the maximum number of phenotypes to return
+     * @return the page of phenotypes; fewer than rows means it's the last one
+     * @throws IOException on solr failure
+     */
+    List<Phenotype> getPhenotypesByStatus(Phenotype.Status status, Optional<String> after, int rows)
+        throws IOException;
+
+    /**
+     * Get a page of the phenotypes modified at or after the time given, whatever their status, in order of
+     * modification time and then id.
+     * A phenotype modified again after being returned moves to the end, so paging through to the last page
+     * sees every change at least once.
+     *
+     * @param since the modification time to start from
+     * @param after if present, only phenotypes modified at exactly since with a greater id than this, or
+     *              modified after since, are returned; used to carry on from the last phenotype of a page
+     * @param rows the maximum number of phenotypes to return
+     * @return the page of phenotypes; fewer than rows means it's the last one
+     * @throws IOException on solr failure
+     */
+    List<Phenotype> getPhenotypesModifiedSince(Date since, Optional<String> after, int rows) throws IOException;
+
     /**
      * Get the phenotype with the hpo id given.
      * This will not return phenotypes that were marked as synonyms, for evident reasons:
@@ -122,6 +186,16 @@
      */
     Phenotype getPhenotypeByHpoId(String hpoId) throws IOException;
 
+    /**
+     * Get all the phenotypes matching the hpo ids given, in one go.
+     * As with getPhenotypeByHpoId, phenotypes marked as synonyms are left out.
+     *
+     * @param hpoIds the hpo ids
+     * @return the phenotypes found, in no particular order; hpo ids with no phenotype are left out
+     * @throws IOException on solr failure
+     */
+    List<Phenotype> getPhenotypesByHpoId(Collection<String> hpoIds) throws IOException;
+
     /**
      * Search the database for the text given.
      * Will not return any phenotypes marked as synonyms.
@@ -132,6 +206,22 @@
      */
     List<Phenotype> searchPhenotypes(String text) throws IOException;
 
+    /**
+     * Search the database for the text given, a page at a time.
+     * Will not return any phenotypes marked as synonyms. Pages can be asked for by offset, or with the
+     * cursor returned with the previous page, which stays right when phenotypes are added in between; a
+     * search starting at the very beginning returns a cursor too. Not both at once.
+     *
+     * @param text the text to search for.
+     * @param start the offset of the page, which must be 0 if a cursor is given
+     * @param rows the size of the page
+     * @param cursor the cursor to the page, if any
+     * @return the page of results.
+     * @throws IOException on solr failure
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    SearchResults searchPhenotypes(String text, int start, int rows, Optional<String> cursor) throws IOException;
+
     /**
      * Set whether the service ought to commit at the end of every write.
      *
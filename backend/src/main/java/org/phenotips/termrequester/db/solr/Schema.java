@@ -75,6 +75,16 @@
      */
     public static final String TIME_MODIFIED = "time_modified";
 
+    /**
+     * The time that this document was last checked against github.
+     */
+    public static final String TIME_VERIFIED = "time_verified";
+
+    /**
+     * The version of the phenotype as clients see it.
+     */
+    public static final String VERSION = "version";
+
     /**
      * The current github etag.
      */
@@ -18,6 +18,8 @@
 package org.phenotips.termrequester.db.solr;
 
 import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.PhenotypeVersion;
+import org.phenotips.termrequester.SearchResults;
 import org.phenotips.termrequester.db.DatabaseService;
 import org.phenotips.termrequester.utils.IdUtils;
 import org.phenotips.variantstore.db.DatabaseException;
@@ -29,10 +31,19 @@
 import java.nio.file.Paths;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -40,13 +51,22 @@
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.DisMaxParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SpellingParams;
+import org.apache.solr.common.util.DateUtil;
 import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
 import com.google.inject.Singleton;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -72,6 +92,11 @@ class SolrDatabaseService implements DatabaseService
      */
     public static final String CORE_NAME = "termrequester";
 
+    /**
+     * The number of search results in a page, when no number is given; the same as solr's own default.
+     */
+    public static final int DEFAULT_SEARCH_ROWS = 10;
+
 
     /**
      * A joiner to join different parts of a Solr query with an OR.
@@ -83,6 +108,35 @@ class SolrDatabaseService implements DatabaseService
      */
     private static final String FIELD_IS = "%s:\"%s\"";
 
+    /**
+     * The pseudo-field for relevance, to sort by.
+     */
+    private static final String SCORE = "score";
+
+    /**
+     * The fields needed for a phenotype version.
+     */
+    private static final String[] VERSION_FIELDS = { Schema.ID, Schema.VERSION, Schema.TIME_MODIFIED,
+        Schema.STATUS, Schema.ISSUE_NUMBER, Schema.TIME_VERIFIED };
+
+    /**
+     * The fields a document is made of, as SolrMapper writes them; all the others are copies.
+     */
+    private static final String SOURCE_FIELDS = Joiner.on(',').join(Schema.ID, Schema.HPO_ID, Schema.NAME,
+        Schema.SYNONYM, Schema.DEFINITION, Schema.PARENT, Schema.STATUS, Schema.ISSUE_NUMBER, Schema.TIME_CREATED,
+        Schema.TIME_MODIFIED, Schema.TIME_VERIFIED, Schema.VERSION, Schema.ETAG);
+
+    /**
+     * How many documents to rewrite at once when reindexing.
+     */
+    private static final int REINDEX_ROWS = 1000;
+
+    /**
+     * The fields of the existing document needed to save over it.
+     */
+    private static final String EXISTING_FIELDS = Joiner.on(',').join(Schema.ID, Schema.VERSION,
+        Schema.TIME_MODIFIED);
+
     /**
      * The path where the database is.
      */
@@ -111,7 +165,45 @@ class SolrDatabaseService implements DatabaseService
     /**
      * The solr mapper to use to turn phenotypes to documents and vice-versa.
      */
-    private SolrMapper mapper;
+    private final SolrMapper mapper;
+
+    /**
+     * The last id handed out, or null if none has been yet since startup.
+     */
+    private String lastId;
+
+    /**
+     * The lock commits go through one at a time.
+     */
+    private final Object commitLock = new Object();
+
+    /**
+     * The lock documents are stamped and added under, so that they're added in the order of their modification
+     * times.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The last modification time stamped, in milliseconds.
+     */
+    private long lastModified;
+
+    /**
+     * CTOR.
+     */
+    SolrDatabaseService()
+    {
+        this(new SolrMapper());
+    }
+
+    /**
+     * CTOR.
+     * @param mapper the mapper to turn phenotypes to documents and back with
+     */
+    SolrDatabaseService(SolrMapper mapper)
+    {
+        this.mapper = mapper;
+    }
 
     @Override
     public synchronized void init(Path path) throws IOException
@@ -133,7 +225,9 @@ public synchronized void init(Path path) throws IOException
                 up = false;
                 throw new IOException("Solr returned null server");
             }
-            mapper = new SolrMapper();
+            if (needsReindex(cores)) {
+                reindex();
+            }
         }
     }
 
@@ -144,6 +238,7 @@ public synchronized void shutdown() throws IOException
             commit();
             server.close();
             cores.shutdown();
+            lastId = null;
             up = false;
         }
     }
@@ -152,10 +247,13 @@ public synchronized void shutdown() throws IOException
     public void commit() throws IOException
     {
         checkUp();
-        try {
-            server.commit();
-        } catch (SolrServerException e) {
-            throw new IOException(e);
+        /* Overlapping commits each open a searcher, and solr refuses to warm more than a couple at once */
+        synchronized (commitLock) {
+            try {
+                server.commit();
+            } catch (SolrServerException e) {
+                throw new IOException(e);
+            }
         }
     }
 
@@ -167,25 +265,14 @@ public Phenotype savePhenotype(Phenotype pt) throws IOException
         if (!pt.isDirty()) {
             return pt;
         }
-        if (pt.getId().isPresent()) {
+        Map<String, SolrDocument> existing = getExisting(Collections.singletonList(pt));
+        synchronized (writeLock) {
+            SolrInputDocument doc = prepareDoc(pt, existing);
             try {
-                String id = pt.getId().get();
-                checkState(server.getById(id) != null, "ID %s does not exist when expected to", id);
-                server.deleteById(pt.getId().get());
+                server.add(doc);
             } catch (SolrServerException e) {
                 throw new IOException(e);
             }
-        } else {
-            String nextId = getNextId();
-            pt.setId(nextId);
-        }
-        SolrInputDocument doc = mapper.toDoc(pt);
-        pt.setTimeCreated((Date) doc.getFieldValue(Schema.TIME_CREATED));
-        pt.setTimeModified((Date) doc.getFieldValue(Schema.TIME_MODIFIED));
-        try {
-            server.add(doc);
-        } catch (SolrServerException e) {
-            throw new IOException(e);
         }
         if (autocommit) {
             commit();
@@ -194,6 +281,40 @@ public Phenotype savePhenotype(Phenotype pt) throws IOException
         return pt;
     }
 
+    @Override
+    public void savePhenotypes(Collection<Phenotype> phenotypes) throws IOException
+    {
+        checkUp();
+        List<Phenotype> dirty = new ArrayList<>(phenotypes.size());
+        for (Phenotype pt : phenotypes) {
+            if (pt.isDirty()) {
+                dirty.add(pt);
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        /* One lookup for the whole batch, rather than one per phenotype */
+        Map<String, SolrDocument> existing = getExisting(dirty);
+        List<SolrInputDocument> docs = new ArrayList<>(dirty.size());
+        synchronized (writeLock) {
+            for (Phenotype pt : dirty) {
+                docs.add(prepareDoc(pt, existing));
+            }
+            try {
+                server.add(docs);
+            } catch (SolrServerException e) {
+                throw new IOException(e);
+            }
+        }
+        if (autocommit) {
+            commit();
+        }
+        for (Phenotype pt : dirty) {
+            pt.setClean();
+        }
+    }
+
     @Override
     public boolean deletePhenotype(Phenotype pt) throws IOException
     {
@@ -230,6 +351,59 @@ public Phenotype getPhenotypeById(String id) throws IOException
         }
     }
 
+    @Override
+    public Optional<PhenotypeVersion> getPhenotypeVersion(String id) throws IOException
+    {
+        checkUp();
+        String fields = Joiner.on(',').join(VERSION_FIELDS);
+        try {
+            SolrDocument doc;
+            if (IdUtils.isHpoId(id)) {
+                SolrQuery q = new SolrQuery().
+                    setQuery(String.format(FIELD_IS, Schema.HPO_ID, id)).
+                    addFilterQuery(String.format("%s:(%s OR %s)", Schema.STATUS, Phenotype.Status.ACCEPTED,
+                                Phenotype.Status.PUBLISHED)).
+                    setFields(fields).
+                    setRows(1);
+                List<SolrDocument> docs = server.query(q).getResults();
+                if (docs.isEmpty()) {
+                    doc = null;
+                } else {
+                    doc = docs.get(0);
+                }
+            } else {
+                doc = server.getById(id, new ModifiableSolrParams().set(CommonParams.FL, fields));
+            }
+            if (doc == null || doc.getFieldValue(Schema.VERSION) == null) {
+                return Optional.absent();
+            }
+            Phenotype.Status status = Phenotype.Status.valueOf((String) doc.getFieldValue(Schema.STATUS));
+            if (Phenotype.Status.SYNONYM.equals(status)) {
+                return Optional.absent();
+            }
+            return Optional.of(new PhenotypeVersion((String) doc.getFieldValue(Schema.ID),
+                        (String) doc.getFieldValue(Schema.VERSION), (Date) doc.getFieldValue(Schema.TIME_MODIFIED),
+                        status, doc.getFieldValue(Schema.ISSUE_NUMBER) != null,
+                        (Date) doc.getFieldValue(Schema.TIME_VERIFIED)));
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public List<Phenotype> getPhenotypesById(Collection<String> ids) throws IOException
+    {
+        checkUp();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return fromDocs(server.getById(ids));
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public Phenotype getPhenotypeByIssueNumber(String issueNumber) throws IOException
     {
@@ -241,18 +415,42 @@ public Phenotype getPhenotypeByIssueNumber(String issueNumber) throws IOExceptio
     public Phenotype getPhenotypeByHpoId(String hpoId) throws IOException
     {
         checkUp();
-        String queryString = String.format("(%s) AND (%s)",
+        String queryString = String.format("(%s OR %s) AND (%s)",
                 String.format(FIELD_IS, Schema.STATUS, Phenotype.Status.ACCEPTED.toString()),
+                String.format(FIELD_IS, Schema.STATUS, Phenotype.Status.PUBLISHED.toString()),
                 String.format(FIELD_IS, Schema.HPO_ID, hpoId));
         SolrQuery q = new SolrQuery().setQuery(queryString).setRows(1);
         return runQuery(q);
     }
 
+    @Override
+    public List<Phenotype> getPhenotypesByHpoId(Collection<String> hpoIds) throws IOException
+    {
+        checkUp();
+        if (hpoIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        /* The terms parser takes the values as they are, no escaping needed, as long as none has a comma */
+        for (String hpoId : hpoIds) {
+            checkArgument(hpoId.indexOf(',') < 0, "Malformed hpo id %s", hpoId);
+        }
+        SolrQuery q = new SolrQuery().
+            setQuery(String.format("{!terms f=%s}%s", Schema.HPO_ID, Joiner.on(',').join(hpoIds))).
+            addFilterQuery(String.format("%s:(%s OR %s)", Schema.STATUS, Phenotype.Status.ACCEPTED,
+                        Phenotype.Status.PUBLISHED)).
+            setRows(hpoIds.size());
+        try {
+            return fromDocs(server.query(q).getResults());
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public Phenotype getPhenotype(Phenotype other) throws IOException
     {
         checkUp();
-        Set<String> names = other.getSynonyms();
+        Set<String> names = new HashSet<>(other.getSynonyms());
         names.add(other.getName());
         List<String> queryPieces = new ArrayList<>(names.size() * 2 + 2);
         if (other.getId().isPresent()) {
@@ -276,8 +474,16 @@ public Phenotype getPhenotype(Phenotype other) throws IOException
 
     @Override
     public List<Phenotype> searchPhenotypes(String text) throws IOException
+    {
+        return searchPhenotypes(text, 0, DEFAULT_SEARCH_ROWS, Optional.<String>absent()).getPhenotypes();
+    }
+
+    @Override
+    public SearchResults searchPhenotypes(String text, int start, int rows, Optional<String> cursor)
+        throws IOException
     {
         checkUp();
+        checkArgument(start == 0 || !cursor.isPresent(), "Can't page by offset and cursor at once");
         try {
             SolrQuery q = new SolrQuery();
             String escaped = ClientUtils.escapeQueryChars(text);
@@ -298,13 +504,34 @@ public List<Phenotype> searchPhenotypes(String text) throws IOException
             q.add(SpellingParams.SPELLCHECK_MAX_COLLATION_TRIES, "3");
             q.add("lowercaseOperators", Boolean.toString(false));
             q.add("defType", "edismax");
-            QueryResponse resp = server.query(q);
-            List<SolrDocument> results = resp.getResults();
-            List<Phenotype> retval = new ArrayList<>(results.size());
-            for (SolrDocument doc : results) {
-                retval.add(mapper.fromDoc(doc));
+            /* Cursors need a total order, so ties in score go by id */
+            q.addSort(SCORE, SolrQuery.ORDER.desc);
+            q.addSort(Schema.ID, SolrQuery.ORDER.asc);
+            q.setRows(rows);
+            String cursorMark = null;
+            if (start > 0) {
+                q.setStart(start);
+            } else {
+                cursorMark = cursor.or(CursorMarkParams.CURSOR_MARK_START);
+                q.add(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            }
+            QueryResponse resp;
+            try {
+                resp = server.query(q);
+            } catch (SolrException e) {
+                if (cursor.isPresent() && e.code() == SolrException.ErrorCode.BAD_REQUEST.code) {
+                    throw new IllegalArgumentException(String.format("Malformed cursor %s", cursor.get()), e);
+                }
+                throw e;
             }
-            return retval;
+            SolrDocumentList results = resp.getResults();
+            Optional<String> next = Optional.absent();
+            String nextCursorMark = resp.getNextCursorMark();
+            /* Solr hands the same cursor back once there's nothing left */
+            if (cursorMark != null && results.size() == rows && !cursorMark.equals(nextCursorMark)) {
+                next = Optional.of(nextCursorMark);
+            }
+            return new SearchResults(fromDocs(results), results.getNumFound(), next);
         } catch (SolrServerException e) {
             throw new IOException(e);
         }
@@ -317,6 +544,50 @@ public List<Phenotype> getPhenotypesByStatus(Phenotype.Status status) throws IOE
         return getPhenotypesByField(Schema.STATUS, status.toString(), false);
     }
 
+    @Override
+    public List<Phenotype> getPhenotypesByStatus(Phenotype.Status status, Optional<String> after, int rows)
+        throws IOException
+    {
+        checkUp();
+        SolrQuery q = new SolrQuery().
+            setQuery(String.format(FIELD_IS, Schema.STATUS, status.toString())).
+            setSort(Schema.ID, SolrQuery.ORDER.asc).
+            setRows(rows);
+        if (after.isPresent()) {
+            q.addFilterQuery(String.format("%s:{%s TO *]", Schema.ID, ClientUtils.escapeQueryChars(after.get())));
+        }
+        try {
+            return fromDocs(server.query(q).getResults());
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public List<Phenotype> getPhenotypesModifiedSince(Date since, Optional<String> after, int rows)
+        throws IOException
+    {
+        checkUp();
+        String time = ClientUtils.escapeQueryChars(DateUtil.getThreadLocalDateFormat().format(since));
+        String filter;
+        if (after.isPresent()) {
+            filter = String.format("%1$s:{%2$s TO *] OR (%1$s:%2$s AND %3$s:{%4$s TO *])", Schema.TIME_MODIFIED,
+                time, Schema.ID, ClientUtils.escapeQueryChars(after.get()));
+        } else {
+            filter = String.format("%s:[%s TO *]", Schema.TIME_MODIFIED, time);
+        }
+        SolrQuery q = new SolrQuery().
+            setQuery(filter).
+            addSort(Schema.TIME_MODIFIED, SolrQuery.ORDER.asc).
+            addSort(Schema.ID, SolrQuery.ORDER.asc).
+            setRows(rows);
+        try {
+            return fromDocs(server.query(q).getResults());
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public boolean getAutocommit()
     {
@@ -359,6 +630,22 @@ private Phenotype getPhenotypeByField(String field, String value)
         return phenotypes.get(0);
     }
 
+    /**
+     * Map all the documents given to phenotypes.
+     * @param documents the documents
+     * @return the phenotypes
+     * @throws SolrServerException if the server throws
+     * @throws IOException if the server throws
+     */
+    private List<Phenotype> fromDocs(List<SolrDocument> documents) throws SolrServerException, IOException
+    {
+        List<Phenotype> results = new ArrayList<>(documents.size());
+        for (SolrDocument doc : documents) {
+            results.add(mapper.fromDoc(doc));
+        }
+        return results;
+    }
+
     /**
      * Get all the phenotypes where the field given has the value given.
      * @param field the field
@@ -409,11 +696,174 @@ private Phenotype runQuery(SolrQuery q) throws IOException
         }
     }
 
+    /**
+     * Get the phenotype given ready to be written: give it an id if it's new, and turn it into a document.
+     * Adding a document replaces any existing one with the same id, so there's nothing to delete.
+     * Must be called under the write lock, and the document added before it's released: a commit makes every
+     * document added before it visible, so documents only ever become visible in the order of their
+     * modification times, and a client following getPhenotypesModifiedSince can't get past a change that
+     * isn't visible yet.
+     *
+     * @param pt the phenotype
+     * @param existingDocs the existing documents, from getExisting
+     * @return the document
+     * @throws IOException if solr throws
+     */
+    private SolrInputDocument prepareDoc(Phenotype pt, Map<String, SolrDocument> existingDocs) throws IOException
+    {
+        SolrDocument existing = null;
+        if (pt.getId().isPresent()) {
+            String id = pt.getId().get();
+            existing = existingDocs.get(id);
+            checkState(existing != null, "ID %s does not exist when expected to", id);
+        } else {
+            pt.setId(getNextId());
+        }
+        SolrInputDocument doc = mapper.toDoc(pt, nextModified());
+        /* Only count it as modified if clients can tell the difference */
+        if (existing != null && pt.getVersion().equals(existing.getFieldValue(Schema.VERSION))) {
+            doc.setField(Schema.TIME_MODIFIED, existing.getFieldValue(Schema.TIME_MODIFIED));
+        }
+        pt.setTimeCreated((Date) doc.getFieldValue(Schema.TIME_CREATED));
+        pt.setTimeModified((Date) doc.getFieldValue(Schema.TIME_MODIFIED));
+        return doc;
+    }
+
+    /**
+     * Get the time to stamp the document being prepared with. Must be called under the write lock.
+     * Times are strictly increasing, so that no two documents share one and a cursor that has got to one
+     * document can't skip another one stamped at the same time but added later.
+     *
+     * @return the time
+     */
+    private Date nextModified()
+    {
+        lastModified = Math.max(System.currentTimeMillis(), lastModified + 1);
+        return new Date(lastModified);
+    }
+
+    /**
+     * Get whether any segment of the index has the modification time without doc values, as cores built
+     * before the schema asked for them do. The searcher uninverts the field on those segments, on the heap,
+     * which is what the doc values are there to avoid; so they're reported as they are on disk here.
+     *
+     * @param cores the core container
+     * @return whether the documents need reindexing
+     */
+    static boolean needsReindex(CoreContainer cores)
+    {
+        SolrCore core = cores.getCore(CORE_NAME);
+        RefCounted<SolrIndexSearcher> searcher = core.getSearcher();
+        try {
+            for (LeafReaderContext leaf : searcher.get().getIndexReader().leaves()) {
+                FieldInfo field = FilterLeafReader.unwrap(leaf.reader()).getFieldInfos()
+                    .fieldInfo(Schema.TIME_MODIFIED);
+                if (field != null && field.getDocValuesType() == DocValuesType.NONE) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            searcher.decref();
+            core.close();
+        }
+    }
+
+    /**
+     * Write every document again as it is, so that it's indexed as the schema now says, and commit.
+     * Segments only holding replaced documents are dropped on commit.
+     *
+     * @throws IOException if solr throws
+     */
+    private void reindex() throws IOException
+    {
+        try {
+            SolrQuery q = new SolrQuery(WILDCARD_QSTRING).
+                setFields(SOURCE_FIELDS).
+                setSort(Schema.ID, SolrQuery.ORDER.asc).
+                setRows(REINDEX_ROWS);
+            String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+            String next;
+            do {
+                q.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+                QueryResponse resp = server.query(q);
+                List<SolrInputDocument> docs = new ArrayList<>(resp.getResults().size());
+                for (SolrDocument doc : resp.getResults()) {
+                    /* Copied field by field, multivalued ones whole, so nothing stored changes */
+                    SolrInputDocument input = new SolrInputDocument();
+                    for (String name : doc.getFieldNames()) {
+                        input.setField(name, doc.getFieldValue(name));
+                    }
+                    docs.add(input);
+                }
+                if (!docs.isEmpty()) {
+                    server.add(docs);
+                }
+                next = cursorMark;
+                cursorMark = resp.getNextCursorMark();
+            } while (!cursorMark.equals(next));
+            server.commit();
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Get the existing documents of the phenotypes given, or rather just the fields of them prepareDoc needs,
+     * in a single real-time get.
+     *
+     * @param phenotypes the phenotypes about to be saved; new ones are skipped
+     * @return the documents found, by id
+     * @throws IOException if solr throws
+     */
+    private Map<String, SolrDocument> getExisting(Collection<Phenotype> phenotypes) throws IOException
+    {
+        List<String> ids = new ArrayList<>(phenotypes.size());
+        for (Phenotype pt : phenotypes) {
+            if (pt.getId().isPresent()) {
+                ids.add(pt.getId().get());
+            }
+        }
+        Map<String, SolrDocument> existing = new HashMap<>(ids.size());
+        if (ids.isEmpty()) {
+            return existing;
+        }
+        try {
+            for (SolrDocument doc : server.getById(ids, new ModifiableSolrParams().set(CommonParams.FL,
+                            EXISTING_FIELDS))) {
+                existing.put((String) doc.getFieldValue(Schema.ID), doc);
+            }
+        } catch (SolrServerException e) {
+            throw new IOException(e);
+        }
+        return existing;
+    }
+
     /**
      * Get the next available id.
+     * The latest id is only read from the index once: after that ids are handed out from memory, since
+     * documents added but not yet committed aren't searchable and concurrent saves would otherwise
+     * collide.
      * @return the next id
      */
-    private String getNextId() throws IOException
+    private synchronized String getNextId() throws IOException
+    {
+        if (lastId == null) {
+            lastId = getLatestId();
+        }
+        if (lastId == null) {
+            lastId = IdUtils.INITIAL_ID;
+        } else {
+            lastId = IdUtils.incrementId(lastId);
+        }
+        return lastId;
+    }
+
+    /**
+     * Get the latest id in the index.
+     * @return the id, or null if there are none
+     */
+    private String getLatestId() throws IOException
     {
         SolrQuery q = new SolrQuery().
             setQuery(WILDCARD_QSTRING).
@@ -427,10 +877,9 @@ private String getNextId() throws IOException
         }
         List<SolrDocument> results = resp.getResults();
         if (results.size() == 0) {
-            return IdUtils.INITIAL_ID;
+            return null;
         }
-        String latestId = (String) results.get(0).getFieldValue(Schema.ID);
-        return IdUtils.incrementId(latestId);
+        return (String) results.get(0).getFieldValue(Schema.ID);
     }
 
     /**
@@ -22,9 +22,11 @@
 
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.solr.client.solrj.SolrServerException;
@@ -43,23 +45,30 @@
     /**
      * Convert the Phenotype given to a solr document.
      * @param pt the phenotype
+     * @param now the time to stamp it as modified at (and created at, if it's new)
      * @return a document
      */
-    public SolrInputDocument toDoc(Phenotype pt)
+    public SolrInputDocument toDoc(Phenotype pt, Date now)
     {
         checkArgument(pt.getId().isPresent(), "Missing id for " + pt);
         Set<String> synonyms = pt.getSynonyms();
         Collection<String> parents = pt.getParentIds();
-        Date now = new Date();
+        List<String> descriptions = pt.getDescriptions();
         SolrInputDocument doc = new SolrInputDocument();
         doc.setField(Schema.NAME, pt.getName());
-        doc.setField(Schema.DEFINITION, pt.getDescription());
+        /* Each contribution is its own value, so they never have to be split back out of the rendered one */
+        if (descriptions.size() > 1) {
+            doc.setField(Schema.DEFINITION, descriptions.toArray(new String[descriptions.size()]));
+        } else {
+            doc.setField(Schema.DEFINITION, pt.getDescription());
+        }
         doc.setField(Schema.STATUS, pt.getStatus().name());
         doc.setField(Schema.ISSUE_NUMBER, pt.getIssueNumber().orNull());
         doc.setField(Schema.PARENT, parents.toArray(new String[parents.size()]));
         doc.setField(Schema.SYNONYM, synonyms.toArray(new String[synonyms.size()]));
         doc.setField(Schema.ID, pt.getId().get());
         doc.setField(Schema.ETAG, pt.getEtag());
+        doc.setField(Schema.VERSION, pt.getVersion());
         if (pt.getHpoId().isPresent()) {
             doc.setField(Schema.HPO_ID, pt.getHpoId().get());
         }
@@ -69,6 +78,9 @@ public SolrInputDocument toDoc(Phenotype pt)
             doc.setField(Schema.TIME_CREATED, now);
         }
         doc.setField(Schema.TIME_MODIFIED, now);
+        if (pt.getTimeVerified().isPresent()) {
+            doc.setField(Schema.TIME_VERIFIED, pt.getTimeVerified().get());
+        }
         return doc;
     }
 
@@ -84,7 +96,8 @@ public SolrInputDocument toDoc(Phenotype pt)
     public Phenotype fromDoc(SolrDocument doc) throws SolrServerException, IOException
     {
         String name = (String) doc.getFieldValue(Schema.NAME);
-        String description = (String) doc.getFieldValue(Schema.DEFINITION);
+        Collection<Object> descriptions = doc.getFieldValues(Schema.DEFINITION);
+        String description = (String) doc.getFirstValue(Schema.DEFINITION);
         Phenotype.Status status = Phenotype.Status.valueOf((String) doc.getFieldValue(Schema.STATUS));
         Phenotype pt;
         if (EnumSet.of(Phenotype.Status.ACCEPTED, Phenotype.Status.SYNONYM,
@@ -94,6 +107,13 @@ public Phenotype fromDoc(SolrDocument doc) throws SolrServerException, IOExcepti
         } else {
             pt = new Phenotype(name, description);
         }
+        if (descriptions != null && descriptions.size() > 1) {
+            List<String> contributions = new ArrayList<>(descriptions.size());
+            for (Object contribution : descriptions) {
+                contributions.add((String) contribution);
+            }
+            pt.setDescriptions(contributions);
+        }
         pt.setStatus(status);
         pt.setId((String) doc.getFieldValue(Schema.ID));
         Collection<Object> synonyms = doc.getFieldValues(Schema.SYNONYM);
@@ -105,6 +125,7 @@ public Phenotype fromDoc(SolrDocument doc) throws SolrServerException, IOExcepti
         pt.setIssueNumber((String) doc.getFieldValue(Schema.ISSUE_NUMBER));
         pt.setTimeCreated((Date) doc.getFieldValue(Schema.TIME_CREATED));
         pt.setTimeModified((Date) doc.getFieldValue(Schema.TIME_MODIFIED));
+        pt.setTimeVerified((Date) doc.getFieldValue(Schema.TIME_VERIFIED));
         pt.setEtag((String) doc.getFieldValue(Schema.ETAG));
         Collection<Object> parents = doc.getFieldValues(Schema.PARENT);
         if (parents != null) {
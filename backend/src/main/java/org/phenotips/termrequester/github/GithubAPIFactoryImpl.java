@@ -44,7 +44,7 @@ class GithubAPIFactoryImpl implements GithubAPIFactory
     @Override
     public GithubAPI create(GithubAPI.Repository repo)
     {
-        return new GithubAPIImpl(mapper, repo);
+        return new GuardedGithubAPI(new GithubAPIImpl(mapper, repo));
     }
 
     @Override
@@ -27,6 +27,9 @@
 import java.net.URL;
 
 import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.fluent.Request;
@@ -36,11 +39,11 @@
 
 import org.restlet.data.Status;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /* To get the nice HTTP status code constants */
 import static com.google.common.base.Preconditions.checkArgument;
@@ -68,6 +71,28 @@ class GithubAPIImpl implements GithubAPI
      */
     private static final String IF_NONE_MATCH = "If-None-Match";
 
+    /**
+     * How long to wait for a connection to github, in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT = 5000;
+
+    /**
+     * How long to wait for data from github once connected, in milliseconds.
+     */
+    private static final int SOCKET_TIMEOUT = 10000;
+
+    /**
+     * How long a whole request can take, response included, in milliseconds. The socket timeout only bounds
+     * each read, so a response trickling in could otherwise hold a guarded slot forever.
+     */
+    private static final long REQUEST_TIMEOUT = 30000;
+
+    /**
+     * Aborts requests that go past REQUEST_TIMEOUT.
+     */
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("termrequester-github-deadline-%d").build());
+
     /**
      * The repository to bind to.
      */
@@ -78,12 +103,19 @@ class GithubAPIImpl implements GithubAPI
      */
     private ObjectMapper mapper;
 
+    /**
+     * The decoder to read github's responses with.
+     */
+    private IssueDecoder decoder;
+
     static {
         try {
             GITHUB_URL = new URL(GITHUB);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        /* Almost every request finishes in time, so don't leave their deadlines queued up */
+        DEADLINES.setRemoveOnCancelPolicy(true);
     }
 
     /**
@@ -95,6 +127,7 @@ class GithubAPIImpl implements GithubAPI
     {
         this.repository = repository;
         this.mapper = mapper;
+        this.decoder = new IssueDecoder(mapper.getFactory());
     }
 
     @Override
@@ -112,8 +145,7 @@ public void openIssue(Phenotype phenotype) throws IOException, GithubException
                 Post(getURI(method)).
                 bodyByteArray(body, ContentType.APPLICATION_JSON));
         checkCode(response, Status.SUCCESS_CREATED);
-        InputStream is = getStream(response);
-        Issue result = mapper.readValue(is, Issue.class);
+        Issue result = decoder.readIssue(getStream(response));
         phenotype.setIssueNumber(Integer.toString(result.getNumber()));
         phenotype.setStatus(Phenotype.Status.SUBMITTED);
         Issue.readEtag(phenotype, response);
@@ -144,8 +176,7 @@ public Phenotype readPhenotype(Phenotype pt) throws IOException, GithubException
         if (response.getStatusLine().getStatusCode() == Status.REDIRECTION_NOT_MODIFIED.getCode()) {
             return pt;
         }
-        InputStream is = response.getEntity().getContent();
-        Issue issue = mapper.readValue(is, Issue.class);
+        Issue issue = decoder.readIssue(getStream(response));
         Issue.readEtag(pt, response);
         /* Github and the HPO are the ultimate authorities, so take everything from there */
         pt.replaceBy(issue.asPhenotype());
@@ -172,12 +203,14 @@ public Optional<String> searchForIssue(Phenotype candidate) throws IOException,
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
-        DataTypes.SearchResults<Issue> results = mapper.readValue(is,
-                new TypeReference<DataTypes.SearchResults<Issue>>() { });
-        for (Issue issue : results) {
-            Phenotype other = issue.asPhenotype();
-            if (other.equals(candidate)) {
-                return other.getIssueNumber();
+        /* Issues are decoded one at a time, so stop reading as soon as there's a match */
+        try (IssueDecoder.SearchResults results = decoder.readSearch(is)) {
+            Optional<Issue> issue;
+            while ((issue = results.next()).isPresent()) {
+                Phenotype other = issue.get().asPhenotype();
+                if (other.equals(candidate)) {
+                    return other.getIssueNumber();
+                }
             }
         }
         return Optional.<String>absent();
@@ -202,15 +235,29 @@ private String buildSearch(Phenotype pt)
     }
 
     /**
-     * Execute an authenticated request and return the response.
+     * Execute an authenticated request and return the response, aborting it if it takes longer than
+     * REQUEST_TIMEOUT.
      * @param request the request
-     * @return the response.
+     * @return the response, read in full.
+     * @throws IOException on network failure, or if the request was aborted
      */
-    private HttpResponse execute(Request request) throws IOException
+    private HttpResponse execute(final Request request) throws IOException
     {
         request.addHeader("Authorization", "token " + repository.getToken());
-        Response response = request.execute();
-        return response.returnResponse();
+        request.connectTimeout(CONNECT_TIMEOUT).socketTimeout(SOCKET_TIMEOUT);
+        ScheduledFuture<?> deadline = DEADLINES.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+                request.abort();
+            }
+        }, REQUEST_TIMEOUT, TimeUnit.MILLISECONDS);
+        try {
+            Response response = request.execute();
+            return response.returnResponse();
+        } finally {
+            deadline.cancel(false);
+        }
     }
 
     /**
@@ -226,7 +273,7 @@ private void checkCode(HttpResponse resp, Status... codes) throws GithubExceptio
         Set<Status> set = Sets.newHashSet(codes);
         if (!set.contains(actual)) {
             throw new GithubException(String.format("Response code %d was not in %s",
-                        actual.getCode(), set.toString()));
+                        actual.getCode(), set.toString()), actual.getCode());
         }
     }
 
@@ -17,6 +17,8 @@
  */
 package org.phenotips.termrequester.github;
 
+import com.google.common.base.Optional;
+
 /**
  * An exception thrown when something goes wrong on the github api end.
  * @version $Id$
@@ -28,6 +30,16 @@ public class GithubException extends Exception
      */
     private static final long serialVersionUID = 1648L;
 
+    /**
+     * The status code standing in for none.
+     */
+    private static final int NO_STATUS = 0;
+
+    /**
+     * The status code of the response that caused this, or NO_STATUS.
+     */
+    private final int statusCode;
+
     /**
      * CTOR.
      * @param msg the message
@@ -35,5 +47,40 @@ public class GithubException extends Exception
     public GithubException(String msg)
     {
         super(msg);
+        this.statusCode = NO_STATUS;
+    }
+
+    /**
+     * CTOR.
+     * @param msg the message
+     * @param cause the underlying failure
+     */
+    public GithubException(String msg, Throwable cause)
+    {
+        super(msg, cause);
+        this.statusCode = NO_STATUS;
+    }
+
+    /**
+     * CTOR, for an unexpected response.
+     * @param msg the message
+     * @param statusCode the status code of the response
+     */
+    public GithubException(String msg, int statusCode)
+    {
+        super(msg);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Get the status code of the response that caused this, if a response did.
+     * @return the status code
+     */
+    public Optional<Integer> getStatusCode()
+    {
+        if (statusCode == NO_STATUS) {
+            return Optional.absent();
+        }
+        return Optional.of(statusCode);
     }
 }
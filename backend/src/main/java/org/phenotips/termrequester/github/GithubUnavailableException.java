@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+/**
+ * An exception thrown when github can't be reached right now: it's timing out, failing,
+ * or we've stopped calling it for a while to let it recover.
+ * Callers can fall back on what they already have.
+ *
+ * @version $Id$
+ */
+public class GithubUnavailableException extends GithubException
+{
+    /**
+     * A serial version uid.
+     */
+    private static final long serialVersionUID = 1649L;
+
+    /**
+     * CTOR.
+     * @param msg the message
+     */
+    public GithubUnavailableException(String msg)
+    {
+        super(msg);
+    }
+
+    /**
+     * CTOR.
+     * @param msg the message
+     * @param cause the underlying failure
+     */
+    public GithubUnavailableException(String msg, Throwable cause)
+    {
+        super(msg, cause);
+    }
+}
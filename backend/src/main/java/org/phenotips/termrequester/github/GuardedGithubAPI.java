@@ -0,0 +1,388 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.io.IOException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+
+/**
+ * Guards another GithubAPI with a bulkhead and a circuit breaker, so that github being slow or down
+ * can't tie up all of our threads.
+ * At most a fixed number of calls can be in flight at once; callers that can't get a slot in time are turned
+ * away. Failed or slow calls are counted, and once enough of them happen in a row the circuit opens and every
+ * call is turned away for a while. After that, a single trial call is let through: if it works the circuit closes
+ * again, otherwise it stays open for another round.
+ * Network failures, timeouts, server errors (5xx) and unexpected exceptions count as failures: any other error
+ * response means github is up and answering, so it's passed on without counting against the circuit.
+ * The api guarded is expected to put a deadline on each of its requests, since a call holds its slot for as long
+ * as it takes.
+ * Each call is admitted under the circuit's current generation, which moves on whenever the state changes, and
+ * the outcome of a call admitted under an earlier generation is ignored; so a slow call started before the circuit
+ * opened can't close it, and a late failure can't free the trial slot of a half open circuit.
+ * Being turned away, as well as network failures (including timeouts) from the underlying api, are reported
+ * as a GithubUnavailableException.
+ *
+ * @version $Id$
+ */
+class GuardedGithubAPI implements GithubAPI
+{
+    /**
+     * The default maximum number of concurrent calls to github.
+     */
+    public static final int MAX_CONCURRENT_CALLS = 8;
+
+    /**
+     * The default time to wait for a free slot, in milliseconds.
+     */
+    public static final long ACQUIRE_TIMEOUT = 500;
+
+    /**
+     * The default number of consecutive failures that opens the circuit.
+     */
+    public static final int FAILURE_THRESHOLD = 5;
+
+    /**
+     * The default duration after which a successful call still counts as a failure, in milliseconds.
+     */
+    public static final long SLOW_CALL_THRESHOLD = 5000;
+
+    /**
+     * The default time the circuit stays open for, in milliseconds.
+     */
+    public static final long OPEN_DURATION = 30000;
+
+    /**
+     * The lowest status code of a server error.
+     */
+    private static final int SERVER_ERROR = 500;
+
+    /**
+     * The api being guarded.
+     */
+    private final GithubAPI delegate;
+
+    /**
+     * The bulkhead.
+     */
+    private final Semaphore slots;
+
+    /**
+     * How long to wait for a slot, in milliseconds.
+     */
+    private final long acquireTimeout;
+
+    /**
+     * How many failures in a row open the circuit.
+     */
+    private final int failureThreshold;
+
+    /**
+     * How long a call can take before it counts as a failure, in nanoseconds.
+     */
+    private final long slowCallThreshold;
+
+    /**
+     * How long the circuit stays open, in nanoseconds.
+     */
+    private final long openDuration;
+
+    /**
+     * The time source.
+     */
+    private final Ticker ticker;
+
+    /**
+     * The circuit's state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * The number of failures in a row.
+     */
+    private int failures;
+
+    /**
+     * When the circuit was last opened, as per the ticker.
+     */
+    private long openedAt;
+
+    /**
+     * Whether the trial call of a half open circuit is in flight.
+     */
+    private boolean trialInFlight;
+
+    /**
+     * The circuit's generation, moved on with every change of state.
+     */
+    private long generation;
+
+    /**
+     * CTOR, with the default settings.
+     * @param delegate the api to guard
+     */
+    GuardedGithubAPI(GithubAPI delegate)
+    {
+        this(delegate, MAX_CONCURRENT_CALLS, ACQUIRE_TIMEOUT, FAILURE_THRESHOLD, SLOW_CALL_THRESHOLD,
+                OPEN_DURATION, Ticker.systemTicker());
+    }
+
+    /**
+     * CTOR.
+     * @param delegate the api to guard
+     * @param maxConcurrentCalls the maximum number of concurrent calls
+     * @param acquireTimeout how long to wait for a free slot, in milliseconds
+     * @param failureThreshold how many failures in a row open the circuit
+     * @param slowCallThreshold how long a call can take before it counts as failed, in milliseconds
+     * @param openDuration how long the circuit stays open, in milliseconds
+     * @param ticker the time source
+     */
+    GuardedGithubAPI(GithubAPI delegate, int maxConcurrentCalls, long acquireTimeout, int failureThreshold,
+            long slowCallThreshold, long openDuration, Ticker ticker)
+    {
+        checkArgument(maxConcurrentCalls > 0, "Must allow at least one call");
+        checkArgument(failureThreshold > 0, "Failure threshold must be positive");
+        this.delegate = delegate;
+        this.slots = new Semaphore(maxConcurrentCalls);
+        this.acquireTimeout = acquireTimeout;
+        this.failureThreshold = failureThreshold;
+        this.slowCallThreshold = TimeUnit.MILLISECONDS.toNanos(slowCallThreshold);
+        this.openDuration = TimeUnit.MILLISECONDS.toNanos(openDuration);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public Phenotype readPhenotype(final Phenotype phenotype) throws IOException, GithubException
+    {
+        return guard(new Call<Phenotype>() {
+            @Override
+            public Phenotype run() throws IOException, GithubException
+            {
+                return delegate.readPhenotype(phenotype);
+            }
+        });
+    }
+
+    @Override
+    public void openIssue(final Phenotype phenotype) throws IOException, GithubException
+    {
+        guard(new Call<Void>() {
+            @Override
+            public Void run() throws IOException, GithubException
+            {
+                delegate.openIssue(phenotype);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void patchIssue(final Phenotype phenotype) throws IOException, GithubException
+    {
+        guard(new Call<Void>() {
+            @Override
+            public Void run() throws IOException, GithubException
+            {
+                delegate.patchIssue(phenotype);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public Optional<String> searchForIssue(final Phenotype phenotype) throws IOException, GithubException
+    {
+        return guard(new Call<Optional<String>>() {
+            @Override
+            public Optional<String> run() throws IOException, GithubException
+            {
+                return delegate.searchForIssue(phenotype);
+            }
+        });
+    }
+
+    @Override
+    public Repository getRepository()
+    {
+        return delegate.getRepository();
+    }
+
+    /**
+     * Get the circuit's current state.
+     * @return the state
+     */
+    synchronized State getState()
+    {
+        return state;
+    }
+
+    /**
+     * Make the call given, if the bulkhead and circuit let us, and keep track of how it went.
+     * @param call the call
+     * @return whatever the call returned
+     * @throws GithubUnavailableException if the call was turned away or failed on the network
+     * @throws GithubException if the call failed on github's end
+     */
+    private <T> T guard(Call<T> call) throws GithubException
+    {
+        try {
+            if (!slots.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                throw new GithubUnavailableException("Too many concurrent calls to github");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GithubUnavailableException("Interrupted waiting to call github", e);
+        }
+        try {
+            long admitted = admit();
+            long start = ticker.read();
+            try {
+                T result = call.run();
+                record(admitted, ticker.read() - start < slowCallThreshold);
+                return result;
+            } catch (IOException e) {
+                record(admitted, false);
+                throw new GithubUnavailableException("Could not reach github", e);
+            } catch (GithubException e) {
+                record(admitted, !isFailure(e) && ticker.read() - start < slowCallThreshold);
+                throw e;
+            } catch (RuntimeException e) {
+                /* Nothing says github is fine, so this mustn't close a half open circuit */
+                record(admitted, false);
+                throw e;
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * Get whether the error given means github is in trouble, rather than just not liking our request.
+     * @param e the error
+     * @return whether it counts as a failure
+     */
+    private static boolean isFailure(GithubException e)
+    {
+        if (e instanceof GithubUnavailableException) {
+            return true;
+        }
+        Optional<Integer> status = e.getStatusCode();
+        return status.isPresent() && status.get() >= SERVER_ERROR;
+    }
+
+    /**
+     * Check that the circuit lets a call through, moving an open circuit to half open once it's been
+     * open long enough.
+     * @return the generation the call is admitted under, to hand back to record
+     * @throws GithubUnavailableException if it doesn't
+     */
+    private synchronized long admit() throws GithubUnavailableException
+    {
+        if (state == State.OPEN) {
+            if (ticker.read() - openedAt < openDuration) {
+                throw new GithubUnavailableException("Circuit to github is open");
+            }
+            moveTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                throw new GithubUnavailableException("Circuit to github is half open and already trying");
+            }
+            trialInFlight = true;
+        }
+        return generation;
+    }
+
+    /**
+     * Record the outcome of a call, unless the circuit has changed state since it was admitted.
+     * @param admitted the generation the call was admitted under
+     * @param success whether the call succeeded (in time)
+     */
+    private synchronized void record(long admitted, boolean success)
+    {
+        if (admitted != generation) {
+            return;
+        }
+        if (success) {
+            failures = 0;
+            if (state != State.CLOSED) {
+                moveTo(State.CLOSED);
+            }
+        } else {
+            failures++;
+            if (state == State.HALF_OPEN || failures >= failureThreshold) {
+                moveTo(State.OPEN);
+                openedAt = ticker.read();
+            }
+        }
+    }
+
+    /**
+     * Change the circuit's state, starting a new generation.
+     * @param next the new state
+     */
+    private void moveTo(State next)
+    {
+        state = next;
+        trialInFlight = false;
+        generation++;
+    }
+
+    /**
+     * A call to github.
+     *
+     * @version $Id$
+     */
+    private interface Call<T>
+    {
+        /**
+         * Make the call.
+         * @return the result
+         * @throws IOException on network failure
+         * @throws GithubException on failure on github's end
+         */
+        T run() throws IOException, GithubException;
+    }
+
+    /**
+     * The states of the circuit.
+     */
+    enum State {
+        /**
+         * Calls go through.
+         */
+        CLOSED,
+        /**
+         * Calls are turned away.
+         */
+        OPEN,
+        /**
+         * A single trial call may go through.
+         */
+        HALF_OPEN
+    }
+}
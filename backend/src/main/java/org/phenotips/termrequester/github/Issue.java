@@ -29,6 +29,7 @@
 import org.apache.http.HttpResponse;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
 import com.google.common.base.Splitter;
 
 /**
@@ -49,7 +50,12 @@
         + "\nThis issue was autogenerated by phenotips.org";
 
     /**
-     * A pattern to parse out the issue description.
+     * A pattern matching the issue description.
+     * Bodies are actually parsed by IssueBodyParser, which only recognizes keys at the start of a line, in
+     * any order, and takes the first occurrence of the description and the fields before it, where this
+     * pattern needs the keys in order, also matches them mid-line and takes the last occurrence of each. The
+     * two agree on bodies where each key and the footer appear once, at the start of a line, as describe
+     * writes them.
      */
     public static final Pattern BODY_PATTERN = Pattern.compile(String.format(
                 BODY_FORMAT.replace(StringUtils.LF, ""),
@@ -174,19 +180,19 @@ public static void readEtag(Phenotype pt, HttpResponse response)
      */
     public Phenotype asPhenotype()
     {
-        Matcher m = BODY_PATTERN.matcher(body);
-        m.find();
-        if (!m.matches()) {
+        Optional<String[]> parsed = IssueBodyParser.parse(body);
+        if (!parsed.isPresent()) {
             return Phenotype.NULL;
         }
+        String[] values = parsed.get();
         Phenotype pt = new Phenotype();
-        pt.addAllSynonyms(SPLITTER.splitToList(m.group("synonyms").trim()));
-        pt.setName(m.group("name").trim());
-        pt.addAllParentIds(SPLITTER.splitToList(m.group("parents").trim()));
-        pt.setDescription(m.group("description").trim());
+        pt.addAllSynonyms(SPLITTER.splitToList(values[IssueBodyParser.SYNONYMS]));
+        pt.setName(values[IssueBodyParser.NAME]);
+        pt.addAllParentIds(SPLITTER.splitToList(values[IssueBodyParser.PARENTS]));
+        pt.setDescription(values[IssueBodyParser.DESCRIPTION]);
         pt.setIssueNumber(Integer.toString(number));
         pt.setStatus(getPTStatus());
-        String hpoId = m.group("hpoid").replace(":", "_").trim();
+        String hpoId = values[IssueBodyParser.HPO_ID].replace(":", "_").trim();
         if (!Phenotype.EMPTY_HPO_ID.equals(hpoId)) {
             pt.setHpoId(hpoId);
         }
@@ -0,0 +1,213 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import java.util.Arrays;
+
+import com.google.common.base.Optional;
+
+/**
+ * Parses the body of an autogenerated issue (see Issue.BODY_FORMAT) in a single pass over its lines.
+ * Keys are only recognized at the start of a line, and may come in any order. Humans edit these bodies, and
+ * the description is free text that can have lines starting with a key or the footer too, so which line
+ * opens each field is anchored on both ends of the body: the body ends at the last footer line, the
+ * description opens at its first key line, as does every field that comes before it, and every field that
+ * comes after it opens at its last key line before the footer, like the greedy BODY_PATTERN. Any other line
+ * is a continuation of the field it's in, so a description mentioning a key can neither rewrite the fields
+ * around it nor be cut short. Stray lines before the first field are ignored, but a body only counts as
+ * autogenerated if every key and the footer are present.
+ *
+ * @version $Id$
+ */
+final class IssueBodyParser
+{
+    /**
+     * The index of the name within the parsed values.
+     */
+    public static final int NAME = 0;
+
+    /**
+     * The index of the synonyms within the parsed values.
+     */
+    public static final int SYNONYMS = 1;
+
+    /**
+     * The index of the parents within the parsed values.
+     */
+    public static final int PARENTS = 2;
+
+    /**
+     * The index of the description within the parsed values.
+     */
+    public static final int DESCRIPTION = 3;
+
+    /**
+     * The index of the hpo id within the parsed values.
+     */
+    public static final int HPO_ID = 4;
+
+    /**
+     * The line that closes every autogenerated issue body.
+     */
+    public static final String FOOTER = "This issue was autogenerated by phenotips.org";
+
+    /**
+     * The keys that start each field, indexed as above.
+     */
+    private static final String[] KEYS = { "TERM:", "SYNONYMS:", "PARENTS:", "DESCRIPTION:", "HPO_ID:" };
+
+    /**
+     * Returned by keyAt when the line starts with the footer.
+     */
+    private static final int FOOTER_KEY = KEYS.length;
+
+    /**
+     * Returned by keyAt when the line starts with nothing we know about.
+     */
+    private static final int NO_KEY = -1;
+
+    /**
+     * The position of a key or footer that isn't there.
+     */
+    private static final int NOWHERE = -1;
+
+    /**
+     * Private CTOR.
+     */
+    private IssueBodyParser()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Parse the issue body given.
+     *
+     * @param body the issue body - may be null, since github sends null for empty bodies
+     * @return the trimmed values of each field, indexed by the constants above, or absent if this
+     *         isn't an autogenerated body
+     */
+    public static Optional<String[]> parse(String body)
+    {
+        if (body == null) {
+            return Optional.absent();
+        }
+        /* Where each key is first, where it was last before the latest footer, and where that footer is */
+        int[] first = new int[KEYS.length];
+        int[] last = new int[KEYS.length];
+        int[] lastBeforeFooter = new int[KEYS.length];
+        Arrays.fill(first, NOWHERE);
+        Arrays.fill(last, NOWHERE);
+        Arrays.fill(lastBeforeFooter, NOWHERE);
+        int footer = NOWHERE;
+        int length = body.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = body.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+            int keyStart = skipBlanks(body, lineStart, lineEnd);
+            int key = keyAt(body, keyStart);
+            if (key == FOOTER_KEY) {
+                footer = keyStart;
+                System.arraycopy(last, 0, lastBeforeFooter, 0, KEYS.length);
+            } else if (key != NO_KEY) {
+                if (first[key] == NOWHERE) {
+                    first[key] = keyStart;
+                }
+                last[key] = keyStart;
+            }
+            lineStart = lineEnd + 1;
+        }
+        int description = first[DESCRIPTION];
+        if (footer == NOWHERE || description == NOWHERE || description > footer) {
+            return Optional.absent();
+        }
+        int[] starts = new int[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            if (first[i] != NOWHERE && first[i] <= description) {
+                starts[i] = first[i];
+            } else if (lastBeforeFooter[i] != NOWHERE) {
+                starts[i] = lastBeforeFooter[i];
+            } else {
+                return Optional.absent();
+            }
+        }
+        String[] values = new String[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            values[i] = body.substring(starts[i] + KEYS[i].length(), nextStart(starts, starts[i], footer)).trim();
+        }
+        return Optional.of(values);
+    }
+
+    /**
+     * Get where the field after the one starting at the position given starts.
+     *
+     * @param starts where each field starts
+     * @param start where the field starts
+     * @param footer where the footer starts
+     * @return where the next field starts, or the footer if it's the last one
+     */
+    private static int nextStart(int[] starts, int start, int footer)
+    {
+        int next = footer;
+        for (int other : starts) {
+            if (other > start && other < next) {
+                next = other;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Skip any spaces or tabs at the start of the line given.
+     *
+     * @param body the body
+     * @param start where the line starts
+     * @param end where the line ends
+     * @return the index of the first non-blank character in the line, or end
+     */
+    private static int skipBlanks(String body, int start, int end)
+    {
+        int i = start;
+        while (i < end && (body.charAt(i) == ' ' || body.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Figure out which key (if any) starts at the position given.
+     *
+     * @param body the body
+     * @param start the position
+     * @return the index of the key, FOOTER_KEY or NO_KEY
+     */
+    private static int keyAt(String body, int start)
+    {
+        for (int i = 0; i < KEYS.length; i++) {
+            if (body.startsWith(KEYS[i], start)) {
+                return i;
+            }
+        }
+        if (body.startsWith(FOOTER, start)) {
+            return FOOTER_KEY;
+        }
+        return NO_KEY;
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import com.google.common.base.Optional;
+
+/**
+ * Decodes github issue payloads with a streaming parser, keeping only the handful of fields
+ * an Issue has and skipping everything else github sends (users, reactions, urls...).
+ *
+ * @version $Id$
+ */
+class IssueDecoder
+{
+    /**
+     * The factory for the streaming parsers.
+     */
+    private final JsonFactory factory;
+
+    /**
+     * CTOR.
+     * @param factory the json factory to create parsers with
+     */
+    IssueDecoder(JsonFactory factory)
+    {
+        this.factory = factory;
+    }
+
+    /**
+     * Read a single issue from the stream given, and close it.
+     * @param is the stream
+     * @return the issue
+     * @throws IOException on network or parse failure
+     */
+    public Issue readIssue(InputStream is) throws IOException
+    {
+        try (JsonParser parser = factory.createParser(is)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return readIssue(parser);
+        }
+    }
+
+    /**
+     * Start reading the results of a search from the stream given.
+     * Issues are decoded lazily as they are asked for, so callers can stop (and close the result)
+     * as soon as they've found what they were looking for.
+     * @param is the stream
+     * @return the results
+     * @throws IOException on network or parse failure
+     */
+    public SearchResults readSearch(InputStream is) throws IOException
+    {
+        JsonParser parser = factory.createParser(is);
+        try {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return new SearchResults(parser);
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read an issue whose START_OBJECT the parser given has just consumed.
+     * @param parser the parser
+     * @return the issue
+     * @throws IOException on network or parse failure
+     */
+    private static Issue readIssue(JsonParser parser) throws IOException
+    {
+        Issue issue = new Issue();
+        List<String> labels = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "number":
+                    issue.setNumber(parser.getValueAsInt());
+                    break;
+                case "state":
+                    issue.setState(parser.getValueAsString());
+                    break;
+                case "title":
+                    issue.setTitle(parser.getValueAsString());
+                    break;
+                case "body":
+                    issue.setBody(parser.getValueAsString());
+                    break;
+                case "labels":
+                    readLabels(parser, labels);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        issue.setLabels(labels);
+        return issue;
+    }
+
+    /**
+     * Read the names of the labels in the array the parser is positioned on.
+     * Github sends label objects, but bare names are accepted too.
+     * @param parser the parser
+     * @param labels the list to add the names to
+     * @throws IOException on network or parse failure
+     */
+    private static void readLabels(JsonParser parser, List<String> labels) throws IOException
+    {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                labels.add(parser.getText());
+            } else if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("name".equals(field)) {
+                        labels.add(parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Make sure the token given is the one expected.
+     * @param parser the parser the token came from
+     * @param actual the token
+     * @param expected the token we want
+     * @throws JsonParseException if they differ
+     */
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+        throws JsonParseException
+    {
+        if (actual != expected) {
+            throw new JsonParseException(parser, String.format("Expected %s but got %s", expected, actual));
+        }
+    }
+
+    /**
+     * The results of a search, decoded as they're read.
+     * The totals are only known once the parser has gone past them - github sends them before the
+     * items, so in practice they're there as soon as the first issue is.
+     *
+     * @version $Id$
+     */
+    public static final class SearchResults implements Closeable
+    {
+        /**
+         * The parser the results are coming from.
+         */
+        private final JsonParser parser;
+
+        /**
+         * The total number of results.
+         */
+        private int totalCount;
+
+        /**
+         * Whether github gave up before finding all results.
+         */
+        private boolean incomplete;
+
+        /**
+         * Whether the parser is inside the items array.
+         */
+        private boolean inItems;
+
+        /**
+         * Whether there's nothing more to read.
+         */
+        private boolean done;
+
+        /**
+         * CTOR.
+         * @param parser the parser, positioned just after the START_OBJECT of the response
+         */
+        private SearchResults(JsonParser parser)
+        {
+            this.parser = parser;
+        }
+
+        /**
+         * Decode the next issue in the results.
+         * @return the issue, or absent if there are no more
+         * @throws IOException on network or parse failure
+         */
+        public Optional<Issue> next() throws IOException
+        {
+            while (!done) {
+                if (inItems) {
+                    JsonToken token = parser.nextToken();
+                    if (token == JsonToken.START_OBJECT) {
+                        return Optional.of(readIssue(parser));
+                    }
+                    expect(parser, token, JsonToken.END_ARRAY);
+                    inItems = false;
+                } else {
+                    readHeader();
+                }
+            }
+            return Optional.absent();
+        }
+
+        /**
+         * Get the total number of results, as reported by github.
+         * @return the total count
+         */
+        public int getTotalCount()
+        {
+            return totalCount;
+        }
+
+        /**
+         * Get whether github gave up before finding all the results.
+         * @return whether the results are incomplete
+         */
+        public boolean isIncomplete()
+        {
+            return incomplete;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            done = true;
+            parser.close();
+        }
+
+        /**
+         * Read top level fields until the items array or the end of the response.
+         * @throws IOException on network or parse failure
+         */
+        private void readHeader() throws IOException
+        {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.FIELD_NAME) {
+                done = true;
+                return;
+            }
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if ("total_count".equals(field)) {
+                totalCount = parser.getValueAsInt();
+            } else if ("incomplete_results".equals(field)) {
+                incomplete = parser.getValueAsBoolean();
+            } else if ("items".equals(field) && token == JsonToken.START_ARRAY) {
+                inItems = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.base.Joiner;
+
+/**
+ * Merges phenotype descriptions. Every request for a phenotype may describe it, and rather than appending
+ * each description to the last, a description is kept as a list of distinct contributions, in the order they
+ * came in so the original requester's comes first. The list is what's stored; it's only rendered into one
+ * string, the contributions separated by SEPARATOR, for display and for github, and never parsed back, so
+ * the contributions are kept exactly as they were written.
+ * Contributions that only differ in case or spacing from one already there are dropped, as are any past
+ * MAX_CONTRIBUTIONS or that would take the description past MAX_LENGTH, so a popular phenotype's description
+ * stops growing however many times it's requested.
+ *
+ * @version $Id$
+ */
+public final class Descriptions
+{
+    /**
+     * What separates contributions in a rendered description. Has no line break, which issue bodies drop.
+     */
+    public static final String SEPARATOR = " | ";
+
+    /**
+     * The most contributions a description keeps.
+     */
+    public static final int MAX_CONTRIBUTIONS = 5;
+
+    /**
+     * The longest a description can grow to by merging, in characters. The first contribution is always
+     * kept, however long.
+     */
+    public static final int MAX_LENGTH = 2000;
+
+    /**
+     * Runs of whitespace, collapsed when comparing contributions.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Renders contributions.
+     */
+    private static final Joiner JOINER = Joiner.on(SEPARATOR);
+
+    /**
+     * Private CTOR, for a utility class.
+     */
+    private Descriptions()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Render the contributions given as a single description.
+     *
+     * @param contributions the contributions
+     * @return the description, empty if there are none
+     */
+    public static String render(List<String> contributions)
+    {
+        if (contributions.size() == 1) {
+            return contributions.get(0);
+        }
+        return JOINER.join(contributions);
+    }
+
+    /**
+     * Merge the contributions given into existing ones.
+     *
+     * @param existing the existing contributions, left unchanged
+     * @param added the contributions to merge in
+     * @return the merged contributions, which are the existing ones as they were if there's nothing to add
+     */
+    public static List<String> merge(List<String> existing, List<String> added)
+    {
+        List<String> contributions = null;
+        int length = render(existing).length();
+        for (String contribution : added) {
+            List<String> current = contributions == null ? existing : contributions;
+            String trimmed = StringUtils.trimToEmpty(contribution);
+            if (trimmed.isEmpty() || contains(current, trimmed)) {
+                continue;
+            }
+            if (current.size() >= MAX_CONTRIBUTIONS) {
+                break;
+            }
+            int addedLength = current.isEmpty() ? trimmed.length() : SEPARATOR.length() + trimmed.length();
+            /* The first one is always kept */
+            if (current.isEmpty() || length + addedLength <= MAX_LENGTH) {
+                if (contributions == null) {
+                    contributions = new ArrayList<>(existing);
+                }
+                contributions.add(trimmed);
+                length += addedLength;
+            }
+        }
+        if (contributions == null) {
+            return existing;
+        }
+        return Collections.unmodifiableList(contributions);
+    }
+
+    /**
+     * Get whether there's a contribution like the one given already.
+     *
+     * @param contributions the contributions there are
+     * @param contribution the contribution
+     * @return whether one only differs from it in case or spacing
+     */
+    private static boolean contains(List<String> contributions, String contribution)
+    {
+        String key = key(contribution);
+        for (String other : contributions) {
+            if (key(other).equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the form of a contribution two that only differ in case or spacing share.
+     *
+     * @param contribution the contribution
+     * @return its key
+     */
+    private static String key(String contribution)
+    {
+        return WHITESPACE.matcher(contribution.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
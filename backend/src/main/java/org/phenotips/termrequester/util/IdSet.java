@@ -0,0 +1,244 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.io.Serializable;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+
+/**
+ * An immutable set of phenotype ids. Our ids and hpo ids are kept as the numbers IdUtils encodes them to,
+ * which takes four bytes each rather than a string apiece; anything else is kept as a pooled string.
+ * Being immutable, it can be handed out as it is rather than copied. Changes return a new set, or this one
+ * when there's nothing to change.
+ *
+ * @version $Id$
+ */
+public final class IdSet extends AbstractSet<String> implements Serializable
+{
+    /**
+     * The empty set.
+     */
+    public static final IdSet EMPTY = new IdSet(new int[0], new String[0]);
+
+    /**
+     * The serial version uid.
+     */
+    private static final long serialVersionUID = 1813L;
+
+    /**
+     * The pool for ids that don't encode. Weak, so ids nothing uses any more can go.
+     */
+    private static final Interner<String> POOL = Interners.newWeakInterner();
+
+    /**
+     * The encoded ids, sorted and without duplicates.
+     */
+    private final int[] codes;
+
+    /**
+     * The ids that don't encode, pooled, sorted and without duplicates.
+     */
+    private final String[] others;
+
+    /**
+     * CTOR.
+     *
+     * @param codes the encoded ids, sorted and without duplicates
+     * @param others the other ids, pooled, sorted and without duplicates
+     */
+    private IdSet(int[] codes, String[] others)
+    {
+        this.codes = codes;
+        this.others = others;
+    }
+
+    /**
+     * Get a set of the ids given.
+     *
+     * @param ids the ids
+     * @return the set
+     */
+    public static IdSet of(Collection<String> ids)
+    {
+        if (ids instanceof IdSet) {
+            return (IdSet) ids;
+        }
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        int[] allCodes = new int[ids.size()];
+        String[] allOthers = new String[ids.size()];
+        int codeCount = 0;
+        int otherCount = 0;
+        for (String id : ids) {
+            int code = IdUtils.encode(id);
+            if (code != IdUtils.NO_CODE) {
+                allCodes[codeCount++] = code;
+            } else {
+                allOthers[otherCount++] = POOL.intern(id);
+            }
+        }
+        Arrays.sort(allCodes, 0, codeCount);
+        Arrays.sort(allOthers, 0, otherCount);
+        int codeSize = 0;
+        for (int i = 0; i < codeCount; i++) {
+            if (codeSize == 0 || allCodes[codeSize - 1] != allCodes[i]) {
+                allCodes[codeSize++] = allCodes[i];
+            }
+        }
+        int otherSize = 0;
+        for (int i = 0; i < otherCount; i++) {
+            if (otherSize == 0 || !allOthers[otherSize - 1].equals(allOthers[i])) {
+                allOthers[otherSize++] = allOthers[i];
+            }
+        }
+        return new IdSet(Arrays.copyOf(allCodes, codeSize), Arrays.copyOf(allOthers, otherSize));
+    }
+
+    /**
+     * Get this set with the id given added.
+     *
+     * @param id the id
+     * @return the new set, or this one if the id is already in it
+     */
+    public IdSet with(String id)
+    {
+        int code = IdUtils.encode(id);
+        if (code != IdUtils.NO_CODE) {
+            int i = Arrays.binarySearch(codes, code);
+            if (i >= 0) {
+                return this;
+            }
+            int at = -i - 1;
+            int[] added = new int[codes.length + 1];
+            System.arraycopy(codes, 0, added, 0, at);
+            added[at] = code;
+            System.arraycopy(codes, at, added, at + 1, codes.length - at);
+            return new IdSet(added, others);
+        } else {
+            int i = Arrays.binarySearch(others, id);
+            if (i >= 0) {
+                return this;
+            }
+            int at = -i - 1;
+            String[] added = new String[others.length + 1];
+            System.arraycopy(others, 0, added, 0, at);
+            added[at] = POOL.intern(id);
+            System.arraycopy(others, at, added, at + 1, others.length - at);
+            return new IdSet(codes, added);
+        }
+    }
+
+    /**
+     * Get this set with all the ids given added.
+     *
+     * @param ids the ids
+     * @return the new set, or this one if all the ids are already in it
+     */
+    public IdSet withAll(Collection<String> ids)
+    {
+        if (isEmpty()) {
+            return of(ids);
+        }
+        IdSet result = this;
+        for (String id : ids) {
+            result = result.with(id);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        int code = IdUtils.encode((String) o);
+        if (code != IdUtils.NO_CODE) {
+            return Arrays.binarySearch(codes, code) >= 0;
+        } else {
+            return Arrays.binarySearch(others, o) >= 0;
+        }
+    }
+
+    @Override
+    public Iterator<String> iterator()
+    {
+        return new Iterator<String>()
+        {
+            /**
+             * The index of the next id.
+             */
+            private int next;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next < size();
+            }
+
+            @Override
+            public String next()
+            {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int i = next++;
+                if (i < codes.length) {
+                    return IdUtils.decode(codes[i]);
+                } else {
+                    return others[i - codes.length];
+                }
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size()
+    {
+        return codes.length + others.length;
+    }
+
+    /**
+     * Pool the other ids again when deserializing.
+     *
+     * @return the set to use
+     */
+    private Object readResolve()
+    {
+        String[] all = toArray(new String[size()]);
+        return of(Arrays.asList(all));
+    }
+}
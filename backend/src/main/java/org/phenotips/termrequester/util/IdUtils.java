@@ -17,7 +17,6 @@
  */
 package org.phenotips.termrequester.utils;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -33,7 +32,8 @@
     public static final String ID_PREFIX = "TEMPHPO_";
 
     /**
-     * A pattern to parse our IDs.
+     * A pattern to parse our IDs. The methods here scan ids directly, which is much quicker, but accept
+     * exactly the ids this matches.
      */
     public static final Pattern ID_PATTERN = Pattern.compile(ID_PREFIX + "(\\d{7})");
 
@@ -45,13 +45,28 @@
     /**
      * The very fist id to use.
      */
-    public static final String INITIAL_ID = String.format(ID_FORMAT, 1);
+    public static final String INITIAL_ID = format(ID_PREFIX, 1);
 
     /**
-     * A pattern to parse hpo ids.
+     * A pattern to parse hpo ids. As with ID_PATTERN, the methods here accept exactly the ids this matches.
      */
     public static final Pattern HPO_ID_PATTERN = Pattern.compile("HP_(\\d{7})");
 
+    /**
+     * The prefix for hpo ids.
+     */
+    public static final String HPO_ID_PREFIX = "HP_";
+
+    /**
+     * The code for ids that don't encode as a number, including null.
+     */
+    public static final int NO_CODE = 0;
+
+    /**
+     * How many digits the number in an id has.
+     */
+    private static final int ID_DIGITS = 7;
+
     /**
      * CTOR.
      */
@@ -67,15 +82,12 @@ private IdUtils() {
      */
     public static String incrementId(String id)
     {
-        Matcher m = ID_PATTERN.matcher(id);
-        m.find();
-        if (!m.matches()) {
+        int code = encode(id);
+        if (code <= NO_CODE) {
             throw new IllegalArgumentException(String.format("%s is not a well-formed id", id));
         }
-        int number = Integer.parseInt(m.group(1));
-        number++;
-        String newId = String.format(ID_FORMAT, number);
-        return newId;
+        /* The code is already the number plus one */
+        return format(ID_PREFIX, code);
     }
 
     /**
@@ -86,9 +98,7 @@ public static String incrementId(String id)
      */
     public static boolean isId(String candidate)
     {
-        Matcher m = ID_PATTERN.matcher(candidate);
-        m.find();
-        return m.matches();
+        return encode(candidate) > NO_CODE;
     }
 
     /**
@@ -99,8 +109,90 @@ public static boolean isId(String candidate)
      */
     public static boolean isHpoId(String candidate)
     {
-        Matcher m = HPO_ID_PATTERN.matcher(candidate);
-        m.find();
-        return m.matches();
+        return encode(candidate) < NO_CODE;
+    }
+
+    /**
+     * Encode the id given as a number: our ids as the number after the prefix plus one, hpo ids as the
+     * negative of that. Decoding the code gives back exactly the same id.
+     *
+     * @param id the id, or null
+     * @return the code, or NO_CODE if the id isn't one of those
+     */
+    public static int encode(String id)
+    {
+        if (id == null) {
+            return NO_CODE;
+        } else if (id.startsWith(ID_PREFIX)) {
+            return parseDigits(id, ID_PREFIX.length());
+        } else if (id.startsWith(HPO_ID_PREFIX)) {
+            return -parseDigits(id, HPO_ID_PREFIX.length());
+        } else {
+            return NO_CODE;
+        }
+    }
+
+    /**
+     * Decode an id encoded by encode().
+     *
+     * @param code the code
+     * @return the id, or null for NO_CODE
+     */
+    public static String decode(int code)
+    {
+        if (code == NO_CODE) {
+            return null;
+        }
+        if (code > NO_CODE) {
+            return format(ID_PREFIX, code - 1);
+        } else {
+            return format(HPO_ID_PREFIX, -code - 1);
+        }
+    }
+
+    /**
+     * Format an id as String.format does with ID_FORMAT, padding the number to seven digits.
+     *
+     * @param prefix the prefix
+     * @param number the number, not negative
+     * @return the id
+     */
+    private static String format(String prefix, int number)
+    {
+        int digits = ID_DIGITS;
+        for (int rest = number / 10_000_000; rest > 0; rest /= 10) {
+            digits++;
+        }
+        char[] id = new char[prefix.length() + digits];
+        prefix.getChars(0, prefix.length(), id, 0);
+        int remaining = number;
+        for (int i = id.length - 1; i >= prefix.length(); i--) {
+            id[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return new String(id);
+    }
+
+    /**
+     * Parse the digits ending an id, plus one so that zero is left for NO_CODE.
+     *
+     * @param id the id
+     * @param start where its digits start
+     * @return the number plus one, or NO_CODE if there aren't exactly seven digits
+     */
+    private static int parseDigits(String id, int start)
+    {
+        if (id.length() != start + ID_DIGITS) {
+            return NO_CODE;
+        }
+        int number = 0;
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_CODE;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number + 1;
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import org.apache.commons.lang3.text.WordUtils;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+
+/**
+ * Title cases phenotype names, and keeps a single copy of each.
+ * The same names and synonyms turn up in many phenotypes, and in every copy of a phenotype read back from the
+ * database, so sharing them saves both memory and the work of title casing them again.
+ *
+ * @version $Id$
+ */
+public final class NamePool
+{
+    /**
+     * The pool. Weak, so names nothing uses any more can go.
+     */
+    private static final Interner<String> POOL = Interners.newWeakInterner();
+
+    /**
+     * Private CTOR, for a utility class.
+     */
+    private NamePool()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Title case the name given and get the pooled copy of it.
+     *
+     * @param name the name, or null
+     * @return the title cased name, or null
+     */
+    public static String normalize(String name)
+    {
+        if (name == null) {
+            return null;
+        }
+        return POOL.intern(titleCase(name));
+    }
+
+    /**
+     * Title case the name given, as WordUtils.capitalizeFully does, but without copying names that already are.
+     * Doesn't pool the result, for names only looked up.
+     *
+     * @param name the name
+     * @return the title cased name
+     */
+    public static String titleCase(String name)
+    {
+        if (isTitleCase(name)) {
+            return name;
+        }
+        return WordUtils.capitalizeFully(name);
+    }
+
+    /**
+     * Tell whether the name given is already title cased. Only answers for plain ASCII names, which is most
+     * of them; anything else is left to WordUtils, whose lower casing depends on the locale.
+     *
+     * @param name the name
+     * @return true if it's an ASCII name capitalizeFully would leave as it is
+     */
+    private static boolean isTitleCase(String name)
+    {
+        boolean wordStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                return false;
+            }
+            if (Character.isWhitespace(c)) {
+                wordStart = true;
+            } else {
+                if ((wordStart && c >= 'a' && c <= 'z') || (!wordStart && c >= 'A' && c <= 'Z')) {
+                    return false;
+                }
+                wordStart = false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import java.io.Serializable;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.google.common.collect.Iterators;
+
+
+/**
+ * An immutable set of title cased names, as a sorted array of pooled strings.
+ * Being immutable, it can be handed out as it is rather than copied. Lookups title case their argument, as
+ * adding to a TitleCaseSet used to; sets of up to eight names, which most are, are scanned through rather
+ * than binary searched. Changes return a new set, or this one when there's nothing to change.
+ *
+ * @version $Id$
+ */
+public final class NameSet extends AbstractSet<String> implements Serializable
+{
+    /**
+     * The empty set.
+     */
+    public static final NameSet EMPTY = new NameSet(new String[0]);
+
+    /**
+     * The serial version uid.
+     */
+    private static final long serialVersionUID = 1812L;
+
+    /**
+     * The largest set scanned through on lookups; larger ones are binary searched.
+     */
+    private static final int SCAN_SIZE = 8;
+
+    /**
+     * The names, title cased, pooled, sorted and without duplicates.
+     */
+    private final String[] names;
+
+    /**
+     * CTOR.
+     *
+     * @param names the names, already title cased, pooled, sorted and without duplicates
+     */
+    private NameSet(String[] names)
+    {
+        this.names = names;
+    }
+
+    /**
+     * Get a set of the names given.
+     *
+     * @param names the names, as they come
+     * @return the set
+     */
+    public static NameSet of(Collection<String> names)
+    {
+        if (names instanceof NameSet) {
+            return (NameSet) names;
+        }
+        if (names.isEmpty()) {
+            return EMPTY;
+        }
+        String[] normalized = new String[names.size()];
+        int i = 0;
+        for (String name : names) {
+            normalized[i++] = NamePool.normalize(name);
+        }
+        Arrays.sort(normalized);
+        int size = 0;
+        for (String name : normalized) {
+            if (size == 0 || !normalized[size - 1].equals(name)) {
+                normalized[size++] = name;
+            }
+        }
+        return new NameSet(Arrays.copyOf(normalized, size));
+    }
+
+    /**
+     * Get this set with the name given added.
+     *
+     * @param name the name
+     * @return the new set, or this one if the name is already in it
+     */
+    public NameSet with(String name)
+    {
+        String normalized = NamePool.normalize(name);
+        int i = Arrays.binarySearch(names, normalized);
+        if (i >= 0) {
+            return this;
+        }
+        int at = -i - 1;
+        String[] added = new String[names.length + 1];
+        System.arraycopy(names, 0, added, 0, at);
+        added[at] = normalized;
+        System.arraycopy(names, at, added, at + 1, names.length - at);
+        return new NameSet(added);
+    }
+
+    /**
+     * Get this set with all the names given added.
+     *
+     * @param others the names
+     * @return the new set, or this one if all the names are already in it
+     */
+    public NameSet withAll(Collection<String> others)
+    {
+        if (others.isEmpty() || containsAll(others)) {
+            return this;
+        }
+        if (isEmpty()) {
+            return of(others);
+        }
+        String[] all = Arrays.copyOf(names, names.length + others.size());
+        int i = names.length;
+        for (String name : others) {
+            all[i++] = name;
+        }
+        return of(Arrays.asList(all));
+    }
+
+    /**
+     * Get this set without the name given.
+     *
+     * @param name the name
+     * @return the new set, or this one if the name isn't in it
+     */
+    public NameSet without(String name)
+    {
+        int i = indexOf(name);
+        if (i < 0) {
+            return this;
+        }
+        if (names.length == 1) {
+            return EMPTY;
+        }
+        String[] removed = new String[names.length - 1];
+        System.arraycopy(names, 0, removed, 0, i);
+        System.arraycopy(names, i + 1, removed, i, names.length - i - 1);
+        return new NameSet(removed);
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return o instanceof String && indexOf((String) o) >= 0;
+    }
+
+    @Override
+    public Iterator<String> iterator()
+    {
+        return Iterators.forArray(names);
+    }
+
+    @Override
+    public int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Find the name given.
+     *
+     * @param name the name, as it comes
+     * @return its index, or a negative number if it isn't here
+     */
+    private int indexOf(String name)
+    {
+        String normalized = NamePool.titleCase(name);
+        if (names.length <= SCAN_SIZE) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(normalized)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return Arrays.binarySearch(names, normalized);
+    }
+
+    /**
+     * Pool the names again when deserializing.
+     *
+     * @return the set to use
+     */
+    private Object readResolve()
+    {
+        return of(Arrays.asList(names));
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.phenotips.termrequester.github.GithubAPI;
+import org.phenotips.termrequester.testutils.TestModule;
+
+import com.google.common.base.Optional;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Stress tests concurrent createRequest calls against a real database and an in-memory github.
+ *
+ * @version $Id$
+ */
+public class ConcurrentCreationTest
+{
+    /**
+     * The number of threads to create requests from.
+     */
+    private static final int THREADS = 16;
+
+    /**
+     * The number of rounds to run each test for.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * A temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The in-memory github.
+     */
+    private InMemoryGithubAPI github;
+
+    /**
+     * The component under test.
+     */
+    private PhenotypeManager client;
+
+    /**
+     * The executor to make requests from.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Set up the test case.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        github = new InMemoryGithubAPI();
+        Injector injector = Guice.createInjector(Modules.override(new TermRequesterBackendModule()).
+                with(new TestModule(null, github)));
+        client = injector.getInstance(PhenotypeManager.class);
+        client.init(github.getRepository(), folder.getRoot().toPath());
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    /**
+     * Tear down the test case.
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+        client.shutdown();
+    }
+
+    /**
+     * Test that concurrent requests for the same term, spelled differently, only create it once.
+     */
+    @Test
+    public void testSameTermCreatedOnce() throws Exception
+    {
+        String[] spellings = { "Round %d term", "round %d TERM", "  ROUND  %d term ", "Round %d, term" };
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Phenotype> requests = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Phenotype pt = new Phenotype(String.format(spellings[i % spellings.length], round), "Desc " + i);
+                if (i % 3 == 0) {
+                    /* Equivalent by synonym only */
+                    pt = new Phenotype("Other name " + round + " " + i, "Desc " + i);
+                    pt.addSynonym(String.format(spellings[0], round));
+                }
+                requests.add(pt);
+            }
+            int opened = github.getOpened();
+            List<PhenotypeManager.PhenotypeCreation> creations = createAll(requests);
+            assertEquals(opened + 1, github.getOpened());
+            Set<String> ids = new HashSet<>();
+            int created = 0;
+            for (PhenotypeManager.PhenotypeCreation creation : creations) {
+                ids.add(creation.phenotype.getId().get());
+                created += creation.isNew ? 1 : 0;
+            }
+            assertEquals(1, ids.size());
+            assertEquals(1, created);
+        }
+    }
+
+    /**
+     * Test that concurrent requests for different terms all get created, in parallel.
+     */
+    @Test
+    public void testDifferentTermsInParallel() throws Exception
+    {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Phenotype> requests = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                requests.add(new Phenotype(String.format("Term %d of round %d", i, round), "Desc"));
+            }
+            /* Every other opening waits for another one to be in flight, which will time out if they're
+             * serialized */
+            github.setRendezvous(new CyclicBarrier(2));
+            int opened = github.getOpened();
+            List<PhenotypeManager.PhenotypeCreation> creations = createAll(requests);
+            github.setRendezvous(null);
+            assertEquals(opened + THREADS, github.getOpened());
+            Set<String> ids = new HashSet<>();
+            Set<String> issues = new HashSet<>();
+            for (PhenotypeManager.PhenotypeCreation creation : creations) {
+                ids.add(creation.phenotype.getId().get());
+                issues.add(creation.phenotype.getIssueNumber().get());
+            }
+            assertEquals(THREADS, ids.size());
+            assertEquals(THREADS, issues.size());
+        }
+    }
+
+    /**
+     * Create all the phenotypes given, each from its own thread, all at once.
+     * @param requests the phenotypes to request
+     * @return the creations, in the same order
+     */
+    private List<PhenotypeManager.PhenotypeCreation> createAll(List<Phenotype> requests) throws Exception
+    {
+        final CyclicBarrier start = new CyclicBarrier(requests.size());
+        List<Future<PhenotypeManager.PhenotypeCreation>> futures = new ArrayList<>(requests.size());
+        for (final Phenotype pt : requests) {
+            futures.add(executor.submit(new Callable<PhenotypeManager.PhenotypeCreation>() {
+                @Override
+                public PhenotypeManager.PhenotypeCreation call() throws Exception
+                {
+                    start.await();
+                    return client.createRequest(pt);
+                }
+            }));
+        }
+        List<PhenotypeManager.PhenotypeCreation> creations = new ArrayList<>(requests.size());
+        for (Future<PhenotypeManager.PhenotypeCreation> future : futures) {
+            creations.add(future.get(1, TimeUnit.MINUTES));
+        }
+        return creations;
+    }
+
+    /**
+     * A thread-safe github that keeps issues in memory.
+     * Like the real one, its search lags behind, so it never finds new issues.
+     *
+     * @version $Id$
+     */
+    private static final class InMemoryGithubAPI implements GithubAPI
+    {
+        /**
+         * The number of issues opened.
+         */
+        private final AtomicInteger opened = new AtomicInteger();
+
+        /**
+         * A barrier for openings to meet at, if any.
+         */
+        private volatile CyclicBarrier rendezvous;
+
+        /**
+         * Set a barrier for issue openings to meet at.
+         * @param rendezvous the barrier, or null for none
+         */
+        public void setRendezvous(CyclicBarrier rendezvous)
+        {
+            this.rendezvous = rendezvous;
+        }
+
+        /**
+         * Get the number of issues opened.
+         * @return the number
+         */
+        public int getOpened()
+        {
+            return opened.get();
+        }
+
+        @Override
+        public Phenotype readPhenotype(Phenotype phenotype)
+        {
+            return phenotype;
+        }
+
+        @Override
+        public void openIssue(Phenotype phenotype)
+        {
+            CyclicBarrier barrier = rendezvous;
+            try {
+                if (barrier != null) {
+                    barrier.await(10, TimeUnit.SECONDS);
+                } else {
+                    /* Give racing requests a chance to catch up */
+                    Thread.sleep(5);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Issues are not being opened in parallel", e);
+            }
+            phenotype.setIssueNumber(Integer.toString(opened.incrementAndGet()));
+            phenotype.setStatus(Phenotype.Status.SUBMITTED);
+        }
+
+        @Override
+        public void patchIssue(Phenotype phenotype)
+        {
+        }
+
+        @Override
+        public Optional<String> searchForIssue(Phenotype phenotype)
+        {
+            return phenotype.getIssueNumber();
+        }
+
+        @Override
+        public Repository getRepository()
+        {
+            return new Repository("owner", "repo", "token");
+        }
+    }
+}
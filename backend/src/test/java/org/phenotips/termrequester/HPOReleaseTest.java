@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the HPORelease class.
+ *
+ * @version $Id$
+ */
+public class HPOReleaseTest
+{
+    /**
+     * A temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The release file.
+     */
+    private Path file;
+
+    /**
+     * The component under test.
+     */
+    private HPORelease release;
+
+    /**
+     * Set up a test.
+     */
+    @Before
+    public void setUp()
+    {
+        file = folder.getRoot().toPath().resolve(HPORelease.DEFAULT_FILE_NAME);
+        release = new HPORelease(file);
+    }
+
+    /**
+     * Test reading primary and alternate ids, and nothing else.
+     */
+    @Test
+    public void testRead() throws IOException
+    {
+        write("format-version: 1.2",
+              "",
+              "[Term]",
+              "id: HP:0000001",
+              "name: All",
+              "",
+              "[Term]",
+              "id: HP:0000118 ! Phenotypic abnormality",
+              "alt_id: HP:0000005",
+              "is_a: HP:0000001 ! All",
+              "xref: UMLS:C4021790",
+              "",
+              "[Typedef]",
+              "id: part_of");
+        Set<String> expected = new HashSet<>(Arrays.asList("HP_0000001", "HP_0000118", "HP_0000005"));
+        assertEquals(expected, release.getIds());
+    }
+
+    /**
+     * Test that a missing file has no ids.
+     */
+    @Test
+    public void testMissing() throws IOException
+    {
+        assertTrue(release.getIds().isEmpty());
+    }
+
+    /**
+     * Test that the ids are read again when the file changes.
+     */
+    @Test
+    public void testReload() throws IOException
+    {
+        write("[Term]", "id: HP:0000001");
+        assertEquals(1, release.getIds().size());
+        write("[Term]", "id: HP:0000001", "", "[Term]", "id: HP:0000002");
+        /* Make sure the change shows, however coarse the file system's clock */
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertEquals(2, release.getIds().size());
+        Files.delete(file);
+        assertTrue(release.getIds().isEmpty());
+    }
+
+    /**
+     * Write the lines given to the release file.
+     * @param lines the lines
+     */
+    private void write(String... lines) throws IOException
+    {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the PhenotypeCodec class.
+ *
+ * @version $Id$
+ */
+public class PhenotypeCodecTest
+{
+    /**
+     * Names to build random phenotypes from, some of them shared.
+     */
+    private static final String[] WORDS = { "big", "small", "nose", "ear", "café", "ÉTAGE", "", "(left)",
+        "日本", "😀" };
+
+    /**
+     * Ids to build random phenotypes from, of every kind.
+     */
+    private static final String[] IDS = { "TEMPHPO_0000001", "TEMPHPO_9999999", "HP_0000118", "HP:0000118",
+        "whatever", "TEMPHPO_10000000" };
+
+    /**
+     * Test that a fully filled in phenotype comes back as it went.
+     *
+     * @throws IOException on failure
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        Phenotype pt = new HPOPhenotype("big nose", "The nose is big.");
+        pt.setId("TEMPHPO_0000042");
+        pt.setHpoId("HP_0000001");
+        pt.setStatus(Phenotype.Status.ACCEPTED);
+        pt.setIssueNumber("17");
+        pt.setEtag("etag");
+        pt.addAllSynonyms(Arrays.asList("large nose", "huge nose"));
+        pt.addAllParentIds(Arrays.asList("HP_0000002", "TEMPHPO_0000007", "HP:0000003"));
+        pt.setTimeCreated(new Date(1000));
+        pt.setTimeModified(new Date(5000));
+        pt.setTimeVerified(new Date(500));
+        pt.setClean();
+        pt.setDescription("The nose is very big.");
+        Phenotype unsaved = new Phenotype("small nose", "");
+        List<Phenotype> phenotypes = Arrays.asList(pt, unsaved, Phenotype.NULL);
+        for (boolean compress : new boolean[] { false, true }) {
+            List<Phenotype> read = PhenotypeCodec.decode(PhenotypeCodec.encode(phenotypes, compress));
+            assertEquals(3, read.size());
+            assertSameFields(pt, read.get(0));
+            assertEquals(Phenotype.DESCRIPTION_FIELD, read.get(0).getDirtyFields());
+            assertSameFields(unsaved, read.get(1));
+            assertTrue(read.get(1).isDirty());
+            assertSame(Phenotype.NULL, read.get(2));
+        }
+    }
+
+    /**
+     * Test that random phenotypes come back as they went, alone and in batches.
+     *
+     * @throws IOException on failure
+     */
+    @Test
+    public void testFuzzRoundTrip() throws IOException
+    {
+        Random random = new Random(47);
+        for (int i = 0; i < 200; i++) {
+            List<Phenotype> phenotypes = new ArrayList<>();
+            int count = random.nextInt(10);
+            for (int j = 0; j < count; j++) {
+                phenotypes.add(randomPhenotype(random));
+            }
+            List<Phenotype> read = PhenotypeCodec.decode(PhenotypeCodec.encode(phenotypes, random.nextBoolean()));
+            assertEquals(phenotypes.size(), read.size());
+            for (int j = 0; j < count; j++) {
+                assertSameFields(phenotypes.get(j), read.get(j));
+            }
+        }
+    }
+
+    /**
+     * Test that damaged input is either read or rejected with an IOException, and nothing worse.
+     */
+    @Test
+    public void testCorruptInput()
+    {
+        Random random = new Random(47);
+        for (int i = 0; i < 2000; i++) {
+            byte[] bytes = PhenotypeCodec.encode(Collections.singletonList(randomPhenotype(random)), false);
+            if (random.nextBoolean()) {
+                bytes = Arrays.copyOf(bytes, random.nextInt(bytes.length));
+            } else {
+                /* Leave the header alone, or almost every case is just an unknown version */
+                int at = 2 + random.nextInt(bytes.length - 2);
+                bytes[at] = (byte) random.nextInt(256);
+            }
+            try {
+                PhenotypeCodec.decode(bytes);
+            } catch (IOException e) {
+                /* Fine */
+            }
+        }
+    }
+
+    /**
+     * Test that the separate contributions to a description come back, and that a single one from the version
+     * before they were written still reads.
+     *
+     * @throws IOException on failure
+     */
+    @Test
+    public void testDescriptions() throws IOException
+    {
+        Phenotype pt = new Phenotype("big nose", "");
+        pt.setDescriptions(Arrays.asList("Fusion of digits 2|3\n\nsee also X", "Extra. | More."));
+        Phenotype read = PhenotypeCodec.decode(PhenotypeCodec.encode(pt)).get(0);
+        assertEquals(pt.getDescriptions(), read.getDescriptions());
+        assertEquals(pt.getDescription(), read.getDescription());
+
+        /* Version 1 is version 2 without the contribution count after the description */
+        String description = "The nose | is big.";
+        byte[] bytes = PhenotypeCodec.encode(new Phenotype("big nose", description));
+        byte[] written = description.getBytes(StandardCharsets.UTF_8);
+        int count = indexOf(bytes, written) + written.length;
+        assertEquals(0, bytes[count]);
+        byte[] old = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, old, 0, count);
+        System.arraycopy(bytes, count + 1, old, count, bytes.length - count - 1);
+        old[0] = 1;
+        read = PhenotypeCodec.decode(old).get(0);
+        assertEquals(description, read.getDescription());
+        assertEquals(Arrays.asList(description), read.getDescriptions());
+    }
+
+    /**
+     * Test that versions this doesn't know are refused.
+     */
+    @Test
+    public void testUnknownVersion()
+    {
+        byte[] bytes = PhenotypeCodec.encode(new Phenotype("big nose", ""));
+        bytes[0] = (byte) (PhenotypeCodec.VERSION + 1);
+        try {
+            PhenotypeCodec.decode(bytes);
+            fail("Decoded an unknown version");
+        } catch (IOException e) {
+            /* Expected */
+        }
+    }
+
+    /**
+     * Test that synonyms and parents shared across a batch are only written once.
+     */
+    @Test
+    public void testStringTable()
+    {
+        List<Phenotype> phenotypes = new ArrayList<>();
+        int separately = 0;
+        for (int i = 0; i < 10; i++) {
+            Phenotype pt = new Phenotype("nose " + i, "");
+            pt.addAllSynonyms(Arrays.asList("a rather long synonym shared by all", "and another one like it"));
+            pt.addParentId("a parent id that doesn't encode");
+            phenotypes.add(pt);
+            separately += PhenotypeCodec.encode(pt).length;
+        }
+        assertTrue(PhenotypeCodec.encode(phenotypes, false).length < separately / 3);
+    }
+
+    /**
+     * Build a random phenotype.
+     *
+     * @param random the source of randomness
+     * @return the phenotype
+     */
+    private Phenotype randomPhenotype(Random random)
+    {
+        Phenotype pt;
+        if (random.nextBoolean()) {
+            pt = new HPOPhenotype(randomWords(random), randomWords(random));
+        } else {
+            pt = new Phenotype(randomWords(random), randomWords(random));
+        }
+        pt.setStatus(Phenotype.Status.values()[random.nextInt(Phenotype.Status.values().length)]);
+        /* Submitted phenotypes always have an issue number */
+        if (pt.getStatus() != Phenotype.Status.UNSUBMITTED || random.nextBoolean()) {
+            pt.setIssueNumber(String.valueOf(random.nextInt(1000)));
+        }
+        pt.setHpoId(random.nextBoolean() ? IDS[random.nextInt(IDS.length)] : null);
+        pt.setEtag(random.nextBoolean() ? randomWords(random) : null);
+        int synonyms = random.nextInt(5);
+        for (int i = 0; i < synonyms; i++) {
+            pt.addSynonym(randomWords(random));
+        }
+        int parents = random.nextInt(4);
+        for (int i = 0; i < parents; i++) {
+            pt.addParentId(IDS[random.nextInt(IDS.length)]);
+        }
+        pt.setTimeCreated(random.nextBoolean() ? new Date(random.nextLong()) : null);
+        pt.setTimeModified(random.nextBoolean() ? new Date(random.nextLong()) : null);
+        pt.setTimeVerified(random.nextBoolean() ? new Date(random.nextLong()) : null);
+        if (random.nextBoolean()) {
+            pt.setId(IDS[random.nextInt(IDS.length)]);
+            pt.setClean();
+            if (random.nextBoolean()) {
+                pt.setDescription(randomWords(random));
+            } else if (random.nextBoolean()) {
+                pt.setDescriptions(Arrays.asList(randomWords(random), randomWords(random), randomWords(random)));
+            }
+        }
+        return pt;
+    }
+
+    /**
+     * Find where some bytes first turn up in others.
+     *
+     * @param bytes the bytes to look in
+     * @param sought the bytes to look for
+     * @return where they start, or -1 if they don't
+     */
+    private int indexOf(byte[] bytes, byte[] sought)
+    {
+        for (int i = 0; i + sought.length <= bytes.length; i++) {
+            if (Arrays.equals(sought, Arrays.copyOfRange(bytes, i, i + sought.length))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Build a random string of words.
+     *
+     * @param random the source of randomness
+     * @return the words
+     */
+    private String randomWords(Random random)
+    {
+        StringBuilder words = new StringBuilder();
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            words.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return words.toString();
+    }
+
+    /**
+     * Assert that the phenotype read has all the same fields as the one written.
+     *
+     * @param expected the phenotype written
+     * @param actual the phenotype read
+     */
+    private void assertSameFields(Phenotype expected, Phenotype actual)
+    {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getHpoId(), actual.getHpoId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getDescriptions(), actual.getDescriptions());
+        assertEquals(expected.forceGetIssueNumber(), actual.forceGetIssueNumber());
+        assertEquals(expected.getEtag(), actual.getEtag());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getTimeCreated(), actual.getTimeCreated());
+        assertEquals(expected.getTimeModified(), actual.getTimeModified());
+        assertEquals(expected.getTimeVerified(), actual.getTimeVerified());
+        assertEquals(expected.getSynonyms(), actual.getSynonyms());
+        assertEquals(expected.getParentIds(), actual.getParentIds());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        if (expected.getId().isPresent()) {
+            assertEquals(expected.getDirtyFields(), actual.getDirtyFields());
+        }
+    }
+}
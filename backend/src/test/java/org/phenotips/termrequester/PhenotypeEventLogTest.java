@@ -0,0 +1,133 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.phenotips.termrequester.utils.IdUtils;
+
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the PhenotypeEventLog class.
+ *
+ * @version $Id$
+ */
+public class PhenotypeEventLogTest
+{
+    /**
+     * The number of events the log under test keeps.
+     */
+    private static final int CAPACITY = 4;
+
+    /**
+     * The component under test.
+     */
+    private PhenotypeEventLog log;
+
+    /**
+     * Set up a test.
+     */
+    @Before
+    public void setUp()
+    {
+        log = new PhenotypeEventLog(CAPACITY);
+    }
+
+    /**
+     * Test that events come back in order, after the id asked for.
+     */
+    @Test
+    public void testGetAfter()
+    {
+        assertEquals(0, log.getLastId());
+        assertTrue(log.getAfter(0).isEmpty());
+        publish(1);
+        publish(2);
+        publish(3);
+        assertEquals(3, log.getLastId());
+        List<PhenotypeEvent> events = log.getAfter(1);
+        assertEquals(2, events.size());
+        assertEquals(2, events.get(0).getEventId());
+        assertEquals(String.format(IdUtils.ID_FORMAT, 2), events.get(0).getId());
+        assertEquals(3, events.get(1).getEventId());
+        assertTrue(log.getAfter(3).isEmpty());
+    }
+
+    /**
+     * Test that only the last few events are kept, and that the log can tell when some were lost.
+     */
+    @Test
+    public void testWrap()
+    {
+        for (int i = 1; i <= CAPACITY + 2; i++) {
+            publish(i);
+        }
+        assertFalse(log.covers(0));
+        assertFalse(log.covers(1));
+        assertTrue(log.covers(2));
+        List<PhenotypeEvent> events = log.getAfter(0);
+        assertEquals(CAPACITY, events.size());
+        assertEquals(3, events.get(0).getEventId());
+        assertEquals(CAPACITY + 2, events.get(CAPACITY - 1).getEventId());
+        /* An id from before a restart */
+        assertFalse(log.covers(CAPACITY + 3));
+    }
+
+    /**
+     * Test that waiting returns as soon as an event comes in, or empty on timeout.
+     */
+    @Test
+    public void testAwait() throws Exception
+    {
+        assertTrue(log.awaitAfter(0, 10, TimeUnit.MILLISECONDS).isEmpty());
+        Thread publisher = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                publish(1);
+            }
+        });
+        publisher.start();
+        List<PhenotypeEvent> events = log.awaitAfter(0, 10, TimeUnit.SECONDS);
+        assertEquals(1, events.size());
+        assertEquals(Phenotype.Status.ACCEPTED, events.get(0).getNewStatus());
+        publisher.join();
+    }
+
+    /**
+     * Publish an event for the phenotype with the number given.
+     * @param number the number of the phenotype
+     */
+    private void publish(int number)
+    {
+        log.publish(String.format(IdUtils.ID_FORMAT, number), Phenotype.Status.SUBMITTED, Phenotype.Status.ACCEPTED,
+                Optional.<String>absent());
+    }
+}
@@ -19,10 +19,19 @@
 
 import java.io.IOException;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -30,6 +39,7 @@
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import org.mockito.Matchers;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -37,6 +47,8 @@
 import org.phenotips.termrequester.db.DatabaseService;
 import org.phenotips.termrequester.github.GithubAPI;
 import org.phenotips.termrequester.github.GithubAPIFactory;
+import org.phenotips.termrequester.github.GithubException;
+import org.phenotips.termrequester.github.GithubUnavailableException;
 import org.phenotips.termrequester.testutils.TestModule;
 import org.phenotips.termrequester.utils.IdUtils;
 
@@ -52,13 +64,18 @@
 import static org.junit.Assert.assertTrue;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.refEq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -244,6 +261,7 @@ public void testGetById() throws Exception
         pt = mock(Phenotype.class);
         when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
         when(pt.getIssueNumber()).thenReturn(Optional.of(PT_NUM));
+        when(pt.getTimeVerified()).thenReturn(Optional.<Date>absent());
         when(pt.getStatus()).thenReturn(Phenotype.Status.SUBMITTED);
         Phenotype pt2 = client.getPhenotypeById(PT_ID);
         assertEquals(pt, pt2);
@@ -252,6 +270,99 @@ public void testGetById() throws Exception
         verify(databaseService).savePhenotype(same(pt));
     }
 
+    /**
+     * Test that getPhenotypeById serves the database copy, marked stale, when github can't be reached.
+     */
+    @Test
+    public void testGetByIdGithubUnavailable() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
+        doThrow(new GithubUnavailableException("Circuit open")).when(githubApi).readPhenotype(same(pt));
+        Phenotype pt2 = client.getPhenotypeById(PT_ID);
+        assertTrue(pt == pt2);
+        assertTrue(pt2.isStale());
+        assertEquals(Phenotype.Status.SUBMITTED, pt2.getStatus());
+        verify(databaseService, never()).savePhenotype(any(Phenotype.class));
+    }
+
+    /**
+     * Test that getPhenotypeById doesn't go to github for a recently verified phenotype.
+     */
+    @Test
+    public void testGetByIdFresh() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        pt.setTimeVerified(new Date());
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
+        client.setMaxStaleness(1, TimeUnit.HOURS);
+        Phenotype pt2 = client.getPhenotypeById(PT_ID);
+        assertTrue(pt == pt2);
+        assertFalse(pt2.isStale());
+        verify(githubApi, never()).readPhenotype(any(Phenotype.class));
+        /* Unless told to always check */
+        client.setMaxStaleness(0, TimeUnit.HOURS);
+        client.getPhenotypeById(PT_ID);
+        verify(githubApi).readPhenotype(same(pt));
+    }
+
+    /**
+     * Test that getPhenotypeById serves an old phenotype straight away, marked stale, and refreshes
+     * it in the background.
+     */
+    @Test
+    public void testGetByIdStale() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        pt.setTimeVerified(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        Phenotype copy = new Phenotype(PT_NAME, PT_DESC);
+        copy.setId(PT_ID);
+        copy.setIssueNumber(PT_NUM);
+        copy.setStatus(Phenotype.Status.SUBMITTED);
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt, copy);
+        client.setMaxStaleness(1, TimeUnit.HOURS);
+        Phenotype pt2 = client.getPhenotypeById(PT_ID);
+        assertTrue(pt == pt2);
+        assertTrue(pt2.isStale());
+        verify(githubApi, timeout(5000)).readPhenotype(same(copy));
+        verify(databaseService, timeout(5000)).savePhenotype(same(copy));
+        verify(githubApi, never()).readPhenotype(same(pt));
+        assertTrue(copy.getTimeVerified().isPresent());
+    }
+
+    /**
+     * Test that concurrent stale reads of a phenotype only refresh it once.
+     */
+    @Test
+    public void testStaleRefreshSingleFlight() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        pt.setTimeVerified(new Date(0));
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Phenotype>() {
+            public Phenotype answer(InvocationOnMock invocation) throws Exception {
+                release.await();
+                return null;
+            }
+        }).when(githubApi).readPhenotype(any(Phenotype.class));
+        client.setMaxStaleness(1, TimeUnit.HOURS);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(client.getPhenotypeById(PT_ID).isStale());
+        }
+        release.countDown();
+        verify(databaseService, timeout(5000)).savePhenotype(same(pt));
+        verify(githubApi, times(1)).readPhenotype(any(Phenotype.class));
+    }
+
     /**
      * Test the getPhenotypeById method with an hpo id.
      */
@@ -261,6 +372,7 @@ public void testGetByHpoId() throws Exception
         pt = mock(Phenotype.class);
         when(databaseService.getPhenotypeByHpoId(PT_HPO_ID)).thenReturn(pt);
         when(pt.getIssueNumber()).thenReturn(Optional.of(PT_NUM));
+        when(pt.getTimeVerified()).thenReturn(Optional.<Date>absent());
         when(pt.getStatus()).thenReturn(Phenotype.Status.ACCEPTED);
         when(pt.getHpoId()).thenReturn(Optional.of(PT_HPO_ID));
         when(pt.getId()).thenReturn(Optional.of(PT_ID));
@@ -328,6 +440,162 @@ public Void answer(InvocationOnMock invocation) {
         assertEquals(PT_HPO_ID, pt2.getHpoId().get());
     }
 
+    /**
+     * Test that synonyms already in the database on start up redirect straight to the phenotype they're a
+     * synonym of, without being looked up themselves.
+     */
+    @Test
+    public void testSynonymRedirect() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.SYNONYM);
+        pt.setHpoId(PT_HPO_ID);
+        Phenotype existing = new Phenotype("existing", "desc");
+        existing.setIssueNumber("1");
+        existing.setStatus(Phenotype.Status.PUBLISHED);
+        existing.setHpoId(PT_HPO_ID);
+        when(databaseService.getPhenotypesByStatus(same(Phenotype.Status.SYNONYM),
+                    eq(Optional.<String>absent()), anyInt())).thenReturn(Arrays.asList(pt));
+        when(databaseService.getPhenotypeByHpoId(PT_HPO_ID)).thenReturn(existing);
+        client.shutdown();
+        client.init(new GithubAPI.Repository(OWNER, REPOSITORY, TOKEN), folder.getRoot().toPath());
+        assertTrue(client.getPhenotypeById(PT_ID) == existing);
+        verify(databaseService, never()).getPhenotypeById(PT_ID);
+        verify(githubApi, never()).readPhenotype(any(Phenotype.class));
+        String other = String.format(IdUtils.ID_FORMAT, 46);
+        Map<String, String> resolved = client.resolveIds(Arrays.asList(PT_ID, other, PT_HPO_ID));
+        assertEquals(PT_HPO_ID, resolved.get(PT_ID));
+        assertEquals(other, resolved.get(other));
+        assertEquals(PT_HPO_ID, resolved.get(PT_HPO_ID));
+    }
+
+    /**
+     * Test that a phenotype becoming a synonym is redirected from then on.
+     */
+    @Test
+    public void testNewSynonymRedirect() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        pt.setIssueNumber(PT_NUM);
+        Phenotype existing = new Phenotype("existing", "desc");
+        existing.setIssueNumber("1");
+        existing.setStatus(Phenotype.Status.ACCEPTED);
+        existing.setHpoId(PT_HPO_ID);
+        existing.setTimeVerified(new Date());
+        when(databaseService.getPhenotypeByHpoId(PT_HPO_ID)).thenReturn(existing);
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                Phenotype arg = (Phenotype) invocation.getArguments()[0];
+                arg.setStatus(Phenotype.Status.SYNONYM);
+                arg.setHpoId(PT_HPO_ID);
+                return null;
+            }
+        }).when(githubApi).readPhenotype(same(pt));
+        client.getPhenotypeById(PT_ID);
+        assertEquals(PT_HPO_ID, client.resolveIds(Arrays.asList(PT_ID)).get(PT_ID));
+        client.getPhenotypeById(PT_ID);
+        verify(databaseService, times(1)).getPhenotypeById(PT_ID);
+        verify(githubApi, times(1)).readPhenotype(same(pt));
+    }
+
+    /**
+     * Test getting many phenotypes at once: the database is asked in bulk, synonyms are followed, and
+     * github is only read in the background, once per phenotype.
+     */
+    @Test
+    public void testGetPhenotypesById() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.ACCEPTED);
+        pt.setHpoId(PT_HPO_ID);
+        Phenotype synonym = new Phenotype("synonym", "desc");
+        String synonymId = String.format(IdUtils.ID_FORMAT, 46);
+        synonym.setId(synonymId);
+        synonym.setIssueNumber("124");
+        synonym.setStatus(Phenotype.Status.SYNONYM);
+        synonym.setHpoId(PT_HPO_ID);
+        Phenotype orphan = new Phenotype("orphan", "desc");
+        String orphanId = String.format(IdUtils.ID_FORMAT, 47);
+        orphan.setId(orphanId);
+        orphan.setIssueNumber("125");
+        orphan.setStatus(Phenotype.Status.SYNONYM);
+        orphan.setHpoId("HP_0000002");
+        String missing = String.format(IdUtils.ID_FORMAT, 48);
+        when(databaseService.getPhenotypesById(anyCollectionOf(String.class))).
+            thenReturn(Arrays.asList(pt, synonym, orphan));
+        when(databaseService.getPhenotypesByHpoId(anyCollectionOf(String.class))).thenReturn(Arrays.asList(pt));
+        final CountDownLatch read = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                read.countDown();
+                return null;
+            }
+        }).when(githubApi).readPhenotype(any(Phenotype.class));
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
+
+        Map<String, Phenotype> results = client.getPhenotypesById(Arrays.asList(synonymId, PT_ID, missing,
+                    PT_HPO_ID, orphanId));
+        assertEquals(Arrays.asList(synonymId, PT_ID, missing, PT_HPO_ID, orphanId),
+                new ArrayList<>(results.keySet()));
+        assertTrue(results.get(synonymId) == pt);
+        assertTrue(results.get(PT_ID) == pt);
+        assertTrue(results.get(PT_HPO_ID) == pt);
+        assertEquals(Phenotype.NULL, results.get(missing));
+        Phenotype standIn = results.get(orphanId);
+        assertEquals(Phenotype.Status.PUBLISHED, standIn.getStatus());
+        assertEquals("HP_0000002", standIn.getHpoId().get());
+        assertEquals(orphan.getName(), standIn.getName());
+        assertTrue(pt.isStale());
+        assertEquals(PT_HPO_ID, client.resolveIds(Arrays.asList(synonymId)).get(synonymId));
+        assertTrue(read.await(5, TimeUnit.SECONDS));
+        verify(githubApi, timeout(5000).times(1)).readPhenotype(any(Phenotype.class));
+        verify(databaseService, never()).getPhenotypeByHpoId(any(String.class));
+    }
+
+    /**
+     * Test that a malformed id in a bulk get is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetPhenotypesByIdMalformed() throws Exception
+    {
+        client.getPhenotypesById(Arrays.asList(PT_ID, "yes_lad"));
+    }
+
+    /**
+     * Test that a version is only given out when it can be served as is.
+     */
+    @Test
+    public void testGetPhenotypeVersion() throws Exception
+    {
+        Date now = new Date();
+        Date old = new Date(now.getTime() - 2 * PhenotypeManagerImpl.DEFAULT_MAX_STALENESS);
+        PhenotypeVersion fresh = new PhenotypeVersion(PT_ID, "abc", now, Phenotype.Status.SUBMITTED, true, now);
+        when(databaseService.getPhenotypeVersion(PT_ID)).thenReturn(Optional.of(fresh));
+        assertTrue(client.getPhenotypeVersion(PT_ID).get() == fresh);
+
+        PhenotypeVersion stale = new PhenotypeVersion(PT_ID, "abc", now, Phenotype.Status.SUBMITTED, true, old);
+        when(databaseService.getPhenotypeVersion(PT_ID)).thenReturn(Optional.of(stale));
+        assertFalse(client.getPhenotypeVersion(PT_ID).isPresent());
+
+        PhenotypeVersion unverified = new PhenotypeVersion(PT_ID, "abc", now, Phenotype.Status.SUBMITTED, true,
+                null);
+        when(databaseService.getPhenotypeVersion(PT_ID)).thenReturn(Optional.of(unverified));
+        assertFalse(client.getPhenotypeVersion(PT_ID).isPresent());
+
+        PhenotypeVersion published = new PhenotypeVersion(PT_ID, "abc", now, Phenotype.Status.PUBLISHED, true,
+                old);
+        when(databaseService.getPhenotypeVersion(PT_ID)).thenReturn(Optional.of(published));
+        assertTrue(client.getPhenotypeVersion(PT_ID).get() == published);
+
+        when(databaseService.getPhenotypeVersion(PT_HPO_ID)).thenReturn(Optional.<PhenotypeVersion>absent());
+        assertFalse(client.getPhenotypeVersion(PT_HPO_ID).isPresent());
+        verify(githubApi, never()).readPhenotype(any(Phenotype.class));
+    }
+
     /**
      * Test the search method.
      */
@@ -351,6 +619,10 @@ public void testSync() throws Exception
         Phenotype pt2 = new Phenotype("test2", "test2");
         Phenotype pt3 = new Phenotype("test3", "test3");
         Phenotype pt4 = new Phenotype("test4", "test4");
+        pt.setIssueNumber("1");
+        pt2.setIssueNumber("2");
+        pt3.setIssueNumber("3");
+        pt4.setIssueNumber("4");
         pt.setStatus(Phenotype.Status.SUBMITTED);
         pt2.setStatus(Phenotype.Status.SUBMITTED);
         pt3.setStatus(Phenotype.Status.SUBMITTED);
@@ -360,18 +632,270 @@ public void testSync() throws Exception
         submitted.add(pt2);
         submitted.add(pt3);
         submitted.add(pt4);
-        when(databaseService.getPhenotypesByStatus(Phenotype.Status.SUBMITTED)).thenReturn(submitted);
+        when(databaseService.getPhenotypesByStatus(same(Phenotype.Status.SUBMITTED),
+                    eq(Optional.<String>absent()), anyInt())).thenReturn(submitted);
+        List<Phenotype> saved = recordSaves();
+        client.setSyncRate(1000);
         client.syncPhenotypes();
         verify(githubApi, times(4)).readPhenotype(any(Phenotype.class));
         verify(githubApi).readPhenotype(same(pt));
         verify(githubApi).readPhenotype(same(pt2));
         verify(githubApi).readPhenotype(same(pt3));
         verify(githubApi).readPhenotype(same(pt4));
-        verify(databaseService, times(4)).savePhenotype(any(Phenotype.class));
-        verify(databaseService).savePhenotype(same(pt));
-        verify(databaseService).savePhenotype(same(pt2));
-        verify(databaseService).savePhenotype(same(pt3));
-        verify(databaseService).savePhenotype(same(pt4));
+        assertEquals(4, saved.size());
+        assertTrue(saved.containsAll(submitted));
+        verify(databaseService).commit();
+        SyncProgress progress = client.getSyncProgress();
+        assertTrue(progress.isDone());
+        assertEquals(4, progress.getSynced());
+        assertEquals(4, progress.getRead());
+        assertEquals(0, progress.getFailed());
+    }
+
+    /**
+     * Test that the sync goes through every page of phenotypes, and skips those it can't read.
+     */
+    @Test
+    public void testSyncPages() throws Exception
+    {
+        final int count = PhenotypeManagerImpl.SYNC_PAGE_SIZE * 5 / 2;
+        final List<Phenotype> submitted = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Phenotype p = new Phenotype("Paged " + i, "desc");
+            p.setId(String.format(IdUtils.ID_FORMAT, i));
+            p.setIssueNumber(Integer.toString(i));
+            p.setStatus(Phenotype.Status.SUBMITTED);
+            submitted.add(p);
+        }
+        storeAsRead(submitted);
+        when(databaseService.getPhenotypesByStatus(same(Phenotype.Status.SUBMITTED), Matchers.<Optional<String>>any(),
+                    anyInt())).thenAnswer(new Answer<List<Phenotype>>() {
+                        public List<Phenotype> answer(InvocationOnMock invocation) {
+                            Optional<?> after = (Optional<?>) invocation.getArguments()[1];
+                            int rows = (Integer) invocation.getArguments()[2];
+                            List<Phenotype> page = new ArrayList<>();
+                            for (Phenotype p : submitted) {
+                                if (page.size() < rows && (!after.isPresent()
+                                            || p.getId().get().compareTo((String) after.get()) > 0)) {
+                                    page.add(p);
+                                }
+                            }
+                            return page;
+                        }
+                    });
+        final Phenotype broken = submitted.get(7);
+        doThrow(new GithubException("Response code 500 was not in [200]")).when(githubApi).
+            readPhenotype(same(broken));
+        List<Phenotype> saved = recordSaves();
+        client.setSyncRate(10000);
+        client.syncPhenotypes();
+        verify(githubApi, times(count)).readPhenotype(any(Phenotype.class));
+        assertEquals(count - 1, saved.size());
+        assertFalse(saved.contains(broken));
+        SyncProgress progress = client.getSyncProgress();
+        assertEquals(count, progress.getRead());
+        assertEquals(count - 1, progress.getSynced());
+        assertEquals(1, progress.getFailed());
+    }
+
+    /**
+     * Test that a sync can be cancelled while waiting on github, and still saves what it has.
+     */
+    @Test
+    public void testSyncCancel() throws Exception
+    {
+        List<Phenotype> submitted = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            Phenotype p = new Phenotype("Cancelled " + i, "desc");
+            p.setId(String.format(IdUtils.ID_FORMAT, i));
+            p.setIssueNumber(Integer.toString(i));
+            p.setStatus(Phenotype.Status.SUBMITTED);
+            submitted.add(p);
+        }
+        storeAsRead(submitted);
+        when(databaseService.getPhenotypesByStatus(same(Phenotype.Status.SUBMITTED),
+                    eq(Optional.<String>absent()), anyInt())).thenReturn(submitted);
+        final Phenotype quick = submitted.get(0);
+        final CountDownLatch hanging = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Phenotype>() {
+            public Phenotype answer(InvocationOnMock invocation) throws Exception {
+                if (invocation.getArguments()[0] != quick) {
+                    hanging.countDown();
+                    release.await();
+                }
+                return null;
+            }
+        }).when(githubApi).readPhenotype(any(Phenotype.class));
+        List<Phenotype> saved = recordSaves();
+        client.setSyncRate(1000);
+        Thread sync = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    client.syncPhenotypes();
+                } catch (TermRequesterBackendException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        sync.start();
+        try {
+            assertTrue(hanging.await(10, TimeUnit.SECONDS));
+            client.getSyncProgress().cancel();
+            sync.join(10000);
+            assertFalse(sync.isAlive());
+        } finally {
+            release.countDown();
+        }
+        SyncProgress progress = client.getSyncProgress();
+        assertTrue(progress.isCancelled());
+        assertTrue(progress.isDone());
+        assertTrue(saved.contains(quick));
+        assertEquals(progress.getSynced(), saved.size());
         verify(databaseService).commit();
     }
+
+    /**
+     * Test that a sync publishes accepted phenotypes found in the release file without asking github,
+     * and reads the rest of the accepted ones from github.
+     */
+    @Test
+    public void testSyncPublishes() throws Exception
+    {
+        Files.write(folder.getRoot().toPath().resolve(HPORelease.DEFAULT_FILE_NAME),
+                Arrays.asList("[Term]", "id: HP:0001234", "name: Released"), StandardCharsets.UTF_8);
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.ACCEPTED);
+        pt.setHpoId(PT_HPO_ID);
+        Phenotype pending = new Phenotype("pending", "desc");
+        pending.setId(String.format(IdUtils.ID_FORMAT, 46));
+        pending.setIssueNumber("124");
+        pending.setStatus(Phenotype.Status.ACCEPTED);
+        pending.setHpoId("HP_0009999");
+        storeAsRead(Arrays.asList(pt, pending));
+        when(databaseService.getPhenotypesByStatus(same(Phenotype.Status.ACCEPTED),
+                    eq(Optional.<String>absent()), anyInt())).thenReturn(Arrays.asList(pt, pending)).
+            thenReturn(Arrays.asList(pending));
+        List<Phenotype> saved = recordSaves();
+        client.setSyncRate(1000);
+        client.syncPhenotypes();
+        assertEquals(Phenotype.Status.PUBLISHED, pt.getStatus());
+        assertEquals(Phenotype.Status.ACCEPTED, pending.getStatus());
+        assertTrue(saved.contains(pt));
+        assertTrue(saved.contains(pending));
+        verify(githubApi, never()).readPhenotype(same(pt));
+        verify(githubApi).readPhenotype(same(pending));
+        verify(databaseService, times(2)).commit();
+        assertEquals(1, client.getSyncProgress().getPublished());
+        assertEquals(1, client.getSyncProgress().getSynced());
+        /* Only the status change is pushed */
+        List<PhenotypeEvent> events = client.getEventLog().getAfter(0);
+        assertEquals(1, events.size());
+        assertEquals(PT_ID, events.get(0).getId());
+        assertEquals(Phenotype.Status.ACCEPTED, events.get(0).getOldStatus());
+        assertEquals(Phenotype.Status.PUBLISHED, events.get(0).getNewStatus());
+        assertEquals(PT_HPO_ID, events.get(0).getHpoId().get());
+    }
+
+    /**
+     * Test that a sync doesn't save over a phenotype that was changed while it was reading it from github.
+     */
+    @Test
+    public void testSyncSkipsChanged() throws Exception
+    {
+        List<Phenotype> submitted = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            Phenotype p = new Phenotype("Changed " + i, "desc");
+            p.setId(String.format(IdUtils.ID_FORMAT, i));
+            p.setIssueNumber(Integer.toString(i));
+            p.setStatus(Phenotype.Status.SUBMITTED);
+            submitted.add(p);
+        }
+        final Map<String, Phenotype> stored = storeAsRead(submitted);
+        when(databaseService.getPhenotypesByStatus(same(Phenotype.Status.SUBMITTED),
+                    eq(Optional.<String>absent()), anyInt())).thenReturn(submitted);
+        final Phenotype changed = submitted.get(0);
+        final Phenotype unchanged = submitted.get(1);
+        doAnswer(new Answer<Phenotype>() {
+            public Phenotype answer(InvocationOnMock invocation) throws Exception {
+                Phenotype read = (Phenotype) invocation.getArguments()[0];
+                read.setStatus(Phenotype.Status.ACCEPTED);
+                if (read == changed) {
+                    /* Someone's request was merged in and saved meanwhile */
+                    stored.get(read.getId().get()).addSynonym("Merged in");
+                }
+                return read;
+            }
+        }).when(githubApi).readPhenotype(any(Phenotype.class));
+        List<Phenotype> saved = recordSaves();
+        client.setSyncRate(1000);
+        client.syncPhenotypes();
+        assertFalse(saved.contains(changed));
+        assertTrue(saved.contains(unchanged));
+        List<PhenotypeEvent> events = client.getEventLog().getAfter(0);
+        assertEquals(1, events.size());
+        assertEquals(unchanged.getId().get(), events.get(0).getId());
+    }
+
+    /**
+     * Test that a published phenotype is served without asking github.
+     */
+    @Test
+    public void testGetByIdPublished() throws Exception
+    {
+        pt.setId(PT_ID);
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.PUBLISHED);
+        pt.setHpoId(PT_HPO_ID);
+        when(databaseService.getPhenotypeById(PT_ID)).thenReturn(pt);
+        assertEquals(pt, client.getPhenotypeById(PT_ID));
+        verify(githubApi, never()).readPhenotype(any(Phenotype.class));
+    }
+
+    /**
+     * Have the database hand back copies of the phenotypes given, as they are now, when asked for them by id.
+     * @param phenotypes the phenotypes
+     * @return the copies, by id, to change as if they'd been saved again
+     */
+    private Map<String, Phenotype> storeAsRead(Collection<Phenotype> phenotypes) throws Exception
+    {
+        final Map<String, Phenotype> stored = new ConcurrentHashMap<>();
+        for (Phenotype p : PhenotypeCodec.decode(PhenotypeCodec.encode(phenotypes, false))) {
+            stored.put(p.getId().get(), p);
+        }
+        when(databaseService.getPhenotypesById(anyCollectionOf(String.class))).thenAnswer(
+            new Answer<List<Phenotype>>() {
+                public List<Phenotype> answer(InvocationOnMock invocation) {
+                    List<Phenotype> found = new ArrayList<>();
+                    for (Object id : (Collection<?>) invocation.getArguments()[0]) {
+                        if (stored.containsKey(id)) {
+                            found.add(stored.get(id));
+                        }
+                    }
+                    return found;
+                }
+            });
+        return stored;
+    }
+
+    /**
+     * Record every phenotype saved in a batch by the database.
+     * @return the list the phenotypes will be added to
+     */
+    private List<Phenotype> recordSaves() throws Exception
+    {
+        final List<Phenotype> saved = new ArrayList<>();
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                synchronized (saved) {
+                    for (Object p : (Collection<?>) invocation.getArguments()[0]) {
+                        saved.add((Phenotype) p);
+                    }
+                }
+                return null;
+            }
+        }).when(databaseService).savePhenotypes(anyCollectionOf(Phenotype.class));
+        return saved;
+    }
 }
@@ -0,0 +1,242 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import org.phenotips.termrequester.util.Descriptions;
+
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.apache.commons.lang3.StringUtils;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the Phenotype class.
+ *
+ * @version $Id$
+ */
+public class PhenotypeTest
+{
+    /**
+     * Test that phenotypes sharing a name or synonym are equal, whatever the case.
+     */
+    @Test
+    public void testEqualsByName()
+    {
+        Phenotype pt1 = new Phenotype("big nose", "");
+        pt1.addAllSynonyms(Arrays.asList("Large Nose", "huge nose"));
+        Phenotype pt2 = new Phenotype("HUGE NOSE", "");
+        Phenotype pt3 = new Phenotype("Enormous nose", "");
+        pt3.addSynonym("LARGE nose");
+        Phenotype pt4 = new Phenotype("small nose", "");
+        pt4.addSynonym("tiny nose");
+        assertEquals(pt1, pt2);
+        assertEquals(pt2, pt1);
+        assertEquals(pt1, pt3);
+        assertNotEquals(pt2, pt3);
+        assertNotEquals(pt1, pt4);
+        assertNotEquals(pt4, pt1);
+        assertFalse(pt1.equals(Phenotype.NULL));
+        assertFalse(Phenotype.NULL.equals(pt1));
+    }
+
+    /**
+     * Test that changing the names is seen by equals after it's already been called.
+     */
+    @Test
+    public void testEqualsAfterChange()
+    {
+        Phenotype pt1 = new Phenotype("big nose", "");
+        Phenotype pt2 = new Phenotype("large nose", "");
+        assertNotEquals(pt1, pt2);
+        pt1.addSynonym("large nose");
+        assertEquals(pt1, pt2);
+        pt1.removeSynonym("large nose");
+        assertNotEquals(pt1, pt2);
+        pt2.addAllSynonyms(Arrays.asList("huge nose", "big nose"));
+        assertEquals(pt1, pt2);
+        pt1.setName("small nose");
+        assertNotEquals(pt1, pt2);
+        Phenotype pt3 = new Phenotype("huge nose", "");
+        pt1.mergeWith(pt3);
+        assertEquals(pt1, pt2);
+        pt1.replaceBy(new Phenotype("tiny nose", ""));
+        assertNotEquals(pt1, pt2);
+    }
+
+    /**
+     * Test that phenotypes with ids are compared by id alone.
+     */
+    @Test
+    public void testEqualsById()
+    {
+        Phenotype pt1 = new Phenotype("big nose", "");
+        pt1.setId("TEMPHPO_0000001");
+        Phenotype pt2 = new Phenotype("big nose", "");
+        pt2.setId("TEMPHPO_0000002");
+        Phenotype pt3 = new Phenotype("small nose", "");
+        pt3.setId("TEMPHPO_0000001");
+        assertNotEquals(pt1, pt2);
+        assertEquals(pt1, pt3);
+        assertTrue(pt1.equals(new Phenotype("big nose", "")));
+    }
+
+    /**
+     * Test that only the fields really changed are marked dirty, and that setClean clears them.
+     */
+    @Test
+    public void testDirtyFields()
+    {
+        Phenotype pt = new Phenotype("big nose", "a nose that is big");
+        assertTrue(pt.isDirty());
+        pt.setId("TEMPHPO_0000001");
+        pt.addSynonym("large nose");
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        pt.setIssueNumber("12");
+        pt.setClean();
+        assertFalse(pt.isDirty());
+        pt.setName("BIG NOSE");
+        pt.addSynonym("Large Nose");
+        pt.setStatus(Phenotype.Status.SUBMITTED);
+        pt.setDescription("a nose that is big");
+        pt.replaceBy(pt);
+        assertFalse(pt.isDirty());
+        pt.setStatus(Phenotype.Status.ACCEPTED);
+        pt.setHpoId("HP_0000001");
+        assertTrue(pt.isDirty());
+        assertEquals(Phenotype.STATUS_FIELD | Phenotype.HPO_ID_FIELD, pt.getDirtyFields());
+        pt.setClean();
+        pt.removeSynonym("large nose");
+        pt.addParentId("HP_0000002");
+        assertEquals(Phenotype.SYNONYMS_FIELD | Phenotype.PARENTS_FIELD, pt.getDirtyFields());
+        pt.setClean();
+        pt.replaceBy(new Phenotype("big nose", "a nose that is big"));
+        assertEquals(Phenotype.PARENTS_FIELD | Phenotype.STATUS_FIELD, pt.getDirtyFields());
+    }
+
+    /**
+     * Test that synonyms survive a round trip through JSON, and can't be changed behind the phenotype's back.
+     */
+    @Test
+    public void testSynonymsJson() throws IOException
+    {
+        Phenotype pt = new Phenotype("big nose", "");
+        pt.addAllSynonyms(Arrays.asList("large nose", "huge nose"));
+        ObjectMapper mapper = new ObjectMapper();
+        Phenotype read = mapper.readValue(mapper.writeValueAsString(pt), Phenotype.class);
+        assertEquals(pt.getSynonyms(), read.getSynonyms());
+        assertTrue(read.getSynonyms().contains("LARGE NOSE"));
+        assertEquals(pt, read);
+        try {
+            pt.getSynonyms().add("small nose");
+            fail("Synonyms modified through the getter");
+        } catch (UnsupportedOperationException e) {
+            /* Expected */
+        }
+    }
+
+    /**
+     * Test that ids, parents and times read back as they were set, however they're stored.
+     *
+     * @throws IOException on failure
+     */
+    @Test
+    public void testCompactFields() throws IOException
+    {
+        Phenotype pt = new Phenotype("big nose", "");
+        pt.setId("TEMPHPO_0000042");
+        pt.setHpoId("HP_0000001");
+        pt.addAllParentIds(Arrays.asList("HP_0000002", "TEMPHPO_0000007", "HP:0000003"));
+        pt.addParentId("HP_0000002");
+        Date created = new Date(1000);
+        pt.setTimeCreated(created);
+        created.setTime(2000);
+        assertEquals(new Date(1000), pt.getTimeCreated().get());
+        assertFalse(pt.getTimeModified().isPresent());
+        assertEquals("TEMPHPO_0000042", pt.getId().get());
+        assertEquals("HP_0000001", pt.getHpoId().get());
+        assertEquals(new HashSet<>(Arrays.asList("HP_0000002", "TEMPHPO_0000007", "HP:0000003")),
+                pt.getParentIds());
+        ObjectMapper mapper = new ObjectMapper();
+        Phenotype read = mapper.readValue(mapper.writeValueAsString(pt), Phenotype.class);
+        assertEquals(pt.getParentIds(), read.getParentIds());
+        assertEquals(pt.getHpoId(), read.getHpoId());
+        assertEquals(pt.getId(), read.getId());
+        pt.setId("not one of ours");
+        assertEquals("not one of ours", pt.getId().get());
+        assertFalse(pt.equals(read));
+    }
+
+    /**
+     * Test that merging the same phenotype over and over doesn't keep growing its description.
+     */
+    @Test
+    public void testMergeDescriptions()
+    {
+        Phenotype pt = new Phenotype("big nose", "The nose is big.");
+        pt.setId("TEMPHPO_0000001");
+        Phenotype other = new Phenotype("large nose", "The nose is large.");
+        pt.mergeWith(other);
+        String merged = pt.getDescription();
+        assertEquals(Arrays.asList("The nose is big.", "The nose is large."), pt.getDescriptions());
+        pt.setClean();
+        for (int i = 0; i < 100; i++) {
+            pt.mergeWith(other);
+        }
+        assertEquals(merged, pt.getDescription());
+        assertEquals(0, pt.getDirtyFields() & Phenotype.DESCRIPTION_FIELD);
+    }
+
+    /**
+     * Test that merging keeps every contribution as it was written, even a long first one.
+     */
+    @Test
+    public void testMergeVerbatimDescriptions()
+    {
+        String first = "Fusion of digits 2|3\n\nsee also X";
+        Phenotype pt = new Phenotype("fused digits", first);
+        pt.mergeWith(new Phenotype("fused fingers", "Extra."));
+        assertEquals(Arrays.asList(first, "Extra."), pt.getDescriptions());
+        assertEquals(first + " | Extra.", pt.getDescription());
+        pt.mergeWith(new Phenotype("fused toes", "Extra. | More."));
+        assertEquals(Arrays.asList(first, "Extra.", "Extra. | More."), pt.getDescriptions());
+        Phenotype copy = new Phenotype("other", "");
+        copy.replaceBy(pt);
+        assertEquals(pt.getDescriptions(), copy.getDescriptions());
+
+        String longOne = StringUtils.repeat('x', Descriptions.MAX_LENGTH + 500);
+        Phenotype empty = new Phenotype("long nose", "");
+        empty.mergeWith(new Phenotype("longer nose", longOne));
+        assertEquals(longOne, empty.getDescription());
+        empty = new Phenotype("long nose", null);
+        empty.mergeWith(new Phenotype("longer nose", longOne));
+        assertEquals(longOne, empty.getDescription());
+    }
+}
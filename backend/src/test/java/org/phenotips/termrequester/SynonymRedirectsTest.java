@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the SynonymRedirects class.
+ *
+ * @version $Id$
+ */
+public class SynonymRedirectsTest
+{
+    /**
+     * The component under test.
+     */
+    private SynonymRedirects redirects;
+
+    /**
+     * Set up a test.
+     */
+    @Before
+    public void setUp()
+    {
+        redirects = new SynonymRedirects();
+    }
+
+    /**
+     * Test resolving an id with no redirect, and with one.
+     */
+    @Test
+    public void testResolve()
+    {
+        assertEquals("TEMPHPO_0000001", redirects.resolve("TEMPHPO_0000001"));
+        redirects.put("TEMPHPO_0000001", "HP_0000001");
+        assertEquals("HP_0000001", redirects.resolve("TEMPHPO_0000001"));
+        assertEquals("HP_0000001", redirects.resolve("HP_0000001"));
+    }
+
+    /**
+     * Test following a chain of redirects.
+     */
+    @Test
+    public void testChain()
+    {
+        redirects.put("TEMPHPO_0000001", "HP_0000001");
+        redirects.put("HP_0000001", "HP_0000002");
+        redirects.put("HP_0000002", "HP_0000003");
+        assertEquals("HP_0000003", redirects.resolve("TEMPHPO_0000001"));
+        assertEquals("HP_0000003", redirects.resolve("HP_0000002"));
+    }
+
+    /**
+     * Test that a cycle of redirects doesn't loop forever.
+     */
+    @Test(timeout = 5000)
+    public void testCycle()
+    {
+        redirects.put("TEMPHPO_0000001", "HP_0000001");
+        redirects.put("HP_0000001", "HP_0000002");
+        redirects.put("HP_0000002", "HP_0000001");
+        assertEquals("HP_0000002", redirects.resolve("TEMPHPO_0000001"));
+        redirects.put("TEMPHPO_0000002", "TEMPHPO_0000002");
+        assertEquals("TEMPHPO_0000002", redirects.resolve("TEMPHPO_0000002"));
+    }
+
+    /**
+     * Test resolving a list of ids in bulk.
+     */
+    @Test
+    public void testResolveAll()
+    {
+        redirects.put("TEMPHPO_0000001", "HP_0000001");
+        redirects.put("TEMPHPO_0000002", "HP_0000001");
+        Map<String, String> resolved = redirects.resolveAll(Arrays.asList("TEMPHPO_0000003", "TEMPHPO_0000001",
+                    "TEMPHPO_0000002", "TEMPHPO_0000001"));
+        assertEquals(3, resolved.size());
+        Iterator<Map.Entry<String, String>> it = resolved.entrySet().iterator();
+        Map.Entry<String, String> entry = it.next();
+        assertEquals("TEMPHPO_0000003", entry.getKey());
+        assertEquals("TEMPHPO_0000003", entry.getValue());
+        entry = it.next();
+        assertEquals("TEMPHPO_0000001", entry.getKey());
+        assertEquals("HP_0000001", entry.getValue());
+        entry = it.next();
+        assertEquals("TEMPHPO_0000002", entry.getKey());
+        assertEquals("HP_0000001", entry.getValue());
+        redirects.clear();
+        assertTrue(redirects.resolveAll(Arrays.asList("TEMPHPO_0000001")).containsValue("TEMPHPO_0000001"));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.cache;
+
+import org.phenotips.termrequester.HPOPhenotype;
+import org.phenotips.termrequester.Phenotype;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests every phenotype cache must pass.
+ *
+ * @version $Id$
+ */
+public abstract class AbstractPhenotypeCacheTest
+{
+    /**
+     * The cache under test.
+     */
+    protected PhenotypeCache cache;
+
+    /**
+     * Create the cache to test.
+     *
+     * @return the cache
+     */
+    protected abstract PhenotypeCache createCache();
+
+    /**
+     * Set up the cache.
+     */
+    @Before
+    public void setUpCache()
+    {
+        cache = createCache();
+    }
+
+    /**
+     * Test that phenotypes come back as they were put, as fresh copies.
+     */
+    @Test
+    public void testPutAndGet()
+    {
+        Phenotype pt = new HPOPhenotype("big nose", "The nose is big.");
+        pt.setId("TEMPHPO_0000042");
+        pt.setHpoId("HP_0000001");
+        pt.setStatus(Phenotype.Status.ACCEPTED);
+        pt.addAllSynonyms(Arrays.asList("large nose", "huge nose"));
+        pt.addParentId("HP_0000002");
+        pt.setClean();
+        cache.put(pt);
+        Phenotype read = cache.get("TEMPHPO_0000042").get();
+        assertNotSame(pt, read);
+        assertEquals(HPOPhenotype.class, read.getClass());
+        assertEquals(pt.getVersion(), read.getVersion());
+        assertFalse(read.isDirty());
+        read.setName("small nose");
+        assertEquals("Big Nose", cache.get("TEMPHPO_0000042").get().getName());
+        assertFalse(cache.get("TEMPHPO_0000043").isPresent());
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test replacing and removing phenotypes, including ones whose ids don't encode.
+     */
+    @Test
+    public void testReplaceAndRemove()
+    {
+        for (String id : new String[] { "TEMPHPO_0000001", "not one of ours" }) {
+            Phenotype pt = new Phenotype("big nose", "");
+            pt.setId(id);
+            cache.put(pt);
+            pt.setDescription("Changed.");
+            cache.put(pt);
+            assertEquals("Changed.", cache.get(id).get().getDescription());
+        }
+        assertEquals(2, cache.size());
+        assertTrue(cache.remove("not one of ours"));
+        assertFalse(cache.remove("not one of ours"));
+        assertFalse(cache.get("not one of ours").isPresent());
+        assertTrue(cache.get("TEMPHPO_0000001").isPresent());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(cache.get("TEMPHPO_0000001").isPresent());
+    }
+
+    /**
+     * Test that phenotypes without an id are refused.
+     */
+    @Test
+    public void testPutWithoutId()
+    {
+        try {
+            cache.put(new Phenotype("big nose", ""));
+            fail("Cached a phenotype without an id");
+        } catch (IllegalArgumentException e) {
+            /* Expected */
+        }
+    }
+}
@@ -15,18 +15,18 @@
  * You should have received a copy of the GNU Affero General Public License
  * along with this program.  If not, see http://www.gnu.org/licenses/
  */
-package org.phenotips.termrequester.rest.resources.annotations;
-
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-
-import com.google.inject.BindingAnnotation;
+package org.phenotips.termrequester.cache;
 
 /**
- * The OAuth token to use for github access.
+ * Tests the HeapPhenotypeCache class.
  *
  * @version $Id$
  */
-@Retention(RetentionPolicy.RUNTIME)
-@BindingAnnotation
-public @interface OwnResources { }
+public class HeapPhenotypeCacheTest extends AbstractPhenotypeCacheTest
+{
+    @Override
+    protected PhenotypeCache createCache()
+    {
+        return new HeapPhenotypeCache();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.cache;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.PhenotypeCodec;
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the OffHeapPhenotypeCache class.
+ *
+ * @version $Id$
+ */
+public class OffHeapPhenotypeCacheTest extends AbstractPhenotypeCacheTest
+{
+    /**
+     * A segment size small enough that the tests fill several segments and compact them.
+     */
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Override
+    protected PhenotypeCache createCache()
+    {
+        return new OffHeapPhenotypeCache(SEGMENT_SIZE);
+    }
+
+    /**
+     * Test random puts and removes against a map, so the index grows, deletes out of the middle of runs, and the
+     * segments get compacted.
+     */
+    @Test
+    public void testAgainstMap()
+    {
+        Random random = new Random(48);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            /* Few enough ids that they collide and get replaced and removed often */
+            String id;
+            if (random.nextInt(50) == 0) {
+                id = "other " + random.nextInt(20);
+            } else {
+                id = String.format(IdUtils.ID_FORMAT, random.nextInt(3000));
+            }
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, cache.remove(id));
+            } else {
+                Phenotype pt = new Phenotype("Nose " + i, "");
+                pt.setId(id);
+                cache.put(pt);
+                expected.put(id, pt.getName());
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), cache.get(entry.getKey()).get().getName());
+        }
+        for (int i = 0; i < 3000; i++) {
+            String id = String.format(IdUtils.ID_FORMAT, i);
+            assertEquals(expected.containsKey(id), cache.get(id).isPresent());
+        }
+        /* Compaction keeps what's used to within about twice what's live, plus a segment */
+        long live = 0;
+        for (String id : expected.keySet()) {
+            live += 4 + PhenotypeCodec.encode(cache.get(id).get()).length;
+        }
+        assertTrue(((OffHeapPhenotypeCache) cache).getUsedBytes() <= 2 * live + SEGMENT_SIZE);
+    }
+}
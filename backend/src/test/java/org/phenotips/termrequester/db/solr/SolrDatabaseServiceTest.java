@@ -18,15 +18,25 @@
 package org.phenotips.termrequester.db.solr;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
@@ -34,6 +44,7 @@
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.core.CoreContainer;
 
 import org.junit.After;
@@ -44,9 +55,12 @@
 import org.junit.rules.TemporaryFolder;
 
 import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.PhenotypeVersion;
+import org.phenotips.termrequester.SearchResults;
 import org.phenotips.termrequester.TermRequesterBackendModule;
 import org.phenotips.termrequester.db.DatabaseService;
 
+import com.google.common.base.Optional;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
@@ -55,6 +69,7 @@
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Test the SolrDatabaseService class.
@@ -160,7 +175,7 @@ public void testCreate() throws IOException, SolrServerException
         SolrDocument doc = results.get(0);
         assertEquals(result.getId().get(), doc.getFieldValue(Schema.ID));
         assertEquals(result.getName(), doc.getFieldValue(Schema.NAME));
-        assertEquals(result.getDescription(), doc.getFieldValue(Schema.DEFINITION));
+        assertEquals(result.getDescription(), doc.getFirstValue(Schema.DEFINITION));
     }
 
     /**
@@ -232,6 +247,7 @@ public void testGetById() throws IOException
         Phenotype pt = new Phenotype(PT_NAME, PT_DESC);
         pt.addSynonym("synone");
         pt.addSynonym("syntwo");
+        pt.setTimeVerified(new Date());
         client.savePhenotype(pt);
         Phenotype result = client.getPhenotypeById(pt.getId().get());
         assertEquals(pt.getId().get(), result.getId().get());
@@ -239,11 +255,30 @@ public void testGetById() throws IOException
         assertEquals(pt.getDescription(), result.getDescription());
         assertEquals(pt.getTimeCreated(), result.getTimeCreated());
         assertEquals(pt.getTimeModified(), result.getTimeModified());
+        assertEquals(pt.getTimeVerified(), result.getTimeVerified());
         assertEquals(pt.getSynonyms(), result.getSynonyms());
         result = client.getPhenotypeById("imaginary");
         assertEquals(Phenotype.NULL, result);
     }
 
+    /**
+     * Test that the separate contributions to a description are stored as they are.
+     */
+    @Test
+    public void testDescriptions() throws IOException, SolrServerException
+    {
+        Phenotype pt = new Phenotype(PT_NAME, "Fusion of digits 2|3\n\nsee also X");
+        pt.mergeWith(new Phenotype("fused fingers", "Extra. | More."));
+        client.savePhenotype(pt);
+        Phenotype result = client.getPhenotypeById(pt.getId().get());
+        assertEquals(pt.getDescriptions(), result.getDescriptions());
+        assertEquals(pt.getDescription(), result.getDescription());
+        assertFalse(result.isDirty());
+        startUpSolr();
+        SolrDocument doc = solr.getById(pt.getId().get());
+        assertEquals(new ArrayList<Object>(pt.getDescriptions()), doc.getFieldValues(Schema.DEFINITION));
+    }
+
     /**
      * Test the deletePhenotype method.
      */
@@ -376,6 +411,47 @@ public void testSearch() throws IOException
         assertSetEquals(results);
     }
 
+    /**
+     * Test paging through search results by cursor and by offset.
+     */
+    @Test
+    public void testSearchPaged() throws IOException
+    {
+        List<Phenotype> all = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            Phenotype pt = new Phenotype(PT_NAME + " " + i, PT_DESC);
+            client.savePhenotype(pt);
+            all.add(pt);
+        }
+        client.savePhenotype(new Phenotype("unrelated", "nothing"));
+        client.commit();
+        /* The first page has more to it than solr's default would give */
+        assertEquals(11, client.searchPhenotypes(PT_NAME, 0, 20, Optional.<String>absent()).getPhenotypes().size());
+        List<Phenotype> read = new ArrayList<>();
+        Optional<String> cursor = Optional.absent();
+        do {
+            SearchResults page = client.searchPhenotypes(PT_NAME, 0, 4, cursor);
+            assertEquals(all.size(), page.getTotal());
+            assertTrue(page.getPhenotypes().size() <= 4);
+            read.addAll(page.getPhenotypes());
+            cursor = page.getNextCursor();
+        } while (cursor.isPresent());
+        assertEquals(all.size(), read.size());
+        assertSetEquals(read, all.toArray(new Phenotype[all.size()]));
+        SearchResults last = client.searchPhenotypes(PT_NAME, 8, 4, Optional.<String>absent());
+        assertEquals(3, last.getPhenotypes().size());
+        assertFalse(last.getNextCursor().isPresent());
+    }
+
+    /**
+     * Test that a malformed search cursor is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSearchMalformedCursor() throws IOException
+    {
+        client.searchPhenotypes(PT_NAME, 0, 4, Optional.of("not a cursor"));
+    }
+
     /**
      * Test the getByHpoId method.
      */
@@ -391,6 +467,331 @@ public void testGetByHpoId() throws IOException
         assertEquals(pt1, result);
         assertEquals(Phenotype.Status.ACCEPTED, result.getStatus());
         assertEquals(PT_HPO_ID, result.getHpoId().get());
+        pt1.setStatus(Phenotype.Status.PUBLISHED);
+        client.savePhenotype(pt1);
+        result = client.getPhenotypeByHpoId(PT_HPO_ID);
+        assertEquals(Phenotype.Status.PUBLISHED, result.getStatus());
+    }
+
+    /**
+     * Test saving phenotypes in a batch and reading them back a page at a time.
+     */
+    @Test
+    public void testSavePhenotypesPaged() throws IOException
+    {
+        List<Phenotype> submitted = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Phenotype pt = new Phenotype(PT_NAME + " " + i, PT_DESC);
+            pt.setStatus(Phenotype.Status.SUBMITTED);
+            pt.setIssueNumber(Integer.toString(i));
+            submitted.add(pt);
+        }
+        Phenotype accepted = new Phenotype(PT_NAME + " accepted", PT_DESC);
+        accepted.setStatus(Phenotype.Status.ACCEPTED);
+        accepted.setIssueNumber(PT_NUM);
+        List<Phenotype> all = new ArrayList<>(submitted);
+        all.add(accepted);
+        client.savePhenotypes(all);
+        for (Phenotype pt : all) {
+            assertTrue(pt.getId().isPresent());
+            assertFalse(pt.isDirty());
+        }
+        List<Phenotype> read = new ArrayList<>();
+        Optional<String> after = Optional.absent();
+        List<Phenotype> page;
+        do {
+            page = client.getPhenotypesByStatus(Phenotype.Status.SUBMITTED, after, 3);
+            assertTrue(page.size() <= 3);
+            read.addAll(page);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 3);
+        assertEquals(submitted.size(), read.size());
+        assertSetEquals(read, submitted.toArray(new Phenotype[submitted.size()]));
+        /* Saving the batch again should update, not duplicate */
+        submitted.get(0).setDescription("changed");
+        client.savePhenotypes(submitted);
+        assertEquals("changed", client.getPhenotypeById(submitted.get(0).getId().get()).getDescription());
+        assertEquals(submitted.size(), client.getPhenotypesByStatus(Phenotype.Status.SUBMITTED).size());
+    }
+
+    /**
+     * Test paging through the phenotypes changed since a time, and carrying on from the last one seen.
+     */
+    @Test
+    public void testGetPhenotypesModifiedSince() throws IOException
+    {
+        Date start = new Date(0);
+        List<Phenotype> all = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Phenotype pt = new Phenotype(PT_NAME + " " + i, PT_DESC);
+            pt.setStatus(Phenotype.Status.SUBMITTED);
+            pt.setIssueNumber(Integer.toString(i));
+            all.add(pt);
+        }
+        client.savePhenotypes(all);
+        client.commit();
+        List<Phenotype> read = new ArrayList<>();
+        Date since = start;
+        Optional<String> after = Optional.absent();
+        List<Phenotype> page;
+        do {
+            page = client.getPhenotypesModifiedSince(since, after, 3);
+            assertTrue(page.size() <= 3);
+            for (Phenotype pt : page) {
+                Date modified = pt.getTimeModified().get();
+                assertFalse(modified.before(since));
+                read.add(pt);
+                since = modified;
+                after = pt.getId();
+            }
+        } while (page.size() == 3);
+        assertEquals(all.size(), read.size());
+        assertSetEquals(read, all.toArray(new Phenotype[all.size()]));
+        /* Nothing new since the last one */
+        assertTrue(client.getPhenotypesModifiedSince(since, after, 3).isEmpty());
+        /* A change moves the phenotype to the end */
+        Phenotype changed = all.get(0);
+        changed.setDescription("changed");
+        client.savePhenotype(changed);
+        client.commit();
+        page = client.getPhenotypesModifiedSince(since, after, 3);
+        assertEquals(1, page.size());
+        assertEquals(changed.getId(), page.get(0).getId());
+        assertEquals("changed", page.get(0).getDescription());
+        assertEquals(all.size(), client.getPhenotypesModifiedSince(start, Optional.<String>absent(), 10).size());
+    }
+
+    /**
+     * Test that a client following the changes can't get past a change that was stamped before the ones it
+     * has seen but isn't visible yet, with one writer held up between stamping its phenotype and adding it
+     * while another saves and commits.
+     */
+    @Test
+    public void testGetPhenotypesModifiedSinceInterleaved() throws Exception
+    {
+        final Phenotype slow = new Phenotype(PT_NAME + " slow", PT_DESC);
+        final Phenotype fast = new Phenotype(PT_NAME + " fast", PT_DESC);
+        final CountDownLatch stamped = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SolrDatabaseService db = new SolrDatabaseService(new SolrMapper() {
+            @Override
+            public SolrInputDocument toDoc(Phenotype pt, Date now)
+            {
+                SolrInputDocument doc = super.toDoc(pt, now);
+                if (slow.getName().equals(pt.getName())) {
+                    stamped.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return doc;
+            }
+        });
+        db.init(folder.newFolder().toPath());
+        db.setAutocommit(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Phenotype> slowSave = executor.submit(new Callable<Phenotype>() {
+                @Override
+                public Phenotype call() throws IOException
+                {
+                    return db.savePhenotype(slow);
+                }
+            });
+            assertTrue(stamped.await(10, TimeUnit.SECONDS));
+            Future<Phenotype> fastSave = executor.submit(new Callable<Phenotype>() {
+                @Override
+                public Phenotype call() throws IOException
+                {
+                    return db.savePhenotype(fast);
+                }
+            });
+            try {
+                fastSave.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                /* Held up behind the slow one, as it should be */
+            }
+            Set<String> seen = new HashSet<>();
+            Date since = new Date(0);
+            Optional<String> after = Optional.absent();
+            for (Phenotype pt : db.getPhenotypesModifiedSince(since, after, 10)) {
+                seen.add(pt.getName());
+                since = pt.getTimeModified().get();
+                after = pt.getId();
+            }
+            release.countDown();
+            slowSave.get(10, TimeUnit.SECONDS);
+            fastSave.get(10, TimeUnit.SECONDS);
+            for (Phenotype pt : db.getPhenotypesModifiedSince(since, after, 10)) {
+                seen.add(pt.getName());
+            }
+            assertEquals(new HashSet<>(Arrays.asList(slow.getName(), fast.getName())), seen);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            db.shutdown();
+        }
+    }
+
+    /**
+     * Test that a core built before the modification time had doc values is reindexed on startup, so that
+     * sorting the changes on it uses them, keeping the times it had.
+     */
+    @Test
+    public void testReindexOldCore() throws Exception
+    {
+        client.shutdown();
+        Path schema = folder.getRoot().toPath().resolve("solr").resolve(SolrDatabaseService.CORE_NAME)
+            .resolve("conf").resolve("schema.xml");
+        String current = new String(Files.readAllBytes(schema), StandardCharsets.UTF_8);
+        String old = current.replaceAll("(name=\"time_modified\"[^>]*) docValues=\"true\"", "$1");
+        assertNotEquals(current, old);
+        Files.write(schema, old.getBytes(StandardCharsets.UTF_8));
+        startUpSolr();
+        SolrMapper mapper = new SolrMapper();
+        Date modified = new Date(1000000L);
+        List<Phenotype> all = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Phenotype pt = new Phenotype(PT_NAME + " " + i, PT_DESC);
+            pt.setId("TEMPHPO_000000" + (i + 1));
+            solr.add(mapper.toDoc(pt, new Date(modified.getTime() + i)));
+            all.add(pt);
+        }
+        solr.commit();
+        assertTrue(SolrDatabaseService.needsReindex(cores));
+        cores.shutdown();
+        cores = null;
+
+        client.init(folder.getRoot().toPath());
+        List<Phenotype> changes = client.getPhenotypesModifiedSince(new Date(0), Optional.<String>absent(), 10);
+        assertEquals(3, changes.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(all.get(i).getName(), changes.get(i).getName());
+            assertEquals(new Date(modified.getTime() + i), changes.get(i).getTimeModified().get());
+        }
+        assertEquals(3, client.searchPhenotypes(PT_NAME).size());
+        startUpSolr();
+        assertFalse(SolrDatabaseService.needsReindex(cores));
+    }
+
+    /**
+     * Test getting many phenotypes by id and hpo id at once.
+     */
+    @Test
+    public void testGetByIds() throws IOException
+    {
+        Phenotype pt1 = new Phenotype(PT_NAME, PT_DESC);
+        Phenotype pt2 = new Phenotype("other", PT_DESC);
+        Phenotype pt3 = new Phenotype("synonym", PT_DESC);
+        pt1.setIssueNumber(PT_NUM);
+        pt1.setStatus(Phenotype.Status.ACCEPTED);
+        pt1.setHpoId(PT_HPO_ID);
+        pt2.setIssueNumber(PT_NUM + "1");
+        pt2.setStatus(Phenotype.Status.PUBLISHED);
+        pt2.setHpoId("HP_0000002");
+        pt3.setIssueNumber(PT_NUM + "2");
+        pt3.setStatus(Phenotype.Status.SYNONYM);
+        pt3.setHpoId(PT_HPO_ID);
+        client.savePhenotypes(Arrays.asList(pt1, pt2, pt3));
+        List<Phenotype> results = client.getPhenotypesById(Arrays.asList(pt1.getId().get(), pt3.getId().get(),
+                    "TEMPHPO_9999999"));
+        assertSetEquals(results, pt1, pt3);
+        results = client.getPhenotypesByHpoId(Arrays.asList(PT_HPO_ID, "HP_0000002", "HP_9999999"));
+        assertSetEquals(results, pt1, pt2);
+        assertTrue(client.getPhenotypesById(new ArrayList<String>()).isEmpty());
+        assertTrue(client.getPhenotypesByHpoId(new ArrayList<String>()).isEmpty());
+    }
+
+    /**
+     * Test getting just the version of a phenotype, and that only changes clients can see move its
+     * modification time.
+     */
+    @Test
+    public void testGetPhenotypeVersion() throws IOException, InterruptedException
+    {
+        Phenotype pt = new Phenotype(PT_NAME, PT_DESC);
+        client.savePhenotype(pt);
+        String id = pt.getId().get();
+        PhenotypeVersion version = client.getPhenotypeVersion(id).get();
+        assertEquals(id, version.getId());
+        assertEquals(pt.getVersion(), version.getVersion());
+        assertEquals(pt.getTimeModified().get(), version.getTimeModified());
+        assertEquals(Phenotype.Status.UNSUBMITTED, version.getStatus());
+        assertFalse(version.hasIssue());
+        assertFalse(version.getTimeVerified().isPresent());
+        assertFalse(client.getPhenotypeVersion("TEMPHPO_9999999").isPresent());
+
+        Date modified = pt.getTimeModified().get();
+        Thread.sleep(10);
+        pt.setTimeVerified(new Date());
+        client.savePhenotype(pt);
+        version = client.getPhenotypeVersion(id).get();
+        assertEquals(modified, version.getTimeModified());
+        assertEquals(pt.getTimeVerified().get(), version.getTimeVerified().get());
+
+        Thread.sleep(10);
+        pt.setDescription("changed");
+        pt.setIssueNumber(PT_NUM);
+        pt.setStatus(Phenotype.Status.ACCEPTED);
+        pt.setHpoId(PT_HPO_ID);
+        client.savePhenotype(pt);
+        version = client.getPhenotypeVersion(PT_HPO_ID).get();
+        assertEquals(id, version.getId());
+        assertEquals(pt.getVersion(), version.getVersion());
+        assertTrue(version.getTimeModified().after(modified));
+        assertTrue(version.hasIssue());
+
+        pt.setStatus(Phenotype.Status.SYNONYM);
+        client.savePhenotype(pt);
+        assertFalse(client.getPhenotypeVersion(id).isPresent());
+        assertFalse(client.getPhenotypeVersion(PT_HPO_ID).isPresent());
+    }
+
+    /**
+     * Test saving a batch of new and existing phenotypes, and that only the existing ones clients can tell
+     * have changed get a new modification time.
+     */
+    @Test
+    public void testSavePhenotypesExisting() throws IOException, InterruptedException
+    {
+        Phenotype changed = new Phenotype(PT_NAME, PT_DESC);
+        Phenotype verified = new Phenotype(PT_NAME + " verified", PT_DESC);
+        client.savePhenotypes(Arrays.asList(changed, verified));
+        Date created = changed.getTimeCreated().get();
+        Date modified = verified.getTimeModified().get();
+
+        Thread.sleep(10);
+        changed.setStatus(Phenotype.Status.SUBMITTED);
+        changed.setIssueNumber(PT_NUM);
+        verified.setTimeVerified(new Date());
+        Phenotype added = new Phenotype(PT_NAME + " added", PT_DESC);
+        client.savePhenotypes(Arrays.asList(changed, verified, added));
+        assertFalse(changed.isDirty());
+        assertFalse(verified.isDirty());
+        assertTrue(added.getId().isPresent());
+        assertEquals(created, changed.getTimeCreated().get());
+        assertTrue(changed.getTimeModified().get().after(modified));
+        assertEquals(modified, verified.getTimeModified().get());
+
+        Phenotype read = client.getPhenotypeById(changed.getId().get());
+        assertEquals(Phenotype.Status.SUBMITTED, read.getStatus());
+        assertEquals(PT_NUM, read.getIssueNumber().get());
+        assertEquals(changed.getTimeModified(), read.getTimeModified());
+        assertEquals(modified, client.getPhenotypeById(verified.getId().get()).getTimeModified().get());
+        assertEquals(read, client.getPhenotypeByIssueNumber(PT_NUM));
+
+        Phenotype missing = new Phenotype(PT_NAME + " missing", PT_DESC);
+        missing.setId("TEMPHPO_9999999");
+        try {
+            client.savePhenotypes(Arrays.asList(missing));
+            fail("Saved over a phenotype that doesn't exist");
+        } catch (IllegalStateException e) {
+            /* Expected */
+        }
     }
 
     private void assertSetEquals(Collection<Phenotype> results, Phenotype... expected)
@@ -0,0 +1,275 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+
+/**
+ * A local GithubAPI stand-in whose faults can be switched on and off: it can time out, fail on github's end,
+ * turn the request down, be slow (by advancing a fake ticker), or hang until released. It can also run an
+ * action in the middle of a call, to have other things happen while that call is in flight.
+ *
+ * @version $Id$
+ */
+public class FaultyGithubAPI implements GithubAPI
+{
+    /**
+     * The kinds of behaviour available.
+     */
+    public enum Fault {
+        /**
+         * Work normally.
+         */
+        NONE,
+        /**
+         * Time out, as a socket would.
+         */
+        TIMEOUT,
+        /**
+         * Fail with a server error.
+         */
+        ERROR,
+        /**
+         * Fail with a client error, as when the issue doesn't exist.
+         */
+        REJECTED,
+        /**
+         * Fail with an unexpected exception.
+         */
+        CRASH,
+        /**
+         * Work, but take a long time about it.
+         */
+        SLOW,
+        /**
+         * Block until released.
+         */
+        HANG
+    }
+
+    /**
+     * The ticker to advance on slow calls.
+     */
+    private final ManualTicker ticker;
+
+    /**
+     * How long slow calls take, in milliseconds.
+     */
+    private final long slowness;
+
+    /**
+     * The number of calls that made it here.
+     */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /**
+     * Released when hanging calls should return.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * Counted down whenever a call starts hanging.
+     */
+    private volatile CountDownLatch hanging = new CountDownLatch(0);
+
+    /**
+     * The current fault.
+     */
+    private volatile Fault fault = Fault.NONE;
+
+    /**
+     * The action for the next call to run, if any.
+     */
+    private final AtomicReference<Callable<?>> during = new AtomicReference<>();
+
+    /**
+     * CTOR.
+     * @param ticker the ticker to advance on slow calls
+     * @param slowness how long slow calls take, in milliseconds
+     */
+    public FaultyGithubAPI(ManualTicker ticker, long slowness)
+    {
+        this.ticker = ticker;
+        this.slowness = slowness;
+    }
+
+    /**
+     * Set the fault to inject from now on.
+     * @param fault the fault
+     */
+    public void setFault(Fault fault)
+    {
+        this.fault = fault;
+    }
+
+    /**
+     * Have the next call run the action given before injecting the fault that's current by then.
+     * @param action the action
+     */
+    public void setDuring(Callable<?> action)
+    {
+        during.set(action);
+    }
+
+    /**
+     * Expect a number of calls to hang.
+     * @param count how many
+     * @return a latch that will reach zero once that many calls are hanging
+     */
+    public CountDownLatch expectHanging(int count)
+    {
+        hanging = new CountDownLatch(count);
+        return hanging;
+    }
+
+    /**
+     * Let every hanging call return.
+     */
+    public void release()
+    {
+        release.countDown();
+    }
+
+    /**
+     * Get the number of calls that made it here.
+     * @return the number of calls
+     */
+    public int getCalls()
+    {
+        return calls.get();
+    }
+
+    @Override
+    public Phenotype readPhenotype(Phenotype phenotype) throws IOException, GithubException
+    {
+        misbehave();
+        phenotype.setStatus(Phenotype.Status.ACCEPTED);
+        return phenotype;
+    }
+
+    @Override
+    public void openIssue(Phenotype phenotype) throws IOException, GithubException
+    {
+        misbehave();
+        phenotype.setIssueNumber(Integer.toString(calls.get()));
+        phenotype.setStatus(Phenotype.Status.SUBMITTED);
+    }
+
+    @Override
+    public void patchIssue(Phenotype phenotype) throws IOException, GithubException
+    {
+        misbehave();
+    }
+
+    @Override
+    public Optional<String> searchForIssue(Phenotype phenotype) throws IOException, GithubException
+    {
+        misbehave();
+        return phenotype.getIssueNumber();
+    }
+
+    @Override
+    public Repository getRepository()
+    {
+        return new Repository("owner", "repo", "token");
+    }
+
+    /**
+     * Inject the current fault.
+     * @throws IOException on a timeout
+     * @throws GithubException on an error
+     */
+    private void misbehave() throws IOException, GithubException
+    {
+        calls.incrementAndGet();
+        Callable<?> action = during.getAndSet(null);
+        if (action != null) {
+            try {
+                action.call();
+            } catch (IOException | GithubException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+        switch (fault) {
+            case TIMEOUT:
+                throw new SocketTimeoutException("Read timed out");
+            case ERROR:
+                throw new GithubException("Response code 502 was not in [200]", 502);
+            case REJECTED:
+                throw new GithubException("Response code 404 was not in [200]", 404);
+            case CRASH:
+                throw new IllegalStateException("Unexpected response");
+            case SLOW:
+                ticker.advance(slowness);
+                break;
+            case HANG:
+                hanging.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * A ticker that only moves when told to.
+     *
+     * @version $Id$
+     */
+    public static final class ManualTicker extends Ticker
+    {
+        /**
+         * The current time, in nanoseconds.
+         */
+        private final AtomicLong nanos = new AtomicLong();
+
+        /**
+         * Move the time forward.
+         * @param millis by how many milliseconds
+         */
+        public void advance(long millis)
+        {
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        @Override
+        public long read()
+        {
+            return nanos.get();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test the GuardedGithubAPI class against a fault-injecting github.
+ *
+ * @version $Id$
+ */
+public class GuardedGithubAPITest
+{
+    /**
+     * The maximum number of concurrent calls.
+     */
+    private static final int MAX_CALLS = 2;
+
+    /**
+     * The number of failures that opens the circuit.
+     */
+    private static final int THRESHOLD = 3;
+
+    /**
+     * The slow call threshold, in milliseconds.
+     */
+    private static final long SLOW = 1000;
+
+    /**
+     * How long the circuit stays open, in milliseconds.
+     */
+    private static final long OPEN = 10000;
+
+    /**
+     * The time source.
+     */
+    private FaultyGithubAPI.ManualTicker ticker;
+
+    /**
+     * The faulty github.
+     */
+    private FaultyGithubAPI github;
+
+    /**
+     * The component under test.
+     */
+    private GuardedGithubAPI client;
+
+    /**
+     * The phenotype to read.
+     */
+    private Phenotype pt;
+
+    /**
+     * Set up the test case.
+     */
+    @Before
+    public void setUp()
+    {
+        ticker = new FaultyGithubAPI.ManualTicker();
+        github = new FaultyGithubAPI(ticker, SLOW * 2);
+        client = new GuardedGithubAPI(github, MAX_CALLS, 50, THRESHOLD, SLOW, OPEN, ticker);
+        pt = new Phenotype("Guarded", "Phenotype");
+        pt.setIssueNumber("1");
+    }
+
+    /**
+     * Test that calls go through when github behaves.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testPassesThrough() throws Exception
+    {
+        client.readPhenotype(pt);
+        assertEquals(Phenotype.Status.ACCEPTED, pt.getStatus());
+        assertEquals(Optional.of("1"), client.searchForIssue(pt));
+        assertEquals(GuardedGithubAPI.State.CLOSED, client.getState());
+        assertEquals(2, github.getCalls());
+    }
+
+    /**
+     * Test that timeouts are reported as unavailability and open the circuit.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testTimeoutsOpenCircuit() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.TIMEOUT);
+        for (int i = 0; i < THRESHOLD; i++) {
+            assertUnavailable();
+        }
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+        github.setFault(FaultyGithubAPI.Fault.NONE);
+        assertUnavailable();
+        assertEquals(THRESHOLD, github.getCalls());
+    }
+
+    /**
+     * Test that server errors on github's end are passed on as they are, but still open the circuit.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testErrorsOpenCircuit() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.ERROR);
+        for (int i = 0; i < THRESHOLD; i++) {
+            try {
+                client.patchIssue(pt);
+                fail("Error not thrown");
+            } catch (GithubUnavailableException e) {
+                fail("Error reported as unavailability");
+            } catch (GithubException e) {
+                /* Expected */
+            }
+        }
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+    }
+
+    /**
+     * Test that github turning requests down is passed on, but doesn't count against the circuit.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testClientErrorsDontOpenCircuit() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.REJECTED);
+        for (int i = 0; i < THRESHOLD * 2; i++) {
+            try {
+                client.readPhenotype(pt);
+                fail("Error not thrown");
+            } catch (GithubUnavailableException e) {
+                fail("Error reported as unavailability");
+            } catch (GithubException e) {
+                assertEquals(Optional.of(404), e.getStatusCode());
+            }
+        }
+        assertEquals(GuardedGithubAPI.State.CLOSED, client.getState());
+        assertEquals(THRESHOLD * 2, github.getCalls());
+    }
+
+    /**
+     * Test that slow calls succeed, but open the circuit.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testSlowCallsOpenCircuit() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.SLOW);
+        for (int i = 0; i < THRESHOLD; i++) {
+            client.readPhenotype(pt);
+        }
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+        assertUnavailable();
+    }
+
+    /**
+     * Test that a success in between failures starts the count over.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testSuccessResetsFailures() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.TIMEOUT);
+        for (int i = 1; i < THRESHOLD; i++) {
+            assertUnavailable();
+        }
+        github.setFault(FaultyGithubAPI.Fault.NONE);
+        client.readPhenotype(pt);
+        github.setFault(FaultyGithubAPI.Fault.TIMEOUT);
+        for (int i = 1; i < THRESHOLD; i++) {
+            assertUnavailable();
+        }
+        assertEquals(GuardedGithubAPI.State.CLOSED, client.getState());
+    }
+
+    /**
+     * Test that the circuit lets a trial call through after a while, and closes if it works.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testHalfOpenCloses() throws Exception
+    {
+        openCircuit();
+        ticker.advance(OPEN);
+        github.setFault(FaultyGithubAPI.Fault.NONE);
+        client.readPhenotype(pt);
+        assertEquals(GuardedGithubAPI.State.CLOSED, client.getState());
+        client.readPhenotype(pt);
+    }
+
+    /**
+     * Test that the circuit opens straight back up if the trial call fails.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testHalfOpenReopens() throws Exception
+    {
+        openCircuit();
+        ticker.advance(OPEN);
+        int calls = github.getCalls();
+        assertUnavailable();
+        assertEquals(calls + 1, github.getCalls());
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+        github.setFault(FaultyGithubAPI.Fault.NONE);
+        assertUnavailable();
+        assertEquals(calls + 1, github.getCalls());
+    }
+
+    /**
+     * Test that an unexpected exception in the trial call doesn't close a half open circuit.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testHalfOpenReopensOnCrash() throws Exception
+    {
+        openCircuit();
+        ticker.advance(OPEN);
+        github.setFault(FaultyGithubAPI.Fault.CRASH);
+        try {
+            client.readPhenotype(pt);
+            fail("Exception not thrown");
+        } catch (IllegalStateException e) {
+            /* Expected */
+        }
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+        github.setFault(FaultyGithubAPI.Fault.NONE);
+        assertUnavailable();
+    }
+
+    /**
+     * Test that a call started before the circuit opened doesn't close it by succeeding afterwards.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testLateSuccessIgnored() throws Exception
+    {
+        github.setDuring(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception
+            {
+                openCircuit();
+                github.setFault(FaultyGithubAPI.Fault.NONE);
+                return null;
+            }
+        });
+        client.readPhenotype(pt);
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+        int calls = github.getCalls();
+        assertUnavailable();
+        assertEquals(calls, github.getCalls());
+    }
+
+    /**
+     * Test that a call started before the circuit opened doesn't free the trial slot by failing while the trial
+     * call is in flight, so that no second trial gets through.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testLateFailureIgnored() throws Exception
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final List<Future<Phenotype>> trial = new ArrayList<>();
+        try {
+            github.setDuring(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception
+                {
+                    openCircuit();
+                    ticker.advance(OPEN);
+                    github.setFault(FaultyGithubAPI.Fault.HANG);
+                    CountDownLatch hanging = github.expectHanging(1);
+                    trial.add(executor.submit(new Callable<Phenotype>() {
+                        @Override
+                        public Phenotype call() throws Exception
+                        {
+                            return client.readPhenotype(new Phenotype("Trial", ""));
+                        }
+                    }));
+                    assertTrue(hanging.await(10, TimeUnit.SECONDS));
+                    github.setFault(FaultyGithubAPI.Fault.TIMEOUT);
+                    return null;
+                }
+            });
+            assertUnavailable();
+            assertEquals(GuardedGithubAPI.State.HALF_OPEN, client.getState());
+            github.setFault(FaultyGithubAPI.Fault.NONE);
+            int calls = github.getCalls();
+            assertUnavailable();
+            assertEquals(calls, github.getCalls());
+            github.release();
+            trial.get(0).get(10, TimeUnit.SECONDS);
+            assertEquals(GuardedGithubAPI.State.CLOSED, client.getState());
+        } finally {
+            github.release();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that callers are turned away once every slot is taken by a hanging call.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testBulkhead() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.HANG);
+        CountDownLatch hanging = github.expectHanging(MAX_CALLS);
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CALLS);
+        try {
+            Future<?>[] futures = new Future<?>[MAX_CALLS];
+            for (int i = 0; i < MAX_CALLS; i++) {
+                futures[i] = executor.submit(new Callable<Phenotype>() {
+                    @Override
+                    public Phenotype call() throws Exception
+                    {
+                        return client.readPhenotype(new Phenotype("Hanging", ""));
+                    }
+                });
+            }
+            assertTrue(hanging.await(10, TimeUnit.SECONDS));
+            assertUnavailable();
+            assertEquals(MAX_CALLS, github.getCalls());
+            github.release();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            client.readPhenotype(pt);
+            assertFalse(GuardedGithubAPI.State.OPEN.equals(client.getState()));
+        } finally {
+            github.release();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Open the circuit with timeouts.
+     * @throws Exception on failure
+     */
+    private void openCircuit() throws Exception
+    {
+        github.setFault(FaultyGithubAPI.Fault.TIMEOUT);
+        for (int i = 0; i < THRESHOLD; i++) {
+            assertUnavailable();
+        }
+        assertEquals(GuardedGithubAPI.State.OPEN, client.getState());
+    }
+
+    /**
+     * Assert that reading the phenotype fails with a GithubUnavailableException.
+     * @throws Exception on any other failure
+     */
+    private void assertUnavailable() throws Exception
+    {
+        try {
+            client.readPhenotype(pt);
+            fail("Github was available");
+        } catch (GithubUnavailableException e) {
+            /* Expected */
+        }
+    }
+}
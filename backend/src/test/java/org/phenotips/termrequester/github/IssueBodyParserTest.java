@@ -0,0 +1,273 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the IssueBodyParser class, fuzzing it against Issue.BODY_PATTERN and with bodies that mention keys.
+ *
+ * @version $Id$
+ */
+public class IssueBodyParserTest
+{
+    /**
+     * How many random bodies to try.
+     */
+    private static final int ROUNDS = 5000;
+
+    /**
+     * The characters random values are made of. There are no capitals, so that we never make
+     * up a key by accident.
+     */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789 ,.:;-_'()\t\u00e9\u00fc";
+
+    /**
+     * The characters random values are made of when keys are injected on purpose.
+     */
+    private static final String CAPITALS_ALPHABET = ALPHABET + "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    /**
+     * The keys of the body format, in order.
+     */
+    private static final String[] KEYS = { "TERM: ", "SYNONYMS: ", "PARENTS: ", "DESCRIPTION: ", "HPO_ID: " };
+
+    /**
+     * The regex groups, in the same order as the keys.
+     */
+    private static final String[] GROUPS = { "name", "synonyms", "parents", "description", "hpoid" };
+
+    /**
+     * Test that the parser agrees with the regex on every body the regex accepts.
+     */
+    @Test
+    public void testFuzzAgainstPattern()
+    {
+        Random random = new Random(1848L);
+        for (int i = 0; i < ROUNDS; i++) {
+            String body = randomBody(random);
+            Matcher m = Issue.BODY_PATTERN.matcher(body);
+            assertTrue("Pattern rejected " + body, m.matches());
+            String[] expected = new String[GROUPS.length];
+            for (int j = 0; j < GROUPS.length; j++) {
+                expected[j] = m.group(GROUPS[j]).trim();
+            }
+            Optional<String[]> actual = IssueBodyParser.parse(body);
+            assertTrue("Parser rejected " + body, actual.isPresent());
+            assertArrayEquals(body, expected, actual.get());
+        }
+    }
+
+    /**
+     * Test that the parser gets the values written back out of bodies, with their keys in any order, whose
+     * values have lines starting with keys or the footer that must be taken as part of the value.
+     */
+    @Test
+    public void testFuzzInjectedKeys()
+    {
+        Random random = new Random(1849L);
+        for (int i = 0; i < ROUNDS; i++) {
+            String[] expected = new String[KEYS.length];
+            String body = randomInjectedBody(random, expected);
+            Optional<String[]> actual = IssueBodyParser.parse(body);
+            assertTrue("Parser rejected " + body, actual.isPresent());
+            assertArrayEquals(body, expected, actual.get());
+        }
+    }
+
+    /**
+     * Test that reordered keys and extra lines are tolerated.
+     */
+    @Test
+    public void testReorderedWithExtraLines()
+    {
+        String body = "Some preamble somebody typed\r\n"
+            + "HPO_ID: HP:0000118\r\n"
+            + "DESCRIPTION: first line\r\n"
+            + "second line\r\n"
+            + "  TERM: Name\r\n"
+            + "PARENTS: HP_0000001\r\n"
+            + "SYNONYMS: one, two\r\n"
+            + IssueBodyParser.FOOTER + "\r\n"
+            + "Some trailing comment";
+        Optional<String[]> parsed = IssueBodyParser.parse(body);
+        assertTrue(parsed.isPresent());
+        assertEquals("Name", parsed.get()[IssueBodyParser.NAME]);
+        assertEquals("one, two", parsed.get()[IssueBodyParser.SYNONYMS]);
+        assertEquals("HP_0000001", parsed.get()[IssueBodyParser.PARENTS]);
+        assertEquals("first line\r\nsecond line", parsed.get()[IssueBodyParser.DESCRIPTION]);
+        assertEquals("HP:0000118", parsed.get()[IssueBodyParser.HPO_ID]);
+    }
+
+    /**
+     * Test that bodies that weren't autogenerated aren't parsed.
+     */
+    @Test
+    public void testRejects()
+    {
+        assertFalse(IssueBodyParser.parse(null).isPresent());
+        assertFalse(IssueBodyParser.parse("").isPresent());
+        assertFalse(IssueBodyParser.parse("Please add a term for this thing").isPresent());
+        /* No footer */
+        assertFalse(IssueBodyParser.parse("TERM: a\nSYNONYMS: \nPARENTS: \nDESCRIPTION: d\nHPO_ID: NONE")
+                .isPresent());
+        /* Missing key */
+        assertFalse(IssueBodyParser.parse("TERM: a\nSYNONYMS: \nDESCRIPTION: d\nHPO_ID: NONE\n"
+                    + IssueBodyParser.FOOTER).isPresent());
+        /* Keys only after the footer */
+        assertFalse(IssueBodyParser.parse("TERM: a\nSYNONYMS: \nPARENTS: \nDESCRIPTION: d\n"
+                    + IssueBodyParser.FOOTER + "\nHPO_ID: NONE").isPresent());
+    }
+
+    /**
+     * Test that a description mentioning keys and the footer changes neither the other fields nor where the
+     * body ends, and isn't cut short.
+     */
+    @Test
+    public void testKeysInDescription()
+    {
+        String description = "first line\nTERM: Not The Name\nSYNONYMS: none\nDESCRIPTION: again\n"
+            + "HPO_ID: HP:9999999\n" + IssueBodyParser.FOOTER + " is what it says\nlast line";
+        String body = String.format(Issue.BODY_FORMAT, "Name", "one, two", "HP_0000001", description,
+                "HP:0000118");
+        Optional<String[]> parsed = IssueBodyParser.parse(body);
+        assertTrue(parsed.isPresent());
+        assertArrayEquals(new String[] { "Name", "one, two", "HP_0000001", description, "HP:0000118" },
+                parsed.get());
+    }
+
+    /**
+     * Build a random body in the format Issue.describe() writes, with random continuation lines.
+     *
+     * @param random the source of randomness
+     * @return the body
+     */
+    private String randomBody(Random random)
+    {
+        StringBuilder body = new StringBuilder();
+        for (String key : KEYS) {
+            body.append(key).append(randomLine(random));
+            int continuations = random.nextInt(4) == 0 ? random.nextInt(5) : 0;
+            for (int i = 0; i < continuations; i++) {
+                body.append(random.nextBoolean() ? "\n" : "\r\n").append(randomLine(random));
+            }
+            body.append('\n');
+        }
+        body.append(IssueBodyParser.FOOTER);
+        return body.toString();
+    }
+
+    /**
+     * Build a random body in the format Issue.describe() writes but with its keys in random order, where
+     * continuation lines may start with the footer or with any key canInject allows.
+     *
+     * @param random the source of randomness
+     * @param values filled in with the values written, trimmed
+     * @return the body
+     */
+    private String randomInjectedBody(Random random, String[] values)
+    {
+        List<Integer> order = new ArrayList<>(KEYS.length);
+        for (int k = 0; k < KEYS.length; k++) {
+            order.add(k);
+        }
+        Collections.shuffle(order, random);
+        int description = order.indexOf(IssueBodyParser.DESCRIPTION);
+        StringBuilder body = new StringBuilder();
+        for (int field = 0; field < KEYS.length; field++) {
+            int k = order.get(field);
+            body.append(KEYS[k]);
+            int valueStart = body.length();
+            body.append(randomLine(random, CAPITALS_ALPHABET));
+            int continuations = random.nextInt(5);
+            for (int i = 0; i < continuations; i++) {
+                body.append(random.nextBoolean() ? "\n" : "\r\n");
+                int injected = random.nextInt(KEYS.length + 2);
+                if (injected < KEYS.length && canInject(order.indexOf(injected), field, description)) {
+                    body.append(random.nextBoolean() ? "" : " ").append(KEYS[injected]);
+                } else if (injected == KEYS.length) {
+                    body.append(IssueBodyParser.FOOTER);
+                }
+                body.append(randomLine(random, CAPITALS_ALPHABET));
+            }
+            values[k] = body.substring(valueStart).trim();
+            body.append('\n');
+        }
+        body.append(IssueBodyParser.FOOTER);
+        return body.toString();
+    }
+
+    /**
+     * Get whether a line starting with a key can go in a field without opening the key's field. The description
+     * and the fields before it open at their first key line, so theirs can only go after it; the fields after
+     * the description open at their last one, so theirs can only go between the description and it.
+     *
+     * @param position where the key's field is in the body
+     * @param field where the field the line goes in is in the body
+     * @param description where the description is in the body
+     * @return whether the line can go there
+     */
+    private boolean canInject(int position, int field, int description)
+    {
+        if (position <= description) {
+            return position <= field;
+        }
+        return description <= field && field < position;
+    }
+
+    /**
+     * Build a random line without any line breaks or capitals.
+     *
+     * @param random the source of randomness
+     * @return the line
+     */
+    private String randomLine(Random random)
+    {
+        return randomLine(random, ALPHABET);
+    }
+
+    /**
+     * Build a random line without any line breaks.
+     *
+     * @param random the source of randomness
+     * @param alphabet the characters to make it of
+     * @return the line
+     */
+    private String randomLine(Random random, String alphabet)
+    {
+        int length = random.nextInt(3) == 0 ? 0 : random.nextInt(80);
+        StringBuilder line = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return line.toString();
+    }
+}
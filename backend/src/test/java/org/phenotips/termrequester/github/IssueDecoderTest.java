@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.google.common.base.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the IssueDecoder class.
+ *
+ * @version $Id$
+ */
+public class IssueDecoderTest
+{
+    /**
+     * A trimmed down github issue, with the nested objects github sends that we don't want.
+     */
+    private static final String ISSUE = "{\"url\": \"https://api.github.com/repos/o/r/issues/12\","
+        + "\"number\": 12, \"title\": \"Some Phenotype\","
+        + "\"user\": {\"login\": \"someone\", \"id\": 1, \"site_admin\": false},"
+        + "\"labels\": [{\"id\": 7, \"name\": \"synonym\", \"color\": \"fc2929\", \"default\": false}, \"bug\"],"
+        + "\"state\": \"open\", \"locked\": false, \"assignees\": [], \"milestone\": null,"
+        + "\"reactions\": {\"+1\": 0, \"-1\": 0, \"total_count\": 0},"
+        + "\"body\": \"TERM: Some Phenotype\\nHPO_ID: NONE\"}";
+
+    /**
+     * The decoder under test.
+     */
+    private IssueDecoder decoder;
+
+    /**
+     * Set up the decoder.
+     */
+    @Before
+    public void setUp()
+    {
+        decoder = new IssueDecoder(new ObjectMapper().getFactory());
+    }
+
+    /**
+     * Test that the fields we care about get read and the others skipped.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testReadIssue() throws Exception
+    {
+        Issue issue = decoder.readIssue(stream(ISSUE));
+        assertEquals(12, issue.getNumber());
+        assertEquals("Some Phenotype", issue.getTitle());
+        assertEquals("open", issue.getState());
+        assertEquals(Arrays.asList("synonym", "bug"), issue.getLabels());
+        assertEquals("TERM: Some Phenotype\nHPO_ID: NONE", issue.getBody());
+    }
+
+    /**
+     * Test that null and missing fields are handled.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testReadSparseIssue() throws Exception
+    {
+        Issue issue = decoder.readIssue(stream("{\"number\": 3, \"body\": null, \"labels\": null}"));
+        assertEquals(3, issue.getNumber());
+        assertNull(issue.getBody());
+        assertNull(issue.getState());
+        assertEquals(Collections.<String>emptyList(), issue.getLabels());
+    }
+
+    /**
+     * Test that something that's not an object is rejected.
+     * @throws Exception on failure
+     */
+    @Test(expected = JsonParseException.class)
+    public void testReadIssueNotObject() throws Exception
+    {
+        decoder.readIssue(stream("[" + ISSUE + "]"));
+    }
+
+    /**
+     * Test that search results are read in order, along with the totals.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testReadSearch() throws Exception
+    {
+        String json = "{\"total_count\": 40, \"incomplete_results\": true, \"items\": ["
+            + ISSUE + ", " + ISSUE.replace("\"number\": 12", "\"number\": 13") + "], \"trailing\": {\"a\": [1]}}";
+        try (IssueDecoder.SearchResults results = decoder.readSearch(stream(json))) {
+            Optional<Issue> first = results.next();
+            assertTrue(first.isPresent());
+            assertEquals(12, first.get().getNumber());
+            assertEquals(40, results.getTotalCount());
+            assertTrue(results.isIncomplete());
+            assertEquals(13, results.next().get().getNumber());
+            assertFalse(results.next().isPresent());
+            assertFalse(results.next().isPresent());
+        }
+    }
+
+    /**
+     * Test that an empty search has no results.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testReadEmptySearch() throws Exception
+    {
+        String json = "{\"total_count\": 0, \"incomplete_results\": false, \"items\": []}";
+        try (IssueDecoder.SearchResults results = decoder.readSearch(stream(json))) {
+            assertFalse(results.next().isPresent());
+            assertEquals(0, results.getTotalCount());
+            assertFalse(results.isIncomplete());
+        }
+    }
+
+    /**
+     * Test that issues are decoded lazily, so that reading the first one doesn't need the rest.
+     * @throws Exception on failure
+     */
+    @Test
+    public void testReadSearchLazily() throws Exception
+    {
+        String json = "{\"total_count\": 2, \"items\": [" + ISSUE + ", {\"number\": ";
+        try (IssueDecoder.SearchResults results = decoder.readSearch(stream(json))) {
+            assertEquals(12, results.next().get().getNumber());
+        }
+    }
+
+    /**
+     * Get a stream over the string given.
+     * @param json the string
+     * @return the stream
+     */
+    private static InputStream stream(String json)
+    {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.phenotips.termrequester.github;
 
+import java.util.Arrays;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -94,4 +96,24 @@ public void testAsPhenotype() throws Exception
         assertEquals(pt, pt2);
         assertTrue("asPhenotype failed", EqualsBuilder.reflectionEquals(pt, pt2));
     }
+
+    /**
+     * Test that reading a phenotype back from its issue keeps the contributions its description was merged from.
+     */
+    @Test
+    public void testSyncKeepsContributions() throws Exception
+    {
+        pt.mergeWith(new Phenotype("other name", "second"));
+        assertEquals(Arrays.asList("description", "second"), pt.getDescriptions());
+        Issue issue = new Issue();
+        issue.setBody(Issue.describe(pt));
+        issue.setNumber(Integer.parseInt(pt.getIssueNumber().get()));
+        pt.setId("TEMPHPO_0000001");
+        pt.setClean();
+        pt.replaceBy(issue.asPhenotype());
+        assertEquals(Arrays.asList("description", "second"), pt.getDescriptions());
+        assertEquals(0, pt.getDirtyFields() & Phenotype.DESCRIPTION_FIELD);
+        pt.mergeWith(new Phenotype("third name", "description"));
+        assertEquals(Arrays.asList("description", "second"), pt.getDescriptions());
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the Descriptions class.
+ *
+ * @version $Id$
+ */
+public class DescriptionsTest
+{
+    /**
+     * Test merging distinct contributions, and dropping ones already there.
+     */
+    @Test
+    public void testMerge()
+    {
+        List<String> merged = Descriptions.merge(Arrays.asList("The nose is big."), Arrays.asList("It's huge."));
+        assertEquals(Arrays.asList("The nose is big.", "It's huge."), merged);
+        assertEquals("The nose is big. | It's huge.", Descriptions.render(merged));
+        assertSame(merged, Descriptions.merge(merged, Arrays.asList("the nose  IS big.")));
+        assertSame(merged, Descriptions.merge(merged, Arrays.asList("", " ")));
+        assertSame(merged, Descriptions.merge(merged, Collections.<String>emptyList()));
+        assertEquals(Arrays.asList("It's huge."),
+            Descriptions.merge(Collections.<String>emptyList(), Arrays.asList(" It's huge. ")));
+        assertEquals(Arrays.asList("The nose is big.", "It's huge.", "Really."),
+            Descriptions.merge(merged, Arrays.asList("It's huge.", "Really.")));
+    }
+
+    /**
+     * Test that contributions are kept as they were written, rather than split on the separator or respaced.
+     */
+    @Test
+    public void testVerbatim()
+    {
+        String first = "Fusion of digits 2|3\n\nsee also X";
+        List<String> merged = Descriptions.merge(Collections.<String>emptyList(), Arrays.asList(first));
+        merged = Descriptions.merge(merged, Arrays.asList("Extra."));
+        assertEquals(Arrays.asList(first, "Extra."), merged);
+        merged = Descriptions.merge(merged, Arrays.asList("A | B"));
+        assertEquals(Arrays.asList(first, "Extra.", "A | B"), merged);
+        assertEquals(first + " | Extra. | A | B", Descriptions.render(merged));
+    }
+
+    /**
+     * Test that the first contribution is kept, however long.
+     */
+    @Test
+    public void testLongFirst()
+    {
+        String longOne = StringUtils.repeat('x', Descriptions.MAX_LENGTH + 500);
+        List<String> merged = Descriptions.merge(Collections.<String>emptyList(), Arrays.asList(longOne));
+        assertEquals(Arrays.asList(longOne), merged);
+        assertSame(merged, Descriptions.merge(merged, Arrays.asList("It's huge.")));
+    }
+
+    /**
+     * Test that merging however many descriptions stays within the caps.
+     */
+    @Test
+    public void testBounded()
+    {
+        List<String> description = Arrays.asList("The nose is big.");
+        for (int i = 0; i < 1000; i++) {
+            description = Descriptions.merge(description, Arrays.asList("Contribution number " + i + "."));
+        }
+        assertEquals(Descriptions.MAX_CONTRIBUTIONS, description.size());
+        String longOne = StringUtils.repeat('x', Descriptions.MAX_LENGTH - 10);
+        description = Descriptions.merge(Arrays.asList("The nose is big."), Arrays.asList(longOne));
+        assertEquals(Arrays.asList("The nose is big."), description);
+        for (int i = 0; i < 1000; i++) {
+            description = Descriptions.merge(description,
+                Arrays.asList(StringUtils.repeat((char) ('a' + i % 26), 100 + i)));
+        }
+        assertTrue(Descriptions.render(description).length() <= Descriptions.MAX_LENGTH);
+    }
+}
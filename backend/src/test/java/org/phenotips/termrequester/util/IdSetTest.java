@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the IdSet class.
+ *
+ * @version $Id$
+ */
+public class IdSetTest
+{
+    /**
+     * Ids of all kinds, with a duplicate.
+     */
+    private static final List<String> IDS = Arrays.asList("TEMPHPO_0000002", "HP_0000118", "HP:0000118",
+            "TEMPHPO_0000001", "HP_0000118", "whatever");
+
+    /**
+     * Test building a set, and looking ids up in it.
+     */
+    @Test
+    public void testOf()
+    {
+        IdSet set = IdSet.of(IDS);
+        assertEquals(5, set.size());
+        assertEquals(new HashSet<>(IDS), set);
+        assertEquals(new HashSet<>(IDS).hashCode(), set.hashCode());
+        assertTrue(set.contains("HP_0000118"));
+        assertTrue(set.contains("HP:0000118"));
+        assertFalse(set.contains("HP_0000119"));
+        assertFalse(set.contains("TEMPHPO_000001"));
+        assertFalse(set.contains(null));
+        assertSame(IdSet.EMPTY, IdSet.of(new ArrayList<String>()));
+        assertSame(set, IdSet.of(set));
+    }
+
+    /**
+     * Test adding ids.
+     */
+    @Test
+    public void testWith()
+    {
+        IdSet set = IdSet.EMPTY;
+        for (String id : IDS) {
+            set = set.with(id);
+        }
+        assertEquals(IdSet.of(IDS), set);
+        assertSame(set, set.with("HP_0000118"));
+        assertSame(set, set.with("whatever"));
+    }
+
+    /**
+     * Test adding ids in bulk.
+     */
+    @Test
+    public void testWithAll()
+    {
+        IdSet set = IdSet.of(IDS.subList(0, 2));
+        assertSame(set, set.withAll(IDS.subList(1, 2)));
+        IdSet added = set.withAll(IDS);
+        assertEquals(new HashSet<>(IDS), added);
+        assertEquals(2, set.size());
+        assertSame(added, IdSet.EMPTY.withAll(added));
+    }
+
+    /**
+     * Test that the set can't be modified.
+     */
+    @Test
+    public void testImmutable()
+    {
+        IdSet set = IdSet.of(IDS);
+        try {
+            set.add("HP_0000001");
+            fail("Added to an id set");
+        } catch (UnsupportedOperationException e) {
+            /* Expected */
+        }
+        try {
+            set.iterator().remove();
+            fail("Removed from an id set");
+        } catch (UnsupportedOperationException e) {
+            /* Expected */
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.lang3.text.WordUtils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the NameSet and NamePool classes.
+ *
+ * @version $Id$
+ */
+public class NameSetTest
+{
+    /**
+     * Test that names are title cased as capitalizeFully does, and pooled.
+     */
+    @Test
+    public void testNormalize()
+    {
+        for (String name : Arrays.asList("big nose", "Big Nose", "BIG NOSE", "big Nose", "(big) nose",
+                    "big\tnose", "  big  nose ", "", "Café au lait spots", "ÉTAGE")) {
+            assertEquals(WordUtils.capitalizeFully(name), NamePool.titleCase(name));
+            assertEquals(WordUtils.capitalizeFully(name), NamePool.normalize(name));
+        }
+        assertSame(NamePool.normalize("big nose"), NamePool.normalize(new String("BIG NOSE")));
+    }
+
+    /**
+     * Test building a set, and looking names up in it whatever their case.
+     */
+    @Test
+    public void testOf()
+    {
+        NameSet set = NameSet.of(Arrays.asList("big nose", "Huge nose", "BIG NOSE", "large nose"));
+        assertEquals(3, set.size());
+        assertEquals(Arrays.asList("Big Nose", "Huge Nose", "Large Nose"), new ArrayList<>(set));
+        assertTrue(set.contains("huge NOSE"));
+        assertFalse(set.contains("small nose"));
+        assertFalse(set.contains(null));
+        assertEquals(new HashSet<>(Arrays.asList("Big Nose", "Huge Nose", "Large Nose")), set);
+        assertSame(NameSet.EMPTY, NameSet.of(new ArrayList<String>()));
+        assertSame(set, NameSet.of(set));
+    }
+
+    /**
+     * Test adding and removing names, both in sets small enough to scan and in larger ones.
+     */
+    @Test
+    public void testWithAndWithout()
+    {
+        for (int size : new int[] { 3, 20 }) {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                names.add("name " + (char) ('a' + i));
+            }
+            NameSet set = NameSet.of(names);
+            assertSame(set, set.with("NAME A"));
+            assertSame(set, set.without("no such name"));
+            assertSame(set, set.withAll(Arrays.asList("name b", "Name C")));
+            NameSet added = set.with("another name");
+            assertEquals(size + 1, added.size());
+            assertEquals("Another Name", added.iterator().next());
+            assertTrue(added.contains("ANOTHER NAME"));
+            assertFalse(set.contains("another name"));
+            NameSet removed = added.without("name b");
+            assertEquals(size, removed.size());
+            assertFalse(removed.contains("name b"));
+            assertTrue(removed.contains("name c"));
+            NameSet merged = set.withAll(Arrays.asList("name a", "zzz", "ZZZ", "aaa"));
+            assertEquals(size + 2, merged.size());
+            assertTrue(merged.contains("zzz"));
+            assertTrue(merged.contains("aaa"));
+        }
+        assertSame(NameSet.EMPTY, NameSet.of(Arrays.asList("one")).without("ONE"));
+    }
+
+    /**
+     * Test that the set can't be changed through the Set interface.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable()
+    {
+        NameSet.of(Arrays.asList("big nose")).add("small nose");
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.phenotips.termrequester.utils;
 
+import java.util.Random;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -84,4 +86,72 @@ public void testIsHpoId()
         assertFalse(IdUtils.isHpoId(ID));
         assertFalse(IdUtils.isHpoId("whatever"));
     }
+
+    /**
+     * Test that ids encode to numbers and decode back to the same id, and that other strings don't.
+     */
+    @Test
+    public void testEncode()
+    {
+        for (String id : new String[] { ID, HPO_ID, IdUtils.INITIAL_ID, "TEMPHPO_0000000", "HP_9999999" }) {
+            int code = IdUtils.encode(id);
+            assertFalse(code == IdUtils.NO_CODE);
+            assertEquals(id, IdUtils.decode(code));
+        }
+        assertTrue(IdUtils.encode(ID) > 0);
+        assertTrue(IdUtils.encode(HPO_ID) < 0);
+        for (String other : new String[] { null, "whatever", "HP:0000004", "HP_000004", "HP_00000040",
+                    "TEMPHPO_00000a1", IdUtils.ID_PREFIX }) {
+            assertEquals(IdUtils.NO_CODE, IdUtils.encode(other));
+        }
+        assertEquals(null, IdUtils.decode(IdUtils.NO_CODE));
+    }
+
+    /**
+     * Test that scanning ids accepts and rejects exactly what the patterns do, on random near misses.
+     */
+    @Test
+    public void testMatchesPatterns()
+    {
+        Random random = new Random(46);
+        String[] prefixes = { IdUtils.ID_PREFIX, IdUtils.HPO_ID_PREFIX, "HP:", "TEMPHPO", "", "XHP_" };
+        String digits = "0123456789a\u0663 ";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder candidate = new StringBuilder(prefixes[random.nextInt(prefixes.length)]);
+            int length = 5 + random.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                /* Mostly digits, now and then something else */
+                int bound = random.nextInt(20) == 0 ? digits.length() : 10;
+                candidate.append(digits.charAt(random.nextInt(bound)));
+            }
+            String id = candidate.toString();
+            assertEquals(id, IdUtils.ID_PATTERN.matcher(id).matches(), IdUtils.isId(id));
+            assertEquals(id, IdUtils.HPO_ID_PATTERN.matcher(id).matches(), IdUtils.isHpoId(id));
+            if (IdUtils.isId(id) || IdUtils.isHpoId(id)) {
+                assertEquals(id, IdUtils.decode(IdUtils.encode(id)));
+            }
+        }
+    }
+
+    /**
+     * Test that incrementing ids gives what formatting the next number does, up to the last seven digit id.
+     */
+    @Test
+    public void testIncrementMatchesFormat()
+    {
+        Random random = new Random(46);
+        for (int i = 0; i < 10000; i++) {
+            int number = random.nextInt(10000000);
+            String id = String.format(IdUtils.ID_FORMAT, number);
+            assertEquals(String.format(IdUtils.ID_FORMAT, number + 1), IdUtils.incrementId(id));
+        }
+        assertEquals(IdUtils.ID_PREFIX + "10000000", IdUtils.incrementId(IdUtils.ID_PREFIX + "9999999"));
+        assertEquals(String.format(IdUtils.ID_FORMAT, 1), IdUtils.INITIAL_ID);
+        try {
+            IdUtils.incrementId(HPO_ID);
+            fail("Incremented an hpo id");
+        } catch (IllegalArgumentException e) {
+            /* Expected */
+        }
+    }
 }
@@ -0,0 +1,232 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares encoding and decoding phenotypes with PhenotypeCodec, plain and deflated, against java
+ * serialization and JSON. The encoded sizes are printed at setup.
+ * Java serialization leaves the id and etag out, since AbstractSaveable isn't serializable, so it has less to
+ * do than the others.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhenotypeCodecBenchmark
+{
+    /**
+     * How many phenotypes to encode at once: a single cache entry, or a snapshot.
+     */
+    @Param({ "1", "1000" })
+    public int count;
+
+    /**
+     * The phenotypes.
+     */
+    private ArrayList<Phenotype> phenotypes;
+
+    /**
+     * The phenotypes, encoded by the codec.
+     */
+    private byte[] codec;
+
+    /**
+     * The phenotypes, encoded by the codec and deflated.
+     */
+    private byte[] deflated;
+
+    /**
+     * The phenotypes, serialized.
+     */
+    private byte[] java;
+
+    /**
+     * The phenotypes, as json.
+     */
+    private byte[] json;
+
+    /**
+     * The json mapper.
+     */
+    private ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Build the phenotypes and encode them every way.
+     *
+     * @throws IOException on failure
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        phenotypes = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Phenotype pt = new Phenotype("Abnormality Number " + i, "The description of abnormality " + i + ".");
+            pt.setId(String.format("TEMPHPO_%07d", i + 1));
+            pt.setStatus(Phenotype.Status.SUBMITTED);
+            pt.setIssueNumber(String.valueOf(i + 100));
+            pt.setEtag("\"" + Integer.toHexString(i) + "\"");
+            pt.addSynonym("Shared Synonym " + (i % 50));
+            pt.addSynonym("Own Synonym " + i);
+            pt.addParentId(String.format("HP_%07d", i / 10 + 1));
+            pt.addParentId("HP:0000118");
+            pt.setTimeCreated(new Date(now - i * 1000L));
+            pt.setTimeModified(new Date(now));
+            pt.setTimeVerified(new Date(now));
+            pt.setClean();
+            phenotypes.add(pt);
+        }
+        codec = encodeCodec();
+        deflated = encodeDeflated();
+        java = encodeJava();
+        json = encodeJson();
+        System.out.printf("%nBytes for %d phenotypes: codec %d, deflated %d, java %d, json %d%n", count,
+                codec.length, deflated.length, java.length, json.length);
+    }
+
+    /**
+     * Encode with the codec.
+     *
+     * @return the bytes
+     */
+    @Benchmark
+    public byte[] encodeCodec()
+    {
+        return PhenotypeCodec.encode(phenotypes, false);
+    }
+
+    /**
+     * Encode with the codec, deflated.
+     *
+     * @return the bytes
+     */
+    @Benchmark
+    public byte[] encodeDeflated()
+    {
+        return PhenotypeCodec.encode(phenotypes, true);
+    }
+
+    /**
+     * Encode with java serialization.
+     *
+     * @return the bytes
+     * @throws IOException on failure
+     */
+    @Benchmark
+    public byte[] encodeJava() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(phenotypes);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode as json.
+     *
+     * @return the bytes
+     * @throws IOException on failure
+     */
+    @Benchmark
+    public byte[] encodeJson() throws IOException
+    {
+        return mapper.writeValueAsBytes(phenotypes);
+    }
+
+    /**
+     * Decode with the codec.
+     *
+     * @return the phenotypes
+     * @throws IOException on failure
+     */
+    @Benchmark
+    public List<Phenotype> decodeCodec() throws IOException
+    {
+        return PhenotypeCodec.decode(codec);
+    }
+
+    /**
+     * Decode with the codec, deflated.
+     *
+     * @return the phenotypes
+     * @throws IOException on failure
+     */
+    @Benchmark
+    public List<Phenotype> decodeDeflated() throws IOException
+    {
+        return PhenotypeCodec.decode(deflated);
+    }
+
+    /**
+     * Decode with java serialization.
+     *
+     * @return the phenotypes
+     * @throws IOException on failure
+     * @throws ClassNotFoundException never
+     */
+    @Benchmark
+    public Object decodeJava() throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(java))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Decode json.
+     *
+     * @return the phenotypes
+     * @throws IOException on failure
+     */
+    @Benchmark
+    public List<Phenotype> decodeJson() throws IOException
+    {
+        return mapper.readValue(json, new TypeReference<List<Phenotype>>() { });
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import org.phenotips.termrequester.util.TitleCaseSet;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Compares Phenotype.equals on precomputed name keys to the set intersection it replaced, between phenotypes
+ * that share no name (the common case when looking for a match) and ones that only share their last synonym.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhenotypeEqualsBenchmark
+{
+    /**
+     * How many synonyms each phenotype has. Most requests have a handful; HPO terms go up to a few dozen.
+     */
+    @Param({ "0", "5", "30" })
+    public int synonymCount;
+
+    /**
+     * A phenotype.
+     */
+    private Phenotype phenotype;
+
+    /**
+     * A phenotype sharing no name with the first.
+     */
+    private Phenotype different;
+
+    /**
+     * A phenotype sharing a single synonym with the first.
+     */
+    private Phenotype matching;
+
+    /**
+     * Build the phenotypes.
+     */
+    @Setup
+    public void setUp()
+    {
+        phenotype = build("abnormality of the nose", "nasal anomaly variant ");
+        different = build("abnormality of the ear", "auricular anomaly variant ");
+        matching = build("abnormality of the nasal bridge", "nasal bridge anomaly variant ");
+        matching.addSynonym("nasal anomaly variant " + synonymCount);
+        phenotype.addSynonym("nasal anomaly variant " + synonymCount);
+    }
+
+    /**
+     * Compare phenotypes sharing no name.
+     *
+     * @return whether they're equal
+     */
+    @Benchmark
+    public boolean keysDifferent()
+    {
+        return phenotype.equals(different);
+    }
+
+    /**
+     * Compare phenotypes sharing a name.
+     *
+     * @return whether they're equal
+     */
+    @Benchmark
+    public boolean keysMatching()
+    {
+        return phenotype.equals(matching);
+    }
+
+    /**
+     * Compare phenotypes sharing no name the way equals used to.
+     *
+     * @return whether they're equal
+     */
+    @Benchmark
+    public boolean intersectionDifferent()
+    {
+        return intersect(phenotype, different);
+    }
+
+    /**
+     * Compare phenotypes sharing a name the way equals used to.
+     *
+     * @return whether they're equal
+     */
+    @Benchmark
+    public boolean intersectionMatching()
+    {
+        return intersect(phenotype, matching);
+    }
+
+    /**
+     * Build a phenotype with synonymCount synonyms.
+     *
+     * @param name the name
+     * @param synonymPrefix the prefix of every synonym, which is then numbered
+     * @return the phenotype
+     */
+    private Phenotype build(String name, String synonymPrefix)
+    {
+        Phenotype pt = new Phenotype(name, "");
+        for (int i = 0; i < synonymCount; i++) {
+            pt.addSynonym(synonymPrefix + i);
+        }
+        return pt;
+    }
+
+    /**
+     * Whether the two phenotypes share a name, as Phenotype.equals used to tell.
+     *
+     * @param ours a phenotype
+     * @param other another
+     * @return whether they share a name
+     */
+    private static boolean intersect(Phenotype ours, Phenotype other)
+    {
+        Set<String> theirNames = new TitleCaseSet(other.getSynonyms());
+        theirNames.add(other.getName());
+        Set<String> ourNames = new TitleCaseSet(ours.getSynonyms());
+        ourNames.add(ours.getName());
+        return !Sets.intersection(theirNames, ourNames).isEmpty();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the memory a large working set of phenotypes takes: builds 100k of them the way the database mapper
+ * does, with ids, parents, synonyms drawn from a shared vocabulary and all three times set. Run with -prof gc
+ * for the bytes allocated building them; the bytes each one keeps once built are printed after each iteration.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 5, batchSize = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PhenotypeFootprintBenchmark
+{
+    /**
+     * How many phenotypes to build.
+     */
+    private static final int COUNT = 100000;
+
+    /**
+     * How many distinct synonyms there are to go round.
+     */
+    private static final int VOCABULARY = 5000;
+
+    /**
+     * How many synonyms each phenotype has.
+     */
+    private static final int SYNONYMS = 4;
+
+    /**
+     * How many parents each phenotype has.
+     */
+    private static final int PARENTS = 2;
+
+    /**
+     * The phenotypes built by the last iteration, kept to measure what they retain.
+     */
+    private List<Phenotype> built;
+
+    /**
+     * Build the phenotypes.
+     *
+     * @return the phenotypes
+     */
+    @Benchmark
+    public List<Phenotype> build()
+    {
+        long now = System.currentTimeMillis();
+        List<Phenotype> phenotypes = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            Phenotype pt = new Phenotype("Abnormality Number " + i, "Description of abnormality " + i);
+            pt.setId(String.format(IdUtils.ID_FORMAT, i + 1));
+            pt.setHpoId(String.format("HP_%07d", i + 1));
+            for (int j = 0; j < SYNONYMS; j++) {
+                /* A fresh string, as read from the database */
+                pt.addSynonym(new StringBuilder("Shared Synonym ").append((i + j * 31) % VOCABULARY).toString());
+            }
+            for (int j = 1; j <= PARENTS; j++) {
+                pt.addParentId(String.format("HP_%07d", i / (j * 10) + 1));
+            }
+            pt.setTimeCreated(new Date(now - i));
+            pt.setTimeModified(new Date(now));
+            pt.setTimeVerified(new Date(now));
+            pt.setClean();
+            phenotypes.add(pt);
+        }
+        built = phenotypes;
+        return phenotypes;
+    }
+
+    /**
+     * Print how much heap each of the phenotypes just built keeps.
+     */
+    @TearDown(Level.Iteration)
+    public void reportRetained()
+    {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long with = memory.getHeapMemoryUsage().getUsed();
+        int size = built.size();
+        built = null;
+        System.gc();
+        long without = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf("%n%d bytes retained per phenotype%n", (with - without) / size);
+    }
+}
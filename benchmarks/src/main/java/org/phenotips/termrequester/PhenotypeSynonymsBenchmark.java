@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of a phenotype's synonyms: building a phenotype as the database mapper does, reading its
+ * synonyms, and looking one up. Run with -prof gc for the allocations per operation.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhenotypeSynonymsBenchmark
+{
+    /**
+     * How many synonyms the phenotype has.
+     */
+    @Param({ "2", "5", "20" })
+    public int synonymCount;
+
+    /**
+     * The synonyms, title cased as they're stored.
+     */
+    private String[] synonyms;
+
+    /**
+     * A phenotype with those synonyms.
+     */
+    private Phenotype phenotype;
+
+    /**
+     * The synonym to look up, as a user might type it.
+     */
+    private String lookup;
+
+    /**
+     * Build the synonyms and the phenotype.
+     */
+    @Setup
+    public void setUp()
+    {
+        synonyms = new String[synonymCount];
+        for (int i = 0; i < synonymCount; i++) {
+            synonyms[i] = "Abnormal Shape Of The Nose Variant " + i;
+        }
+        phenotype = build();
+        lookup = "abnormal shape of the nose variant " + (synonymCount - 1);
+    }
+
+    /**
+     * Build a phenotype the way SolrMapper.fromDoc does.
+     *
+     * @return the phenotype
+     */
+    @Benchmark
+    public Phenotype build()
+    {
+        Phenotype pt = new Phenotype("Abnormality Of The Nose", "The nose is abnormal.");
+        for (String synonym : synonyms) {
+            pt.addSynonym(synonym);
+        }
+        return pt;
+    }
+
+    /**
+     * Read the synonyms, as mapping to a document or serializing to json does.
+     *
+     * @return the synonyms
+     */
+    @Benchmark
+    public Set<String> getSynonyms()
+    {
+        return phenotype.getSynonyms();
+    }
+
+    /**
+     * Look a synonym up, whatever its case.
+     *
+     * @return whether it's there
+     */
+    @Benchmark
+    public boolean containsSynonym()
+    {
+        return phenotype.getSynonyms().contains(lookup);
+    }
+}
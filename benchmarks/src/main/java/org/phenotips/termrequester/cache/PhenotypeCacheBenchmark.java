@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.cache;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Optional;
+
+/**
+ * Compares the phenotype caches holding 100k phenotypes: the heap each keeps, printed at setup, and the cost of
+ * reading a phenotype back. Run with -prof gc for the allocations per read.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PhenotypeCacheBenchmark
+{
+    /**
+     * How many phenotypes to cache.
+     */
+    private static final int COUNT = 100000;
+
+    /**
+     * Which cache to use.
+     */
+    @Param({ "heap", "offheap" })
+    public String kind;
+
+    /**
+     * The cache.
+     */
+    private PhenotypeCache cache;
+
+    /**
+     * Fill the cache, and print how much heap it keeps.
+     */
+    @Setup
+    public void setUp()
+    {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        cache = "heap".equals(kind) ? new HeapPhenotypeCache() : new OffHeapPhenotypeCache();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < COUNT; i++) {
+            Phenotype pt = new Phenotype("Abnormality Number " + i, "The description of abnormality " + i + ".");
+            pt.setId(String.format(IdUtils.ID_FORMAT, i + 1));
+            pt.addSynonym("Shared Synonym " + (i % 50));
+            pt.addSynonym("Own Synonym " + i);
+            pt.addParentId(String.format("HP_%07d", i / 10 + 1));
+            pt.setTimeCreated(new Date(now - i));
+            pt.setTimeModified(new Date(now));
+            pt.setClean();
+            cache.put(pt);
+        }
+        System.gc();
+        long after = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf("%n%s cache keeps %d bytes of heap per phenotype%n", kind, (after - before) / COUNT);
+    }
+
+    /**
+     * Read a random phenotype back.
+     *
+     * @return the phenotype
+     */
+    @Benchmark
+    public Optional<Phenotype> get()
+    {
+        return cache.get(String.format(IdUtils.ID_FORMAT, ThreadLocalRandom.current().nextInt(COUNT) + 1));
+    }
+}
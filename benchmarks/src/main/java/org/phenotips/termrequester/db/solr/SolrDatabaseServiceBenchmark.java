@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.db.solr;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the solr database calls a request goes through: searching, looking for a match to a new request,
+ * and saving, both an update and a new phenotype (which takes the next id).
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolrDatabaseServiceBenchmark
+{
+    /**
+     * A sentence of filler text for the descriptions.
+     */
+    private static final String FILLER = "the quick brown fox jumps over the lazy dog. ";
+
+    /**
+     * The search queries to cycle through: a name, a synonym, a misspelling and a prefix.
+     */
+    private static final String[] QUERIES = {
+        "abnormality number 42", "synonym 3 of abnormality 7", "abnormalty numbr", "abno",
+    };
+
+    /**
+     * How many phenotypes the database holds.
+     */
+    @Param({ "1000", "10000" })
+    public int phenotypeCount;
+
+    /**
+     * The directory the database lives in.
+     */
+    private Path dir;
+
+    /**
+     * The database.
+     */
+    private SolrDatabaseService db;
+
+    /**
+     * The phenotypes, as saved.
+     */
+    private List<Phenotype> phenotypes;
+
+    /**
+     * A request sharing a synonym with a saved phenotype.
+     */
+    private Phenotype duplicate;
+
+    /**
+     * A request matching nothing saved.
+     */
+    private Phenotype unmatched;
+
+    /**
+     * How many calls have run, to cycle through the inputs.
+     */
+    private int calls;
+
+    /**
+     * Create the database, holding phenotypes with a few synonyms and a paragraph of description each.
+     *
+     * @throws IOException on failure to create it
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("termrequester-bench");
+        db = new SolrDatabaseService();
+        db.init(dir);
+        db.setAutocommit(false);
+        phenotypes = new ArrayList<>(phenotypeCount);
+        for (int i = 0; i < phenotypeCount; i++) {
+            Phenotype pt = newPhenotype("abnormality number " + i);
+            for (int j = 0; j < 5; j++) {
+                pt.addSynonym("synonym " + j + " of abnormality " + i);
+            }
+            pt.setStatus(Phenotype.Status.SUBMITTED);
+            pt.setIssueNumber(Integer.toString(i + 1));
+            phenotypes.add(pt);
+        }
+        db.savePhenotypes(phenotypes);
+        db.commit();
+        duplicate = newPhenotype("a brand new abnormality");
+        duplicate.addSynonym("synonym 2 of abnormality " + phenotypeCount / 2);
+        unmatched = newPhenotype("a brand new abnormality");
+        unmatched.addSynonym("not a synonym of anything");
+    }
+
+    /**
+     * Shut the database down and delete it.
+     *
+     * @throws IOException on failure to delete it
+     */
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        db.shutdown();
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Search for phenotypes, the way the search endpoint does.
+     *
+     * @return the results
+     * @throws IOException on database error
+     */
+    @Benchmark
+    public List<Phenotype> searchPhenotypes() throws IOException
+    {
+        return db.searchPhenotypes(QUERIES[calls++ % QUERIES.length]);
+    }
+
+    /**
+     * Look for an existing phenotype matching a new request that shares a synonym with one.
+     *
+     * @return the match
+     * @throws IOException on database error
+     */
+    @Benchmark
+    public Phenotype getPhenotypeDuplicate() throws IOException
+    {
+        return db.getPhenotype(duplicate);
+    }
+
+    /**
+     * Look for an existing phenotype matching a new request that matches none.
+     *
+     * @return the null phenotype
+     * @throws IOException on database error
+     */
+    @Benchmark
+    public Phenotype getPhenotypeUnmatched() throws IOException
+    {
+        return db.getPhenotype(unmatched);
+    }
+
+    /**
+     * Save a change to an existing phenotype, which reads its old version back first.
+     *
+     * @return the phenotype saved
+     * @throws IOException on database error
+     */
+    @Benchmark
+    public Phenotype savePhenotypeExisting() throws IOException
+    {
+        Phenotype pt = phenotypes.get(calls % phenotypes.size());
+        pt.setIssueNumber(Integer.toString(++calls));
+        return db.savePhenotype(pt);
+    }
+
+    /**
+     * Save a new phenotype, which gets the next id.
+     *
+     * @return the phenotype saved
+     * @throws IOException on database error
+     */
+    @Benchmark
+    public Phenotype savePhenotypeNew() throws IOException
+    {
+        return db.savePhenotype(newPhenotype("new abnormality number " + calls++));
+    }
+
+    /**
+     * Create a phenotype with a paragraph of description.
+     *
+     * @param name the name
+     * @return the phenotype
+     */
+    private static Phenotype newPhenotype(String name)
+    {
+        StringBuilder description = new StringBuilder();
+        while (description.length() < 300) {
+            description.append(FILLER);
+        }
+        Phenotype pt = new Phenotype(name, description.toString());
+        pt.addParentId("HP_0000118");
+        return pt;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.db.solr;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures mapping a phenotype to a solr document and back, without solr itself.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolrMapperBenchmark
+{
+    /**
+     * How many synonyms the phenotype has.
+     */
+    @Param({ "5", "30" })
+    public int synonymCount;
+
+    /**
+     * The mapper under test.
+     */
+    private SolrMapper mapper;
+
+    /**
+     * The phenotype to map.
+     */
+    private Phenotype phenotype;
+
+    /**
+     * The phenotype's document, as it would come back from solr.
+     */
+    private SolrDocument doc;
+
+    /**
+     * Build the phenotype and its document.
+     */
+    @Setup
+    public void setUp()
+    {
+        mapper = new SolrMapper();
+        phenotype = new Phenotype("abnormality of the nose", "The nose is abnormal in some way.");
+        phenotype.setId("TEMPHPO_0000042");
+        for (int i = 0; i < synonymCount; i++) {
+            phenotype.addSynonym("synonym " + i + " of the nose");
+        }
+        phenotype.addParentId("HP_0000118");
+        phenotype.addParentId("HP_0000366");
+        phenotype.setStatus(Phenotype.Status.SUBMITTED);
+        phenotype.setIssueNumber("42");
+        phenotype.setTimeCreated(new Date());
+        phenotype.setEtag("\"etag\"");
+        doc = new SolrDocument();
+        for (SolrInputField field : mapper.toDoc(phenotype, new Date())) {
+            doc.setField(field.getName(), field.getValue());
+        }
+    }
+
+    /**
+     * Map the phenotype to a document.
+     *
+     * @return the document
+     */
+    @Benchmark
+    public SolrInputDocument toDoc()
+    {
+        return mapper.toDoc(phenotype, new Date());
+    }
+
+    /**
+     * Map the document back to a phenotype.
+     *
+     * @return the phenotype
+     * @throws SolrServerException never
+     * @throws IOException never
+     */
+    @Benchmark
+    public Phenotype fromDoc() throws SolrServerException, IOException
+    {
+        return mapper.fromDoc(doc);
+    }
+}
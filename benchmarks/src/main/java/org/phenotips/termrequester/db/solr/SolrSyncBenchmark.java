@@ -0,0 +1,161 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.db.solr;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving a sync's worth of status changes to the solr database, as one batch then a commit.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolrSyncBenchmark
+{
+    /**
+     * A sentence of filler text for the descriptions.
+     */
+    private static final String FILLER = "the quick brown fox jumps over the lazy dog. ";
+
+    /**
+     * How many phenotypes each sync changes.
+     */
+    @Param({ "1000" })
+    public int phenotypeCount;
+
+    /**
+     * The directory the database lives in.
+     */
+    private Path dir;
+
+    /**
+     * The database.
+     */
+    private SolrDatabaseService db;
+
+    /**
+     * The phenotypes, as saved.
+     */
+    private List<Phenotype> phenotypes;
+
+    /**
+     * How many syncs have run, to alternate what they change.
+     */
+    private int syncs;
+
+    /**
+     * Create the database, holding phenotypes with a few synonyms and a paragraph of description each.
+     *
+     * @throws IOException on failure to create it
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        dir = Files.createTempDirectory("termrequester-bench");
+        db = new SolrDatabaseService();
+        db.init(dir);
+        db.setAutocommit(false);
+        StringBuilder description = new StringBuilder();
+        while (description.length() < 300) {
+            description.append(FILLER);
+        }
+        phenotypes = new ArrayList<>(phenotypeCount);
+        for (int i = 0; i < phenotypeCount; i++) {
+            Phenotype pt = new Phenotype("abnormality number " + i, description.toString());
+            for (int j = 0; j < 5; j++) {
+                pt.addSynonym("synonym " + j + " of abnormality " + i);
+            }
+            pt.addParentId("HP_0000118");
+            pt.setStatus(Phenotype.Status.SUBMITTED);
+            pt.setIssueNumber(Integer.toString(i + 1));
+            phenotypes.add(pt);
+        }
+        db.savePhenotypes(phenotypes);
+        db.commit();
+    }
+
+    /**
+     * Shut the database down and delete it.
+     *
+     * @throws IOException on failure to delete it
+     */
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        db.shutdown();
+        FileUtils.deleteDirectory(dir.toFile());
+    }
+
+    /**
+     * Save a sync that changes the status of every phenotype.
+     *
+     * @throws IOException on database error
+     */
+    @Benchmark
+    public void statusChanges() throws IOException
+    {
+        Phenotype.Status status = nextStatus();
+        for (Phenotype pt : phenotypes) {
+            pt.setStatus(status);
+        }
+        db.savePhenotypes(phenotypes);
+        db.commit();
+    }
+
+    /**
+     * Get the status the next sync sets, so that every sync changes every phenotype.
+     *
+     * @return the status
+     */
+    private Phenotype.Status nextStatus()
+    {
+        syncs++;
+        if (syncs % 2 == 0) {
+            return Phenotype.Status.SUBMITTED;
+        } else {
+            return Phenotype.Status.ACCEPTED;
+        }
+    }
+}
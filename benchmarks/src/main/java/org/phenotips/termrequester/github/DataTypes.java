@@ -29,7 +29,8 @@
 /**
  * Contains simple data types that get returned by the github api.
  * These often only contain those fields we care about, and have them as public.
- * Should only be used for (de)serialization purposes
+ * GithubAPIImpl used to map search responses onto these; they are only kept as the databind baseline for
+ * IssueDecoderBenchmark.
  */
 final class DataTypes
 {
@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import org.phenotips.termrequester.Phenotype;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures turning a phenotype into an issue body and an issue back into a phenotype, as creating an issue
+ * and syncing one do.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssueBenchmark
+{
+    /**
+     * How many synonyms the phenotype has.
+     */
+    @Param({ "5", "30" })
+    public int synonymCount;
+
+    /**
+     * The phenotype to describe.
+     */
+    private Phenotype phenotype;
+
+    /**
+     * The issue describing it.
+     */
+    private Issue issue;
+
+    /**
+     * Build the phenotype and its issue.
+     */
+    @Setup
+    public void setUp()
+    {
+        phenotype = new Phenotype("abnormality of the nose", "The nose is abnormal in some way.\nIt is big.");
+        for (int i = 0; i < synonymCount; i++) {
+            phenotype.addSynonym("synonym " + i + " of the nose");
+        }
+        phenotype.addParentId("HP_0000118");
+        phenotype.addParentId("HP_0000366");
+        issue = new Issue();
+        issue.setNumber(42);
+        issue.setState("open");
+        issue.setTitle(Issue.getIssueTitle(phenotype.getName()));
+        issue.setBody(Issue.describe(phenotype));
+    }
+
+    /**
+     * Describe the phenotype as an issue body.
+     *
+     * @return the body
+     */
+    @Benchmark
+    public String describe()
+    {
+        return Issue.describe(phenotype);
+    }
+
+    /**
+     * Read the issue back as a phenotype.
+     *
+     * @return the phenotype
+     */
+    @Benchmark
+    public Phenotype asPhenotype()
+    {
+        return issue.asPhenotype();
+    }
+}
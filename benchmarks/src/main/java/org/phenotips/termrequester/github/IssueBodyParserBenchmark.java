@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares IssueBodyParser to the regex it replaced, on large human-edited issue bodies.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssueBodyParserBenchmark
+{
+    /**
+     * A line of filler text for the description.
+     */
+    private static final String FILLER = "the quick brown fox jumps over the lazy dog, twice: ";
+
+    /**
+     * The total length of the description, in characters.
+     */
+    @Param({ "1000", "100000" })
+    public int descriptionLength;
+
+    /**
+     * How many lines the description is spread over.
+     */
+    @Param({ "1", "500" })
+    public int descriptionLines;
+
+    /**
+     * The issue body under test.
+     */
+    private String body;
+
+    /**
+     * Build the issue body.
+     */
+    @Setup
+    public void setUp()
+    {
+        StringBuilder description = new StringBuilder(descriptionLength + descriptionLines);
+        int lineLength = Math.max(1, descriptionLength / descriptionLines);
+        while (description.length() < descriptionLength) {
+            int start = description.length();
+            while (description.length() - start < lineLength) {
+                description.append(FILLER);
+            }
+            description.append('\n');
+        }
+        body = String.format(Issue.BODY_FORMAT, "Some Phenotype", "One, Two, Three",
+                "HP_0000118, HP_0000001", description, "NONE");
+    }
+
+    /**
+     * Parse the body with the line oriented parser.
+     *
+     * @return the parsed values
+     */
+    @Benchmark
+    public String[] parser()
+    {
+        return IssueBodyParser.parse(body).get();
+    }
+
+    /**
+     * Parse the body the way Issue.asPhenotype used to, with find() then matches().
+     *
+     * @return the parsed values
+     */
+    @Benchmark
+    public String[] pattern()
+    {
+        Matcher m = Issue.BODY_PATTERN.matcher(body);
+        m.find();
+        if (!m.matches()) {
+            throw new IllegalStateException("Benchmark body does not match");
+        }
+        return new String[] {
+            m.group("name").trim(), m.group("synonyms").trim(), m.group("parents").trim(),
+            m.group("description").trim(), m.group("hpoid").trim(),
+        };
+    }
+}
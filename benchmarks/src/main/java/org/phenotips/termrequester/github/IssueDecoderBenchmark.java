@@ -0,0 +1,169 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.github;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.google.common.base.Optional;
+
+/**
+ * Compares IssueDecoder to the databind mapping it replaced, on a github search response.
+ * Run with {@code -prof gc} to get the allocation per search; dividing by {@code issues} gives it per issue.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IssueDecoderBenchmark
+{
+    /**
+     * An issue as github's search returns it, with a placeholder for the number.
+     * The labels are empty because the databind Issue can't map github's label objects.
+     */
+    private static final String ISSUE = "{\"url\":\"https://api.github.com/repos/o/r/issues/%1$d\","
+        + "\"repository_url\":\"https://api.github.com/repos/o/r\","
+        + "\"labels_url\":\"https://api.github.com/repos/o/r/issues/%1$d/labels{/name}\","
+        + "\"comments_url\":\"https://api.github.com/repos/o/r/issues/%1$d/comments\","
+        + "\"events_url\":\"https://api.github.com/repos/o/r/issues/%1$d/events\","
+        + "\"html_url\":\"https://github.com/o/r/issues/%1$d\",\"id\":%1$d00,\"number\":%1$d,"
+        + "\"title\":\"Phenotype %1$d\",\"user\":{\"login\":\"someone\",\"id\":1,"
+        + "\"avatar_url\":\"https://avatars.githubusercontent.com/u/1?v=3\",\"gravatar_id\":\"\","
+        + "\"url\":\"https://api.github.com/users/someone\",\"html_url\":\"https://github.com/someone\","
+        + "\"type\":\"User\",\"site_admin\":false},\"labels\":[],\"state\":\"open\",\"locked\":false,"
+        + "\"assignee\":null,\"assignees\":[],\"milestone\":null,\"comments\":0,"
+        + "\"created_at\":\"2016-08-01T12:00:00Z\",\"updated_at\":\"2016-08-01T12:00:00Z\",\"closed_at\":null,"
+        + "\"body\":\"TERM: Phenotype %1$d\\nSYNONYMS: \\nPARENTS: \\nDESCRIPTION: Something\\nHPO_ID: NONE\\n\\n"
+        + "This issue was autogenerated by phenotips.org\",\"score\":1.0}";
+
+    /**
+     * How many issues are in the search response.
+     */
+    @Param({ "1", "30", "100" })
+    public int issues;
+
+    /**
+     * The mapper for the databind path.
+     */
+    private ObjectMapper mapper;
+
+    /**
+     * The decoder under test.
+     */
+    private IssueDecoder decoder;
+
+    /**
+     * The search response.
+     */
+    private byte[] search;
+
+    /**
+     * Build the search response.
+     */
+    @Setup
+    public void setUp()
+    {
+        mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        decoder = new IssueDecoder(mapper.getFactory());
+        StringBuilder json = new StringBuilder("{\"total_count\":").append(issues).
+            append(",\"incomplete_results\":false,\"items\":[");
+        for (int i = 1; i <= issues; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append(String.format(ISSUE, i));
+        }
+        search = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decode every issue in the response with the streaming decoder.
+     *
+     * @return the last issue
+     * @throws IOException never
+     */
+    @Benchmark
+    public Issue streaming() throws IOException
+    {
+        Issue last = null;
+        try (IssueDecoder.SearchResults results = decoder.readSearch(new ByteArrayInputStream(search))) {
+            Optional<Issue> issue;
+            while ((issue = results.next()).isPresent()) {
+                last = issue.get();
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Decode the first issue in the response with the streaming decoder, as a search that
+     * matches straight away does.
+     *
+     * @return the first issue
+     * @throws IOException never
+     */
+    @Benchmark
+    public Issue streamingFirst() throws IOException
+    {
+        try (IssueDecoder.SearchResults results = decoder.readSearch(new ByteArrayInputStream(search))) {
+            return results.next().get();
+        }
+    }
+
+    /**
+     * Map the whole response the way GithubAPIImpl used to.
+     *
+     * @return the last issue
+     * @throws IOException never
+     */
+    @Benchmark
+    public Issue databind() throws IOException
+    {
+        DataTypes.SearchResults<Issue> results = mapper.readValue(new ByteArrayInputStream(search),
+                new TypeReference<DataTypes.SearchResults<Issue>>() { });
+        Issue last = null;
+        for (Issue issue : results) {
+            last = issue;
+        }
+        return last;
+    }
+}
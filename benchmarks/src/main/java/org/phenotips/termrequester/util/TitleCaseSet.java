@@ -30,6 +30,7 @@
 
 /**
  * A set of strings where every element is converted to title case.
+ * Phenotypes used to keep their names in these; it's only kept to compare against in PhenotypeEqualsBenchmark.
  *
  * @version $Id$
  */
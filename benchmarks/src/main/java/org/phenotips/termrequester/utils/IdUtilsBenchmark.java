@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures checking and incrementing ids, by scanning them as IdUtils does and, for comparison, by matching
+ * the id patterns and formatting the result as it used to.
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdUtilsBenchmark
+{
+    /**
+     * An hpo id, which a REST lookup checks against both patterns.
+     */
+    private String hpoId = "HP_0000118";
+
+    /**
+     * One of our ids.
+     */
+    private String id = "TEMPHPO_0000451";
+
+    /**
+     * Check an hpo id the way the REST resources do.
+     *
+     * @return whether it's a valid id
+     */
+    @Benchmark
+    public boolean isIdScanned()
+    {
+        return IdUtils.isId(hpoId) || IdUtils.isHpoId(hpoId);
+    }
+
+    /**
+     * Check an hpo id with the patterns.
+     *
+     * @return whether it's a valid id
+     */
+    @Benchmark
+    public boolean isIdMatched()
+    {
+        return matches(IdUtils.ID_PATTERN.matcher(hpoId)) || matches(IdUtils.HPO_ID_PATTERN.matcher(hpoId));
+    }
+
+    /**
+     * Increment an id, as inserting a phenotype does.
+     *
+     * @return the next id
+     */
+    @Benchmark
+    public String incrementScanned()
+    {
+        return IdUtils.incrementId(id);
+    }
+
+    /**
+     * Increment an id with the pattern and String.format.
+     *
+     * @return the next id
+     */
+    @Benchmark
+    public String incrementMatched()
+    {
+        Matcher m = IdUtils.ID_PATTERN.matcher(id);
+        if (!matches(m)) {
+            throw new IllegalArgumentException(id);
+        }
+        return String.format(IdUtils.ID_FORMAT, Integer.parseInt(m.group(1)) + 1);
+    }
+
+    /**
+     * Match as IdUtils used to, finding and then matching.
+     *
+     * @param m the matcher
+     * @return whether it matches
+     */
+    private static boolean matches(Matcher m)
+    {
+        m.find();
+        return m.matches();
+    }
+}
@@ -19,15 +19,9 @@
 
 import org.phenotips.termrequester.PhenotypeManager;
 import org.phenotips.termrequester.TermRequesterBackendException;
-import org.phenotips.termrequester.github.GithubAPI;
-import org.phenotips.termrequester.rest.resources.annotations.HomeDir;
-import org.phenotips.termrequester.rest.resources.annotations.OAuthToken;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryName;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryOwner;
+import org.phenotips.termrequester.rest.resources.PhenotypeManagerLifecycle;
 
-import java.nio.file.Paths;
-
-import org.quartz.Job;
+import org.quartz.InterruptableJob;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
@@ -38,41 +32,50 @@
  *
  * @version $Id$
  */
-public class PollJob implements Job
+public class PollJob implements InterruptableJob
 {
     /**
-     * The phenotype manager for this poll job.
+     * The lifecycle of the phenotype manager.
+     */
+    private PhenotypeManagerLifecycle lifecycle;
+
+    /**
+     * The phenotype manager for this poll job, while it runs.
      */
-    private PhenotypeManager manager;
+    private volatile PhenotypeManager manager;
 
     /**
      * CTOR.
-     * @param manager the phenotype manager
-     * @param token the oauth token
-     * @param repoName the repository name
-     * @param repoOwner the repository owner
-     * @param homeDir the home directory of the app
+     * @param lifecycle the lifecycle of the phenotype manager
      */
     @Inject
-    public PollJob(PhenotypeManager manager, @OAuthToken String token, @RepositoryName String repoName,
-            @RepositoryOwner String repoOwner, @HomeDir String homeDir)
+    public PollJob(PhenotypeManagerLifecycle lifecycle)
     {
-        this.manager = manager;
-        GithubAPI.Repository repo = new GithubAPI.Repository(repoOwner, repoName, token);
-        try {
-            manager.init(repo, Paths.get(homeDir));
-        } catch (TermRequesterBackendException e) {
-            throw new RuntimeException(e);
-        }
+        this.lifecycle = lifecycle;
     }
 
     @Override
     public void execute(JobExecutionContext ctx) throws JobExecutionException
     {
-        try {
+        try (PhenotypeManagerLifecycle.Handle handle = lifecycle.acquire()) {
+            manager = handle.getManager();
             manager.syncPhenotypes();
         } catch (TermRequesterBackendException e) {
             throw new JobExecutionException(e);
+        } finally {
+            manager = null;
+        }
+    }
+
+    /**
+     * Cancel the running sync. It will stop reading from github and save whatever it has got so far.
+     */
+    @Override
+    public void interrupt()
+    {
+        PhenotypeManager running = manager;
+        if (running != null) {
+            running.getSyncProgress().cancel();
         }
     }
 }
@@ -18,15 +18,20 @@
 package org.phenotips.termrequester.rest;
 
 import org.phenotips.termrequester.PhenotypeManager;
-import org.phenotips.termrequester.TermRequesterBackendException;
-import org.phenotips.termrequester.github.GithubAPI;
+import org.phenotips.termrequester.rest.resources.PhenotypeManagerLifecycle;
 import org.phenotips.termrequester.rest.resources.PhenotypeResource;
+import org.phenotips.termrequester.rest.resources.PhenotypesChangesResource;
+import org.phenotips.termrequester.rest.resources.PhenotypesEventsResource;
+import org.phenotips.termrequester.rest.resources.PhenotypesLookupResource;
 import org.phenotips.termrequester.rest.resources.PhenotypesResource;
 import org.phenotips.termrequester.rest.resources.RESTResourcesModule;
 
 import java.nio.file.Paths;
 
+import java.util.concurrent.TimeUnit;
+
 import org.quartz.JobDetail;
+import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
@@ -77,6 +82,29 @@ public class TermRequesterApplication extends Application
      */
     public static final String SYNC_INTERVAL_PARAM = "org.phenotips.termrequester.syncInterval";
 
+    /**
+     * The parameter for how long a phenotype can go without being checked against github, in seconds.
+     * Optional.
+     */
+    public static final String MAX_STALENESS_PARAM = "org.phenotips.termrequester.maxStaleness";
+
+    /**
+     * The parameter for how many github requests a sync may make per second.
+     * Optional.
+     */
+    public static final String SYNC_RATE_PARAM = "org.phenotips.termrequester.syncRate";
+
+    /**
+     * The parameter for the path to the HPO release file, in OBO format.
+     * Optional.
+     */
+    public static final String HPO_RELEASE_PARAM = "org.phenotips.termrequester.hpoRelease";
+
+    /**
+     * The key of the poll job.
+     */
+    private static final JobKey POLL_JOB = new JobKey("githubPoll", "termrequester");
+
     /**
      * The quartz scheduler.
      * TODO This is probably a bad place for the Scheduler, partly because this
@@ -90,9 +118,9 @@ public class TermRequesterApplication extends Application
     private Injector injector;
 
     /**
-     * The phenotype manager.
+     * The application's own handle on the phenotype manager, which keeps it up between requests.
      */
-    private PhenotypeManager manager;
+    private PhenotypeManagerLifecycle.Handle handle;
 
     /**
      * CTOR.
@@ -116,6 +144,9 @@ public Restlet createInboundRoot()
     {
         FinderFactory finder = injector.getInstance(FinderFactory.class);
         Router router = new Router(getContext());
+        router.attach("/phenotypes/changes", finder.finder(PhenotypesChangesResource.class));
+        router.attach("/phenotypes/events", finder.finder(PhenotypesEventsResource.class));
+        router.attach("/phenotypes/lookup", finder.finder(PhenotypesLookupResource.class));
         router.attach("/phenotypes", finder.finder(PhenotypesResource.class));
         router.attach("/phenotype/{id}", finder.finder(PhenotypeResource.class));
         return router;
@@ -130,13 +161,26 @@ public void start() throws Exception
         String homeDir = getContext().getParameters().getFirstValue(HOME_DIR_PARAM);
         double interval = Double.parseDouble(getContext().getParameters().
                 getFirstValue(SYNC_INTERVAL_PARAM));
+        String maxStaleness = getContext().getParameters().getFirstValue(MAX_STALENESS_PARAM);
+        String syncRate = getContext().getParameters().getFirstValue(SYNC_RATE_PARAM);
+        String hpoRelease = getContext().getParameters().getFirstValue(HPO_RELEASE_PARAM);
         /* The phenotype manager is a singleton, because stateful (or at least transitively stateful,
-         * since the database is for sure stateful), so we're gonna initialize it ourselves and
-         * ensure the server resources don't do anything to it by passing @OwnResources as false
+         * since the database is for sure stateful), so we hold a handle on it for as long as we're up:
+         * requests and poll jobs then only take their own handles, without starting or stopping anything
          */
         injector = RestletGuice.createInjector(new RESTResourcesModule(repoOwner, repoName,
-                    token, homeDir, false));
-        startPhenotypeManager(repoOwner, repoName, token, homeDir);
+                    token, homeDir));
+        handle = injector.getInstance(PhenotypeManagerLifecycle.class).acquire();
+        PhenotypeManager manager = handle.getManager();
+        if (maxStaleness != null) {
+            manager.setMaxStaleness(Long.parseLong(maxStaleness), TimeUnit.SECONDS);
+        }
+        if (syncRate != null) {
+            manager.setSyncRate(Double.parseDouble(syncRate));
+        }
+        if (hpoRelease != null) {
+            manager.setReleaseFile(Paths.get(hpoRelease));
+        }
         super.start();
         sched = StdSchedulerFactory.getDefaultScheduler();
         sched.setJobFactory(injector.getInstance(PTJobFactory.class));
@@ -148,23 +192,12 @@ public void start() throws Exception
     public void stop() throws Exception
     {
         super.stop();
+        /* A sync can take a long while, so stop starting them and cut the running one short, which still saves
+         * whatever it has got, before waiting for it */
+        sched.standby();
+        sched.interrupt(POLL_JOB);
         sched.shutdown(true);
-        manager.shutdown();
-    }
-
-    /**
-     * initialize the phenotype manager.
-     * @param repoOwner the owner of the repository
-     * @param repoName the name of the repository
-     * @param token the oauth token
-     * @param homeDir the home directory
-     */
-    private void startPhenotypeManager(String repoOwner, String repoName, String token, String homeDir)
-        throws TermRequesterBackendException
-    {
-        GithubAPI.Repository repo = new GithubAPI.Repository(repoOwner, repoName, token);
-        manager = injector.getInstance(PhenotypeManager.class);
-        manager.init(repo, Paths.get(homeDir));
+        handle.close();
     }
 
     /**
@@ -175,12 +208,11 @@ private void startPhenotypeManager(String repoOwner, String repoName, String tok
      */
     private void schedulePoll(double interval) throws SchedulerException
     {
-        String groupName = "termrequester";
         JobDetail job = newJob(PollJob.class).
-            withIdentity("githubPoll", groupName).
+            withIdentity(POLL_JOB).
             build();
         Trigger trigger = newTrigger().
-            withIdentity("githubPollTrigger", groupName).
+            withIdentity("githubPollTrigger", POLL_JOB.getGroup()).
             startNow().
             withSchedule(simpleSchedule().
                     withIntervalInSeconds((int) Math.floor(3600 * interval)).
@@ -19,87 +19,62 @@
 
 import org.phenotips.termrequester.PhenotypeManager;
 import org.phenotips.termrequester.TermRequesterBackendException;
-import org.phenotips.termrequester.github.GithubAPI;
-import org.phenotips.termrequester.rest.resources.annotations.HomeDir;
-import org.phenotips.termrequester.rest.resources.annotations.OAuthToken;
-import org.phenotips.termrequester.rest.resources.annotations.OwnResources;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryName;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryOwner;
-
-import java.nio.file.Paths;
 
 import org.restlet.resource.ResourceException;
 import org.restlet.resource.ServerResource;
 
-import com.google.inject.Inject;
-
 /**
  * An abstract resource, encapsulates backend stuff and provides common initialization and
  * shutdown routines.
+ * Each request holds a handle on the phenotype manager while it's being handled, which is cheap as long as
+ * the application holds one too.
  *
  * @version $Id$
  */
 public abstract class AbstractTermRequesterResource extends ServerResource
 {
     /**
-     * The phenotype manager.
+     * The phenotype manager, once the resource is initialized.
      */
     protected PhenotypeManager ptManager;
 
     /**
-     * The home directory of this resource.
-     */
-    private String homeDir;
-
-    /**
-     * The github repository we'll be hitting.
+     * The lifecycle of the phenotype manager.
      */
-    private GithubAPI.Repository repo;
+    private PhenotypeManagerLifecycle lifecycle;
 
     /**
-     * Whether we own the resources we use.
+     * The handle on the phenotype manager, while the resource is initialized.
      */
-    private boolean owned;
+    private PhenotypeManagerLifecycle.Handle handle;
 
     /**
      * CTOR.
      *
-     * @param ptManager the injected phenotype manager.
-     * @param homeDir the directory to store files in
-     * @param token the oauth token
-     * @param repoName the name of the repo
-     * @param repoOwner the owner of the repo
-     * @param owned whether we are responsible for creating/destroying resources
+     * @param lifecycle the lifecycle of the phenotype manager
      */
-    @Inject
-    public AbstractTermRequesterResource(PhenotypeManager ptManager, @HomeDir String homeDir,
-            @OAuthToken String token, @RepositoryName String repoName,
-            @RepositoryOwner String repoOwner, @OwnResources Boolean owned)
+    public AbstractTermRequesterResource(PhenotypeManagerLifecycle lifecycle)
     {
-        this.ptManager = ptManager;
-        this.homeDir = homeDir;
-        repo = new GithubAPI.Repository(repoOwner, repoName, token);
-        this.owned = owned;
+        this.lifecycle = lifecycle;
     }
 
     @Override
     protected void doInit()
     {
-        if (owned) {
-            try {
-                ptManager.init(repo, Paths.get(homeDir));
-            } catch (TermRequesterBackendException e) {
-                throw new ResourceException(e);
-            }
+        try {
+            handle = lifecycle.acquire();
+        } catch (TermRequesterBackendException e) {
+            throw new ResourceException(e);
         }
+        ptManager = handle.getManager();
     }
 
     @Override
     protected void doRelease()
     {
-        if (owned) {
+        if (handle != null) {
             try {
-                ptManager.shutdown();
+                handle.close();
             } catch (TermRequesterBackendException e) {
                 throw new ResourceException(e);
             }
@@ -0,0 +1,59 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import java.util.concurrent.Semaphore;
+
+import com.google.inject.Singleton;
+
+/**
+ * Keeps count of the event streams open. Each one holds a server thread for as long as it's open, so only a
+ * few are let in at a time, leaving the rest of the threads to the other resources.
+ *
+ * @version $Id$
+ */
+@Singleton
+public class EventStreams
+{
+    /**
+     * The most event streams open at once.
+     */
+    public static final int MAX_STREAMS = 4;
+
+    /**
+     * The streams left to open.
+     */
+    private final Semaphore permits = new Semaphore(MAX_STREAMS);
+
+    /**
+     * Open a stream, if there's room for one. Must be closed once done with if this returns true.
+     * @return whether it could be opened
+     */
+    public boolean tryOpen()
+    {
+        return permits.tryAcquire();
+    }
+
+    /**
+     * Close a stream opened with tryOpen.
+     */
+    public void close()
+    {
+        permits.release();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.phenotips.termrequester.PhenotypeManager;
+import org.phenotips.termrequester.TermRequesterBackendException;
+import org.phenotips.termrequester.github.GithubAPI;
+import org.phenotips.termrequester.rest.resources.annotations.HomeDir;
+import org.phenotips.termrequester.rest.resources.annotations.OAuthToken;
+import org.phenotips.termrequester.rest.resources.annotations.RepositoryName;
+import org.phenotips.termrequester.rest.resources.annotations.RepositoryOwner;
+
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the phenotype manager up for as long as anything holds a handle to it.
+ * The manager is initialized when the first handle is acquired and shut down when the last one is closed,
+ * so as long as the application holds one for its whole life, every other acquire and close is just a
+ * counter going up and down.
+ *
+ * @version $Id$
+ */
+@Singleton
+public class PhenotypeManagerLifecycle
+{
+    /**
+     * The phenotype manager.
+     */
+    private final PhenotypeManager manager;
+
+    /**
+     * The github repository the manager works with.
+     */
+    private final GithubAPI.Repository repo;
+
+    /**
+     * The directory the manager keeps its files in.
+     */
+    private final String homeDir;
+
+    /**
+     * The number of handles open.
+     */
+    private int refs;
+
+    /**
+     * CTOR.
+     *
+     * @param manager the injected phenotype manager.
+     * @param homeDir the directory to store files in
+     * @param token the oauth token
+     * @param repoName the name of the repo
+     * @param repoOwner the owner of the repo
+     */
+    @Inject
+    PhenotypeManagerLifecycle(PhenotypeManager manager, @HomeDir String homeDir, @OAuthToken String token,
+            @RepositoryName String repoName, @RepositoryOwner String repoOwner)
+    {
+        this.manager = manager;
+        this.homeDir = homeDir;
+        this.repo = new GithubAPI.Repository(repoOwner, repoName, token);
+    }
+
+    /**
+     * Get a handle to the phenotype manager, starting it if nobody else holds one.
+     * @return the handle, which must be closed when done with
+     * @throws TermRequesterBackendException if the manager fails to start
+     */
+    public synchronized Handle acquire() throws TermRequesterBackendException
+    {
+        if (refs == 0) {
+            manager.init(repo, Paths.get(homeDir));
+        }
+        refs++;
+        return new Handle();
+    }
+
+    /**
+     * Get the number of handles open.
+     * @return the number of handles
+     */
+    public synchronized int getRefCount()
+    {
+        return refs;
+    }
+
+    /**
+     * Give a handle back, shutting the manager down if it was the last one.
+     * @throws TermRequesterBackendException if the manager fails to shut down
+     */
+    private synchronized void release() throws TermRequesterBackendException
+    {
+        refs--;
+        if (refs == 0) {
+            manager.shutdown();
+        }
+    }
+
+    /**
+     * A handle to the phenotype manager, keeping it up until closed.
+     *
+     * @version $Id$
+     */
+    public final class Handle implements AutoCloseable
+    {
+        /**
+         * Whether this handle has been closed.
+         */
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        /**
+         * Get the phenotype manager.
+         * @return the manager
+         */
+        public PhenotypeManager getManager()
+        {
+            return manager;
+        }
+
+        /**
+         * Give the handle back. Closing it again does nothing.
+         * @throws TermRequesterBackendException if this was the last handle and the manager fails to shut down
+         */
+        @Override
+        public void close() throws TermRequesterBackendException
+        {
+            if (closed.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+}
@@ -17,8 +17,7 @@
  */
 package org.phenotips.termrequester.rest.resources;
 
-import org.phenotips.termrequester.Phenotype;
-
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 
 /**
@@ -31,9 +30,11 @@
     /**
      * Get the phenotype that matches the id at the end of the requested uri.
      * Will return an empty 404 if nothing is found.
+     * Responses carry an ETag and a Last-Modified date, and conditional requests get an empty 304 if
+     * the phenotype hasn't changed.
      *
-     * @return the phenotype
+     * @return the phenotype, as json
      */
     @Get("json")
-    Phenotype getById();
+    Representation getById();
 }
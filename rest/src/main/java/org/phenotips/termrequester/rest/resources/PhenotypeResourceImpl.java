@@ -18,19 +18,24 @@
 package org.phenotips.termrequester.rest.resources;
 
 import org.phenotips.termrequester.Phenotype;
-import org.phenotips.termrequester.PhenotypeManager;
+import org.phenotips.termrequester.PhenotypeVersion;
 import org.phenotips.termrequester.TermRequesterBackendException;
-import org.phenotips.termrequester.rest.resources.annotations.HomeDir;
-import org.phenotips.termrequester.rest.resources.annotations.OAuthToken;
-import org.phenotips.termrequester.rest.resources.annotations.OwnResources;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryName;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryOwner;
 import org.phenotips.termrequester.utils.IdUtils;
 
+import java.util.Date;
+import java.util.List;
+
+import org.restlet.data.CacheDirective;
+import org.restlet.data.Conditions;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.ext.jackson.JacksonRepresentation;
+import org.restlet.representation.EmptyRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 import org.restlet.resource.ResourceException;
 
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 
 
@@ -47,27 +52,25 @@ public class PhenotypeResourceImpl extends AbstractTermRequesterResource
      */
     private static final String ID_ATTRIBUTE = "id";
 
+    /**
+     * How long caches may keep a published phenotype, in seconds.
+     */
+    private static final int PUBLISHED_MAX_AGE = 24 * 60 * 60;
+
     /**
      * CTOR.
      *
-     * @param ptManager the injected phenotype manager.
-     * @param homeDir the directory to store files in
-     * @param token the oauth token
-     * @param repoName the name of the repo
-     * @param repoOwner the owner of the repo
-     * @param owned whether we should own the resources needed
+     * @param lifecycle the lifecycle of the phenotype manager
      */
     @Inject
-    PhenotypeResourceImpl(PhenotypeManager ptManager, @HomeDir String homeDir,
-            @OAuthToken String token, @RepositoryName String repoName,
-            @RepositoryOwner String repoOwner, @OwnResources Boolean owned)
+    PhenotypeResourceImpl(PhenotypeManagerLifecycle lifecycle)
     {
-        super(ptManager, homeDir, token, repoName, repoOwner, owned);
+        super(lifecycle);
     }
 
     @Override
     @Get("json")
-    public Phenotype getById()
+    public Representation getById()
     {
         String id = (String) getRequest().getAttributes().get(ID_ATTRIBUTE);
         if (!(IdUtils.isId(id) || IdUtils.isHpoId(id))) {
@@ -75,17 +78,98 @@ public Phenotype getById()
             return null;
         }
         try {
-            Phenotype pt = ptManager.getPhenotypeById(id);
-            if (pt.getStatus().equals(Phenotype.Status.PUBLISHED)) {
-                pt = PublishedPhenotype.from(pt);
+            Conditions conditions = getRequest().getConditions();
+            if (!conditions.getNoneMatch().isEmpty() || conditions.getModifiedSince() != null) {
+                /* Try to answer without reading the whole phenotype */
+                Optional<PhenotypeVersion> version = ptManager.getPhenotypeVersion(id);
+                if (version.isPresent()) {
+                    PhenotypeVersion v = version.get();
+                    Tag tag = new Tag(v.getVersion(), true);
+                    if (isNotModified(conditions, tag, v.getTimeModified())) {
+                        return notModified(tag, v.getTimeModified(), v.getStatus());
+                    }
+                }
             }
+            Phenotype pt = ptManager.getPhenotypeById(id);
             if (Phenotype.NULL.equals(pt)) {
                 getResponse().setStatus(Status.CLIENT_ERROR_NOT_FOUND);
                 return null;
             }
-            return pt;
+            Tag tag = new Tag(pt.getVersion(), true);
+            Date modified = pt.getTimeModified().orNull();
+            if (isNotModified(conditions, tag, modified)) {
+                return notModified(tag, modified, pt.getStatus());
+            }
+            Representation representation;
+            if (pt.getStatus().equals(Phenotype.Status.PUBLISHED)) {
+                representation = new JacksonRepresentation<Phenotype>(PublishedPhenotype.from(pt));
+            } else {
+                representation = new JacksonRepresentation<>(pt);
+            }
+            representation.setTag(tag);
+            representation.setModificationDate(modified);
+            setCacheDirectives(pt.getStatus());
+            return representation;
         } catch (TermRequesterBackendException e) {
             throw new ResourceException(e);
         }
     }
+
+    /**
+     * Get whether the conditions given say the client already has the version given.
+     * As per the spec, If-None-Match wins over If-Modified-Since when there are both.
+     * @param conditions the request conditions
+     * @param tag the current etag
+     * @param modified when the phenotype last changed, or null
+     * @return whether the client's copy is current
+     */
+    private boolean isNotModified(Conditions conditions, Tag tag, Date modified)
+    {
+        List<Tag> noneMatch = conditions.getNoneMatch();
+        if (!noneMatch.isEmpty()) {
+            for (Tag candidate : noneMatch) {
+                if (Tag.ALL.equals(candidate) || tag.equals(candidate, false)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        Date since = conditions.getModifiedSince();
+        /* HTTP dates have no milliseconds */
+        return since != null && modified != null && modified.getTime() / 1000 <= since.getTime() / 1000;
+    }
+
+    /**
+     * Answer with an empty 304, still telling the client what's current.
+     * @param tag the current etag
+     * @param modified when the phenotype last changed, or null
+     * @param status the status of the phenotype
+     * @return the representation to answer with
+     */
+    private Representation notModified(Tag tag, Date modified, Phenotype.Status status)
+    {
+        Representation representation = new EmptyRepresentation();
+        representation.setTag(tag);
+        representation.setModificationDate(modified);
+        setCacheDirectives(status);
+        getResponse().setStatus(Status.REDIRECTION_NOT_MODIFIED);
+        return representation;
+    }
+
+    /**
+     * Tell caches how long they can keep a phenotype with the status given.
+     * Published phenotypes are in the HPO for good, so they can be kept for a while; anything else has to
+     * be revalidated every time, which conditional requests make cheap.
+     * @param status the status
+     */
+    private void setCacheDirectives(Phenotype.Status status)
+    {
+        List<CacheDirective> directives = getResponse().getCacheDirectives();
+        if (Phenotype.Status.PUBLISHED.equals(status)) {
+            directives.add(CacheDirective.publicInfo());
+            directives.add(CacheDirective.maxAge(PUBLISHED_MAX_AGE));
+        } else {
+            directives.add(CacheDirective.noCache());
+        }
+    }
 }
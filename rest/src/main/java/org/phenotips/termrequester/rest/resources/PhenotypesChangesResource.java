@@ -0,0 +1,42 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+
+/**
+ * A feed of the phenotypes that have changed, so that clients can keep their copies in sync without
+ * fetching every phenotype again.
+ *
+ * @version $Id$
+ */
+public interface PhenotypesChangesResource
+{
+    /**
+     * Get a page of the phenotypes changed since the time given in the "since" query parameter (milliseconds
+     * since the epoch, or the beginning if missing), oldest change first. Answers with a json object with
+     * the phenotypes under "changes", and under "cursor" a position to pass back as the "cursor" parameter
+     * to get what comes after them; the cursor replaces since. The "rows" parameter sets the page size.
+     * Responds with a 400 if a parameter is malformed.
+     *
+     * @return the changes
+     */
+    @Get("json")
+    Representation getChanges();
+}
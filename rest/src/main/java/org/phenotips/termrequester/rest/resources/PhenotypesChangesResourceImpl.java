@@ -0,0 +1,197 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.TermRequesterBackendException;
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+import org.restlet.resource.ResourceException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Optional;
+import com.google.inject.Inject;
+
+/**
+ * Implements the feed of changed phenotypes.
+ * Cursors are the modification time and id of the last phenotype seen, as "time.id"; ids never contain dots.
+ *
+ * @version $Id$
+ */
+public class PhenotypesChangesResourceImpl extends AbstractTermRequesterResource
+    implements PhenotypesChangesResource
+{
+    /**
+     * The most phenotypes a single page may have.
+     */
+    public static final int MAX_ROWS = 1000;
+
+    /**
+     * How many phenotypes a page has if the client doesn't say.
+     */
+    public static final int DEFAULT_ROWS = 100;
+
+    /**
+     * The parameter for the time to start from.
+     */
+    private static final String SINCE_PARAM = "since";
+
+    /**
+     * The parameter for the cursor to carry on from.
+     */
+    private static final String CURSOR_PARAM = "cursor";
+
+    /**
+     * The parameter for the page size.
+     */
+    private static final String ROWS_PARAM = "rows";
+
+    /**
+     * What separates the time from the id in a cursor.
+     */
+    private static final char CURSOR_SEPARATOR = '.';
+
+    /**
+     * The object mapper to write json with.
+     */
+    private ObjectMapper mapper;
+
+    /**
+     * CTOR.
+     *
+     * @param lifecycle the lifecycle of the phenotype manager
+     * @param mapper the object mapper
+     */
+    @Inject
+    PhenotypesChangesResourceImpl(PhenotypeManagerLifecycle lifecycle, ObjectMapper mapper)
+    {
+        super(lifecycle);
+        this.mapper = mapper;
+    }
+
+    @Override
+    @Get("json")
+    public Representation getChanges()
+    {
+        Date since;
+        Optional<String> after = Optional.absent();
+        int rows = DEFAULT_ROWS;
+        try {
+            String cursor = getQuery().getValues(CURSOR_PARAM);
+            String sinceParam = getQuery().getValues(SINCE_PARAM);
+            String rowsParam = getQuery().getValues(ROWS_PARAM);
+            if (cursor != null) {
+                int separator = cursor.indexOf(CURSOR_SEPARATOR);
+                if (separator < 0) {
+                    since = new Date(Long.parseLong(cursor));
+                } else {
+                    since = new Date(Long.parseLong(cursor.substring(0, separator)));
+                    after = Optional.of(cursor.substring(separator + 1));
+                    if (!(IdUtils.isId(after.get()) || IdUtils.isHpoId(after.get()))) {
+                        getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+                        return null;
+                    }
+                }
+            } else if (sinceParam != null) {
+                since = new Date(Long.parseLong(sinceParam));
+            } else {
+                since = new Date(0);
+            }
+            if (rowsParam != null) {
+                rows = Integer.parseInt(rowsParam);
+            }
+        } catch (NumberFormatException e) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
+        }
+        if (rows < 1 || rows > MAX_ROWS) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
+        }
+        try {
+            final List<Phenotype> changes = ptManager.getChanges(since, after, rows);
+            String next = formatCursor(since, after);
+            if (!changes.isEmpty()) {
+                Phenotype last = changes.get(changes.size() - 1);
+                next = formatCursor(last.getTimeModified().or(since), last.getId());
+            }
+            final String cursor = next;
+            getResponse().setStatus(Status.SUCCESS_OK);
+            return new OutputRepresentation(MediaType.APPLICATION_JSON) {
+                @Override
+                public void write(OutputStream os) throws IOException
+                {
+                    writeChanges(changes, cursor, os);
+                }
+            };
+        } catch (TermRequesterBackendException e) {
+            throw new ResourceException(e);
+        }
+    }
+
+    /**
+     * Format a cursor pointing just past the position given.
+     * @param since the modification time
+     * @param after the id of the last phenotype seen at that time, if any
+     * @return the cursor
+     */
+    private String formatCursor(Date since, Optional<String> after)
+    {
+        String cursor = Long.toString(since.getTime());
+        if (after.isPresent()) {
+            cursor += CURSOR_SEPARATOR + after.get();
+        }
+        return cursor;
+    }
+
+    /**
+     * Write a page of changes as a json object, one phenotype at a time.
+     * @param changes the changed phenotypes
+     * @param cursor the cursor to carry on from
+     * @param os the stream to write to
+     * @throws IOException on failure to write
+     */
+    private void writeChanges(List<Phenotype> changes, String cursor, OutputStream os) throws IOException
+    {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(os)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("changes");
+            for (Phenotype pt : changes) {
+                if (Phenotype.Status.PUBLISHED.equals(pt.getStatus())) {
+                    mapper.writeValue(generator, PublishedPhenotype.from(pt));
+                } else {
+                    mapper.writeValue(generator, pt);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeStringField(CURSOR_PARAM, cursor);
+            generator.writeEndObject();
+        }
+    }
+}
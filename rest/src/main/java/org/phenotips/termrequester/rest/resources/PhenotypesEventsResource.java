@@ -0,0 +1,42 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+
+/**
+ * Pushes phenotype status changes to clients as server-sent events, so they don't have to poll for them.
+ *
+ * @version $Id$
+ */
+public interface PhenotypesEventsResource
+{
+    /**
+     * Stream the status changes of phenotypes as they happen, as text/event-stream. Each change is a
+     * "status" event whose data is a json object with the id, oldStatus, newStatus and hpoId of the
+     * phenotype. Clients reconnecting with a Last-Event-ID header get the changes they missed first; if
+     * too many were missed to tell, they get a "reset" event instead, and should fetch what they follow
+     * again. The stream ends after a while, which EventSource clients recover from on their own.
+     * If too many streams are open already, answers 503 with a Retry-After header instead.
+     *
+     * @return the event stream
+     */
+    @Get
+    Representation getEvents();
+}
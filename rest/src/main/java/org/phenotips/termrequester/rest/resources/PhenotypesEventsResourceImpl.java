@@ -0,0 +1,231 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.phenotips.termrequester.PhenotypeEvent;
+import org.phenotips.termrequester.PhenotypeEventLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.restlet.data.CacheDirective;
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.resource.Get;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+
+/**
+ * Implements the phenotype status event stream on top of the manager's event log.
+ * Each connection holds a thread while open, so streams are kept short and clients reconnect, and once there
+ * are EventStreams.MAX_STREAMS open, clients are told to come back later.
+ *
+ * @version $Id$
+ */
+public class PhenotypesEventsResourceImpl extends AbstractTermRequesterResource
+    implements PhenotypesEventsResource
+{
+    /**
+     * The media type of server-sent events.
+     */
+    public static final MediaType EVENT_STREAM = MediaType.valueOf("text/event-stream");
+
+    /**
+     * How long a stream stays open, in milliseconds.
+     */
+    public static final long STREAM_DURATION = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * How often to send something down an idle stream, in milliseconds, so proxies keep it open.
+     */
+    public static final long HEARTBEAT_INTERVAL = TimeUnit.SECONDS.toMillis(15);
+
+    /**
+     * How long clients should wait before reconnecting, in milliseconds.
+     */
+    private static final long RETRY_DELAY = 1000;
+
+    /**
+     * How long clients turned away should wait before trying again, in milliseconds.
+     */
+    private static final long BUSY_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * The header clients send the last event id they saw in.
+     */
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    /**
+     * The object mapper to write json with.
+     */
+    private ObjectMapper mapper;
+
+    /**
+     * The count of streams open.
+     */
+    private EventStreams streams;
+
+    /**
+     * CTOR.
+     *
+     * @param lifecycle the lifecycle of the phenotype manager
+     * @param mapper the object mapper
+     * @param streams the count of streams open
+     */
+    @Inject
+    PhenotypesEventsResourceImpl(PhenotypeManagerLifecycle lifecycle, ObjectMapper mapper, EventStreams streams)
+    {
+        super(lifecycle);
+        this.mapper = mapper;
+        this.streams = streams;
+    }
+
+    @Override
+    @Get
+    public Representation getEvents()
+    {
+        final PhenotypeEventLog log = ptManager.getEventLog();
+        final long lastId = log.getLastId();
+        final long after;
+        final boolean reset;
+        String lastEventId = getRequest().getHeaders().getFirstValue(LAST_EVENT_ID_HEADER, true);
+        if (lastEventId == null) {
+            /* A new client: only what happens from now on */
+            after = lastId;
+            reset = false;
+        } else {
+            long requested = parseEventId(lastEventId);
+            if (log.covers(requested)) {
+                after = requested;
+                reset = false;
+            } else {
+                after = lastId;
+                reset = true;
+            }
+        }
+        getResponse().getCacheDirectives().add(CacheDirective.noCache());
+        if (!streams.tryOpen()) {
+            getResponse().setStatus(Status.SERVER_ERROR_SERVICE_UNAVAILABLE);
+            getResponse().setRetryAfter(new Date(System.currentTimeMillis() + BUSY_RETRY_DELAY));
+            return null;
+        }
+        getResponse().setStatus(Status.SUCCESS_OK);
+        return new OutputRepresentation(EVENT_STREAM) {
+            /* Written once, then released, or released without being written if the client's gone */
+            private final AtomicBoolean open = new AtomicBoolean(true);
+
+            @Override
+            public void write(OutputStream os) throws IOException
+            {
+                try {
+                    stream(log, after, reset, os);
+                } finally {
+                    close();
+                }
+            }
+
+            @Override
+            public void release()
+            {
+                close();
+                super.release();
+            }
+
+            /**
+             * Let another stream in, if this one hasn't already.
+             */
+            private void close()
+            {
+                if (open.compareAndSet(true, false)) {
+                    streams.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Parse the event id given.
+     * @param eventId the event id, as sent by the client
+     * @return the event id, or -1 if it isn't one of ours
+     */
+    private static long parseEventId(String eventId)
+    {
+        try {
+            return Long.parseLong(eventId.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Write events to the stream given as they come, until it's been open long enough or the client goes.
+     * @param log the event log
+     * @param after the id of the last event the client has seen
+     * @param reset whether to tell the client it missed events first
+     * @param os the stream
+     * @throws IOException if the client goes away
+     */
+    private void stream(PhenotypeEventLog log, long after, boolean reset, OutputStream os) throws IOException
+    {
+        long deadline = System.currentTimeMillis() + STREAM_DURATION;
+        long last = after;
+        write(os, String.format("retry: %d\n\n", RETRY_DELAY));
+        if (reset) {
+            write(os, String.format("id: %d\nevent: reset\ndata: {}\n\n", last));
+        }
+        long remaining = STREAM_DURATION;
+        while (remaining > 0) {
+            List<PhenotypeEvent> events;
+            try {
+                events = log.awaitAfter(last, Math.min(remaining, HEARTBEAT_INTERVAL), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (events.isEmpty()) {
+                write(os, ":\n\n");
+            }
+            for (PhenotypeEvent event : events) {
+                write(os, String.format("id: %d\nevent: status\ndata: %s\n\n", event.getEventId(),
+                            mapper.writeValueAsString(event)));
+                last = event.getEventId();
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Write the text given to the stream and send it straight away.
+     * @param os the stream
+     * @param text the text
+     * @throws IOException if the client goes away
+     */
+    private static void write(OutputStream os, String text) throws IOException
+    {
+        os.write(text.getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.restlet.representation.Representation;
+import org.restlet.resource.Post;
+
+/**
+ * Looks up many phenotypes in one request, for clients that would otherwise fetch them one by one.
+ *
+ * @version $Id$
+ */
+public interface PhenotypesLookupResource
+{
+    /**
+     * Look up the phenotypes with the ids given in the request body, as a json array of termrequester or hpo
+     * ids. Answers with a json object mapping each id to its phenotype, or to null if there is none.
+     * Responds with a 400 if the body isn't an array of well-formed ids, and a 413 if there are more than
+     * PhenotypesLookupResourceImpl.MAX_IDS of them.
+     *
+     * @param ids the request body
+     * @return the phenotypes
+     */
+    @Post("json")
+    Representation lookup(Representation ids);
+}
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.TermRequesterBackendException;
+import org.phenotips.termrequester.utils.IdUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.data.MediaType;
+import org.restlet.data.Status;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+import org.restlet.resource.Post;
+import org.restlet.resource.ResourceException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+
+/**
+ * Implements the resource for looking up many phenotypes at once.
+ *
+ * @version $Id$
+ */
+public class PhenotypesLookupResourceImpl extends AbstractTermRequesterResource
+    implements PhenotypesLookupResource
+{
+    /**
+     * The most ids a single lookup may ask for.
+     */
+    public static final int MAX_IDS = 1000;
+
+    /**
+     * The type of the request body.
+     */
+    private static final TypeReference<List<String>> IDS_TYPE = new TypeReference<List<String>>() { };
+
+    /**
+     * The object mapper to read and write json with.
+     */
+    private ObjectMapper mapper;
+
+    /**
+     * CTOR.
+     *
+     * @param lifecycle the lifecycle of the phenotype manager
+     * @param mapper the object mapper
+     */
+    @Inject
+    PhenotypesLookupResourceImpl(PhenotypeManagerLifecycle lifecycle, ObjectMapper mapper)
+    {
+        super(lifecycle);
+        this.mapper = mapper;
+    }
+
+    @Override
+    @Post("json")
+    public Representation lookup(Representation entity)
+    {
+        if (entity == null) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
+        }
+        List<String> ids;
+        try {
+            ids = mapper.readValue(entity.getStream(), IDS_TYPE);
+        } catch (JsonProcessingException e) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
+        } catch (IOException e) {
+            throw new ResourceException(e);
+        }
+        if (ids == null) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
+        }
+        if (ids.size() > MAX_IDS) {
+            getResponse().setStatus(Status.CLIENT_ERROR_REQUEST_ENTITY_TOO_LARGE);
+            return null;
+        }
+        for (String id : ids) {
+            if (id == null || !(IdUtils.isId(id) || IdUtils.isHpoId(id))) {
+                getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+                return null;
+            }
+        }
+        try {
+            final Map<String, Phenotype> results = ptManager.getPhenotypesById(ids);
+            getResponse().setStatus(Status.SUCCESS_OK);
+            return new OutputRepresentation(MediaType.APPLICATION_JSON) {
+                @Override
+                public void write(OutputStream os) throws IOException
+                {
+                    writeResults(results, os);
+                }
+            };
+        } catch (TermRequesterBackendException e) {
+            throw new ResourceException(e);
+        }
+    }
+
+    /**
+     * Write the results given as a json object, one phenotype at a time.
+     * @param results the results
+     * @param os the stream to write to
+     * @throws IOException on failure to write
+     */
+    private void writeResults(Map<String, Phenotype> results, OutputStream os) throws IOException
+    {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(os)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Phenotype> entry : results.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                Phenotype pt = entry.getValue();
+                if (Phenotype.NULL.equals(pt)) {
+                    generator.writeNull();
+                } else if (Phenotype.Status.PUBLISHED.equals(pt.getStatus())) {
+                    mapper.writeValue(generator, PublishedPhenotype.from(pt));
+                } else {
+                    mapper.writeValue(generator, pt);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+}
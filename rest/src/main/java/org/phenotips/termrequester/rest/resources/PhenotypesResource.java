@@ -19,8 +19,7 @@
 
 import org.phenotips.termrequester.Phenotype;
 
-import java.util.List;
-
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 import org.restlet.resource.Post;
 
@@ -43,10 +42,14 @@
     Phenotype create(Phenotype phenotype);
 
     /**
-     * Search phenotypes matching the text given (a GET param).
+     * Search phenotypes matching the text given (a GET param), a page at a time.
+     * The page is picked with the start and rows GET params, or with the cursor param taken from the
+     * previous page's Link header. The total number of matches is in the X-Total-Count header, and the
+     * next page, if any, in a Link header with rel="next".
+     * Responds with a 400 if the paging params are malformed.
      *
-     * @return the phenotypes
+     * @return the phenotypes, as a json array
      */
     @Get("json")
-    List<Phenotype> search();
+    Representation search();
 }
@@ -19,21 +19,28 @@
 
 import org.phenotips.termrequester.Phenotype;
 import org.phenotips.termrequester.PhenotypeManager;
+import org.phenotips.termrequester.SearchResults;
 import org.phenotips.termrequester.TermRequesterBackendException;
-import org.phenotips.termrequester.rest.resources.annotations.HomeDir;
-import org.phenotips.termrequester.rest.resources.annotations.OAuthToken;
-import org.phenotips.termrequester.rest.resources.annotations.OwnResources;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryName;
-import org.phenotips.termrequester.rest.resources.annotations.RepositoryOwner;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.List;
 
+import org.restlet.data.Header;
+import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 import org.restlet.resource.Post;
 import org.restlet.resource.ResourceException;
+import org.restlet.util.Series;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
 
 /**
@@ -44,27 +51,62 @@
 public class PhenotypesResourceImpl extends AbstractTermRequesterResource
     implements PhenotypesResource
 {
+    /**
+     * The most search results a single page may have.
+     */
+    public static final int MAX_ROWS = 100;
+
+    /**
+     * How many search results a page has if the client doesn't say.
+     */
+    public static final int DEFAULT_ROWS = 10;
+
     /**
      * The parameter for the text search.
      */
     private static final String TEXT_PARAM = "text";
 
+    /**
+     * The parameter for the offset of the page of results.
+     */
+    private static final String START_PARAM = "start";
+
+    /**
+     * The parameter for the size of the page of results.
+     */
+    private static final String ROWS_PARAM = "rows";
+
+    /**
+     * The parameter for the cursor to the page of results.
+     */
+    private static final String CURSOR_PARAM = "cursor";
+
+    /**
+     * The header with the total number of results.
+     */
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    /**
+     * The header with the link to the next page.
+     */
+    private static final String LINK_HEADER = "Link";
+
+    /**
+     * The object mapper to write json with.
+     */
+    private ObjectMapper mapper;
+
     /**
      * CTOR.
      *
-     * @param ptManager the injected phenotype manager.
-     * @param homeDir the directory to store files in
-     * @param token the oauth token
-     * @param repoName the name of the repo
-     * @param repoOwner the owner of the repo
-     * @param owned whether we should own the resources needed
+     * @param lifecycle the lifecycle of the phenotype manager
+     * @param mapper the object mapper
      */
     @Inject
-    PhenotypesResourceImpl(PhenotypeManager ptManager, @HomeDir String homeDir,
-            @OAuthToken String token, @RepositoryName String repoName,
-            @RepositoryOwner String repoOwner, @OwnResources Boolean owned)
+    PhenotypesResourceImpl(PhenotypeManagerLifecycle lifecycle, ObjectMapper mapper)
     {
-        super(ptManager, homeDir, token, repoName, repoOwner, owned);
+        super(lifecycle);
+        this.mapper = mapper;
     }
 
     @Override
@@ -86,18 +128,78 @@ public Phenotype create(Phenotype request)
 
     @Override
     @Get("json")
-    public List<Phenotype> search()
+    public Representation search()
     {
         String text = getQuery().getValues(TEXT_PARAM);
         if (text == null) {
-            return new ArrayList<>();
+            return writePhenotypes(Collections.<Phenotype>emptyList());
+        }
+        int start = 0;
+        int rows = DEFAULT_ROWS;
+        Optional<String> cursor = Optional.fromNullable(getQuery().getValues(CURSOR_PARAM));
+        try {
+            String startParam = getQuery().getValues(START_PARAM);
+            String rowsParam = getQuery().getValues(ROWS_PARAM);
+            if (startParam != null) {
+                start = Integer.parseInt(startParam);
+            }
+            if (rowsParam != null) {
+                rows = Integer.parseInt(rowsParam);
+            }
+        } catch (NumberFormatException e) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
         }
+        if (start < 0 || rows < 1 || rows > MAX_ROWS || (start > 0 && cursor.isPresent())) {
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
+        }
+        SearchResults results;
         try {
-            List<Phenotype> results = ptManager.search(text);
-            getResponse().setStatus(Status.SUCCESS_OK);
-            return results;
+            results = ptManager.search(text, start, rows, cursor);
+        } catch (IllegalArgumentException e) {
+            /* A bad cursor */
+            getResponse().setStatus(Status.CLIENT_ERROR_BAD_REQUEST);
+            return null;
         } catch (TermRequesterBackendException e) {
             throw new ResourceException(e);
         }
+        Series<Header> headers = getResponse().getHeaders();
+        headers.add(TOTAL_COUNT_HEADER, Long.toString(results.getTotal()));
+        String next = null;
+        if (results.getNextCursor().isPresent()) {
+            next = String.format("%s=%s", CURSOR_PARAM, Reference.encode(results.getNextCursor().get()));
+        } else if (!cursor.isPresent() && start + rows < results.getTotal()) {
+            next = String.format("%s=%d", START_PARAM, start + rows);
+        }
+        if (next != null) {
+            headers.add(LINK_HEADER, String.format("<%s?%s=%s&%s=%d&%s>; rel=\"next\"",
+                        getRequest().getResourceRef().getPath(), TEXT_PARAM, Reference.encode(text), ROWS_PARAM,
+                        rows, next));
+        }
+        getResponse().setStatus(Status.SUCCESS_OK);
+        return writePhenotypes(results.getPhenotypes());
+    }
+
+    /**
+     * Get a representation writing the phenotypes given as a json array, one at a time as it's sent.
+     * @param phenotypes the phenotypes
+     * @return the representation
+     */
+    private Representation writePhenotypes(final List<Phenotype> phenotypes)
+    {
+        return new OutputRepresentation(MediaType.APPLICATION_JSON) {
+            @Override
+            public void write(OutputStream os) throws IOException
+            {
+                try (JsonGenerator generator = mapper.getFactory().createGenerator(os)) {
+                    generator.writeStartArray();
+                    for (Phenotype pt : phenotypes) {
+                        mapper.writeValue(generator, pt);
+                    }
+                    generator.writeEndArray();
+                }
+            }
+        };
     }
 }
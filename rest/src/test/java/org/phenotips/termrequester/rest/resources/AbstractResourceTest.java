@@ -19,6 +19,7 @@
 
 import java.util.List;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -125,6 +126,11 @@
      */
     protected PhenotypeManager manager;
 
+    /**
+     * The test's handle on the phenotype manager, if it has one.
+     */
+    protected PhenotypeManagerLifecycle.Handle handle;
+
     /**
      * A temporary folder.
      */
@@ -162,9 +168,21 @@ public void setUp() throws Exception
      */
     protected void saveAndInit(Phenotype pt) throws Exception
     {
-        manager = injector.getInstance(PhenotypeManager.class);
-        manager.init(new GithubAPI.Repository("", "", ""), folder.getRoot().toPath());
+        /* Hold the manager up for the whole test, the way the application does */
+        handle = injector.getInstance(PhenotypeManagerLifecycle.class).acquire();
+        manager = handle.getManager();
         manager.createRequest(pt);
     }
+
+    /**
+     * Let go of the phenotype manager, if the test took hold of it.
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        if (handle != null) {
+            handle.close();
+        }
+    }
 }
 
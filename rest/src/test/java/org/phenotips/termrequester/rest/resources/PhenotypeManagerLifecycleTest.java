@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.phenotips.termrequester.PhenotypeManager;
+import org.phenotips.termrequester.github.GithubAPI;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test the PhenotypeManagerLifecycle class.
+ *
+ * @version $Id$
+ */
+public class PhenotypeManagerLifecycleTest
+{
+    /**
+     * The mocked phenotype manager.
+     */
+    private PhenotypeManager manager;
+
+    /**
+     * The component under test.
+     */
+    private PhenotypeManagerLifecycle lifecycle;
+
+    /**
+     * Set up a test.
+     */
+    @Before
+    public void setUp()
+    {
+        manager = mock(PhenotypeManager.class);
+        lifecycle = new PhenotypeManagerLifecycle(manager, "/tmp", "token", "repo", "owner");
+    }
+
+    /**
+     * Test that the manager is started once for overlapping handles, and stopped after the last one.
+     */
+    @Test
+    public void testRefCounting() throws Exception
+    {
+        PhenotypeManagerLifecycle.Handle outer = lifecycle.acquire();
+        assertSame(manager, outer.getManager());
+        for (int i = 0; i < 5; i++) {
+            try (PhenotypeManagerLifecycle.Handle inner = lifecycle.acquire()) {
+                assertEquals(2, lifecycle.getRefCount());
+            }
+        }
+        verify(manager, times(1)).init(any(GithubAPI.Repository.class), any(Path.class));
+        verify(manager, never()).shutdown();
+        outer.close();
+        assertEquals(0, lifecycle.getRefCount());
+        verify(manager, times(1)).shutdown();
+    }
+
+    /**
+     * Test that closing a handle twice only counts once.
+     */
+    @Test
+    public void testDoubleClose() throws Exception
+    {
+        PhenotypeManagerLifecycle.Handle first = lifecycle.acquire();
+        PhenotypeManagerLifecycle.Handle second = lifecycle.acquire();
+        second.close();
+        second.close();
+        assertEquals(1, lifecycle.getRefCount());
+        verify(manager, never()).shutdown();
+        first.close();
+        verify(manager, times(1)).shutdown();
+    }
+
+    /**
+     * Test that the manager starts again when needed after being stopped.
+     */
+    @Test
+    public void testRestart() throws Exception
+    {
+        lifecycle.acquire().close();
+        lifecycle.acquire().close();
+        verify(manager, times(2)).init(any(GithubAPI.Repository.class), any(Path.class));
+        verify(manager, times(2)).shutdown();
+    }
+}
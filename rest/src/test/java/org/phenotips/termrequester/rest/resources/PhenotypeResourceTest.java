@@ -17,6 +17,8 @@
  */
 package org.phenotips.termrequester.rest.resources;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import org.junit.Before;
@@ -36,6 +38,7 @@
 import org.restlet.Response;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
+import org.restlet.data.Tag;
 import org.restlet.ext.guice.FinderFactory;
 import org.restlet.ext.guice.RestletGuice;
 import org.restlet.representation.StringRepresentation;
@@ -208,4 +211,70 @@ public void testMalformedId() throws Exception
         assertEquals(400, response.getStatus().getCode());
         assertFalse(response.isEntityAvailable());
     }
+
+    /**
+     * Test that phenotypes come with an etag and that asking again with it gets a 304.
+     */
+    @Test
+    public void testGetByIdNotModified() throws Exception
+    {
+        saveAndInit(pt);
+        Request request = new Request(Method.GET, "/phenotype/" + pt.getId().get());
+        Response response = new Response(request);
+        router.handle(request, response);
+        assertEquals(200, response.getStatus().getCode());
+        Tag tag = response.getEntity().getTag();
+        assertNotNull(tag);
+        assertNotNull(response.getEntity().getModificationDate());
+
+        request = new Request(Method.GET, "/phenotype/" + pt.getId().get());
+        request.getConditions().setNoneMatch(Arrays.asList(tag));
+        response = new Response(request);
+        router.handle(request, response);
+        assertEquals(304, response.getStatus().getCode());
+        assertFalse(response.isEntityAvailable());
+    }
+
+    /**
+     * Test that a stale etag gets the whole phenotype again.
+     */
+    @Test
+    public void testGetByIdModified() throws Exception
+    {
+        saveAndInit(pt);
+        Request request = new Request(Method.GET, "/phenotype/" + pt.getId().get());
+        Response response = new Response(request);
+        router.handle(request, response);
+        Tag tag = response.getEntity().getTag();
+
+        pt.setDescription("A whole new description");
+        databaseService.savePhenotype(pt);
+        databaseService.commit();
+
+        request = new Request(Method.GET, "/phenotype/" + pt.getId().get());
+        request.getConditions().setNoneMatch(Arrays.asList(tag));
+        response = new Response(request);
+        router.handle(request, response);
+        assertEquals(200, response.getStatus().getCode());
+        assertTrue(response.isEntityAvailable());
+        assertFalse(tag.equals(response.getEntity().getTag(), false));
+        Phenotype result = mapper.readValue(response.getEntity().getStream(), Phenotype.class);
+        assertEquals(pt.getDescription(), result.getDescription());
+    }
+
+    /**
+     * Test that If-Modified-Since gets a 304 when nothing has changed since.
+     */
+    @Test
+    public void testGetByIdModifiedSince() throws Exception
+    {
+        saveAndInit(pt);
+        databaseService.commit();
+        Request request = new Request(Method.GET, "/phenotype/" + pt.getId().get());
+        request.getConditions().setModifiedSince(new Date(System.currentTimeMillis() + 60000));
+        Response response = new Response(request);
+        router.handle(request, response);
+        assertEquals(304, response.getStatus().getCode());
+        assertFalse(response.isEntityAvailable());
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.phenotips.termrequester.Phenotype;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the PhenotypesChangesResource server resource.
+ *
+ * @version $Id$
+ */
+public class PhenotypesChangesResourceTest extends AbstractResourceTest
+{
+    @Override
+    public void doSetUp() throws Exception
+    {
+        router.attach("/phenotypes/changes", finder.finder(PhenotypesChangesResource.class));
+    }
+
+    /**
+     * Test paging through the changes and picking up a new one with the cursor.
+     */
+    @Test
+    public void testChanges() throws Exception
+    {
+        saveAndInit(pt);
+        Phenotype other = new Phenotype("Sibelius", "hooray");
+        manager.createRequest(other);
+        databaseService.commit();
+
+        JsonNode page = get("?rows=1");
+        assertEquals(1, page.get("changes").size());
+        String cursor = page.get("cursor").asText();
+        page = get("?rows=1&cursor=" + cursor);
+        assertEquals(1, page.get("changes").size());
+        cursor = page.get("cursor").asText();
+        page = get("?rows=1&cursor=" + cursor);
+        assertEquals(0, page.get("changes").size());
+        assertEquals(cursor, page.get("cursor").asText());
+
+        pt.setDescription("A whole new description");
+        databaseService.savePhenotype(pt);
+        databaseService.commit();
+        page = get("?cursor=" + cursor);
+        assertEquals(1, page.get("changes").size());
+        Phenotype changed = mapper.treeToValue(page.get("changes").get(0), Phenotype.class);
+        assertEquals(pt.getId(), changed.getId());
+        assertEquals(pt.getDescription(), changed.getDescription());
+    }
+
+    /**
+     * Test that since leaves out what changed before it.
+     */
+    @Test
+    public void testSince() throws Exception
+    {
+        saveAndInit(pt);
+        databaseService.commit();
+        long later = pt.getTimeModified().get().getTime() + 1;
+        assertEquals(1, get("").get("changes").size());
+        assertEquals(0, get("?since=" + later).get("changes").size());
+    }
+
+    /**
+     * Test that malformed parameters get a 400.
+     */
+    @Test
+    public void testMalformed() throws Exception
+    {
+        List<String> queries = Arrays.asList("?since=yesterday", "?cursor=12.yes_lad", "?rows=0",
+            "?rows=" + (PhenotypesChangesResourceImpl.MAX_ROWS + 1));
+        for (String query : queries) {
+            assertEquals(400, request(query).getStatus().getCode());
+        }
+    }
+
+    /**
+     * Get the changes resource with the query given.
+     * @param query the query string, starting with ? if not empty
+     * @return the response
+     */
+    private Response request(String query)
+    {
+        Request request = new Request(Method.GET, "/phenotypes/changes" + query);
+        Response response = new Response(request);
+        router.handle(request, response);
+        return response;
+    }
+
+    /**
+     * Get the changes resource with the query given, and parse the answer.
+     * @param query the query string, starting with ? if not empty
+     * @return the json answer
+     */
+    private JsonNode get(String query) throws Exception
+    {
+        Response response = request(query);
+        assertEquals(200, response.getStatus().getCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getEntity().getMediaType());
+        JsonNode result = mapper.readTree(response.getEntity().getStream());
+        assertTrue(result.get("changes").isArray());
+        return result;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import org.phenotips.termrequester.Phenotype;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Test the PhenotypesEventsResource server resource.
+ *
+ * @version $Id$
+ */
+public class PhenotypesEventsResourceTest extends AbstractResourceTest
+{
+    @Override
+    public void doSetUp() throws Exception
+    {
+        router.attach("/phenotypes/events", finder.finder(PhenotypesEventsResource.class));
+        /* Opening an issue submits the phenotype, as it does for real */
+        doAnswer(new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) {
+                Phenotype submitted = (Phenotype) invocation.getArguments()[0];
+                submitted.setIssueNumber("123");
+                submitted.setStatus(Phenotype.Status.SUBMITTED);
+                return null;
+            }
+        }).when(githubApi).openIssue(any(Phenotype.class));
+    }
+
+    /**
+     * Test that a client resuming from an event gets what came after it.
+     */
+    @Test
+    public void testResume() throws Exception
+    {
+        saveAndInit(pt);
+        Response response = get("0");
+        assertEquals(200, response.getStatus().getCode());
+        assertEquals(PhenotypesEventsResourceImpl.EVENT_STREAM, response.getEntity().getMediaType());
+        String event = readEvent(response);
+        assertTrue(event, event.contains("id: 1\n"));
+        assertTrue(event, event.contains("event: status\n"));
+        JsonNode data = mapper.readTree(event.substring(event.indexOf("data: ") + "data: ".length()));
+        assertEquals(pt.getId().get(), data.get("id").asText());
+        assertEquals(Phenotype.Status.UNSUBMITTED.name(), data.get("oldStatus").asText());
+        assertEquals(Phenotype.Status.SUBMITTED.name(), data.get("newStatus").asText());
+        assertTrue(data.get("hpoId").isNull());
+    }
+
+    /**
+     * Test that a client resuming from an event we don't know about is told to start over.
+     */
+    @Test
+    public void testReset() throws Exception
+    {
+        saveAndInit(pt);
+        String event = readEvent(get("42"));
+        assertTrue(event, event.contains("event: reset\n"));
+        assertTrue(event, event.contains("id: 1\n"));
+    }
+
+    /**
+     * Test that once every stream is taken clients are told to come back later, and that a stream ending
+     * lets the next one in.
+     */
+    @Test
+    public void testStreamCap() throws Exception
+    {
+        saveAndInit(pt);
+        EventStreams streams = injector.getInstance(EventStreams.class);
+        for (int i = 1; i < EventStreams.MAX_STREAMS; i++) {
+            assertTrue(streams.tryOpen());
+        }
+        Response last = get("0");
+        assertEquals(200, last.getStatus().getCode());
+        Response turnedAway = get("0");
+        assertEquals(503, turnedAway.getStatus().getCode());
+        assertNotNull(turnedAway.getRetryAfter());
+        readEvent(last);
+        assertEquals(200, get("0").getStatus().getCode());
+    }
+
+    /**
+     * Get the event stream, resuming from the event id given.
+     * @param lastEventId the last event id seen
+     * @return the response
+     */
+    private Response get(String lastEventId)
+    {
+        Request request = new Request(Method.GET, "/phenotypes/events");
+        request.getHeaders().add("Last-Event-ID", lastEventId);
+        Response response = new Response(request);
+        router.handle(request, response);
+        return response;
+    }
+
+    /**
+     * Read the stream in the response given up to its first event, then hang up.
+     * @param response the response
+     * @return the event
+     */
+    private String readEvent(Response response) throws IOException
+    {
+        FirstEventStream os = new FirstEventStream();
+        try {
+            response.getEntity().write(os);
+        } catch (IOException e) {
+            /* We hung up */
+        }
+        return os.getEvent();
+    }
+
+    /**
+     * Collects a stream until it has an event in it, then fails like a closed connection would.
+     *
+     * @version $Id$
+     */
+    private static final class FirstEventStream extends ByteArrayOutputStream
+    {
+        @Override
+        public void flush() throws IOException
+        {
+            if (getEvent() != null) {
+                throw new IOException("Hung up");
+            }
+        }
+
+        /**
+         * Get the first event written, if there's one yet.
+         * @return the event, or null
+         */
+        String getEvent()
+        {
+            String text = new String(toByteArray(), StandardCharsets.UTF_8);
+            int start = text.indexOf("\nevent: ");
+            if (start < 0) {
+                return null;
+            }
+            start = text.lastIndexOf("\n\n", start) + 2;
+            int end = text.indexOf("\n\n", start);
+            if (end < 0) {
+                return null;
+            }
+            return text.substring(start, end + 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.rest.resources;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.phenotips.termrequester.Phenotype;
+import org.phenotips.termrequester.utils.IdUtils;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.representation.StringRepresentation;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the PhenotypesLookupResource server resource.
+ *
+ * @version $Id$
+ */
+public class PhenotypesLookupResourceTest extends AbstractResourceTest
+{
+    /**
+     * A test hpo id.
+     */
+    private static final String HPO_ID = "HP_0000563";
+
+    @Override
+    public void doSetUp() throws Exception
+    {
+        router.attach("/phenotypes/lookup", finder.finder(PhenotypesLookupResource.class));
+    }
+
+    /**
+     * Test looking up a mix of ids, some of which have no phenotype.
+     */
+    @Test
+    public void testLookup() throws Exception
+    {
+        saveAndInit(pt);
+        Phenotype accepted = new Phenotype("Sibelius", "hooray");
+        manager.createRequest(accepted);
+        accepted.setStatus(Phenotype.Status.ACCEPTED);
+        accepted.setIssueNumber("123");
+        accepted.setHpoId(HPO_ID);
+        databaseService.savePhenotype(accepted);
+        databaseService.commit();
+        String missing = String.format(IdUtils.ID_FORMAT, 9999);
+        String json = String.format("[\"%s\", \"%s\", \"%s\"]", pt.getId().get(), HPO_ID, missing);
+        Response response = post(json);
+        assertEquals(200, response.getStatus().getCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getEntity().getMediaType());
+        Map<String, Phenotype> results = mapper.readValue(response.getEntity().getStream(),
+                new TypeReference<Map<String, Phenotype>>() { });
+        assertEquals(3, results.size());
+        assertEquals(pt, results.get(pt.getId().get()));
+        assertEquals(accepted, results.get(HPO_ID));
+        assertTrue(results.containsKey(missing));
+        assertNull(results.get(missing));
+    }
+
+    /**
+     * Test that an empty lookup gets an empty answer.
+     */
+    @Test
+    public void testEmptyLookup() throws Exception
+    {
+        Response response = post("[]");
+        assertEquals(200, response.getStatus().getCode());
+        Map<String, Phenotype> results = mapper.readValue(response.getEntity().getStream(),
+                new TypeReference<Map<String, Phenotype>>() { });
+        assertTrue(results.isEmpty());
+    }
+
+    /**
+     * Test that malformed ids and bodies get a 400.
+     */
+    @Test
+    public void testMalformed() throws Exception
+    {
+        assertEquals(400, post("[\"yes_lad\"]").getStatus().getCode());
+        assertEquals(400, post("{\"ids\": []}").getStatus().getCode());
+        assertEquals(400, post("[\"HP_0000563\"").getStatus().getCode());
+    }
+
+    /**
+     * Post the json given to the lookup resource.
+     * @param json the request body
+     * @return the response
+     */
+    private Response post(String json)
+    {
+        StringRepresentation entity = new StringRepresentation(json, MediaType.APPLICATION_JSON);
+        Request request = new Request(Method.POST, "/phenotypes/lookup", entity);
+        Response response = new Response(request);
+        router.handle(request, response);
+        return response;
+    }
+}
@@ -17,7 +17,10 @@
  */
 package org.phenotips.termrequester.rest.resources;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -120,6 +123,60 @@ public void testSearch() throws Exception
         assertEquals(pt, results.get(0));
     }
 
+    /**
+     * Test paging through search results with the next links.
+     */
+    @Test
+    public void testSearchPaged() throws Exception
+    {
+        saveAndInit(pt);
+        for (int i = 1; i <= 4; i++) {
+            manager.createRequest(new Phenotype(PT_NAME + " " + i, PT_DESC));
+        }
+        databaseService.commit();
+        Set<String> ids = new HashSet<>();
+        String uri = "/phenotypes?text=liszt&rows=2";
+        int pages = 0;
+        while (uri != null) {
+            Request request = new Request(Method.GET, uri);
+            Response response = new Response(request);
+            router.handle(request, response);
+            assertEquals(200, response.getStatus().getCode());
+            assertEquals("5", response.getHeaders().getFirstValue("X-Total-Count"));
+            List<Phenotype> results = mapper.readValue(response.getEntity().getStream(),
+                    new TypeReference<List<Phenotype>>() { });
+            assertTrue(results.size() <= 2);
+            for (Phenotype result : results) {
+                assertTrue(ids.add(result.getId().get()));
+            }
+            pages++;
+            String link = response.getHeaders().getFirstValue("Link");
+            uri = null;
+            if (link != null) {
+                assertTrue(link.endsWith("; rel=\"next\""));
+                uri = link.substring(1, link.indexOf('>'));
+            }
+        }
+        assertEquals(5, ids.size());
+        assertEquals(3, pages);
+    }
+
+    /**
+     * Test that malformed paging parameters get a 400.
+     */
+    @Test
+    public void testSearchMalformedPaging() throws Exception
+    {
+        saveAndInit(pt);
+        for (String query : Arrays.asList("&rows=0", "&rows=lots", "&start=-1", "&start=2&cursor=AoE",
+                    "&cursor=nonsense")) {
+            Request request = new Request(Method.GET, "/phenotypes?text=liszt" + query);
+            Response response = new Response(request);
+            router.handle(request, response);
+            assertEquals(query, 400, response.getStatus().getCode());
+        }
+    }
+
     @Test
     public void testEmptySearch() throws Exception
     {
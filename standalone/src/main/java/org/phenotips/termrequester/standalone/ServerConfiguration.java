@@ -0,0 +1,305 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.standalone;
+
+import org.phenotips.termrequester.rest.TermRequesterApplication;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * The settings the standalone server runs with.
+ * They're the same parameters the servlet takes in web.xml, plus a few for the http connector, read from a
+ * properties file and then from the environment, where each parameter has an upper-case name, e.g.
+ * <code>TERMREQUESTER_REPOSITORY_OWNER</code> for <code>org.phenotips.termrequester.repositoryOwner</code>.
+ * The environment wins over the file.
+ *
+ * @version $Id$
+ */
+public final class ServerConfiguration
+{
+    /**
+     * The prefix all parameters share.
+     */
+    public static final String PREFIX = "org.phenotips.termrequester.";
+
+    /**
+     * The prefix all the environment variables share.
+     */
+    public static final String ENV_PREFIX = "TERMREQUESTER_";
+
+    /**
+     * The parameter for the interface to listen on. Optional, defaults to all of them.
+     */
+    public static final String HOST_PARAM = PREFIX + "http.host";
+
+    /**
+     * The parameter for the port to listen on. Optional, defaults to 8080.
+     */
+    public static final String PORT_PARAM = PREFIX + "http.port";
+
+    /**
+     * The parameter for the number of worker threads kept around when idle. Optional.
+     */
+    public static final String MIN_THREADS_PARAM = PREFIX + "http.minThreads";
+
+    /**
+     * The parameter for the most worker threads serving requests at once. Optional.
+     */
+    public static final String MAX_THREADS_PARAM = PREFIX + "http.maxThreads";
+
+    /**
+     * The parameter for how long an idle keep-alive connection is kept open, in milliseconds. Optional.
+     */
+    public static final String IDLE_TIMEOUT_PARAM = PREFIX + "http.idleTimeout";
+
+    /**
+     * The parameter for how many connections may wait to be accepted. Optional.
+     */
+    public static final String ACCEPT_QUEUE_PARAM = PREFIX + "http.acceptQueueSize";
+
+    /**
+     * The port listened on when none is given.
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The sync interval used when none is given, in hours; the same as the one in web.xml.
+     */
+    public static final String DEFAULT_SYNC_INTERVAL = "2.0";
+
+    /**
+     * The parameters handed over to the application.
+     */
+    private static final List<String> APPLICATION_PARAMS = Arrays.asList(
+        TermRequesterApplication.REPO_OWNER_PARAM,
+        TermRequesterApplication.REPO_NAME_PARAM,
+        TermRequesterApplication.OAUTH_TOKEN_PARAM,
+        TermRequesterApplication.HOME_DIR_PARAM,
+        TermRequesterApplication.SYNC_INTERVAL_PARAM,
+        TermRequesterApplication.MAX_STALENESS_PARAM,
+        TermRequesterApplication.SYNC_RATE_PARAM,
+        TermRequesterApplication.HPO_RELEASE_PARAM);
+
+    /**
+     * The application parameters without which it can't start.
+     */
+    private static final List<String> REQUIRED_PARAMS = Arrays.asList(
+        TermRequesterApplication.REPO_OWNER_PARAM,
+        TermRequesterApplication.REPO_NAME_PARAM,
+        TermRequesterApplication.OAUTH_TOKEN_PARAM,
+        TermRequesterApplication.HOME_DIR_PARAM);
+
+    /**
+     * The connector parameters, mapped to the names the restlet jetty connector knows them by.
+     */
+    private static final Map<String, String> CONNECTOR_PARAMS;
+
+    static {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put(MIN_THREADS_PARAM, "threadPool.minThreads");
+        params.put(MAX_THREADS_PARAM, "threadPool.maxThreads");
+        params.put(IDLE_TIMEOUT_PARAM, "connector.idleTimeout");
+        params.put(ACCEPT_QUEUE_PARAM, "connector.acceptQueueSize");
+        CONNECTOR_PARAMS = Collections.unmodifiableMap(params);
+    }
+
+    /**
+     * The application parameters.
+     */
+    private final Map<String, String> applicationParameters;
+
+    /**
+     * The connector parameters, under the connector's names for them.
+     */
+    private final Map<String, String> connectorParameters;
+
+    /**
+     * The interface to listen on.
+     */
+    private final Optional<String> host;
+
+    /**
+     * The port to listen on.
+     */
+    private final int port;
+
+    /**
+     * CTOR.
+     *
+     * @param settings all the settings, by parameter name
+     */
+    private ServerConfiguration(Map<String, String> settings)
+    {
+        applicationParameters = new LinkedHashMap<>();
+        for (String param : APPLICATION_PARAMS) {
+            if (settings.containsKey(param)) {
+                applicationParameters.put(param, settings.get(param));
+            }
+        }
+        if (!applicationParameters.containsKey(TermRequesterApplication.SYNC_INTERVAL_PARAM)) {
+            applicationParameters.put(TermRequesterApplication.SYNC_INTERVAL_PARAM, DEFAULT_SYNC_INTERVAL);
+        }
+        for (String param : REQUIRED_PARAMS) {
+            if (!applicationParameters.containsKey(param)) {
+                throw new IllegalArgumentException("Missing " + param + " (or " + toEnvName(param) + ")");
+            }
+        }
+        connectorParameters = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : CONNECTOR_PARAMS.entrySet()) {
+            if (settings.containsKey(entry.getKey())) {
+                parseInt(entry.getKey(), settings.get(entry.getKey()));
+                connectorParameters.put(entry.getValue(), settings.get(entry.getKey()));
+            }
+        }
+        host = Optional.fromNullable(settings.get(HOST_PARAM));
+        if (settings.containsKey(PORT_PARAM)) {
+            port = parseInt(PORT_PARAM, settings.get(PORT_PARAM));
+        } else {
+            port = DEFAULT_PORT;
+        }
+    }
+
+    /**
+     * Read the configuration.
+     *
+     * @param file the properties file to read, if any
+     * @param env the environment
+     * @return the configuration
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if a required parameter is missing, or a number is malformed
+     */
+    public static ServerConfiguration load(Optional<Path> file, Map<String, String> env) throws IOException
+    {
+        Map<String, String> settings = new LinkedHashMap<>();
+        if (file.isPresent()) {
+            Properties props = new Properties();
+            try (InputStream is = Files.newInputStream(file.get())) {
+                props.load(is);
+            }
+            for (String name : props.stringPropertyNames()) {
+                settings.put(name, props.getProperty(name).trim());
+            }
+        }
+        List<String> known = new ArrayList<>(APPLICATION_PARAMS);
+        known.add(HOST_PARAM);
+        known.add(PORT_PARAM);
+        known.addAll(CONNECTOR_PARAMS.keySet());
+        for (String param : known) {
+            String value = env.get(toEnvName(param));
+            if (value != null) {
+                settings.put(param, value.trim());
+            }
+        }
+        return new ServerConfiguration(settings);
+    }
+
+    /**
+     * Get the name of the environment variable for the parameter given.
+     * The prefix is swapped for <code>TERMREQUESTER_</code>, dots become underscores and each upper-case letter
+     * starts a new word, so <code>org.phenotips.termrequester.http.maxThreads</code> becomes
+     * <code>TERMREQUESTER_HTTP_MAX_THREADS</code>.
+     *
+     * @param param the parameter name
+     * @return the environment variable name
+     */
+    public static String toEnvName(String param)
+    {
+        StringBuilder name = new StringBuilder(ENV_PREFIX);
+        for (char c : param.substring(PREFIX.length()).toCharArray()) {
+            if (c == '.') {
+                name.append('_');
+            } else if (Character.isUpperCase(c)) {
+                name.append('_').append(c);
+            } else {
+                name.append(Character.toUpperCase(c));
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Get the parameters to hand over to the application.
+     *
+     * @return the parameters, by name
+     */
+    public Map<String, String> getApplicationParameters()
+    {
+        return Collections.unmodifiableMap(applicationParameters);
+    }
+
+    /**
+     * Get the parameters to set on the http connector. Those not given are left to the connector's defaults.
+     *
+     * @return the parameters, by the connector's names for them
+     */
+    public Map<String, String> getConnectorParameters()
+    {
+        return Collections.unmodifiableMap(connectorParameters);
+    }
+
+    /**
+     * Get the interface to listen on.
+     *
+     * @return the interface, or absent for all of them
+     */
+    public Optional<String> getHost()
+    {
+        return host;
+    }
+
+    /**
+     * Get the port to listen on.
+     *
+     * @return the port
+     */
+    public int getPort()
+    {
+        return port;
+    }
+
+    /**
+     * Parse a numeric parameter.
+     *
+     * @param param the parameter name, for the error message
+     * @param value the value
+     * @return the number
+     * @throws IllegalArgumentException if it's not a number
+     */
+    private static int parseInt(String param, String value)
+    {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed " + param + ": " + value, e);
+        }
+    }
+}
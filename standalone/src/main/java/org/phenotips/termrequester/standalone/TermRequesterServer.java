@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.standalone;
+
+import org.phenotips.termrequester.rest.TermRequesterApplication;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.restlet.Component;
+import org.restlet.Server;
+import org.restlet.data.Protocol;
+
+import com.google.common.base.Optional;
+
+
+/**
+ * Runs the term requester on an embedded http connector, without a servlet container.
+ * Takes the path to a properties file as its only (optional) argument; see {@link ServerConfiguration} for what
+ * goes in it. When the jetty extension is on the classpath, as it is in the packaged jar, restlet uses it for the
+ * connector; otherwise it falls back to its own internal one, which ignores the thread pool settings.
+ *
+ * @version $Id$
+ */
+public final class TermRequesterServer
+{
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(TermRequesterServer.class.getName());
+
+    /**
+     * The restlet component everything runs in.
+     */
+    private final Component component;
+
+    /**
+     * The http connector.
+     */
+    private final Server server;
+
+    /**
+     * CTOR.
+     *
+     * @param config the configuration to run with
+     */
+    public TermRequesterServer(ServerConfiguration config)
+    {
+        component = new Component();
+        if (config.getHost().isPresent()) {
+            server = component.getServers().add(Protocol.HTTP, config.getHost().get(), config.getPort());
+        } else {
+            server = component.getServers().add(Protocol.HTTP, config.getPort());
+        }
+        for (Map.Entry<String, String> param : config.getConnectorParameters().entrySet()) {
+            server.getContext().getParameters().add(param.getKey(), param.getValue());
+        }
+        TermRequesterApplication application = new TermRequesterApplication(component.getContext());
+        for (Map.Entry<String, String> param : config.getApplicationParameters().entrySet()) {
+            application.getContext().getParameters().add(param.getKey(), param.getValue());
+        }
+        component.getDefaultHost().attach(application);
+    }
+
+    /**
+     * Start serving.
+     *
+     * @throws Exception on failure to start the connector or the application
+     */
+    public void start() throws Exception
+    {
+        component.start();
+    }
+
+    /**
+     * Stop serving, shutting the application down.
+     *
+     * @throws Exception on failure to stop
+     */
+    public void stop() throws Exception
+    {
+        component.stop();
+    }
+
+    /**
+     * Get the port actually listened on.
+     *
+     * @return the port
+     */
+    public int getPort()
+    {
+        return server.getActualPort();
+    }
+
+    /**
+     * Run the server until the JVM is told to exit.
+     *
+     * @param args the path to the properties file, if any
+     * @throws Exception on failure to start
+     */
+    public static void main(String[] args) throws Exception
+    {
+        long begin = System.nanoTime();
+        Optional<Path> file = Optional.absent();
+        if (args.length > 0) {
+            file = Optional.of(Paths.get(args[0]));
+        }
+        final TermRequesterServer termRequester = new TermRequesterServer(
+            ServerConfiguration.load(file, System.getenv()));
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    termRequester.stop();
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Failed to stop the term requester cleanly", e);
+                }
+            }
+        });
+        termRequester.start();
+        LOGGER.info(String.format("Term requester listening on port %d, started in %d ms (%d ms since the JVM did)",
+            termRequester.getPort(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin),
+            ManagementFactory.getRuntimeMXBean().getUptime()));
+    }
+}
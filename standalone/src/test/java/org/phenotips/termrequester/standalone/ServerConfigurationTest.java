@@ -0,0 +1,155 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses/
+ */
+package org.phenotips.termrequester.standalone;
+
+import org.phenotips.termrequester.rest.TermRequesterApplication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the ServerConfiguration class.
+ *
+ * @version $Id$
+ */
+public class ServerConfigurationTest
+{
+    /**
+     * The properties file.
+     */
+    private Path file;
+
+    /**
+     * The environment.
+     */
+    private Map<String, String> env;
+
+    /**
+     * Set up a test with the required parameters in the environment.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("termrequester", ".properties");
+        env = new HashMap<>();
+        env.put("TERMREQUESTER_REPOSITORY_OWNER", "owner");
+        env.put("TERMREQUESTER_REPOSITORY_NAME", "repo");
+        env.put("TERMREQUESTER_OAUTH_TOKEN", "token");
+        env.put("TERMREQUESTER_HOME_DIR", "/tmp");
+    }
+
+    /**
+     * Clean up after a test.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test the environment variable names.
+     */
+    @Test
+    public void testEnvName()
+    {
+        assertEquals("TERMREQUESTER_REPOSITORY_OWNER", ServerConfiguration.toEnvName(
+            TermRequesterApplication.REPO_OWNER_PARAM));
+        assertEquals("TERMREQUESTER_HTTP_MAX_THREADS", ServerConfiguration.toEnvName(
+            ServerConfiguration.MAX_THREADS_PARAM));
+    }
+
+    /**
+     * Test the defaults, when only the required parameters are given.
+     */
+    @Test
+    public void testDefaults() throws IOException
+    {
+        ServerConfiguration config = ServerConfiguration.load(Optional.<Path>absent(), env);
+        assertEquals(ServerConfiguration.DEFAULT_PORT, config.getPort());
+        assertFalse(config.getHost().isPresent());
+        assertTrue(config.getConnectorParameters().isEmpty());
+        Map<String, String> params = config.getApplicationParameters();
+        assertEquals("owner", params.get(TermRequesterApplication.REPO_OWNER_PARAM));
+        assertEquals(ServerConfiguration.DEFAULT_SYNC_INTERVAL,
+            params.get(TermRequesterApplication.SYNC_INTERVAL_PARAM));
+        assertFalse(params.containsKey(TermRequesterApplication.MAX_STALENESS_PARAM));
+    }
+
+    /**
+     * Test that the file is read, and that the environment wins over it.
+     */
+    @Test
+    public void testFileAndEnv() throws IOException
+    {
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("org.phenotips.termrequester.repositoryOwner = fileowner\n");
+            w.write("org.phenotips.termrequester.maxStaleness = 60\n");
+            w.write("org.phenotips.termrequester.http.port = 9090\n");
+            w.write("org.phenotips.termrequester.http.maxThreads = 32\n");
+            w.write("org.phenotips.termrequester.http.idleTimeout = 5000\n");
+        }
+        env.put("TERMREQUESTER_HTTP_ACCEPT_QUEUE_SIZE", "128");
+        ServerConfiguration config = ServerConfiguration.load(Optional.of(file), env);
+        assertEquals(9090, config.getPort());
+        Map<String, String> params = config.getApplicationParameters();
+        assertEquals("owner", params.get(TermRequesterApplication.REPO_OWNER_PARAM));
+        assertEquals("60", params.get(TermRequesterApplication.MAX_STALENESS_PARAM));
+        Map<String, String> connector = config.getConnectorParameters();
+        assertEquals("32", connector.get("threadPool.maxThreads"));
+        assertEquals("5000", connector.get("connector.idleTimeout"));
+        assertEquals("128", connector.get("connector.acceptQueueSize"));
+        assertFalse(connector.containsKey("threadPool.minThreads"));
+    }
+
+    /**
+     * Test that a missing required parameter is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissing() throws IOException
+    {
+        env.remove("TERMREQUESTER_OAUTH_TOKEN");
+        ServerConfiguration.load(Optional.<Path>absent(), env);
+    }
+
+    /**
+     * Test that a malformed number is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformed() throws IOException
+    {
+        env.put("TERMREQUESTER_HTTP_MAX_THREADS", "lots");
+        ServerConfiguration.load(Optional.<Path>absent(), env);
+    }
+}